@@ -40,13 +40,34 @@ import org.openmrs.module.DaemonTokenAware;
 import org.openmrs.module.ModuleActivator;
 import org.openmrs.module.ModuleException;
 import org.openmrs.module.emrapi.account.AccountService;
+import org.openmrs.module.emrapi.account.RoleRegistry;
+import org.openmrs.module.emrapi.account.RoleRegistryEventListener;
+import org.openmrs.module.emrapi.concept.ConceptReferenceCache;
+import org.openmrs.module.emrapi.concept.ConceptReferenceCacheEventListener;
+import org.openmrs.module.emrapi.concept.ConceptSearchCache;
+import org.openmrs.module.emrapi.concept.ConceptSearchCacheEventListener;
+import org.openmrs.module.emrapi.descriptor.ConceptSetDescriptorRegistry;
+import org.openmrs.module.emrapi.descriptor.ConceptSetDescriptorRegistryEventListener;
+import org.openmrs.module.emrapi.adt.AdtChangeLog;
+import org.openmrs.module.emrapi.adt.CensusCacheEventListener;
+import org.openmrs.module.emrapi.adt.CensusService;
 import org.openmrs.module.emrapi.adt.EmrApiVisitAssignmentHandler;
 import org.openmrs.module.emrapi.event.PatientViewedEventListener;
+import org.openmrs.module.emrapi.patient.PatientIdentifierIndex;
+import org.openmrs.module.emrapi.patient.PatientIdentifierIndexEventListener;
+import org.openmrs.module.emrapi.patient.TestPatientIds;
+import org.openmrs.module.emrapi.patient.TestPatientIdsEventListener;
+import org.openmrs.module.emrapi.person.image.PersonImageMigrator;
+import org.openmrs.module.emrapi.person.image.PersonImageStore;
 import org.openmrs.module.emrapi.printer.PrinterDatatype;
 import org.openmrs.module.emrapi.utils.GeneralUtils;
+import org.openmrs.module.emrapi.utils.MetadataUtil;
+import org.openmrs.module.emrapi.utils.StartupTasks;
 import org.openmrs.util.OpenmrsConstants;
 
 import java.io.File;
+import java.util.Date;
+import java.util.List;
 
 /**
  * This class contains the logic that is run every time this module is either started or stopped.
@@ -57,6 +78,22 @@ public class EmrApiActivator extends BaseModuleActivator implements DaemonTokenA
 
     private EventListener eventListener;
 
+    private PatientIdentifierIndexEventListener patientIdentifierIndexEventListener;
+
+    private TestPatientIdsEventListener testPatientIdsEventListener;
+
+    private RoleRegistryEventListener roleRegistryEventListener;
+
+    private ConceptSetDescriptorRegistryEventListener conceptSetDescriptorRegistryEventListener;
+
+    private ConceptSearchCacheEventListener conceptSearchCacheEventListener;
+
+    private ConceptReferenceCacheEventListener conceptReferenceCacheEventListener;
+
+    private CensusCacheEventListener censusCacheEventListener;
+
+    private PersonImageMigrator personImageMigrator;
+
     private DaemonToken daemonToken;
 
     /**
@@ -66,80 +103,257 @@ public class EmrApiActivator extends BaseModuleActivator implements DaemonTokenA
     public void contextRefreshed() {
         super.contextRefreshed();    //To change body of overridden methods use File | Settings | File Templates.
 
-        ensurePrivilegeLevelRoles();
+        StartupTasks tasks = new StartupTasks("EMR API context refresh");
+        tasks.run("ensure privilege level roles", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                return ensurePrivilegeLevelRoles();
+            }
+        });
+        tasks.logReport();
     }
 
     /**
-     * Creates role "Privilege Level: Full" if does not exist
+     * Creates role "Privilege Level: Full" if does not exist, and gives it every API privilege
      *
-     * @return
+     * @return whether the role was changed
      */
-    private void ensurePrivilegeLevelRoles() {
+    private boolean ensurePrivilegeLevelRoles() {
         UserService userService = Context.getUserService();
         AccountService accountService = Context.getService(AccountService.class);
         EmrApiProperties emrProperties = Context.getRegisteredComponents(EmrApiProperties.class).iterator().next();
 
+        boolean changed = false;
         Role fullPrivilegeLevel = emrProperties.getFullPrivilegeLevel();
         if (fullPrivilegeLevel == null) {
             fullPrivilegeLevel = new Role();
             fullPrivilegeLevel.setRole(EmrApiConstants.PRIVILEGE_LEVEL_FULL_ROLE);
             fullPrivilegeLevel.setDescription(EmrApiConstants.PRIVILEGE_LEVEL_FULL_DESCRIPTION);
             fullPrivilegeLevel.setUuid(EmrApiConstants.PRIVILEGE_LEVEL_FULL_UUID);
-            userService.saveRole(fullPrivilegeLevel);
+            changed = true;
         }
 
         for (Privilege candidate : accountService.getApiPrivileges()) {
             if (!fullPrivilegeLevel.hasPrivilege(candidate.getName())) {
                 fullPrivilegeLevel.addPrivilege(candidate);
+                changed = true;
             }
         }
-        userService.saveRole(fullPrivilegeLevel);
+        if (changed) {
+            userService.saveRole(fullPrivilegeLevel);
+        }
+        return changed;
     }
 
+    /**
+     * Runs each startup step through {@link StartupTasks}, so that the time each one takes is logged. The
+     * steps that set up metadata run in order and skip what already exists; building caches and
+     * validating the concept set descriptors happen in the background.
+     */
     @Override
     public void started() {
         super.started();
 
-        AdministrationService administrationService = Context.getAdministrationService();
-        LocationService locationService = Context.getLocationService();
-        ProviderService providerService = Context.getProviderService();
-        PersonService personService = Context.getPersonService();
-        ConceptService conceptService = Context.getConceptService();
+        final AdministrationService administrationService = Context.getAdministrationService();
+        final LocationService locationService = Context.getLocationService();
+        final ProviderService providerService = Context.getProviderService();
+        final PersonService personService = Context.getPersonService();
+        final ConceptService conceptService = Context.getConceptService();
+
+        StartupTasks tasks = new StartupTasks("EMR API startup");
+        tasks.run("create global properties", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                return createGlobalProperties(administrationService);
+            }
+        });
+        tasks.run("create ADT change log id", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                return Context.getRegisteredComponents(AdtChangeLog.class).get(0).createLogId();
+            }
+        });
+        tasks.run("create location attribute types", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                return createLocationAttributeTypes(locationService);
+            }
+        });
+        tasks.run("create unknown provider", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                return createUnknownProvider(administrationService, providerService, personService);
+            }
+        });
+        tasks.run("create concept source", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                boolean exists = conceptService.getConceptSourceByName(EmrApiConstants.EMR_CONCEPT_SOURCE_NAME) != null;
+                return !exists && createConceptSource(conceptService) != null;
+            }
+        });
+        tasks.run("subscribe to events", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                eventListener = new PatientViewedEventListener(daemonToken);
+                Event.subscribe(EmrApiConstants.EVENT_TOPIC_NAME_PATIENT_VIEWED, eventListener);
+                subscribeRoleRegistry();
+                subscribeConceptSetDescriptorRegistry();
+                subscribeConceptSearchCache();
+                subscribeConceptReferenceCache();
+                subscribeCensusCache();
+                return true;
+            }
+        });
+        tasks.run("create person image folder", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                return createPersonImageFolder();
+            }
+        });
+
+        final PatientIdentifierIndex index = Context.getRegisteredComponents(PatientIdentifierIndex.class).get(0);
+        if (index.isEnabled()) {
+            patientIdentifierIndexEventListener = new PatientIdentifierIndexEventListener(index, daemonToken);
+            patientIdentifierIndexEventListener.subscribe();
+            // searches fall back to the database until the index is built
+            tasks.runInBackground("build patient identifier index", new StartupTasks.Task() {
+                @Override
+                public boolean run() {
+                    index.rebuild();
+                    return true;
+                }
+            }, daemonToken);
+        }
+
+        final TestPatientIds testPatientIds = Context.getRegisteredComponents(TestPatientIds.class).get(0);
+        testPatientIdsEventListener = new TestPatientIdsEventListener(testPatientIds, daemonToken);
+        testPatientIdsEventListener.subscribe();
+        // PatientDomainWrapper.isTestPatient() checks these ids once they are loaded, until then it reads the attributes
+        tasks.runInBackground("load test patient ids", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                testPatientIds.rebuild();
+                return true;
+            }
+        }, daemonToken);
+
+        final ConceptSetDescriptorRegistry registry = Context.getRegisteredComponents(ConceptSetDescriptorRegistry.class).get(0);
+        // so that a concept that is missing or not in its set shows up in the log at startup, and so that
+        // the registry has the concept ids of the descriptors that can be built before the first request
+        // (only the ids are kept, the descriptors and concepts loaded in this session are not)
+        tasks.runInBackground("validate concept set descriptors", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                List<String> problems = registry.validate();
+                if (!problems.isEmpty()) {
+                    throw new StartupTasks.StepFailedException(problems.size() + " descriptor(s) could not be built, "
+                            + StringUtils.join(problems, "; "));
+                }
+                return true;
+            }
+        }, daemonToken);
+
+        EmrApiProperties emrProperties = Context.getRegisteredComponents(EmrApiProperties.class).get(0);
+        PersonImageStore personImageStore = Context.getRegisteredComponents(PersonImageStore.class).get(0);
+        final PersonImageMigrator migrator = new PersonImageMigrator(emrProperties.getPersonImageDirectory(), personImageStore);
+        if (migrator.hasImagesToMigrate()) {
+            personImageMigrator = migrator;
+            // images are found in either layout while they are being moved
+            tasks.runInBackground("move person images to sharded directories", new StartupTasks.Task() {
+                @Override
+                public boolean run() {
+                    return migrator.migrate() > 0;
+                }
+            }, daemonToken);
+        }
+
+        tasks.logReport();
+    }
 
-        createGlobalProperties(administrationService);
-        createLocationAttributeTypes(locationService);
-        createUnknownProvider(administrationService, providerService, personService);
+    /**
+     * Subscribes the descriptor registry to concept changes, and drops what it built before in case
+     * concepts changed before it was subscribed
+     */
+    private void subscribeConceptSetDescriptorRegistry() {
+        ConceptSetDescriptorRegistry registry = Context.getRegisteredComponents(ConceptSetDescriptorRegistry.class).get(0);
+        conceptSetDescriptorRegistryEventListener = new ConceptSetDescriptorRegistryEventListener(registry);
+        conceptSetDescriptorRegistryEventListener.subscribe();
+        registry.invalidate();
+    }
 
-        createConceptSource(conceptService);
-        eventListener = new PatientViewedEventListener(daemonToken);
-        Event.subscribe(EmrApiConstants.EVENT_TOPIC_NAME_PATIENT_VIEWED, eventListener);
+    /**
+     * Subscribes the concept search cache to concept changes, and drops what it cached before in case
+     * concepts changed before it was subscribed
+     */
+    private void subscribeConceptSearchCache() {
+        ConceptSearchCache cache = Context.getRegisteredComponents(ConceptSearchCache.class).get(0);
+        conceptSearchCacheEventListener = new ConceptSearchCacheEventListener(cache);
+        conceptSearchCacheEventListener.subscribe();
+        cache.invalidate();
+    }
 
-        createPersonImageFolder();
+    /**
+     * Subscribes the concept reference cache to concept changes, and drops what it cached before in case
+     * concepts changed before it was subscribed
+     */
+    private void subscribeConceptReferenceCache() {
+        ConceptReferenceCache cache = Context.getRegisteredComponents(ConceptReferenceCache.class).get(0);
+        conceptReferenceCacheEventListener = new ConceptReferenceCacheEventListener(cache);
+        conceptReferenceCacheEventListener.subscribe();
+        cache.invalidate();
     }
 
-    private void createPersonImageFolder() {
+    /**
+     * Subscribes the role registry to role and privilege changes, and drops what it loaded before (e.g. in
+     * {@link #ensurePrivilegeLevelRoles()}) in case roles changed before it was subscribed
+     */
+    private void subscribeRoleRegistry() {
+        RoleRegistry roleRegistry = Context.getRegisteredComponents(RoleRegistry.class).get(0);
+        roleRegistryEventListener = new RoleRegistryEventListener(roleRegistry);
+        roleRegistryEventListener.subscribe();
+        roleRegistry.invalidate();
+    }
+
+    /**
+     * Subscribes the census cache to encounter and visit changes, and drops what it cached before in case
+     * they changed before it was subscribed
+     */
+    private void subscribeCensusCache() {
+        CensusService censusService = Context.getService(CensusService.class);
+        EmrApiProperties emrApiProperties = Context.getRegisteredComponents(EmrApiProperties.class).get(0);
+        censusCacheEventListener = new CensusCacheEventListener(censusService, emrApiProperties, daemonToken);
+        censusCacheEventListener.subscribe();
+        censusService.evictCache(new Date(0));
+    }
+
+    private boolean createPersonImageFolder() {
         EmrApiProperties emrProperties = Context.getRegisteredComponents(EmrApiProperties.class).get(0);
         File personImageDirectory = emrProperties.getPersonImageDirectory();
         try {
-            personImageDirectory.mkdirs();
+            return personImageDirectory.mkdirs();
         } catch (Exception e) {
             log.error("Could not create person images folder : " + personImageDirectory.getAbsolutePath(), e);
             throw new ModuleException("Could not create person images folder : " + personImageDirectory.getAbsolutePath());
         }
     }
 
-    private void createGlobalProperties(AdministrationService administrationService) {
+    private boolean createGlobalProperties(AdministrationService administrationService) {
         // When https://tickets.openmrs.org/browse/TRUNK-3773 is resolved, refactor this to refer to a bean by id
         GlobalProperty gp = administrationService.getGlobalPropertyObject(OpenmrsConstants.GP_VISIT_ASSIGNMENT_HANDLER);
         if (gp == null) {
             gp = new GlobalProperty();
             gp.setProperty(OpenmrsConstants.GP_VISIT_ASSIGNMENT_HANDLER);
+        } else if (EmrApiVisitAssignmentHandler.class.getName().equals(gp.getPropertyValue())) {
+            return false;
         }
         gp.setPropertyValue(EmrApiVisitAssignmentHandler.class.getName());
         administrationService.saveGlobalProperty(gp);
+        return true;
     }
 
-    private void createLocationAttributeTypes(LocationService locationService) {
+    private boolean createLocationAttributeTypes(LocationService locationService) {
+        boolean anyChanges = false;
         LocationAttributeType defaultLabelPrinterAttributeType =
                 locationService.getLocationAttributeTypeByUuid(EmrApiConstants.LOCATION_ATTRIBUTE_TYPE_DEFAULT_PRINTER.get("LABEL"));
 
@@ -154,11 +368,13 @@ public class EmrApiActivator extends BaseModuleActivator implements DaemonTokenA
             defaultLabelPrinterAttributeType.setDescription("The default label printer for this location");
 
             locationService.saveLocationAttributeType(defaultLabelPrinterAttributeType);
+            anyChanges = true;
         } else {
             // if you change any field values above, you need to set them here, so existing servers can be updated
             boolean changed = GeneralUtils.setPropertyIfDifferent(defaultLabelPrinterAttributeType, "datatypeClassname", PrinterDatatype.class.getName());
             if (changed) {
                 locationService.saveLocationAttributeType(defaultLabelPrinterAttributeType);
+                anyChanges = true;
             }
         }
 
@@ -176,11 +392,13 @@ public class EmrApiActivator extends BaseModuleActivator implements DaemonTokenA
             defaultIdCardPrinterAttributeType.setDescription("The default id card printer for this location");
 
             locationService.saveLocationAttributeType(defaultIdCardPrinterAttributeType);
+            anyChanges = true;
         } else {
             // if you change any field values above, you need to set them here, so existing servers can be updated
             boolean changed = GeneralUtils.setPropertyIfDifferent(defaultIdCardPrinterAttributeType, "datatypeClassname", PrinterDatatype.class.getName());
             if (changed) {
                 locationService.saveLocationAttributeType(defaultIdCardPrinterAttributeType);
+                anyChanges = true;
             }
         }
 
@@ -197,10 +415,12 @@ public class EmrApiActivator extends BaseModuleActivator implements DaemonTokenA
             nameToPrintOnIdCardAttributeType.setDescription("The name to use when printing a location on an id card");
 
             locationService.saveLocationAttributeType(nameToPrintOnIdCardAttributeType);
+            anyChanges = true;
         }
+        return anyChanges;
     }
 
-    private void createUnknownProvider(AdministrationService adminService, ProviderService providerService, PersonService personService) {
+    private boolean createUnknownProvider(AdministrationService adminService, ProviderService providerService, PersonService personService) {
 
         // see if the provider exists
         Provider provider = null;
@@ -236,8 +456,10 @@ public class EmrApiActivator extends BaseModuleActivator implements DaemonTokenA
             unknownProviderUuid.setPropertyValue("f9badd80-ab76-11e2-9e96-0800200c9a66");
             adminService.saveGlobalProperty(unknownProviderUuid);
 
+            return true;
         }
 
+        return false;
     }
 
     /**
@@ -263,10 +485,50 @@ public class EmrApiActivator extends BaseModuleActivator implements DaemonTokenA
         if (eventListener != null){
             Event.unsubscribe(EmrApiConstants.EVENT_TOPIC_NAME_PATIENT_VIEWED, eventListener);
         }
+        if (patientIdentifierIndexEventListener != null) {
+            patientIdentifierIndexEventListener.unsubscribe();
+            patientIdentifierIndexEventListener = null;
+            Context.getRegisteredComponents(PatientIdentifierIndex.class).get(0).clear();
+        }
+        if (testPatientIdsEventListener != null) {
+            testPatientIdsEventListener.unsubscribe();
+            testPatientIdsEventListener = null;
+            Context.getRegisteredComponents(TestPatientIds.class).get(0).clear();
+        }
+        if (roleRegistryEventListener != null) {
+            roleRegistryEventListener.unsubscribe();
+            roleRegistryEventListener = null;
+            Context.getRegisteredComponents(RoleRegistry.class).get(0).invalidate();
+        }
+        if (conceptSetDescriptorRegistryEventListener != null) {
+            conceptSetDescriptorRegistryEventListener.unsubscribe();
+            conceptSetDescriptorRegistryEventListener = null;
+            Context.getRegisteredComponents(ConceptSetDescriptorRegistry.class).get(0).invalidate();
+        }
+        if (conceptSearchCacheEventListener != null) {
+            conceptSearchCacheEventListener.unsubscribe();
+            conceptSearchCacheEventListener = null;
+            Context.getRegisteredComponents(ConceptSearchCache.class).get(0).invalidate();
+        }
+        if (conceptReferenceCacheEventListener != null) {
+            conceptReferenceCacheEventListener.unsubscribe();
+            conceptReferenceCacheEventListener = null;
+            Context.getRegisteredComponents(ConceptReferenceCache.class).get(0).invalidate();
+        }
+        if (censusCacheEventListener != null) {
+            censusCacheEventListener.unsubscribe();
+            censusCacheEventListener = null;
+            Context.getService(CensusService.class).evictCache(new Date(0));
+        }
+        if (personImageMigrator != null) {
+            personImageMigrator.stop();
+            personImageMigrator = null;
+        }
     }
 
     @Override
     public void setDaemonToken(DaemonToken token) {
         daemonToken = token;
+        MetadataUtil.setDaemonToken(token);
     }
 }
@@ -163,6 +163,10 @@ public class EmrApiConstants {
 
     public static final int DEFAULT_LAST_VIEWED_PATIENT_SIZE_LIMIT = 50;
 
+    public static final String GP_PATIENT_IDENTIFIER_INDEX_ENABLED = "emrapi.patientIdentifierIndexEnabled";
+
+    public static final String GP_ADT_CHANGE_LOG_ID = "emrapi.adtChangeLogId";
+
     /*public static final String CONCEPT_CODE_DISPOSITION = "Disposition";
 
     public static final String CONCEPTDISPOSITION_ANSWER_ADMIT = "Admit";
@@ -28,10 +28,13 @@ import org.openmrs.PersonAttributeType;
 import org.openmrs.Provider;
 import org.openmrs.Role;
 import org.openmrs.VisitType;
+import org.openmrs.module.emrapi.descriptor.ConceptSetDescriptorRegistry;
 import org.openmrs.module.emrapi.diagnosis.DiagnosisMetadata;
 import org.openmrs.module.emrapi.utils.GeneralUtils;
 import org.openmrs.module.emrapi.utils.ModuleProperties;
 import org.openmrs.util.OpenmrsUtil;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
@@ -47,6 +50,10 @@ import java.util.List;
 @Component("emrApiProperties")
 public class EmrApiProperties extends ModuleProperties {
 
+	@Autowired
+	@Qualifier("conceptSetDescriptorRegistry")
+	private ConceptSetDescriptorRegistry conceptSetDescriptorRegistry;
+
     public Location getUnknownLocation() {
 		return getLocationByGlobalProperty(EmrApiConstants.GP_UNKNOWN_LOCATION);
 	}
@@ -166,8 +173,12 @@ public class EmrApiProperties extends ModuleProperties {
 		return getPatientIdentifierTypesByGlobalProperty(EmrApiConstants.GP_EXTRA_PATIENT_IDENTIFIER_TYPES, false);
 	}
 
+	/**
+	 * @return diagnosis metadata with its concepts loaded in the current session, from concept ids the
+	 *         registry looks up again when the diagnosis concepts change
+	 */
 	public DiagnosisMetadata getDiagnosisMetadata() {
-		return new DiagnosisMetadata(conceptService, getEmrApiConceptSource());
+		return conceptSetDescriptorRegistry.getDiagnosisMetadata();
 	}
 
 	public List<ConceptSource> getConceptSourcesForDiagnosisSearch() {
@@ -273,6 +284,15 @@ public class EmrApiProperties extends ModuleProperties {
         return EmrApiConstants.DEFAULT_LAST_VIEWED_PATIENT_SIZE_LIMIT;
     }
 
+    /**
+     * @return whether identifiers should be held in memory to resolve exact identifier searches, see
+     *         {@link org.openmrs.module.emrapi.patient.PatientIdentifierIndex}
+     */
+    public boolean isPatientIdentifierIndexEnabled() {
+        String enabled = getGlobalProperty(EmrApiConstants.GP_PATIENT_IDENTIFIER_INDEX_ENABLED, false);
+        return "true".equalsIgnoreCase(StringUtils.trimWhitespace(enabled));
+    }
+
     public File getPersonImageDirectory() {
         String personImagesDir = getGlobalProperty(EmrApiConstants.GP_PERSON_IMAGES_DIRECTORY, false);
         if (personImagesDir == null || personImagesDir.isEmpty()) {
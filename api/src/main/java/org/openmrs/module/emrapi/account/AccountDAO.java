@@ -0,0 +1,53 @@
+package org.openmrs.module.emrapi.account;
+
+import org.openmrs.Provider;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Projection queries behind the account lists, which would otherwise load every user and provider and
+ * query each person's user and provider again
+ */
+public interface AccountDAO {
+
+    /**
+     * @param query if specified, only persons whose preferred given or family name, username or provider
+     *            identifier contains it (case insensitive) are returned
+     * @param excludedProvider if specified, a person who is only this provider is not an account
+     * @param sortBy
+     * @param ascending
+     * @param start the index of the first row to return, or null to start at the first one
+     * @param length the maximum number of rows to return, or null for all of them
+     * @return [personId, uuid, givenName, familyName, gender] of the non-voided persons that have a user
+     *         (other than the daemon user) or a provider
+     */
+    List<Object[]> getAccountRows(String query, Provider excludedProvider, AccountSummary.SortBy sortBy,
+                                  boolean ascending, Integer start, Integer length);
+
+    /**
+     * @param excludedProvider if specified, a person who is only this provider is not an account
+     * @return the ids of the persons {@link #getAccountRows} returns without a query, in person id order
+     */
+    List<Integer> getAccountPersonIds(Provider excludedProvider);
+
+    /**
+     * @return the number of rows {@link #getAccountRows} returns for the same query without paging
+     */
+    long getAccountCount(String query, Provider excludedProvider);
+
+    /**
+     * @param personIds
+     * @return [personId, userId, username, retired] of the users of those persons other than the daemon
+     *         user, the ones that are not retired first
+     */
+    List<Object[]> getUserRows(Collection<Integer> personIds);
+
+    /**
+     * @param personIds
+     * @return [personId, providerId, identifier, retired] of the providers of those persons, the ones that
+     *         are not retired first
+     */
+    List<Object[]> getProviderRows(Collection<Integer> personIds);
+
+}
@@ -165,7 +165,8 @@ public class AccountDomainWrapper {
 
         if (privilegeLevel != null) {
 
-            if (!accountService.getAllPrivilegeLevels().contains(privilegeLevel)) {
+            Set<Role> privilegeLevels = new HashSet<Role>(accountService.getAllPrivilegeLevels());
+            if (!privilegeLevels.contains(privilegeLevel)) {
                 throw new APIException("Attempting to set invalid privilege level");
             }
 
@@ -173,14 +174,14 @@ public class AccountDomainWrapper {
 
             if (!user.hasRole(privilegeLevel.getRole(), true)) {
                 if (user.getRoles() != null) {
-                    user.getRoles().removeAll(accountService.getAllPrivilegeLevels());
+                    user.getRoles().removeAll(privilegeLevels);
                 }
                 user.addRole(privilegeLevel);
             }
         } else if (user != null) {
             // privilege level is mandatory, so technically we shouldn't ever get here
             if (user.getRoles() != null) {
-                user.getRoles().removeAll(accountService.getAllPrivilegeLevels());
+                user.getRoles().removeAll(new HashSet<Role>(accountService.getAllPrivilegeLevels()));
             }
         }
     }
@@ -201,21 +202,22 @@ public class AccountDomainWrapper {
     public void setCapabilities(Set<Role> capabilities) {
 
         if (capabilities != null && capabilities.size() > 0) {
-            if (!accountService.getAllCapabilities().containsAll(capabilities)) {
+            Set<Role> allCapabilities = new HashSet<Role>(accountService.getAllCapabilities());
+            if (!allCapabilities.containsAll(capabilities)) {
                 throw new APIException("Attempt to set invalid capability");
             }
 
             initializeUserIfNecessary();
 
             if (user.getRoles() != null) {
-                user.getRoles().removeAll(accountService.getAllCapabilities());
+                user.getRoles().removeAll(allCapabilities);
             }
 
             for (Role role : capabilities) {
                 user.addRole(role);
             }
         } else if (user != null && user.getRoles() != null) {
-            user.getRoles().removeAll(accountService.getAllCapabilities());
+            user.getRoles().removeAll(new HashSet<Role>(accountService.getAllCapabilities()));
         }
     }
 
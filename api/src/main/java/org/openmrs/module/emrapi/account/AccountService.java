@@ -16,11 +16,34 @@ public interface AccountService {
     void setProviderIdentifierGenerator(ProviderIdentifierGenerator providerIdentifierGenerator);
 
     /**
-     * @return
+     * @return the accounts of all the non-voided persons with a user or provider, in person id order, as
+     *         a list that can be sorted and changed
      * @should get all unique accounts
      */
     List<AccountDomainWrapper> getAllAccounts();
 
+    /**
+     * Gets one page of account summaries, filtered and sorted in the database, for account lists that
+     * should not load a full {@link AccountDomainWrapper} per account
+     *
+     * @param query if not blank, only accounts whose given or family name, username or provider identifier
+     *            contains it are returned
+     * @param sortBy defaults to {@link AccountSummary.SortBy#FAMILY_NAME}
+     * @param ascending
+     * @param start the index of the first account to return, or null for the first one
+     * @param length the maximum number of accounts to return, or null for all of them
+     * @return
+     * @should get one page of the accounts matching the query
+     */
+    List<AccountSummary> getAccountSummaries(String query, AccountSummary.SortBy sortBy, boolean ascending,
+                                             Integer start, Integer length);
+
+    /**
+     * @param query
+     * @return the number of accounts {@link #getAccountSummaries} can return for this query
+     */
+    long getCountOfAccounts(String query);
+
     /**
      * Save the account details to the database
      *
@@ -2,23 +2,22 @@ package org.openmrs.module.emrapi.account;
 
 import org.openmrs.Person;
 import org.openmrs.Privilege;
-import org.openmrs.Provider;
 import org.openmrs.Role;
-import org.openmrs.User;
-import org.openmrs.api.APIException;
 import org.openmrs.api.PersonService;
 import org.openmrs.api.ProviderService;
 import org.openmrs.api.UserService;
 import org.openmrs.api.impl.BaseOpenmrsService;
-import org.openmrs.module.emrapi.EmrApiConstants;
 import org.openmrs.module.emrapi.EmrApiProperties;
 import org.openmrs.module.providermanagement.api.ProviderManagementService;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Transactional
 public class AccountServiceImpl extends BaseOpenmrsService implements AccountService {
@@ -35,6 +34,10 @@ public class AccountServiceImpl extends BaseOpenmrsService implements AccountSer
 
     private EmrApiProperties emrApiProperties;
 
+    private AccountDAO dao;
+
+    private RoleRegistry roleRegistry;
+
     /**
      * @param userService the userService to set
      */
@@ -75,49 +78,85 @@ public class AccountServiceImpl extends BaseOpenmrsService implements AccountSer
         this.emrApiProperties = emrApiProperties;
     }
 
+    public void setDao(AccountDAO dao) {
+        this.dao = dao;
+    }
+
+    public void setRoleRegistry(RoleRegistry roleRegistry) {
+        this.roleRegistry = roleRegistry;
+    }
+
     /**
+     * Only the ids of the persons are queried, each account is constructed (which loads the person and
+     * queries its user and provider) when it is first read. See {@link #getAccountSummaries} for lists
+     * that do not need the accounts at all.
+     *
      * @see org.openmrs.module.emrapi.account.AccountService#getAllAccounts()
      */
     @Override
     @Transactional(readOnly = true)
     public List<AccountDomainWrapper> getAllAccounts() {
+        return new LazyAccountList(dao.getAccountPersonIds(emrApiProperties.getUnknownProvider()));
+    }
 
-        Map<Person, AccountDomainWrapper> byPerson = new LinkedHashMap<Person, AccountDomainWrapper>();
-
-        for (User user : userService.getAllUsers()) {
-            //exclude daemon user
-            if (EmrApiConstants.DAEMON_USER_UUID.equals(user.getUuid()))
-                continue;
-
-            if (!user.getPerson().isVoided()) {
-                byPerson.put(user.getPerson(), new AccountDomainWrapper(user.getPerson(), this, userService,
-                        providerService, providerManagementService, personService, providerIdentifierGenerator));
-            }
+    /**
+     * Pages through the persons in the database, then gets the users and providers of that page in one
+     * query each.
+     *
+     * @see org.openmrs.module.emrapi.account.AccountService#getAccountSummaries(String, AccountSummary.SortBy, boolean, Integer, Integer)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<AccountSummary> getAccountSummaries(String query, AccountSummary.SortBy sortBy, boolean ascending,
+                                                    Integer start, Integer length) {
+        List<Object[]> persons = dao.getAccountRows(query, emrApiProperties.getUnknownProvider(),
+                sortBy == null ? AccountSummary.SortBy.FAMILY_NAME : sortBy, ascending, start, length);
+        if (persons.isEmpty()) {
+            return new ArrayList<AccountSummary>();
         }
 
-        for (Provider provider : providerService.getAllProviders()) {
-
-            // skip the baked-in unknown provider
-            if (provider.equals(emrApiProperties.getUnknownProvider())) {
-                continue;
-            }
+        List<Integer> personIds = new ArrayList<Integer>();
+        for (Object[] row : persons) {
+            personIds.add((Integer) row[0]);
+        }
+        Map<Integer, Object[]> users = firstRowByPersonId(dao.getUserRows(personIds));
+        Map<Integer, Object[]> providers = firstRowByPersonId(dao.getProviderRows(personIds));
+
+        List<AccountSummary> summaries = new ArrayList<AccountSummary>();
+        for (Object[] row : persons) {
+            Object[] user = users.get(row[0]);
+            Object[] provider = providers.get(row[0]);
+            summaries.add(new AccountSummary((Integer) row[0], (String) row[1], (String) row[2], (String) row[3],
+                    (String) row[4],
+                    user == null ? null : (Integer) user[1],
+                    user == null ? null : (String) user[2],
+                    user == null ? null : !(Boolean) user[3],
+                    provider == null ? null : (Integer) provider[1],
+                    provider == null ? null : (String) provider[2]));
+        }
+        return summaries;
+    }
 
-            if (provider.getPerson() == null)
-                throw new APIException("Providers not associated to a person are not supported");
+    /**
+     * @see org.openmrs.module.emrapi.account.AccountService#getCountOfAccounts(String)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long getCountOfAccounts(String query) {
+        return dao.getAccountCount(query, emrApiProperties.getUnknownProvider());
+    }
 
-            AccountDomainWrapper account = byPerson.get(provider.getPerson());
-            if (account == null && !provider.getPerson().isVoided()) {
-                byPerson.put(provider.getPerson(), new AccountDomainWrapper(provider.getPerson(), this, userService,
-                        providerService, providerManagementService, personService, providerIdentifierGenerator));
+    /**
+     * The rows come ordered so that the user or provider to show for a person is its first one
+     */
+    private Map<Integer, Object[]> firstRowByPersonId(List<Object[]> rows) {
+        Map<Integer, Object[]> byPersonId = new HashMap<Integer, Object[]>();
+        for (Object[] row : rows) {
+            if (!byPersonId.containsKey(row[0])) {
+                byPersonId.put((Integer) row[0], row);
             }
         }
-
-        List<AccountDomainWrapper> accounts = new ArrayList<AccountDomainWrapper>();
-        for (AccountDomainWrapper account : byPerson.values()) {
-            accounts.add(account);
-        }
-
-        return accounts;
+        return byPersonId;
     }
 
     /**
@@ -154,12 +193,7 @@ public class AccountServiceImpl extends BaseOpenmrsService implements AccountSer
     @Override
     @Transactional(readOnly = true)
     public List<Role> getAllCapabilities() {
-        List<Role> capabilities = new ArrayList<Role>();
-        for (Role candidate : userService.getAllRoles()) {
-            if (candidate.getName().startsWith(EmrApiConstants.ROLE_PREFIX_CAPABILITY))
-                capabilities.add(candidate);
-        }
-        return capabilities;
+        return getRoles(roleRegistry.getCapabilityNames());
     }
 
     /**
@@ -168,40 +202,108 @@ public class AccountServiceImpl extends BaseOpenmrsService implements AccountSer
     @Override
     @Transactional(readOnly = true)
     public List<Role> getAllPrivilegeLevels() {
-        List<Role> privilegeLevels = new ArrayList<Role>();
-        for (Role candidate : userService.getAllRoles()) {
-            if (candidate.getName().startsWith(EmrApiConstants.ROLE_PREFIX_PRIVILEGE_LEVEL))
-                privilegeLevels.add(candidate);
-        }
-        return privilegeLevels;
+        return getRoles(roleRegistry.getPrivilegeLevelNames());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Privilege> getApiPrivileges() {
-        List<Privilege> privileges = new ArrayList<Privilege>();
-        for (Privilege candidate : userService.getAllPrivileges()) {
-            if (!isApplicationPrivilege(candidate)) {
-                privileges.add(candidate);
-            }
-        }
-        return privileges;
+        return getPrivileges(roleRegistry.getApiPrivilegeNames());
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<Privilege> getApplicationPrivileges() {
-        List<Privilege> privileges = new ArrayList<Privilege>();
-        for (Privilege candidate : userService.getAllPrivileges()) {
-            if (isApplicationPrivilege(candidate)) {
-                privileges.add(candidate);
+        return getPrivileges(roleRegistry.getApplicationPrivilegeNames());
+    }
+
+    /**
+     * Loads the roles in the current session by their names, which are their primary keys, so they come
+     * from the session or second level cache rather than from a query
+     */
+    private List<Role> getRoles(Set<String> names) {
+        List<Role> roles = new ArrayList<Role>(names.size());
+        for (String name : names) {
+            Role role = userService.getRole(name);
+            if (role != null) {
+                roles.add(role);
             }
         }
-        return privileges;
+        return roles;
     }
 
-    private boolean isApplicationPrivilege(Privilege privilege) {
-        return privilege.getPrivilege().startsWith(EmrApiConstants.PRIVILEGE_PREFIX_APP)
-                || privilege.getPrivilege().startsWith(EmrApiConstants.PRIVILEGE_PREFIX_TASK);
+    /**
+     * @see #getRoles(Set)
+     */
+    private List<Privilege> getPrivileges(Set<String> names) {
+        List<Privilege> privileges = new ArrayList<Privilege>(names.size());
+        for (String name : names) {
+            Privilege privilege = userService.getPrivilege(name);
+            if (privilege != null) {
+                privileges.add(privilege);
+            }
+        }
+        return privileges;
     }
 
+    /**
+     * Constructs the account of each person the first time it is read. The list can be changed like an
+     * {@link ArrayList}, an account that is added or set is kept as it is.
+     */
+    private class LazyAccountList extends AbstractList<AccountDomainWrapper> {
+
+        /**
+         * The person of each account not constructed yet, null once it is
+         */
+        private final List<Integer> personIds;
+
+        private final List<AccountDomainWrapper> accounts;
+
+        LazyAccountList(List<Integer> personIds) {
+            this.personIds = new ArrayList<Integer>(personIds);
+            this.accounts = new ArrayList<AccountDomainWrapper>(
+                    Collections.<AccountDomainWrapper>nCopies(personIds.size(), null));
+        }
+
+        @Override
+        public AccountDomainWrapper get(int index) {
+            AccountDomainWrapper account = accounts.get(index);
+            if (account == null && personIds.get(index) != null) {
+                account = getAccount(personIds.get(index));
+                accounts.set(index, account);
+                personIds.set(index, null);
+            }
+            return account;
+        }
+
+        @Override
+        public AccountDomainWrapper set(int index, AccountDomainWrapper account) {
+            AccountDomainWrapper previous = get(index);
+            accounts.set(index, account);
+            return previous;
+        }
+
+        @Override
+        public void add(int index, AccountDomainWrapper account) {
+            personIds.add(index, null);
+            accounts.add(index, account);
+            modCount++;
+        }
+
+        @Override
+        public AccountDomainWrapper remove(int index) {
+            AccountDomainWrapper removed = get(index);
+            personIds.remove(index);
+            accounts.remove(index);
+            modCount++;
+            return removed;
+        }
+
+        @Override
+        public int size() {
+            return accounts.size();
+        }
+
+    }
 
 }
@@ -0,0 +1,99 @@
+package org.openmrs.module.emrapi.account;
+
+/**
+ * A lightweight, read-only row with what account lists show about an account (the person's name, and
+ * its user and provider if any), see {@link AccountService#getAccountSummaries}. Use
+ * {@link AccountService#getAccount(Integer)} with the person id to get the full
+ * {@link AccountDomainWrapper} when one account is opened.
+ */
+public class AccountSummary {
+
+    public enum SortBy {
+        FAMILY_NAME, GIVEN_NAME, DATE_CREATED
+    }
+
+    private final Integer personId;
+
+    private final String personUuid;
+
+    private final String givenName;
+
+    private final String familyName;
+
+    private final String gender;
+
+    private final Integer userId;
+
+    private final String username;
+
+    private final Boolean userEnabled;
+
+    private final Integer providerId;
+
+    private final String providerIdentifier;
+
+    public AccountSummary(Integer personId, String personUuid, String givenName, String familyName, String gender,
+                          Integer userId, String username, Boolean userEnabled, Integer providerId,
+                          String providerIdentifier) {
+        this.personId = personId;
+        this.personUuid = personUuid;
+        this.givenName = givenName;
+        this.familyName = familyName;
+        this.gender = gender;
+        this.userId = userId;
+        this.username = username;
+        this.userEnabled = userEnabled;
+        this.providerId = providerId;
+        this.providerIdentifier = providerIdentifier;
+    }
+
+    public Integer getPersonId() {
+        return personId;
+    }
+
+    public String getPersonUuid() {
+        return personUuid;
+    }
+
+    public String getGivenName() {
+        return givenName;
+    }
+
+    public String getFamilyName() {
+        return familyName;
+    }
+
+    public String getGender() {
+        return gender;
+    }
+
+    /**
+     * @return the id of the user, or null if the account has no user
+     */
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @return whether the user is not retired, or null if the account has no user
+     */
+    public Boolean getUserEnabled() {
+        return userEnabled;
+    }
+
+    /**
+     * @return the id of the provider, or null if the account has no provider
+     */
+    public Integer getProviderId() {
+        return providerId;
+    }
+
+    public String getProviderIdentifier() {
+        return providerIdentifier;
+    }
+
+}
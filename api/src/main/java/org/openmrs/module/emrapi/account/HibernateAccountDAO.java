@@ -0,0 +1,139 @@
+package org.openmrs.module.emrapi.account;
+
+import org.apache.commons.lang.StringUtils;
+import org.hibernate.Query;
+import org.hibernate.SessionFactory;
+import org.openmrs.Provider;
+import org.openmrs.module.emrapi.EmrApiConstants;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class HibernateAccountDAO implements AccountDAO {
+
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
+    private SessionFactory sessionFactory;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * @see AccountDAO#getAccountRows(String, Provider, AccountSummary.SortBy, boolean, Integer, Integer)
+     */
+    @Override
+    public List<Object[]> getAccountRows(String query, Provider excludedProvider, AccountSummary.SortBy sortBy,
+                                         boolean ascending, Integer start, Integer length) {
+        String direction = ascending ? " asc" : " desc";
+        StringBuilder hql = new StringBuilder("select p.personId, p.uuid, n.givenName, n.familyName, p.gender ");
+        appendFromAndWhere(hql, query, excludedProvider);
+        hql.append("order by ");
+        if (sortBy == AccountSummary.SortBy.GIVEN_NAME) {
+            hql.append("n.givenName").append(direction).append(", n.familyName").append(direction);
+        } else if (sortBy == AccountSummary.SortBy.DATE_CREATED) {
+            hql.append("p.dateCreated").append(direction);
+        } else {
+            hql.append("n.familyName").append(direction).append(", n.givenName").append(direction);
+        }
+        hql.append(", p.personId").append(direction);
+
+        Query q = createQuery(hql, query, excludedProvider);
+        if (start != null) {
+            q.setFirstResult(start);
+        }
+        if (length != null) {
+            q.setMaxResults(length);
+        }
+        return (List<Object[]>) q.list();
+    }
+
+    /**
+     * @see AccountDAO#getAccountPersonIds(Provider)
+     */
+    @Override
+    public List<Integer> getAccountPersonIds(Provider excludedProvider) {
+        StringBuilder hql = new StringBuilder("select p.personId ");
+        appendFromAndWhere(hql, null, excludedProvider);
+        hql.append("order by p.personId");
+        return (List<Integer>) createQuery(hql, null, excludedProvider).list();
+    }
+
+    /**
+     * @see AccountDAO#getAccountCount(String, Provider)
+     */
+    @Override
+    public long getAccountCount(String query, Provider excludedProvider) {
+        StringBuilder hql = new StringBuilder("select count(p.personId) ");
+        appendFromAndWhere(hql, query, excludedProvider);
+        return ((Number) createQuery(hql, query, excludedProvider).uniqueResult()).longValue();
+    }
+
+    /**
+     * @see AccountDAO#getUserRows(Collection)
+     */
+    @Override
+    public List<Object[]> getUserRows(Collection<Integer> personIds) {
+        return getRowsByPersonIds("select u.person.personId, u.userId, u.username, u.retired from User u " +
+                "where u.person.personId in (:personIds) and u.uuid <> :daemonUuid " +
+                "order by u.retired, u.userId", personIds, true);
+    }
+
+    /**
+     * @see AccountDAO#getProviderRows(Collection)
+     */
+    @Override
+    public List<Object[]> getProviderRows(Collection<Integer> personIds) {
+        return getRowsByPersonIds("select pr.person.personId, pr.providerId, pr.identifier, pr.retired from Provider pr " +
+                "where pr.person.personId in (:personIds) " +
+                "order by pr.retired, pr.providerId", personIds, false);
+    }
+
+    /**
+     * Accounts are the non-voided persons with a user other than the daemon user, or with a provider other
+     * than the excluded one, listed under their preferred name
+     */
+    private void appendFromAndWhere(StringBuilder hql, String query, Provider excludedProvider) {
+        hql.append("from Person p left join p.names n with n.preferred = true and n.voided = false ");
+        hql.append("where p.voided = false ");
+        hql.append("and (exists (select u.userId from User u where u.person = p and u.uuid <> :daemonUuid) ");
+        hql.append("or exists (select pr.providerId from Provider pr where pr.person = p");
+        if (excludedProvider != null) {
+            hql.append(" and pr <> :excludedProvider");
+        }
+        hql.append(")) ");
+        if (StringUtils.isNotBlank(query)) {
+            hql.append("and (lower(n.givenName) like :query or lower(n.familyName) like :query ");
+            hql.append("or exists (select u.userId from User u where u.person = p and lower(u.username) like :query) ");
+            hql.append("or exists (select pr.providerId from Provider pr where pr.person = p and lower(pr.identifier) like :query)) ");
+        }
+    }
+
+    private Query createQuery(StringBuilder hql, String query, Provider excludedProvider) {
+        Query q = sessionFactory.getCurrentSession().createQuery(hql.toString());
+        q.setString("daemonUuid", EmrApiConstants.DAEMON_USER_UUID);
+        if (excludedProvider != null) {
+            q.setParameter("excludedProvider", excludedProvider);
+        }
+        if (StringUtils.isNotBlank(query)) {
+            q.setString("query", "%" + query.trim().toLowerCase() + "%");
+        }
+        return q;
+    }
+
+    private List<Object[]> getRowsByPersonIds(String hql, Collection<Integer> personIds, boolean excludeDaemon) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        List<Integer> ids = new ArrayList<Integer>(personIds);
+        for (int from = 0; from < ids.size(); from += MAX_IN_CLAUSE_SIZE) {
+            Query query = sessionFactory.getCurrentSession().createQuery(hql);
+            query.setParameterList("personIds", ids.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, ids.size())));
+            if (excludeDaemon) {
+                query.setString("daemonUuid", EmrApiConstants.DAEMON_USER_UUID);
+            }
+            rows.addAll((List<Object[]>) query.list());
+        }
+        return rows;
+    }
+
+}
@@ -0,0 +1,145 @@
+package org.openmrs.module.emrapi.account;
+
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.api.UserService;
+import org.openmrs.module.emrapi.EmrApiConstants;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The names of all the roles and privileges, sorted once into capabilities, privilege levels, API
+ * privileges and application privileges by their name prefixes, so that account screens and account
+ * provisioning do not scan every role and privilege each time they need one of these lists.
+ * <p/>
+ * Only the names are kept, as the roles and privileges themselves belong to the session that loaded
+ * them; callers load the entities they need by name (their primary key) in their own session.
+ * <p/>
+ * The names are loaded the first time they are needed, and loaded again after {@link #invalidate()},
+ * which {@link RoleRegistryEventListener} calls whenever a role or privilege is saved or purged.
+ */
+public class RoleRegistry {
+
+    private UserService userService;
+
+    private volatile Partitions partitions;
+
+    private final Object lock = new Object();
+
+    private int version;
+
+    public void setUserService(UserService userService) {
+        this.userService = userService;
+    }
+
+    /**
+     * @return names of the roles with the {@link EmrApiConstants#ROLE_PREFIX_CAPABILITY} prefix, unmodifiable
+     */
+    public Set<String> getCapabilityNames() {
+        return getPartitions().capabilities;
+    }
+
+    /**
+     * @return names of the roles with the {@link EmrApiConstants#ROLE_PREFIX_PRIVILEGE_LEVEL} prefix,
+     *         unmodifiable
+     */
+    public Set<String> getPrivilegeLevelNames() {
+        return getPartitions().privilegeLevels;
+    }
+
+    /**
+     * @return names of the privileges that are not application privileges, unmodifiable
+     */
+    public Set<String> getApiPrivilegeNames() {
+        return getPartitions().apiPrivileges;
+    }
+
+    /**
+     * @return names of the privileges with the {@link EmrApiConstants#PRIVILEGE_PREFIX_APP} or
+     *         {@link EmrApiConstants#PRIVILEGE_PREFIX_TASK} prefix, unmodifiable
+     */
+    public Set<String> getApplicationPrivilegeNames() {
+        return getPartitions().applicationPrivileges;
+    }
+
+    /**
+     * Forgets the names, they are loaded again the next time they are needed
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            version++;
+            partitions = null;
+        }
+    }
+
+    private Partitions getPartitions() {
+        Partitions current = partitions;
+        if (current == null) {
+            int loadedVersion;
+            synchronized (lock) {
+                loadedVersion = version;
+            }
+            current = new Partitions(userService.getAllRoles(), userService.getAllPrivileges());
+            synchronized (lock) {
+                // don't keep names that were being loaded while a role or privilege changed
+                if (loadedVersion == version) {
+                    partitions = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static boolean isApplicationPrivilege(String privilege) {
+        return privilege.startsWith(EmrApiConstants.PRIVILEGE_PREFIX_APP)
+                || privilege.startsWith(EmrApiConstants.PRIVILEGE_PREFIX_TASK);
+    }
+
+    /**
+     * One immutable classification, replaced as a whole so that readers never see a partly built one
+     */
+    private static class Partitions {
+
+        private final Set<String> capabilities;
+
+        private final Set<String> privilegeLevels;
+
+        private final Set<String> apiPrivileges;
+
+        private final Set<String> applicationPrivileges;
+
+        Partitions(Collection<Role> roles, Collection<Privilege> privileges) {
+            Set<String> capabilities = new LinkedHashSet<String>();
+            Set<String> privilegeLevels = new LinkedHashSet<String>();
+            for (Role candidate : roles) {
+                String name = candidate.getRole();
+                if (name.startsWith(EmrApiConstants.ROLE_PREFIX_CAPABILITY)) {
+                    capabilities.add(name);
+                } else if (name.startsWith(EmrApiConstants.ROLE_PREFIX_PRIVILEGE_LEVEL)) {
+                    privilegeLevels.add(name);
+                }
+            }
+
+            Set<String> apiPrivileges = new LinkedHashSet<String>();
+            Set<String> applicationPrivileges = new LinkedHashSet<String>();
+            for (Privilege candidate : privileges) {
+                String name = candidate.getPrivilege();
+                if (isApplicationPrivilege(name)) {
+                    applicationPrivileges.add(name);
+                } else {
+                    apiPrivileges.add(name);
+                }
+            }
+
+            this.capabilities = Collections.unmodifiableSet(capabilities);
+            this.privilegeLevels = Collections.unmodifiableSet(privilegeLevels);
+            this.apiPrivileges = Collections.unmodifiableSet(apiPrivileges);
+            this.applicationPrivileges = Collections.unmodifiableSet(applicationPrivileges);
+        }
+
+    }
+
+}
@@ -0,0 +1,45 @@
+package org.openmrs.module.emrapi.account;
+
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.event.Event;
+import org.openmrs.event.EventListener;
+
+import javax.jms.Message;
+
+/**
+ * Invalidates the {@link RoleRegistry} whenever a role or privilege is saved or purged
+ */
+public class RoleRegistryEventListener implements EventListener {
+
+    private static final Event.Action[] ACTIONS = { Event.Action.CREATED, Event.Action.UPDATED, Event.Action.PURGED };
+
+    private RoleRegistry roleRegistry;
+
+    public RoleRegistryEventListener(RoleRegistry roleRegistry) {
+        this.roleRegistry = roleRegistry;
+    }
+
+    public void subscribe() {
+        for (Event.Action action : ACTIONS) {
+            Event.subscribe(Role.class, action.name(), this);
+            Event.subscribe(Privilege.class, action.name(), this);
+        }
+    }
+
+    public void unsubscribe() {
+        for (Event.Action action : ACTIONS) {
+            Event.unsubscribe(Role.class, action, this);
+            Event.unsubscribe(Privilege.class, action, this);
+        }
+    }
+
+    /**
+     * @see EventListener#onMessage(javax.jms.Message)
+     */
+    @Override
+    public void onMessage(Message message) {
+        roleRegistry.invalidate();
+    }
+
+}
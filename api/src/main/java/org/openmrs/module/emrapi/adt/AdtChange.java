@@ -0,0 +1,132 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import java.util.Date;
+
+/**
+ * One entry of the {@link AdtChangeLog}: something {@link AdtService} did to a patient's visit, identified
+ * by uuids so that downstream systems can fetch whatever they need about it. Stored in the
+ * emrapi_adt_change table, where the id is the sequence.
+ */
+public class AdtChange {
+
+    public enum Type {
+        CHECK_IN, ADMISSION, TRANSFER, DISCHARGE, VISIT_CLOSED, VISIT_MERGED
+    }
+
+    private long sequence;
+
+    private Type type;
+
+    private Date recordedDatetime;
+
+    private Date actionDatetime;
+
+    private String patientUuid;
+
+    private String visitUuid;
+
+    private String locationUuid;
+
+    private String encounterUuid;
+
+    private String mergedVisitUuid;
+
+    /**
+     * For Hibernate
+     */
+    AdtChange() {
+    }
+
+    public AdtChange(Type type, Date recordedDatetime, Date actionDatetime, String patientUuid, String visitUuid,
+                     String locationUuid, String encounterUuid, String mergedVisitUuid) {
+        this.type = type;
+        this.recordedDatetime = recordedDatetime;
+        this.actionDatetime = actionDatetime;
+        this.patientUuid = patientUuid;
+        this.visitUuid = visitUuid;
+        this.locationUuid = locationUuid;
+        this.encounterUuid = encounterUuid;
+        this.mergedVisitUuid = mergedVisitUuid;
+    }
+
+    /**
+     * @return the place of the change in the log, each change has a higher one than the changes saved before
+     *         it, 0 until it is saved
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * For DAOs that assign the sequence themselves
+     */
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return when the change was written to the log, right after the transaction that made it committed
+     */
+    public Date getRecordedDatetime() {
+        return recordedDatetime;
+    }
+
+    /**
+     * @return when the change happened to the patient, e.g. the datetime of a retrospective admission, or the
+     *         stop datetime of a closed visit, null for merges
+     */
+    public Date getActionDatetime() {
+        return actionDatetime;
+    }
+
+    public String getPatientUuid() {
+        return patientUuid;
+    }
+
+    /**
+     * @return the visit, for a merge the one that was kept
+     */
+    public String getVisitUuid() {
+        return visitUuid;
+    }
+
+    /**
+     * @return where the patient checked in, was admitted, transferred or discharged, or the location of the
+     *         visit otherwise
+     */
+    public String getLocationUuid() {
+        return locationUuid;
+    }
+
+    /**
+     * @return the check-in or ADT encounter, null for visit changes
+     */
+    public String getEncounterUuid() {
+        return encounterUuid;
+    }
+
+    /**
+     * @return the visit that was voided when it was merged into {@link #getVisitUuid()}, null otherwise
+     */
+    public String getMergedVisitUuid() {
+        return mergedVisitUuid;
+    }
+
+}
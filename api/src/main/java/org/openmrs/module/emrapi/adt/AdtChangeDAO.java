@@ -0,0 +1,47 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import java.util.List;
+
+/**
+ * Stores the {@link AdtChangeLog}, so that it survives restarts and every server of a cluster shares it
+ */
+public interface AdtChangeDAO {
+
+    /**
+     * Saves a new change, which gets the next sequence
+     *
+     * @param change
+     */
+    void saveChange(AdtChange change);
+
+    /**
+     * @param sequence
+     * @param maxResults
+     * @return the first changes with a higher sequence, in sequence order
+     */
+    List<AdtChange> getChangesAfter(long sequence, int maxResults);
+
+    /**
+     * @return the lowest sequence in the log, 0 if it is empty
+     */
+    long getFirstSequence();
+
+    /**
+     * @return the highest sequence in the log, 0 if it is empty
+     */
+    long getLastSequence();
+
+}
@@ -0,0 +1,236 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Encounter;
+import org.openmrs.GlobalProperty;
+import org.openmrs.Location;
+import org.openmrs.Visit;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.module.emrapi.EmrApiConstants;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * An append-only log of the check-ins, admissions, transfers, discharges, visit closes and visit merges
+ * made through {@link AdtService}, so that downstream systems (bed management, billing) can ask for what
+ * changed since they last asked instead of re-reading all the active visits.
+ * <p/>
+ * The log is stored in the database (see {@link AdtChangeDAO}), so it survives restarts and every server
+ * of a cluster reads and writes the same one. Its {@link #getLogId() id} is kept in a global property, and
+ * only changes if the log is started over, e.g. on a database restored from another server.
+ * <p/>
+ * A change is saved, in its own transaction, right after the transaction that made it commits, and gets
+ * the next sequence then. Two servers can save changes at the same time, so a change may commit after one
+ * with a higher sequence. The log doesn't return changes past a sequence that is missing until
+ * {@link #setSettleTime(long) settleTime} has passed (a missing sequence may also be a save that failed),
+ * so a consumer that has read up to a sequence doesn't miss a lower one that shows up later. The clocks
+ * of the servers need to agree to within the settle time. A change is lost if the server stops between
+ * the commit and the save.
+ */
+public class AdtChangeLog {
+
+    public static final int MAX_BATCH_SIZE = 1000;
+
+    public static final long DEFAULT_SETTLE_TIME = 10 * 1000;
+
+    protected final Log log = LogFactory.getLog(getClass());
+
+    private AdtChangeDAO adtChangeDAO;
+
+    private AdministrationService administrationService;
+
+    private PlatformTransactionManager transactionManager;
+
+    private long settleTime = DEFAULT_SETTLE_TIME;
+
+    private volatile String logId;
+
+    public void setAdtChangeDAO(AdtChangeDAO adtChangeDAO) {
+        this.adtChangeDAO = adtChangeDAO;
+    }
+
+    public void setAdministrationService(AdministrationService administrationService) {
+        this.administrationService = administrationService;
+    }
+
+    public void setTransactionManager(PlatformTransactionManager transactionManager) {
+        this.transactionManager = transactionManager;
+    }
+
+    /**
+     * @param settleTime how long a missing sequence may belong to a change that is still being saved, in
+     *            milliseconds
+     */
+    public void setSettleTime(long settleTime) {
+        this.settleTime = settleTime;
+    }
+
+    /**
+     * Creates the log id, if it doesn't exist yet
+     *
+     * @return whether it was created
+     * @should create the log id once
+     */
+    public boolean createLogId() {
+        if (StringUtils.isNotBlank(administrationService.getGlobalProperty(EmrApiConstants.GP_ADT_CHANGE_LOG_ID))) {
+            return false;
+        }
+        administrationService.saveGlobalProperty(new GlobalProperty(EmrApiConstants.GP_ADT_CHANGE_LOG_ID,
+                UUID.randomUUID().toString(), "Identifies the ADT change log, do not change"));
+        return true;
+    }
+
+    /**
+     * @return identifies the log, null until {@link #createLogId()} is called
+     */
+    public String getLogId() {
+        String id = logId;
+        if (id == null) {
+            id = StringUtils.trimToNull(administrationService.getGlobalProperty(EmrApiConstants.GP_ADT_CHANGE_LOG_ID));
+            logId = id;
+        }
+        return id;
+    }
+
+    public long getLastSequence() {
+        return inTransaction(new TransactionCallback<Long>() {
+            @Override
+            public Long doInTransaction(TransactionStatus status) {
+                return adtChangeDAO.getLastSequence();
+            }
+        });
+    }
+
+    /**
+     * Records a change to the visit, when the current transaction commits (or right away if there is no
+     * transaction). A failure to save it is logged, since the change itself has been committed.
+     *
+     * @param type
+     * @param visit the visit, for a merge the one that was kept
+     * @param location where it happened
+     * @param encounter the check-in or ADT encounter, if any
+     * @param mergedVisit the visit that was merged into the other one, if any
+     * @param actionDatetime when it happened to the patient
+     * @should save the change right away if there is no transaction
+     * @should save the change when the transaction commits
+     * @should not save the change if the transaction rolls back
+     */
+    public void record(final AdtChange.Type type, Visit visit, Location location, Encounter encounter, Visit mergedVisit,
+                       final Date actionDatetime) {
+        final String patientUuid = visit.getPatient() == null ? null : visit.getPatient().getUuid();
+        final String visitUuid = visit.getUuid();
+        final String locationUuid = location == null ? null : location.getUuid();
+        final String encounterUuid = encounter == null ? null : encounter.getUuid();
+        final String mergedVisitUuid = mergedVisit == null ? null : mergedVisit.getUuid();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    save(new AdtChange(type, new Date(), actionDatetime, patientUuid, visitUuid, locationUuid,
+                            encounterUuid, mergedVisitUuid));
+                }
+            });
+        } else {
+            save(new AdtChange(type, new Date(), actionDatetime, patientUuid, visitUuid, locationUuid, encounterUuid,
+                    mergedVisitUuid));
+        }
+    }
+
+    /**
+     * @param logId the log id of the last page the consumer read, if any
+     * @param since the last sequence the consumer read, 0 to read from the start
+     * @param batchSize the maximum number of changes to return, at most {@link #MAX_BATCH_SIZE}
+     * @return the changes after the sequence
+     * @should return the changes after the sequence in order
+     * @should return a batch at a time
+     * @should reset a consumer of another log
+     * @should reset a consumer that asks for changes that were deleted
+     * @should wait for a missing sequence until the settle time has passed
+     */
+    public AdtChanges getChangesSince(final String logId, final long since, final int batchSize) {
+        return inTransaction(new TransactionCallback<AdtChanges>() {
+            @Override
+            public AdtChanges doInTransaction(TransactionStatus status) {
+                return getChangesSince(logId, since, batchSize, adtChangeDAO.getLastSequence());
+            }
+        });
+    }
+
+    private AdtChanges getChangesSince(String logId, long since, int batchSize, long lastSequence) {
+        String currentLogId = getLogId();
+        batchSize = Math.max(1, Math.min(batchSize, MAX_BATCH_SIZE));
+        boolean reset = false;
+        if ((logId != null && !logId.equals(currentLogId)) || since > lastSequence) {
+            reset = true;
+            since = 0;
+        }
+        long first = adtChangeDAO.getFirstSequence();
+        if (first > 0 && since + 1 < first) {
+            reset = true;
+            since = first - 1;
+        }
+
+        long settled = System.currentTimeMillis() - settleTime;
+        List<AdtChange> page = new ArrayList<AdtChange>();
+        boolean pending = false;
+        long to = since;
+        for (AdtChange change : adtChangeDAO.getChangesAfter(since, batchSize)) {
+            if (change.getSequence() != to + 1 && change.getRecordedDatetime().getTime() > settled) {
+                pending = true;
+                break;
+            }
+            page.add(change);
+            to = change.getSequence();
+        }
+        return new AdtChanges(currentLogId, reset, page, to, !pending && to < lastSequence, pending);
+    }
+
+    private void save(final AdtChange change) {
+        try {
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            template.execute(new TransactionCallbackWithoutResult() {
+                @Override
+                protected void doInTransactionWithoutResult(TransactionStatus status) {
+                    adtChangeDAO.saveChange(change);
+                }
+            });
+        }
+        catch (RuntimeException e) {
+            log.error("Failed to record " + change.getType() + " of visit " + change.getVisitUuid() + " in the ADT change log", e);
+        }
+    }
+
+    private <T> T inTransaction(TransactionCallback<T> callback) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template.execute(callback);
+    }
+
+}
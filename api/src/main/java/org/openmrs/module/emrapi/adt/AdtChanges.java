@@ -0,0 +1,93 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of the {@link AdtChangeLog}, see {@link AdtChangeLog#getChangesSince(String, long, int)}
+ */
+public class AdtChanges {
+
+    private final String logId;
+
+    private final boolean reset;
+
+    private final List<AdtChange> changes;
+
+    private final long lastSequence;
+
+    private final boolean more;
+
+    private final boolean pending;
+
+    public AdtChanges(String logId, boolean reset, List<AdtChange> changes, long lastSequence, boolean more,
+                      boolean pending) {
+        this.logId = logId;
+        this.reset = reset;
+        this.changes = Collections.unmodifiableList(changes);
+        this.lastSequence = lastSequence;
+        this.more = more;
+        this.pending = pending;
+    }
+
+    /**
+     * @return identifies the log, it only changes if the log starts over, e.g. on a database restored from
+     *         another server
+     */
+    public String getLogId() {
+        return logId;
+    }
+
+    /**
+     * @return true if changes after the requested sequence are missing, because the log started over or
+     *         they were deleted, so the consumer should read the current state again instead of applying
+     *         these changes to what it has
+     */
+    public boolean isReset() {
+        return reset;
+    }
+
+    /**
+     * @return the changes, in sequence order
+     */
+    public List<AdtChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * @return the sequence to ask for the changes since next time, the sequence of the last change returned
+     *         or the requested one if there were none
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * @return whether there are more changes after these
+     */
+    public boolean isMore() {
+        return more;
+    }
+
+    /**
+     * @return whether a change after these may still be being saved, e.g. by another server of a cluster, in
+     *         which case it is returned by a later request rather than skipped, so ask again shortly
+     */
+    public boolean isPending() {
+        return pending;
+    }
+
+}
@@ -0,0 +1,51 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.openmrs.Location;
+import org.openmrs.PersonAttributeType;
+import org.openmrs.Visit;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Set based queries behind the visit lists, which would otherwise load each visit and its encounters
+ */
+public interface AdtDAO {
+
+    /**
+     * @param locations
+     * @param testPatientAttributeType if specified, visits of patients marked as test patients are left out
+     * @return the non-voided visits of non-voided patients at any of the locations that are not stopped,
+     *         with their patients, most recently started first
+     */
+    List<Visit> getActiveVisits(Collection<Location> locations, PersonAttributeType testPatientAttributeType);
+
+    /**
+     * @param locations
+     * @param testPatientAttributeType if specified, visits of patients marked as test patients are left out
+     * @return [visitId, uuid, startDatetime, locationId, patientId] of the non-voided visits of non-voided
+     *         patients at any of the locations that are not stopped, in the order they were created
+     */
+    List<Object[]> getActiveVisitRows(Collection<Location> locations, PersonAttributeType testPatientAttributeType);
+
+    /**
+     * @param visitIds
+     * @return [visitId, encounterId, encounterDatetime, encounterTypeId, locationId] of the non-voided
+     *         encounters of the visits, by visit and then most recent first
+     */
+    List<Object[]> getEncounterRows(Collection<Integer> visitIds);
+
+}
@@ -139,6 +139,15 @@ public interface AdtService extends OpenmrsService {
      */
     List<VisitDomainWrapper> getActiveVisits(Location location);
 
+    /**
+     * Like {@link #getActiveVisits(Location)}, but as lightweight rows loaded by a few set based queries
+     * whatever the number of visits, for listing them
+     *
+     * @param location
+     * @return summaries of the active visits of real patients at the location or any of its children
+     */
+    List<VisitSummary> getActiveVisitSummaries(Location location);
+
     /**
      * If any currently-open visits are now inactive per our business logic, close them
      */
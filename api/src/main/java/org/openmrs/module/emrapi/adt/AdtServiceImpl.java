@@ -41,11 +41,15 @@ import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.emrapi.EmrApiConstants;
 import org.openmrs.module.emrapi.EmrApiProperties;
 import org.openmrs.module.emrapi.adt.exception.ExistingVisitDuringTimePeriodException;
+import org.openmrs.module.emrapi.diagnosis.Diagnosis;
 import org.openmrs.module.emrapi.diagnosis.DiagnosisService;
+import org.openmrs.module.emrapi.diagnosis.DiagnosisSummary;
 import org.openmrs.module.emrapi.disposition.Disposition;
 import org.openmrs.module.emrapi.disposition.DispositionService;
 import org.openmrs.module.emrapi.merge.PatientMergeAction;
+import org.openmrs.module.emrapi.patient.EmrPatientDAO;
 import org.openmrs.module.emrapi.patient.PatientDomainWrapper;
+import org.openmrs.module.emrapi.patient.PatientSummary;
 import org.openmrs.module.emrapi.visit.VisitDomainWrapper;
 import org.openmrs.serialization.SerializationException;
 import org.openmrs.util.OpenmrsUtil;
@@ -59,6 +63,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -90,6 +95,14 @@ public class AdtServiceImpl extends BaseOpenmrsService implements AdtService {
 
     private DispositionService dispositionService;
 
+    private EmrPatientDAO emrPatientDAO;
+
+    private AdtDAO dao;
+
+    private AdtChangeLog adtChangeLog;
+
+    private CensusService censusService;
+
     @Autowired(required = false)
     private List<PatientMergeAction> patientMergeActions;
 
@@ -130,6 +143,22 @@ public class AdtServiceImpl extends BaseOpenmrsService implements AdtService {
 		this.diagnosisService = diagnosisService;
 	}
 
+    public void setEmrPatientDAO(EmrPatientDAO emrPatientDAO) {
+        this.emrPatientDAO = emrPatientDAO;
+    }
+
+    public void setDao(AdtDAO dao) {
+        this.dao = dao;
+    }
+
+    public void setAdtChangeLog(AdtChangeLog adtChangeLog) {
+        this.adtChangeLog = adtChangeLog;
+    }
+
+    public void setCensusService(CensusService censusService) {
+        this.censusService = censusService;
+    }
+
     public void setDispositionService(DispositionService dispositionService) {
         this.dispositionService = dispositionService;
     }
@@ -241,6 +270,8 @@ public class AdtServiceImpl extends BaseOpenmrsService implements AdtService {
     public void closeAndSaveVisit(Visit visit) {
         visit.setStopDatetime(guessVisitStopDatetime(visit));
         visitService.saveVisit(visit);
+        recordChange(AdtChange.Type.VISIT_CLOSED, visit, visit.getLocation(), null, null, visit.getStopDatetime());
+        evictCensus(visit.getStopDatetime());
     }
 
     @Override
@@ -333,6 +364,7 @@ public class AdtServiceImpl extends BaseOpenmrsService implements AdtService {
         encounter.addProvider(emrApiProperties.getCheckInClerkEncounterRole(), checkInClerk);
         activeVisit.addEncounter(encounter);
         encounterService.saveEncounter(encounter);
+        recordChange(AdtChange.Type.CHECK_IN, activeVisit, where, encounter, null, encounter.getEncounterDatetime());
         return encounter;
     }
 
@@ -458,39 +490,144 @@ public class AdtServiceImpl extends BaseOpenmrsService implements AdtService {
      * @see org.openmrs.module.emrapi.adt.AdtService#getActiveVisits(org.openmrs.Location)
      */
     @Override
+    @Transactional(readOnly = true)
     public List<VisitDomainWrapper> getActiveVisits(Location location) {
         if (location == null) {
             throw new IllegalArgumentException("Location is required");
         }
-        Set<Location> locations = getChildLocationsRecursively(location, null);
-        List<Visit> candidates = visitService.getVisits(null, null, locations, null, null, null, null, null, null, false,
-                false);
-
         List<VisitDomainWrapper> active = new ArrayList<VisitDomainWrapper>();
-        for (Visit candidate : candidates) {
-            if (itBelongsToARealPatient(candidate)) {
-                active.add(wrap(candidate));
+        for (Visit visit : getActiveVisitsOfRealPatients(location)) {
+            active.add(wrap(visit));
+        }
+        return active;
+    }
+
+    /**
+     * The test patients are left out by the query, rather than by checking each visit's patient
+     */
+    private List<Visit> getActiveVisitsOfRealPatients(Location location) {
+        return dao.getActiveVisits(getChildLocationsRecursively(location, null),
+                getTestPatientAttributeType());
+    }
+
+    /**
+     * Loads the visits, their patients, their encounters and their diagnoses with one query each (or
+     * one per thousand visits), and works out the rest from the encounter rows.
+     *
+     * @see org.openmrs.module.emrapi.adt.AdtService#getActiveVisitSummaries(org.openmrs.Location)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<VisitSummary> getActiveVisitSummaries(Location location) {
+        if (location == null) {
+            throw new IllegalArgumentException("Location is required");
+        }
+        List<Object[]> visits = dao.getActiveVisitRows(getChildLocationsRecursively(location, null),
+                getTestPatientAttributeType());
+        if (visits.isEmpty()) {
+            return new ArrayList<VisitSummary>();
+        }
+
+        List<Integer> visitIds = new ArrayList<Integer>(visits.size());
+        List<Integer> patientIds = new ArrayList<Integer>(visits.size());
+        for (Object[] visit : visits) {
+            visitIds.add((Integer) visit[0]);
+            patientIds.add((Integer) visit[4]);
+        }
+        Map<Integer, PatientSummary> patients = new HashMap<Integer, PatientSummary>();
+        for (PatientSummary patient : emrPatientDAO.getPatientSummaries(patientIds, emrApiProperties.getPrimaryIdentifierType())) {
+            patients.put(patient.getPatientId(), patient);
+        }
+        Map<Integer, List<DiagnosisSummary>> diagnoses = diagnosisService.getDiagnosisSummariesByVisit(visitIds);
+        Map<Integer, List<Object[]>> encounters = new HashMap<Integer, List<Object[]>>();
+        for (Object[] encounter : dao.getEncounterRows(visitIds)) {
+            List<Object[]> ofVisit = encounters.get(encounter[0]);
+            if (ofVisit == null) {
+                ofVisit = new ArrayList<Object[]>();
+                encounters.put((Integer) encounter[0], ofVisit);
             }
+            ofVisit.add(encounter);
+        }
+
+        Integer checkInType = getId(emrApiProperties.getCheckInEncounterType());
+        Integer admissionType = getId(emrApiProperties.getAdmissionEncounterType());
+        Integer transferType = getId(emrApiProperties.getTransferWithinHospitalEncounterType());
+        Integer exitType = getId(emrApiProperties.getExitFromInpatientEncounterType());
+
+        List<VisitSummary> summaries = new ArrayList<VisitSummary>(visits.size());
+        for (Object[] visit : visits) {
+            Integer visitId = (Integer) visit[0];
+            Object[] checkIn = null;
+            Object[] mostRecent = null;
+            Object[] latestAdmissionOrExit = null;
+            Object[] latestAdt = null;
+            // most recent first, so the first match of each kind is the one we want
+            List<Object[]> ofVisit = encounters.get(visitId);
+            for (Object[] encounter : ofVisit == null ? Collections.<Object[]>emptyList() : ofVisit) {
+                Object type = encounter[3];
+                if (mostRecent == null) {
+                    mostRecent = encounter;
+                }
+                if (checkIn == null && type.equals(checkInType)) {
+                    checkIn = encounter;
+                }
+                if (latestAdmissionOrExit == null && (type.equals(admissionType) || type.equals(exitType))) {
+                    latestAdmissionOrExit = encounter;
+                }
+                if (latestAdt == null && (type.equals(admissionType) || type.equals(transferType))) {
+                    latestAdt = encounter;
+                }
+            }
+            boolean admitted = admissionType != null && latestAdmissionOrExit != null
+                    && latestAdmissionOrExit[3].equals(admissionType);
+
+            List<DiagnosisSummary> primaryDiagnoses = new ArrayList<DiagnosisSummary>();
+            List<DiagnosisSummary> ofVisitDiagnoses = diagnoses.get(visitId);
+            if (ofVisitDiagnoses != null) {
+                for (DiagnosisSummary diagnosis : ofVisitDiagnoses) {
+                    if (diagnosis.getOrder() == Diagnosis.Order.PRIMARY) {
+                        primaryDiagnoses.add(diagnosis);
+                    }
+                }
+            }
+
+            summaries.add(new VisitSummary(visitId, (String) visit[1], (Date) visit[2], (Integer) visit[3],
+                    patients.get(visit[4]),
+                    checkIn == null ? null : (Integer) checkIn[1], checkIn == null ? null : (Date) checkIn[2],
+                    mostRecent == null ? null : (Integer) mostRecent[1], mostRecent == null ? null : (Date) mostRecent[2],
+                    admitted, admitted && latestAdt != null ? (Integer) latestAdt[4] : null,
+                    primaryDiagnoses));
+        }
+        return summaries;
+    }
+
+    /**
+     * @return the attribute type that marks test patients, or null if it isn't configured, in which case
+     *         there are no test patients to leave out
+     */
+    private PersonAttributeType getTestPatientAttributeType() {
+        try {
+            return emrApiProperties.getTestPatientPersonAttributeType();
+        } catch (IllegalStateException e) {
+            return null;
         }
+    }
 
-        return active;
+    private Integer getId(EncounterType encounterType) {
+        return encounterType == null ? null : encounterType.getEncounterTypeId();
     }
 
     @Override
+    @Transactional(readOnly = true)
     public List<VisitDomainWrapper> getInpatientVisits(Location visitLocation, Location ward) {
 
         if (visitLocation == null) {
             throw new IllegalArgumentException("Location is required");
         }
-        Set<Location> locations = getChildLocationsRecursively(visitLocation, null);
-        List<Visit> candidates = visitService.getVisits(null, null, locations, null, null, null, null, null, null, false,
-                false);
-
         List<VisitDomainWrapper> inpatientVisits = new ArrayList<VisitDomainWrapper>();
-        for (Visit candidate : candidates) {
+        for (Visit candidate : getActiveVisitsOfRealPatients(visitLocation)) {
             VisitDomainWrapper visitDomainWrapper = wrap(candidate);
-            if (itBelongsToARealPatient(candidate)
-                    && visitDomainWrapper.isAdmitted()) {
+            if (visitDomainWrapper.isAdmitted()) {
                 if(ward!=null){
                     Encounter latestAdtEncounter = visitDomainWrapper.getLatestAdtEncounter();
                     if(latestAdtEncounter!=null &&
@@ -506,12 +643,6 @@ public class AdtServiceImpl extends BaseOpenmrsService implements AdtService {
         return inpatientVisits;
     }
 
-    private boolean itBelongsToARealPatient(Visit candidate) {
-        Patient patient = candidate.getPatient();
-        PatientDomainWrapper domainWrapper = new PatientDomainWrapper(patient, emrApiProperties, null, null, null, null);
-        return !domainWrapper.isTestPatient();
-    }
-
     @Override
     public Encounter getLastEncounter(Patient patient) {
         // speed this up by implementing it directly in a DAO
@@ -701,6 +832,8 @@ public class AdtServiceImpl extends BaseOpenmrsService implements AdtService {
 
         visitService.voidVisit(nonPreferred, "EMR - Merge Patients: merged into visit " + preferred.getVisitId());
         visitService.saveVisit(preferred);
+        recordChange(AdtChange.Type.VISIT_MERGED, preferred, preferred.getLocation(), null, nonPreferred, null);
+        evictCensus(preferred.getStartDatetime());
         return preferred;
     }
 
@@ -751,9 +884,38 @@ public class AdtServiceImpl extends BaseOpenmrsService implements AdtService {
 
         visit.addEncounter(encounter);
         encounterService.saveEncounter(encounter);
+        recordChange(toChangeType(action.getType()), visit.getVisit(), action.getLocation(), encounter, null, adtDatetime);
+        evictCensus(adtDatetime);
         return encounter;
     }
 
+    private AdtChange.Type toChangeType(AdtAction.Type type) {
+        switch (type) {
+            case ADMISSION:
+                return AdtChange.Type.ADMISSION;
+            case DISCHARGE:
+                return AdtChange.Type.DISCHARGE;
+            default:
+                return AdtChange.Type.TRANSFER;
+        }
+    }
+
+    private void recordChange(AdtChange.Type type, Visit visit, Location location, Encounter encounter,
+                              Visit mergedVisit, Date actionDatetime) {
+        if (adtChangeLog != null) {
+            adtChangeLog.record(type, visit, location, encounter, mergedVisit, actionDatetime);
+        }
+    }
+
+    /**
+     * Drops the census of the days from the specified date on, which the change just made may affect
+     */
+    private void evictCensus(Date fromDate) {
+        if (censusService != null) {
+            censusService.evictCache(fromDate == null ? new Date(0) : fromDate);
+        }
+    }
+
     @Override
     public VisitDomainWrapper wrap(Visit visit) {
         return new VisitDomainWrapper(visit, emrApiProperties, dispositionService);
@@ -0,0 +1,149 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Encounter;
+import org.openmrs.EncounterType;
+import org.openmrs.Visit;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.event.Event;
+import org.openmrs.event.EventListener;
+import org.openmrs.module.DaemonToken;
+import org.openmrs.module.emrapi.EmrApiProperties;
+
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import java.util.Date;
+
+/**
+ * Drops the cached census of the days that an encounter or visit changed outside of {@link AdtService}
+ * (e.g. through the encounter or visit services, or retrospective data entry) may affect.
+ * <p/>
+ * The event doesn't say what changed, e.g. the previous datetime of a moved encounter, so the days
+ * are evicted from the start of the visit, which no ADT encounter of the visit can be before. Purges
+ * don't leave anything to look at and evict the whole cache.
+ */
+public class CensusCacheEventListener implements EventListener {
+
+    private static final Event.Action[] ACTIONS = { Event.Action.CREATED, Event.Action.UPDATED, Event.Action.VOIDED,
+            Event.Action.UNVOIDED, Event.Action.PURGED };
+
+    private static final Class<?>[] CLASSES = { Encounter.class, Visit.class };
+
+    protected final Log log = LogFactory.getLog(getClass());
+
+    private CensusService censusService;
+
+    private EmrApiProperties emrApiProperties;
+
+    private DaemonToken daemonToken;
+
+    public CensusCacheEventListener(CensusService censusService, EmrApiProperties emrApiProperties,
+                                    DaemonToken daemonToken) {
+        this.censusService = censusService;
+        this.emrApiProperties = emrApiProperties;
+        this.daemonToken = daemonToken;
+    }
+
+    public void subscribe() {
+        for (Event.Action action : ACTIONS) {
+            for (Class<?> clazz : CLASSES) {
+                Event.subscribe(clazz, action.name(), this);
+            }
+        }
+    }
+
+    public void unsubscribe() {
+        for (Event.Action action : ACTIONS) {
+            for (Class<?> clazz : CLASSES) {
+                Event.unsubscribe(clazz, action, this);
+            }
+        }
+    }
+
+    /**
+     * @see EventListener#onMessage(javax.jms.Message)
+     */
+    @Override
+    public void onMessage(Message message) {
+        final String classname;
+        final String uuid;
+        final String action;
+        try {
+            MapMessage mapMessage = (MapMessage) message;
+            classname = mapMessage.getString("classname");
+            uuid = mapMessage.getString("uuid");
+            action = mapMessage.getString("action");
+        } catch (JMSException e) {
+            log.error("Failed to read the encounter or visit event", e);
+            return;
+        }
+
+        if (Event.Action.PURGED.name().equals(action)) {
+            censusService.evictCache(new Date(0));
+            return;
+        }
+        Daemon.runInDaemonThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Date fromDate = getAffectedFromDate(classname, uuid);
+                    if (fromDate != null) {
+                        censusService.evictCache(fromDate);
+                    }
+                } catch (Exception e) {
+                    log.error("Failed to evict the census cache", e);
+                }
+            }
+        }, daemonToken);
+    }
+
+    /**
+     * @return the first day the census may have changed on, or null if the change doesn't affect it
+     */
+    private Date getAffectedFromDate(String classname, String uuid) {
+        if (Visit.class.getName().equals(classname)) {
+            Visit visit = Context.getVisitService().getVisitByUuid(uuid);
+            return visit == null ? null : earliest(visit.getStartDatetime(), null);
+        }
+        Encounter encounter = Context.getEncounterService().getEncounterByUuid(uuid);
+        if (encounter == null || !isAdtEncounterType(encounter.getEncounterType())) {
+            return null;
+        }
+        Visit visit = encounter.getVisit();
+        return earliest(encounter.getEncounterDatetime(), visit == null ? null : visit.getStartDatetime());
+    }
+
+    private boolean isAdtEncounterType(EncounterType type) {
+        return type != null
+                && (type.equals(emrApiProperties.getAdmissionEncounterType())
+                || type.equals(emrApiProperties.getTransferWithinHospitalEncounterType())
+                || type.equals(emrApiProperties.getExitFromInpatientEncounterType()));
+    }
+
+    /**
+     * @return the earliest of the dates, or the start of time if neither is known
+     */
+    private Date earliest(Date date, Date other) {
+        if (date == null) {
+            return other == null ? new Date(0) : other;
+        }
+        return other != null && other.before(date) ? other : date;
+    }
+
+}
@@ -0,0 +1,236 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.apache.commons.lang.time.DateUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Computes the daily census of every ward in a single pass over the ADT encounters, in the order
+ * they happened (see {@link CensusDAO#streamAdtEncounters}). It keeps track of the ward each admitted
+ * visit is in and the running census of each ward, and takes a snapshot at every midnight.
+ * <p/>
+ * A visit that is closed while the patient is still admitted counts as discharged when it stops.
+ */
+class CensusCalculator implements CensusDAO.RowCallback {
+
+    private static final int CENSUS = 0;
+
+    private static final int ADMISSIONS = 1;
+
+    private static final int DISCHARGES = 2;
+
+    private static final int TRANSFERS_IN = 3;
+
+    private static final int TRANSFERS_OUT = 4;
+
+    static final Comparator<Integer> NULLS_FIRST = new Comparator<Integer>() {
+        @Override
+        public int compare(Integer left, Integer right) {
+            if (left == null || right == null) {
+                return left == null ? (right == null ? 0 : -1) : 1;
+            }
+            return left.compareTo(right);
+        }
+    };
+
+    private final Integer admissionTypeId;
+
+    private final Integer transferTypeId;
+
+    private final Integer exitTypeId;
+
+    private final long fromTime;
+
+    private final long toTime;
+
+    private Date dayStart;
+
+    private Date dayEnd;
+
+    /**
+     * visit id -> ward, for the visits that are currently admitted
+     */
+    private final Map<Integer, Integer> wardByVisit = new HashMap<Integer, Integer>();
+
+    /**
+     * ward -> census and counts of the current day, indexed by the constants above
+     */
+    private final Map<Integer, int[]> wards = new HashMap<Integer, int[]>();
+
+    /**
+     * [stop time, visit id] of the admitted visits that are closed
+     */
+    private final PriorityQueue<long[]> visitStops = new PriorityQueue<long[]>(16, new Comparator<long[]>() {
+        @Override
+        public int compare(long[] left, long[] right) {
+            return left[0] < right[0] ? -1 : (left[0] == right[0] ? 0 : 1);
+        }
+    });
+
+    private final Map<Date, List<WardCensus>> days = new LinkedHashMap<Date, List<WardCensus>>();
+
+    /**
+     * @param fromDay start of the first day
+     * @param toDay start of the day after the last one
+     */
+    CensusCalculator(Date fromDay, Date toDay, Integer admissionTypeId, Integer transferTypeId, Integer exitTypeId) {
+        this.admissionTypeId = admissionTypeId;
+        this.transferTypeId = transferTypeId;
+        this.exitTypeId = exitTypeId;
+        this.fromTime = fromDay.getTime();
+        this.toTime = toDay.getTime();
+        this.dayStart = fromDay;
+        this.dayEnd = DateUtils.addDays(fromDay, 1);
+    }
+
+    /**
+     * @param row [visitId, visit stopDatetime, encounterTypeId, encounterDatetime, locationId]
+     */
+    @Override
+    public void handle(Object[] row) {
+        Integer visitId = (Integer) row[0];
+        Date visitStop = (Date) row[1];
+        Integer typeId = (Integer) row[2];
+        long time = ((Date) row[3]).getTime();
+        Integer locationId = (Integer) row[4];
+
+        advanceTo(time);
+        if (time >= toTime) {
+            return;
+        }
+        boolean counting = time >= fromTime;
+        boolean admitted = wardByVisit.containsKey(visitId);
+        Integer currentWard = wardByVisit.get(visitId);
+
+        if (typeId.equals(admissionTypeId)) {
+            if (!admitted) {
+                moveIn(visitId, locationId, counting ? ADMISSIONS : -1);
+                if (visitStop != null) {
+                    visitStops.add(new long[] { visitStop.getTime(), visitId });
+                }
+            } else {
+                transfer(visitId, currentWard, locationId, counting);
+            }
+        } else if (typeId.equals(exitTypeId)) {
+            if (admitted) {
+                moveOut(visitId, currentWard, counting ? DISCHARGES : -1);
+            }
+        } else if (typeId.equals(transferTypeId)) {
+            if (admitted) {
+                transfer(visitId, currentWard, locationId, counting);
+            }
+        }
+    }
+
+    /**
+     * @return the census of each ward with any activity, for every day of the range
+     */
+    Map<Date, List<WardCensus>> finish() {
+        advanceTo(toTime);
+        return days;
+    }
+
+    /**
+     * Processes the visit stops and midnights that come before the specified time
+     */
+    private void advanceTo(long time) {
+        while (true) {
+            long stop = visitStops.isEmpty() ? Long.MAX_VALUE : visitStops.peek()[0];
+            long midnight = dayStart.getTime() < toTime ? dayEnd.getTime() : Long.MAX_VALUE;
+            if (stop < time && stop < midnight) {
+                Integer visitId = (int) visitStops.poll()[1];
+                if (wardByVisit.containsKey(visitId)) {
+                    moveOut(visitId, wardByVisit.get(visitId), stop >= fromTime ? DISCHARGES : -1);
+                }
+            } else if (midnight <= time && midnight <= stop) {
+                closeDay();
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void closeDay() {
+        List<WardCensus> census = new ArrayList<WardCensus>();
+        List<Integer> locationIds = new ArrayList<Integer>(wards.keySet());
+        Collections.sort(locationIds, NULLS_FIRST);
+        for (Integer locationId : locationIds) {
+            int[] counts = wards.get(locationId);
+            if (counts[CENSUS] != 0 || counts[ADMISSIONS] != 0 || counts[DISCHARGES] != 0 || counts[TRANSFERS_IN] != 0
+                    || counts[TRANSFERS_OUT] != 0) {
+                census.add(new WardCensus(dayStart, locationId, counts[CENSUS], counts[ADMISSIONS], counts[DISCHARGES],
+                        counts[TRANSFERS_IN], counts[TRANSFERS_OUT]));
+            }
+        }
+        days.put(dayStart, Collections.unmodifiableList(census));
+
+        for (Iterator<int[]> i = wards.values().iterator(); i.hasNext(); ) {
+            int[] counts = i.next();
+            if (counts[CENSUS] == 0) {
+                i.remove();
+            } else {
+                counts[ADMISSIONS] = counts[DISCHARGES] = counts[TRANSFERS_IN] = counts[TRANSFERS_OUT] = 0;
+            }
+        }
+        dayStart = dayEnd;
+        dayEnd = DateUtils.addDays(dayEnd, 1);
+    }
+
+    private void transfer(Integer visitId, Integer fromWard, Integer toWard, boolean counting) {
+        if (fromWard == null ? toWard == null : fromWard.equals(toWard)) {
+            return;
+        }
+        moveOut(visitId, fromWard, counting ? TRANSFERS_OUT : -1);
+        moveIn(visitId, toWard, counting ? TRANSFERS_IN : -1);
+    }
+
+    private void moveIn(Integer visitId, Integer ward, int counter) {
+        wardByVisit.put(visitId, ward);
+        int[] counts = getCounts(ward);
+        counts[CENSUS]++;
+        if (counter >= 0) {
+            counts[counter]++;
+        }
+    }
+
+    private void moveOut(Integer visitId, Integer ward, int counter) {
+        wardByVisit.remove(visitId);
+        int[] counts = getCounts(ward);
+        counts[CENSUS]--;
+        if (counter >= 0) {
+            counts[counter]++;
+        }
+    }
+
+    private int[] getCounts(Integer ward) {
+        int[] counts = wards.get(ward);
+        if (counts == null) {
+            counts = new int[5];
+            wards.put(ward, counts);
+        }
+        return counts;
+    }
+
+}
@@ -0,0 +1,50 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.openmrs.EncounterType;
+import org.openmrs.PersonAttributeType;
+
+import java.util.Collection;
+import java.util.Date;
+
+/**
+ * Streams the ADT encounters needed to compute ward occupancy, without loading them as entities
+ */
+public interface CensusDAO {
+
+    /**
+     * Passes the non-voided encounters of the specified types that happened before toDate, in visits
+     * that were still open at fromDate, to the callback in the order they happened. Each row is
+     * [visitId, visit stopDatetime, encounterTypeId, encounterDatetime, locationId].
+     * <p/>
+     * Encounters before fromDate are included, since they determine who was admitted where when the
+     * range starts.
+     *
+     * @param fromDate
+     * @param toDate
+     * @param encounterTypes
+     * @param testPatientAttributeType if specified, encounters of patients marked as test patients are left out
+     * @param callback
+     */
+    void streamAdtEncounters(Date fromDate, Date toDate, Collection<EncounterType> encounterTypes,
+                             PersonAttributeType testPatientAttributeType, RowCallback callback);
+
+    interface RowCallback {
+
+        void handle(Object[] row);
+
+    }
+
+}
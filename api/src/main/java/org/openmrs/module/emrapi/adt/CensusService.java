@@ -0,0 +1,53 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.openmrs.api.OpenmrsService;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ward occupancy over time, computed from the admission, transfer and exit from inpatient encounters.
+ * <p/>
+ * Days that are over are cached, so if ADT encounters are entered or changed retrospectively
+ * {@link #evictCache(Date)} must be called for the census to reflect them. {@link AdtService} does so
+ * for the changes it makes, and {@link CensusCacheEventListener} for encounters and visits changed by
+ * anything else.
+ */
+public interface CensusService extends OpenmrsService {
+
+    /**
+     * @param fromDate the first day, only the date part is used
+     * @param toDate the last day (inclusive), only the date part is used
+     * @return the census of every ward with any inpatients or activity, by day and then by ward id
+     */
+    List<WardCensus> getDailyCensus(Date fromDate, Date toDate);
+
+    /**
+     * @param fromDate the first day, only the date part is used
+     * @param toDate the last day (inclusive), only the date part is used
+     * @return ward id -> number of inpatients at midnight, summed over the days
+     */
+    Map<Integer, Integer> getBedDays(Date fromDate, Date toDate);
+
+    /**
+     * Drops the cached census of the day of the specified date and all the days after it
+     *
+     * @param fromDate
+     */
+    void evictCache(Date fromDate);
+
+}
@@ -0,0 +1,182 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.apache.commons.lang.time.DateUtils;
+import org.openmrs.EncounterType;
+import org.openmrs.PersonAttributeType;
+import org.openmrs.api.impl.BaseOpenmrsService;
+import org.openmrs.module.emrapi.EmrApiProperties;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class CensusServiceImpl extends BaseOpenmrsService implements CensusService {
+
+    private static final int MAX_CACHED_DAYS = 3 * 366;
+
+    private EmrApiProperties emrApiProperties;
+
+    private CensusDAO dao;
+
+    /**
+     * start of day -> census of that day, only for days that are over
+     */
+    private final Map<Date, List<WardCensus>> closedDays = new LinkedHashMap<Date, List<WardCensus>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Date, List<WardCensus>> eldest) {
+            return size() > MAX_CACHED_DAYS;
+        }
+    };
+
+    public void setEmrApiProperties(EmrApiProperties emrApiProperties) {
+        this.emrApiProperties = emrApiProperties;
+    }
+
+    public void setDao(CensusDAO dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * Takes what it can from the cache, and computes the rest of the range in a single pass starting
+     * from the first day that isn't cached.
+     *
+     * @see CensusService#getDailyCensus(Date, Date)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<WardCensus> getDailyCensus(Date fromDate, Date toDate) {
+        Date fromDay = DateUtils.truncate(fromDate, Calendar.DATE);
+        Date toDay = DateUtils.addDays(DateUtils.truncate(toDate, Calendar.DATE), 1);
+        if (!fromDay.before(toDay)) {
+            throw new IllegalArgumentException("fromDate must not be after toDate");
+        }
+
+        List<WardCensus> census = new ArrayList<WardCensus>();
+        Date day = fromDay;
+        for (List<WardCensus> cached = getCached(day); cached != null && day.before(toDay); cached = getCached(day)) {
+            census.addAll(cached);
+            day = DateUtils.addDays(day, 1);
+        }
+        if (day.before(toDay)) {
+            Map<Date, List<WardCensus>> computed = compute(day, toDay);
+            long today = DateUtils.truncate(new Date(), Calendar.DATE).getTime();
+            synchronized (closedDays) {
+                for (Map.Entry<Date, List<WardCensus>> entry : computed.entrySet()) {
+                    if (entry.getKey().getTime() < today) {
+                        closedDays.put(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            for (List<WardCensus> dayCensus : computed.values()) {
+                census.addAll(dayCensus);
+            }
+        }
+        return census;
+    }
+
+    /**
+     * @see CensusService#getBedDays(Date, Date)
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<Integer, Integer> getBedDays(Date fromDate, Date toDate) {
+        Map<Integer, Integer> bedDays = new TreeMap<Integer, Integer>(CensusCalculator.NULLS_FIRST);
+        for (WardCensus census : getDailyCensus(fromDate, toDate)) {
+            Integer sum = bedDays.get(census.getLocationId());
+            bedDays.put(census.getLocationId(), (sum == null ? 0 : sum) + census.getBedDays());
+        }
+        return bedDays;
+    }
+
+    /**
+     * When called within a transaction the days are evicted again once it has completed, so a census
+     * computed in between from what was committed before isn't left in the cache.
+     *
+     * @see CensusService#evictCache(Date)
+     */
+    @Override
+    public void evictCache(final Date fromDate) {
+        evict(fromDate);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    evict(fromDate);
+                }
+            });
+        }
+    }
+
+    private void evict(Date fromDate) {
+        Date fromDay = DateUtils.truncate(fromDate, Calendar.DATE);
+        synchronized (closedDays) {
+            for (Iterator<Date> i = closedDays.keySet().iterator(); i.hasNext(); ) {
+                if (!i.next().before(fromDay)) {
+                    i.remove();
+                }
+            }
+        }
+    }
+
+    private List<WardCensus> getCached(Date day) {
+        synchronized (closedDays) {
+            return closedDays.get(day);
+        }
+    }
+
+    private Map<Date, List<WardCensus>> compute(Date fromDay, Date toDay) {
+        EncounterType admission = emrApiProperties.getAdmissionEncounterType();
+        EncounterType transfer = emrApiProperties.getTransferWithinHospitalEncounterType();
+        EncounterType exit = emrApiProperties.getExitFromInpatientEncounterType();
+        List<EncounterType> types = new ArrayList<EncounterType>();
+        for (EncounterType type : new EncounterType[] { admission, transfer, exit }) {
+            if (type != null) {
+                types.add(type);
+            }
+        }
+
+        CensusCalculator calculator = new CensusCalculator(fromDay, toDay, getId(admission), getId(transfer), getId(exit));
+        if (admission != null) {
+            dao.streamAdtEncounters(fromDay, toDay, types, getTestPatientAttributeType(), calculator);
+        }
+        return calculator.finish();
+    }
+
+    /**
+     * @return the attribute type that marks test patients, or null if it isn't configured, in which case
+     *         there are no test patients to leave out
+     */
+    private PersonAttributeType getTestPatientAttributeType() {
+        try {
+            return emrApiProperties.getTestPatientPersonAttributeType();
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    private Integer getId(EncounterType type) {
+        return type == null ? null : type.getEncounterTypeId();
+    }
+
+}
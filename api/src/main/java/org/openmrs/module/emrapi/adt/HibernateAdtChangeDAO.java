@@ -0,0 +1,64 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.hibernate.Criteria;
+import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projection;
+import org.hibernate.criterion.Projections;
+import org.hibernate.criterion.Restrictions;
+
+import java.util.List;
+
+public class HibernateAdtChangeDAO implements AdtChangeDAO {
+
+    private SessionFactory sessionFactory;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    @Override
+    public void saveChange(AdtChange change) {
+        sessionFactory.getCurrentSession().save(change);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<AdtChange> getChangesAfter(long sequence, int maxResults) {
+        return sessionFactory.getCurrentSession().createCriteria(AdtChange.class)
+                .add(Restrictions.gt("sequence", sequence))
+                .addOrder(Order.asc("sequence"))
+                .setMaxResults(maxResults)
+                .list();
+    }
+
+    @Override
+    public long getFirstSequence() {
+        return getSequence(Projections.min("sequence"));
+    }
+
+    @Override
+    public long getLastSequence() {
+        return getSequence(Projections.max("sequence"));
+    }
+
+    private long getSequence(Projection projection) {
+        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(AdtChange.class).setProjection(projection);
+        Number sequence = (Number) criteria.uniqueResult();
+        return sequence == null ? 0 : sequence.longValue();
+    }
+
+}
@@ -0,0 +1,104 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.hibernate.Query;
+import org.hibernate.SessionFactory;
+import org.openmrs.Location;
+import org.openmrs.PersonAttributeType;
+import org.openmrs.Visit;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class HibernateAdtDAO implements AdtDAO {
+
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
+    private SessionFactory sessionFactory;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * @see AdtDAO#getActiveVisits(Collection, PersonAttributeType)
+     */
+    @Override
+    public List<Visit> getActiveVisits(Collection<Location> locations, PersonAttributeType testPatientAttributeType) {
+        StringBuilder hql = new StringBuilder();
+        hql.append("select v from Visit v join fetch v.patient p ");
+        hql.append("where v.voided = false and v.stopDatetime is null and v.location in (:locations) and p.voided = false ");
+        appendNotATestPatient(hql, testPatientAttributeType);
+        hql.append("order by v.startDatetime desc, v.visitId desc");
+
+        Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+        query.setParameterList("locations", locations);
+        if (testPatientAttributeType != null) {
+            query.setParameter("testPatient", testPatientAttributeType);
+        }
+        return (List<Visit>) query.list();
+    }
+
+    /**
+     * @see AdtDAO#getActiveVisitRows(Collection, PersonAttributeType)
+     */
+    @Override
+    public List<Object[]> getActiveVisitRows(Collection<Location> locations, PersonAttributeType testPatientAttributeType) {
+        StringBuilder hql = new StringBuilder();
+        hql.append("select v.visitId, v.uuid, v.startDatetime, v.location.locationId, p.patientId ");
+        hql.append("from Visit v join v.patient p ");
+        hql.append("where v.voided = false and v.stopDatetime is null and v.location in (:locations) and p.voided = false ");
+        appendNotATestPatient(hql, testPatientAttributeType);
+        hql.append("order by v.visitId");
+
+        Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+        query.setParameterList("locations", locations);
+        if (testPatientAttributeType != null) {
+            query.setParameter("testPatient", testPatientAttributeType);
+        }
+        return (List<Object[]>) query.list();
+    }
+
+    /**
+     * @see AdtDAO#getEncounterRows(Collection)
+     */
+    @Override
+    public List<Object[]> getEncounterRows(Collection<Integer> visitIds) {
+        List<Object[]> rows = new ArrayList<Object[]>();
+        List<Integer> ids = new ArrayList<Integer>(visitIds);
+        for (int from = 0; from < ids.size(); from += MAX_IN_CLAUSE_SIZE) {
+            Query query = sessionFactory.getCurrentSession().createQuery(
+                    "select v.visitId, e.encounterId, e.encounterDatetime, e.encounterType.encounterTypeId, l.locationId " +
+                    "from Encounter e join e.visit v left join e.location l " +
+                    "where v.visitId in (:visitIds) and e.voided = false " +
+                    "order by v.visitId, e.encounterDatetime desc, e.encounterId desc");
+            query.setParameterList("visitIds", ids.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, ids.size())));
+            rows.addAll((List<Object[]>) query.list());
+        }
+        return rows;
+    }
+
+    /**
+     * Leaves out the patients (joined as p) marked as test patients, if a test patient attribute type is specified
+     */
+    private void appendNotATestPatient(StringBuilder hql, PersonAttributeType testPatientAttributeType) {
+        if (testPatientAttributeType != null) {
+            hql.append("and not exists (select a.personAttributeId from PersonAttribute a where a.person.personId = p.patientId ");
+            hql.append("and a.attributeType = :testPatient and a.value = 'true' and a.voided = false) ");
+        }
+    }
+
+}
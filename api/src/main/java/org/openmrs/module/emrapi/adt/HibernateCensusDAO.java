@@ -0,0 +1,77 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.hibernate.Query;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.openmrs.EncounterType;
+import org.openmrs.PersonAttributeType;
+
+import java.util.Collection;
+import java.util.Date;
+
+public class HibernateCensusDAO implements CensusDAO {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private SessionFactory sessionFactory;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Scrolls through a projection query, so the whole history of a large hospital never needs to be
+     * in memory at once.
+     *
+     * @see CensusDAO#streamAdtEncounters(Date, Date, Collection, PersonAttributeType, RowCallback)
+     */
+    @Override
+    public void streamAdtEncounters(Date fromDate, Date toDate, Collection<EncounterType> encounterTypes,
+                                    PersonAttributeType testPatientAttributeType, RowCallback callback) {
+        StringBuilder hql = new StringBuilder();
+        hql.append("select v.visitId, v.stopDatetime, e.encounterType.encounterTypeId, e.encounterDatetime, l.locationId ");
+        hql.append("from Encounter e join e.visit v left join e.location l ");
+        hql.append("where e.voided = false and v.voided = false and e.encounterType in (:types) ");
+        hql.append("and e.encounterDatetime < :toDate and (v.stopDatetime is null or v.stopDatetime >= :fromDate) ");
+        if (testPatientAttributeType != null) {
+            hql.append("and not exists (select a.personAttributeId from PersonAttribute a where a.person.personId = v.patient.patientId ");
+            hql.append("and a.attributeType = :testPatient and a.value = 'true' and a.voided = false) ");
+        }
+        hql.append("order by e.encounterDatetime, e.encounterId");
+
+        Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+        query.setParameterList("types", encounterTypes);
+        if (testPatientAttributeType != null) {
+            query.setParameter("testPatient", testPatientAttributeType);
+        }
+        query.setTimestamp("fromDate", fromDate);
+        query.setTimestamp("toDate", toDate);
+        query.setReadOnly(true);
+        query.setFetchSize(FETCH_SIZE);
+
+        ScrollableResults results = query.scroll(ScrollMode.FORWARD_ONLY);
+        try {
+            while (results.next()) {
+                callback.handle(results.get());
+            }
+        }
+        finally {
+            results.close();
+        }
+    }
+
+}
@@ -0,0 +1,134 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.openmrs.module.emrapi.diagnosis.DiagnosisSummary;
+import org.openmrs.module.emrapi.patient.PatientSummary;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A lightweight, read-only row with what visit lists show about an active visit (the patient, check-in,
+ * latest encounter, admission state and primary diagnoses), see
+ * {@link AdtService#getActiveVisitSummaries(org.openmrs.Location)}. Unlike a
+ * {@link org.openmrs.module.emrapi.visit.VisitDomainWrapper}, nothing is loaded when it is read.
+ */
+public class VisitSummary {
+
+    private final Integer visitId;
+
+    private final String uuid;
+
+    private final Date startDatetime;
+
+    private final Integer locationId;
+
+    private final PatientSummary patient;
+
+    private final Integer checkInEncounterId;
+
+    private final Date checkInDatetime;
+
+    private final Integer mostRecentEncounterId;
+
+    private final Date mostRecentEncounterDatetime;
+
+    private final boolean admitted;
+
+    private final Integer inpatientLocationId;
+
+    private final List<DiagnosisSummary> primaryDiagnoses;
+
+    public VisitSummary(Integer visitId, String uuid, Date startDatetime, Integer locationId, PatientSummary patient,
+                        Integer checkInEncounterId, Date checkInDatetime, Integer mostRecentEncounterId,
+                        Date mostRecentEncounterDatetime, boolean admitted, Integer inpatientLocationId,
+                        List<DiagnosisSummary> primaryDiagnoses) {
+        this.visitId = visitId;
+        this.uuid = uuid;
+        this.startDatetime = startDatetime;
+        this.locationId = locationId;
+        this.patient = patient;
+        this.checkInEncounterId = checkInEncounterId;
+        this.checkInDatetime = checkInDatetime;
+        this.mostRecentEncounterId = mostRecentEncounterId;
+        this.mostRecentEncounterDatetime = mostRecentEncounterDatetime;
+        this.admitted = admitted;
+        this.inpatientLocationId = inpatientLocationId;
+        this.primaryDiagnoses = Collections.unmodifiableList(primaryDiagnoses);
+    }
+
+    public Integer getVisitId() {
+        return visitId;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public Date getStartDatetime() {
+        return startDatetime;
+    }
+
+    public Integer getLocationId() {
+        return locationId;
+    }
+
+    public PatientSummary getPatient() {
+        return patient;
+    }
+
+    /**
+     * @return the id of the most recent check-in encounter, or null if the patient wasn't checked in
+     */
+    public Integer getCheckInEncounterId() {
+        return checkInEncounterId;
+    }
+
+    public Date getCheckInDatetime() {
+        return checkInDatetime;
+    }
+
+    /**
+     * @return the id of the most recent encounter of any type, or null if the visit has none
+     */
+    public Integer getMostRecentEncounterId() {
+        return mostRecentEncounterId;
+    }
+
+    public Date getMostRecentEncounterDatetime() {
+        return mostRecentEncounterDatetime;
+    }
+
+    public boolean isAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * @return the location of the latest admission or transfer, or null if the patient is not admitted
+     */
+    public Integer getInpatientLocationId() {
+        return inpatientLocationId;
+    }
+
+    public List<DiagnosisSummary> getPrimaryDiagnoses() {
+        return primaryDiagnoses;
+    }
+
+    @Override
+    public String toString() {
+        return "VisitSummary[" + visitId + " " + patient + (admitted ? " admitted at " + inpatientLocationId : "") + "]";
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import java.util.Date;
+
+/**
+ * The occupancy of one ward on one day: how many inpatients were there at the end of the day
+ * (midnight census, which is also the number of bed-days the day contributes) and how many were
+ * admitted, discharged, and transferred in and out during the day
+ */
+public class WardCensus {
+
+    private final Date day;
+
+    private final Integer locationId;
+
+    private final int midnightCensus;
+
+    private final int admissions;
+
+    private final int discharges;
+
+    private final int transfersIn;
+
+    private final int transfersOut;
+
+    public WardCensus(Date day, Integer locationId, int midnightCensus, int admissions, int discharges,
+                      int transfersIn, int transfersOut) {
+        this.day = day;
+        this.locationId = locationId;
+        this.midnightCensus = midnightCensus;
+        this.admissions = admissions;
+        this.discharges = discharges;
+        this.transfersIn = transfersIn;
+        this.transfersOut = transfersOut;
+    }
+
+    /**
+     * @return the start of the day
+     */
+    public Date getDay() {
+        return day;
+    }
+
+    /**
+     * @return the id of the ward, null for admissions and transfers that didn't specify a location
+     */
+    public Integer getLocationId() {
+        return locationId;
+    }
+
+    public int getMidnightCensus() {
+        return midnightCensus;
+    }
+
+    public int getBedDays() {
+        return midnightCensus;
+    }
+
+    public int getAdmissions() {
+        return admissions;
+    }
+
+    public int getDischarges() {
+        return discharges;
+    }
+
+    public int getTransfersIn() {
+        return transfersIn;
+    }
+
+    public int getTransfersOut() {
+        return transfersOut;
+    }
+
+    @Override
+    public String toString() {
+        return "WardCensus[" + day + " " + locationId + " census=" + midnightCensus + " admissions=" + admissions
+                + " discharges=" + discharges + " transfersIn=" + transfersIn + " transfersOut=" + transfersOut + "]";
+    }
+}
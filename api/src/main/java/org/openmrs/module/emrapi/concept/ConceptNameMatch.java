@@ -0,0 +1,60 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.concept;
+
+/**
+ * A concept name found by a search, with what is needed to rank and display it, see
+ * {@link ConceptSearchCache}. Unlike a {@link org.openmrs.ConceptName} it can be kept across sessions.
+ */
+public class ConceptNameMatch {
+
+    private final String conceptUuid;
+
+    private final String conceptName;
+
+    private final String matchedName;
+
+    private final boolean localePreferred;
+
+    public ConceptNameMatch(String conceptUuid, String conceptName, String matchedName, boolean localePreferred) {
+        this.conceptUuid = conceptUuid;
+        this.conceptName = conceptName;
+        this.matchedName = matchedName;
+        this.localePreferred = localePreferred;
+    }
+
+    public String getConceptUuid() {
+        return conceptUuid;
+    }
+
+    /**
+     * @return the name the concept is displayed with
+     */
+    public String getConceptName() {
+        return conceptName;
+    }
+
+    /**
+     * @return the name that matched the search, which can be a synonym
+     */
+    public String getMatchedName() {
+        return matchedName;
+    }
+
+    public boolean isLocalePreferred() {
+        return localePreferred;
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.concept;
+
+import org.openmrs.module.emrapi.metrics.CacheMetrics;
+import org.openmrs.module.emrapi.metrics.MetricsRegistry;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which concept each "source:code" mapping or uuid passed to
+ * {@link EmrConceptService#getConcept(String)} resolved to, including the ones that resolved to no
+ * concept, and which concepts are mapped to each reference term. Dispositions, disposition actions and
+ * diagnosis codes resolve the same few references over and over.
+ * <p/>
+ * Only concept ids are kept, so the concepts themselves are loaded in the caller's session. At most
+ * {@link #setMaxEntries(int) maxEntries} of each are kept, the least recently used ones are dropped
+ * first. {@link ConceptReferenceCacheEventListener} empties the cache whenever a concept, reference term,
+ * concept source or map type changes. Hits and misses are counted in the {@link MetricsRegistry}.
+ */
+public class ConceptReferenceCache {
+
+    public static final String METRICS_NAME = "ConceptReferenceCache";
+
+    /**
+     * Cached for references that don't resolve to a concept
+     */
+    static final Integer NOT_FOUND = -1;
+
+    private CacheMetrics metrics = new CacheMetrics(METRICS_NAME);
+
+    private int maxEntries = 10000;
+
+    private final Object lock = new Object();
+
+    private final Map<String, Integer> conceptIdsByReference = new BoundedMap<String, Integer>();
+
+    private final Map<Integer, List<Integer>> conceptIdsByTerm = new BoundedMap<Integer, List<Integer>>();
+
+    private int version;
+
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metrics = metricsRegistry.getCache(METRICS_NAME);
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param mappingOrUuid
+     * @return the id of the concept the reference resolved to, {@link #NOT_FOUND} if it resolved to none,
+     *         or null if it is not cached
+     */
+    public Integer getConceptId(String mappingOrUuid) {
+        synchronized (lock) {
+            return record(conceptIdsByReference.get(mappingOrUuid));
+        }
+    }
+
+    /**
+     * @param mappingOrUuid
+     * @param conceptId or null if the reference resolved to no concept
+     * @param loadedVersion what {@link #getVersion()} returned before the reference was resolved
+     */
+    public void putConceptId(String mappingOrUuid, Integer conceptId, int loadedVersion) {
+        synchronized (lock) {
+            // don't keep what was being resolved while a concept changed
+            if (loadedVersion == version) {
+                conceptIdsByReference.put(mappingOrUuid, conceptId == null ? NOT_FOUND : conceptId);
+            }
+        }
+    }
+
+    /**
+     * @param termId
+     * @return the ids of the concepts with SAME-AS or NARROWER-THAN mappings to the term, or null if they
+     *         are not cached
+     */
+    public List<Integer> getConceptIdsMappedTo(Integer termId) {
+        synchronized (lock) {
+            return record(conceptIdsByTerm.get(termId));
+        }
+    }
+
+    public void putConceptIdsMappedTo(Integer termId, List<Integer> conceptIds, int loadedVersion) {
+        synchronized (lock) {
+            if (loadedVersion == version) {
+                conceptIdsByTerm.put(termId, Collections.unmodifiableList(conceptIds));
+            }
+        }
+    }
+
+    /**
+     * @return a number that changes whenever the cache is invalidated, to pass back to the put methods
+     */
+    public int getVersion() {
+        synchronized (lock) {
+            return version;
+        }
+    }
+
+    /**
+     * Forgets everything
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            version++;
+            conceptIdsByReference.clear();
+            conceptIdsByTerm.clear();
+        }
+        metrics.recordInvalidation();
+    }
+
+    private <T> T record(T cached) {
+        if (cached == null) {
+            metrics.recordMiss();
+        } else {
+            metrics.recordHit();
+        }
+        return cached;
+    }
+
+    private class BoundedMap<K, V> extends LinkedHashMap<K, V> {
+
+        BoundedMap() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() > maxEntries) {
+                metrics.recordEvictions(1);
+                return true;
+            }
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,358 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.concept;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptName;
+import org.openmrs.ConceptWord;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.emrapi.EmrApiProperties;
+import org.openmrs.module.emrapi.metrics.CacheMetrics;
+import org.openmrs.module.emrapi.metrics.MetricsRegistry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Caches the names found by diagnosis searches, which are repeated for every keystroke of every
+ * clinician typing a diagnosis. Results are ranked like {@link EmrConceptService#conceptSearch} ranks
+ * them.
+ * <p/>
+ * A search that is not cached can often be answered from the cached search for a prefix of it: if the
+ * shorter search found all its matching names (fewer than the limit), the names matching the longer
+ * search are among them, e.g. "dia" then "diab" then "diabetes". Only searches that cannot be answered
+ * that way go to the database.
+ * <p/>
+ * At most {@link #setMaxEntries(int) maxEntries} searches are kept, the least recently used ones are
+ * dropped first, and a search is done again after {@link #setTimeToLive(long) timeToLive}.
+ * {@link ConceptSearchCacheEventListener} empties the cache whenever a concept changes. Hits and misses
+ * are counted in the {@link MetricsRegistry}.
+ */
+public class ConceptSearchCache {
+
+    public static final String METRICS_NAME = "ConceptSearchCache.diagnoses";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private EmrConceptService emrConceptService;
+
+    private EmrApiProperties emrApiProperties;
+
+    private CacheMetrics metrics = new CacheMetrics(METRICS_NAME);
+
+    private int maxEntries = 1000;
+
+    private long timeToLive = 10 * 60 * 1000;
+
+    private final Object lock = new Object();
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            if (size() > maxEntries) {
+                metrics.recordEvictions(1);
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private int version;
+
+    public void setEmrConceptService(EmrConceptService emrConceptService) {
+        this.emrConceptService = emrConceptService;
+    }
+
+    public void setEmrApiProperties(EmrApiProperties emrApiProperties) {
+        this.emrApiProperties = emrApiProperties;
+    }
+
+    public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metrics = metricsRegistry.getCache(METRICS_NAME);
+    }
+
+    public void setMaxEntries(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @param timeToLive in milliseconds
+     */
+    public void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Searches the names of the concepts in the diagnosis sets, like
+     * <code>conceptSearch(query, locale, null, emrApiProperties.getDiagnosisSets(), null, limit)</code>
+     *
+     * @param query
+     * @param locale
+     * @param limit
+     * @return the best matches first, at most one per concept, each with the name of its concept in the
+     *         current user's locale
+     */
+    public List<ConceptNameMatch> searchDiagnoses(String query, Locale locale, int limit) {
+        String term = normalize(query);
+        List<String> words = ConceptWord.getUniqueWords(term, locale);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // the concept names are in the user's locale, which need not be the one searched
+        Locale displayLocale = Context.getLocale();
+        Key key = new Key(term, locale, displayLocale, limit);
+        int loadedVersion;
+        synchronized (lock) {
+            Entry entry = get(key);
+            if (entry == null) {
+                entry = filterPrefix(key, words);
+                if (entry != null) {
+                    entries.put(key, entry);
+                }
+            }
+            if (entry != null) {
+                metrics.recordHit();
+                return rank(term, entry.names, limit);
+            }
+            loadedVersion = version;
+        }
+
+        metrics.recordMiss();
+        Collection<Concept> diagnosisSets = emrApiProperties.getDiagnosisSets();
+        List<ConceptName> found = emrConceptService.getConceptNamesContainingWords(words, locale, null, diagnosisSets, limit);
+        List<ConceptNameMatch> names = new ArrayList<ConceptNameMatch>(found.size());
+        for (ConceptName name : found) {
+            names.add(new ConceptNameMatch(name.getConcept().getUuid(), name.getConcept().getName(displayLocale).getName(),
+                    name.getName(), name.isLocalePreferred()));
+        }
+        Entry entry = new Entry(words, names, found.size() < limit, System.currentTimeMillis());
+        synchronized (lock) {
+            // don't keep names that were being searched while a concept changed
+            if (loadedVersion == version) {
+                entries.put(key, entry);
+            }
+        }
+        return rank(term, entry.names, limit);
+    }
+
+    /**
+     * Forgets all the searches
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            version++;
+            entries.clear();
+        }
+        metrics.recordInvalidation();
+    }
+
+    private Entry get(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isExpired(timeToLive)) {
+            entries.remove(key);
+            metrics.recordEvictions(1);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * @return the names of the longest cached prefix search that found all its names, that match the words,
+     *         or null if there is no such search
+     */
+    private Entry filterPrefix(Key key, List<String> words) {
+        for (int length = key.term.length() - 1; length > 0; length--) {
+            Entry prefix = get(new Key(key.term.substring(0, length), key.locale, key.displayLocale, key.limit));
+            if (prefix != null && prefix.complete && covers(words, prefix.words)) {
+                List<String> folded = fold(words);
+                List<ConceptNameMatch> names = new ArrayList<ConceptNameMatch>();
+                for (ConceptNameMatch candidate : prefix.names) {
+                    if (containsAll(fold(candidate.getMatchedName()), folded)) {
+                        names.add(candidate);
+                    }
+                }
+                // expires with the search it was filtered from, which is when that could have changed
+                return new Entry(words, names, true, prefix.created);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return whether every name that contains all the words also contains all the prefix words, i.e.
+     *         whether each prefix word is part of one of the words
+     */
+    private static boolean covers(List<String> words, List<String> prefixWords) {
+        List<String> folded = fold(words);
+        for (String prefixWord : fold(prefixWords)) {
+            boolean covered = false;
+            for (String word : folded) {
+                if (word.contains(prefixWord)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean containsAll(String name, List<String> words) {
+        for (String word : words) {
+            if (!name.contains(word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Ranks the names like {@link HibernateEmrConceptDAO#conceptSearch} does
+     */
+    private static List<ConceptNameMatch> rank(final String query, List<ConceptNameMatch> names, int limit) {
+        Set<String> conceptsMatchedByPreferredName = new HashSet<String>();
+        for (ConceptNameMatch name : names) {
+            if (name.isLocalePreferred()) {
+                conceptsMatchedByPreferredName.add(name.getConceptUuid());
+            }
+        }
+
+        List<ConceptNameMatch> results = new ArrayList<ConceptNameMatch>(names);
+        // don't display synonym matches if the preferred name matches too
+        for (Iterator<ConceptNameMatch> i = results.iterator(); i.hasNext(); ) {
+            ConceptNameMatch candidate = i.next();
+            if (!candidate.isLocalePreferred() && conceptsMatchedByPreferredName.contains(candidate.getConceptUuid())) {
+                i.remove();
+            }
+        }
+
+        Collections.sort(results, new Comparator<ConceptNameMatch>() {
+            @Override
+            public int compare(ConceptNameMatch left, ConceptNameMatch right) {
+                return Double.compare(score(query, right), score(query, left));
+            }
+        });
+
+        if (results.size() > limit) {
+            results = results.subList(0, limit);
+        }
+        return results;
+    }
+
+    private static double score(String query, ConceptNameMatch name) {
+        return HibernateEmrConceptDAO.calculateMatchScore(query, name.getMatchedName(), name.isLocalePreferred());
+    }
+
+    private static String normalize(String query) {
+        return query == null ? "" : WHITESPACE.matcher(query.trim()).replaceAll(" ").toLowerCase();
+    }
+
+    /**
+     * Upper case without accents, so that filtering in memory matches at least the names that a case (and
+     * usually accent) insensitive database search would
+     */
+    private static String fold(String text) {
+        return MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toUpperCase();
+    }
+
+    private static List<String> fold(List<String> words) {
+        List<String> folded = new ArrayList<String>(words.size());
+        for (String word : words) {
+            folded.add(fold(word));
+        }
+        return folded;
+    }
+
+    private static class Key {
+
+        private final String term;
+
+        private final Locale locale;
+
+        private final Locale displayLocale;
+
+        private final int limit;
+
+        Key(String term, Locale locale, Locale displayLocale, int limit) {
+            this.term = term;
+            this.locale = locale;
+            this.displayLocale = displayLocale;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return term.equals(other.term) && locale.equals(other.locale) && displayLocale.equals(other.displayLocale)
+                    && limit == other.limit;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((term.hashCode() * 31 + locale.hashCode()) * 31 + displayLocale.hashCode()) * 31 + limit;
+        }
+
+    }
+
+    /**
+     * The names one search found, in no particular order
+     */
+    private static class Entry {
+
+        private final List<String> words;
+
+        private final List<ConceptNameMatch> names;
+
+        /**
+         * Whether these are all the names that match, rather than the first limit of them
+         */
+        private final boolean complete;
+
+        private final long created;
+
+        Entry(List<String> words, List<ConceptNameMatch> names, boolean complete, long created) {
+            this.words = words;
+            this.names = names;
+            this.complete = complete;
+            this.created = created;
+        }
+
+        boolean isExpired(long timeToLive) {
+            return System.currentTimeMillis() - created > timeToLive;
+        }
+
+    }
+
+}
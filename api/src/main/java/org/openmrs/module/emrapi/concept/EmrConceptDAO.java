@@ -17,6 +17,7 @@ package org.openmrs.module.emrapi.concept;
 import org.openmrs.Concept;
 import org.openmrs.ConceptClass;
 import org.openmrs.ConceptMapType;
+import org.openmrs.ConceptName;
 import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptSearchResult;
 import org.openmrs.ConceptSource;
@@ -34,4 +35,6 @@ public interface EmrConceptDAO {
 
     List<ConceptSearchResult> conceptSearch(String query, Locale locale, Collection<ConceptClass> classes, Collection<Concept> inSets, Collection<ConceptSource> sources, Integer limit);
 
+    List<ConceptName> getConceptNamesContainingWords(List<String> words, Locale locale, Collection<ConceptClass> classes, Collection<Concept> inSets, Integer limit);
+
 }
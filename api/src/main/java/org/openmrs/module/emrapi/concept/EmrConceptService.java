@@ -16,6 +16,7 @@ package org.openmrs.module.emrapi.concept;
 
 import org.openmrs.Concept;
 import org.openmrs.ConceptClass;
+import org.openmrs.ConceptName;
 import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptSearchResult;
 import org.openmrs.ConceptSource;
@@ -56,4 +57,16 @@ public interface EmrConceptService {
      */
     List<ConceptSearchResult> conceptSearch(String query, Locale locale, Collection<ConceptClass> classes, Collection<Concept> inSets, Collection<ConceptSource> sources, Integer limit);
 
+    /**
+     * The names that {@link #conceptSearch} ranks: non-voided names in the locale (or its language) of
+     * non-retired concepts, that contain each of the words (case insensitive)
+     * @param words e.g. from {@link org.openmrs.ConceptWord#getUniqueWords(String, Locale)}
+     * @param locale
+     * @param classes if specified, only search among concepts with this class
+     * @param inSets if specified, only search among concepts within these sets
+     * @param limit return up to this many names, in no particular order (defaults to 100)
+     * @return
+     */
+    List<ConceptName> getConceptNamesContainingWords(List<String> words, Locale locale, Collection<ConceptClass> classes, Collection<Concept> inSets, Integer limit);
+
 }
@@ -18,6 +18,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.Concept;
 import org.openmrs.ConceptClass;
+import org.openmrs.ConceptName;
 import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptSearchResult;
 import org.openmrs.ConceptSource;
@@ -26,6 +27,7 @@ import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.emrapi.EmrApiProperties;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -46,6 +48,8 @@ public class EmrConceptServiceImpl extends BaseOpenmrsService implements EmrConc
 
     private EmrApiProperties emrApiProperties;
 
+    private ConceptReferenceCache conceptReferenceCache;
+
     // This will match "ICD10:A50" or "PIH : Admit"
     // [^:]+? ... anything that is not a colon, reluctantly (so the next thing catches trailing spaces)
     // \s* ... 0 or more whitespaces, greedily
@@ -64,17 +68,51 @@ public class EmrConceptServiceImpl extends BaseOpenmrsService implements EmrConc
         this.conceptService = conceptService;
     }
 
+    public void setConceptReferenceCache(ConceptReferenceCache conceptReferenceCache) {
+        this.conceptReferenceCache = conceptReferenceCache;
+    }
+
     @Override
     public List<Concept> getConceptsSameOrNarrowerThan(ConceptReferenceTerm term) {
         if (term == null) {
             throw new IllegalArgumentException("term is required");
         }
-        return dao.getConceptsMappedTo(Arrays.asList(emrApiProperties.getSameAsConceptMapType(), emrApiProperties.getNarrowerThanConceptMapType()), term);
+        if (conceptReferenceCache == null || term.getId() == null) {
+            return getConceptsMappedTo(term);
+        }
+
+        List<Integer> conceptIds = conceptReferenceCache.getConceptIdsMappedTo(term.getId());
+        if (conceptIds == null) {
+            int loadedVersion = conceptReferenceCache.getVersion();
+            List<Concept> concepts = getConceptsMappedTo(term);
+            conceptIds = new ArrayList<Integer>(concepts.size());
+            for (Concept concept : concepts) {
+                conceptIds.add(concept.getConceptId());
+            }
+            conceptReferenceCache.putConceptIdsMappedTo(term.getId(), conceptIds, loadedVersion);
+            return concepts;
+        }
+        return getConcepts(conceptIds);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Concept getConcept(String mappingOrUuid) {
+        if (conceptReferenceCache == null) {
+            return resolveConcept(mappingOrUuid);
+        }
+
+        Integer conceptId = conceptReferenceCache.getConceptId(mappingOrUuid);
+        if (conceptId == null) {
+            int loadedVersion = conceptReferenceCache.getVersion();
+            Concept concept = resolveConcept(mappingOrUuid);
+            conceptReferenceCache.putConceptId(mappingOrUuid, concept == null ? null : concept.getConceptId(), loadedVersion);
+            return concept;
+        }
+        return ConceptReferenceCache.NOT_FOUND.equals(conceptId) ? null : conceptService.getConcept(conceptId);
+    }
+
+    private Concept resolveConcept(String mappingOrUuid) {
         Concept concept = null;
 
         Matcher matcher = codePattern.matcher(mappingOrUuid);
@@ -100,6 +138,21 @@ public class EmrConceptServiceImpl extends BaseOpenmrsService implements EmrConc
         return conceptService.getConceptByUuid(mappingOrUuid);
     }
 
+    private List<Concept> getConceptsMappedTo(ConceptReferenceTerm term) {
+        return dao.getConceptsMappedTo(Arrays.asList(emrApiProperties.getSameAsConceptMapType(), emrApiProperties.getNarrowerThanConceptMapType()), term);
+    }
+
+    private List<Concept> getConcepts(List<Integer> conceptIds) {
+        List<Concept> concepts = new ArrayList<Concept>(conceptIds.size());
+        for (Integer conceptId : conceptIds) {
+            Concept concept = conceptService.getConcept(conceptId);
+            if (concept != null) {
+                concepts.add(concept);
+            }
+        }
+        return concepts;
+    }
+
     @Override
     public List<ConceptSearchResult> conceptSearch(String query, Locale locale, Collection<ConceptClass> classes, Collection<Concept> inSets, Collection<ConceptSource> sources, Integer limit) {
         if (limit == null) {
@@ -108,4 +161,12 @@ public class EmrConceptServiceImpl extends BaseOpenmrsService implements EmrConc
         return dao.conceptSearch(query, locale, classes, inSets, sources, limit);
     }
 
+    @Override
+    public List<ConceptName> getConceptNamesContainingWords(List<String> words, Locale locale, Collection<ConceptClass> classes, Collection<Concept> inSets, Integer limit) {
+        if (limit == null) {
+            limit = 100;
+        }
+        return dao.getConceptNamesContainingWords(words, locale, classes, inSets, limit);
+    }
+
 }
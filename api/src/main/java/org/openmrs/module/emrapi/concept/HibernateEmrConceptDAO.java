@@ -76,34 +76,8 @@ public class HibernateEmrConceptDAO implements EmrConceptDAO {
 
         // find matches based on name
         {
-            Criteria criteria = sessionFactory.getCurrentSession().createCriteria(ConceptName.class, "cn");
-            criteria.add(Restrictions.eq("voided", false));
-            if (StringUtils.isNotBlank(locale.getCountry()) || StringUtils.isNotBlank(locale.getVariant())) {
-                Locale[] locales = new Locale[] { locale, new Locale(locale.getLanguage()) };
-                criteria.add(Restrictions.in("locale", locales));
-            } else {
-                criteria.add(Restrictions.eq("locale", locale));
-            }
-            criteria.setMaxResults(limit);
-
-            Criteria conceptCriteria = criteria.createCriteria("concept");
-            conceptCriteria.add(Restrictions.eq("retired", false));
-            if (classes != null) {
-                conceptCriteria.add(Restrictions.in("conceptClass", classes));
-            }
-            if (inSets != null) {
-                DetachedCriteria allowedSetMembers = DetachedCriteria.forClass(ConceptSet.class);
-                allowedSetMembers.add(Restrictions.in("conceptSet", inSets));
-                allowedSetMembers.setProjection(Projections.property("concept"));
-                criteria.add(Subqueries.propertyIn("concept", allowedSetMembers));
-            }
-
-            for (String word : uniqueWords) {
-                criteria.add(Restrictions.ilike("name", word, MatchMode.ANYWHERE));
-            }
-
             Set<Concept> conceptsMatchedByPreferredName = new HashSet<Concept>();
-            for (ConceptName matchedName : (List<ConceptName>) criteria.list()) {
+            for (ConceptName matchedName : getConceptNamesContainingWords(uniqueWords, locale, classes, inSets, limit)) {
                 results.add(new ConceptSearchResult(null, matchedName.getConcept(), matchedName, calculateMatchScore(query, uniqueWords, matchedName)));
                 if (matchedName.isLocalePreferred()) {
                     conceptsMatchedByPreferredName.add(matchedName.getConcept());
@@ -153,20 +127,58 @@ public class HibernateEmrConceptDAO implements EmrConceptDAO {
         return results;
     }
 
+    @Override
+    @Transactional(readOnly=true)
+    public List<ConceptName> getConceptNamesContainingWords(List<String> words, Locale locale, Collection<ConceptClass> classes, Collection<Concept> inSets, Integer limit) {
+        Criteria criteria = sessionFactory.getCurrentSession().createCriteria(ConceptName.class, "cn");
+        criteria.add(Restrictions.eq("voided", false));
+        if (StringUtils.isNotBlank(locale.getCountry()) || StringUtils.isNotBlank(locale.getVariant())) {
+            Locale[] locales = new Locale[] { locale, new Locale(locale.getLanguage()) };
+            criteria.add(Restrictions.in("locale", locales));
+        } else {
+            criteria.add(Restrictions.eq("locale", locale));
+        }
+        criteria.setMaxResults(limit);
+
+        Criteria conceptCriteria = criteria.createCriteria("concept");
+        conceptCriteria.add(Restrictions.eq("retired", false));
+        if (classes != null) {
+            conceptCriteria.add(Restrictions.in("conceptClass", classes));
+        }
+        if (inSets != null) {
+            DetachedCriteria allowedSetMembers = DetachedCriteria.forClass(ConceptSet.class);
+            allowedSetMembers.add(Restrictions.in("conceptSet", inSets));
+            allowedSetMembers.setProjection(Projections.property("concept"));
+            criteria.add(Subqueries.propertyIn("concept", allowedSetMembers));
+        }
+
+        for (String word : words) {
+            criteria.add(Restrictions.ilike("name", word, MatchMode.ANYWHERE));
+        }
+        return (List<ConceptName>) criteria.list();
+    }
+
     private Double calculateMatchScore(String query, ConceptMap matchedMapping) {
         // eventually consider weighting this by map type (e.g. same-as > narrower-than > others)
         return 10000d;
     }
 
     private Double calculateMatchScore(String query, List<String> uniqueWords, ConceptName matchedName) {
+        return calculateMatchScore(query, matchedName.getName(), matchedName.isLocalePreferred());
+    }
+
+    /**
+     * Also used by {@link ConceptSearchCache} to rank the names it keeps
+     */
+    static double calculateMatchScore(String query, String matchedName, boolean localePreferred) {
         double score = 0d;
-        if (query.equalsIgnoreCase(matchedName.getName())) {
+        if (query.equalsIgnoreCase(matchedName)) {
             score += 1000d;
         }
-        if (matchedName.isLocalePreferred()) {
+        if (localePreferred) {
             score += 500d;
         }
-        score -= matchedName.getName().length();
+        score -= matchedName.length();
         return score;
     }
 }
@@ -4,7 +4,10 @@ import org.openmrs.Concept;
 import org.openmrs.Encounter;
 import org.openmrs.EncounterType;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Useful queries for fetching OpenMRS objects beyond what are provided by the OpenMRS Core
@@ -22,4 +25,31 @@ public interface EmrEncounterDAO {
      */
     List<Encounter> getEncountersByObsValueText(Concept obsConcept, String valueText, EncounterType encounterType, boolean includeVoided);
 
+    /**
+     * Like {@link #getEncountersByObsValueText} for many values at once, e.g. to reconcile a list of lab
+     * accession numbers, with a few queries for the whole list instead of one query per value
+     *
+     * @param obsConcept the concept associated with the obs
+     * @param valueTexts the value texts of the obs
+     * @param encounterType optionally limit to encounters of a certain type
+     * @param includeVoided whether or not to include voided obs
+     * @return each of the value texts, in the order given, with the encounters that have an obs with that value
+     *         text (an empty list if there are none), without duplicates
+     */
+    Map<String, List<Encounter>> getEncountersByObsValueTexts(Concept obsConcept, Collection<String> valueTexts, EncounterType encounterType, boolean includeVoided);
+
+    /**
+     * Returns the encounters of a visit in a window of time, voided ones included (like
+     * {@link org.openmrs.Visit#getEncounters()}), with their visit, visit type, patient, encounter type and
+     * location already loaded
+     *
+     * @param visitUuid
+     * @param fromDatetime encounters at or after this time
+     * @param toDatetime encounters before this time
+     * @param start the index of the first encounter to return, or null to start at the first one
+     * @param length the maximum number of encounters to return, or null for all of them
+     * @return the encounters, earliest first
+     */
+    List<Encounter> getEncountersByVisitUuid(String visitUuid, Date fromDatetime, Date toDatetime, Integer start, Integer length);
+
 }
@@ -1,6 +1,8 @@
 package org.openmrs.module.emrapi.db;
 
+import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.Query;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
@@ -9,10 +11,22 @@ import org.openmrs.Encounter;
 import org.openmrs.EncounterType;
 import org.openmrs.Obs;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class HibernateEmrEncounterDAO implements EmrEncounterDAO {
 
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
+    private static final int OBS_PAGE_SIZE = 1000;
+
     private SessionFactory sessionFactory;
 
 
@@ -47,4 +61,127 @@ public class HibernateEmrEncounterDAO implements EmrEncounterDAO {
         return criteria.list();
     }
 
+    @Override
+    public Map<String, List<Encounter>> getEncountersByObsValueTexts(Concept obsConcept, Collection<String> valueTexts, EncounterType encounterType, boolean includeVoided) {
+        Map<String, Set<Integer>> encounterIdsByValue = new LinkedHashMap<String, Set<Integer>>();
+        for (String valueText : valueTexts) {
+            if (valueText != null && !encounterIdsByValue.containsKey(valueText)) {
+                encounterIdsByValue.put(valueText, new LinkedHashSet<Integer>());
+            }
+        }
+        // the database may compare without case and trailing spaces (like MySQL does), so rows are matched back
+        // to the values they were found with the same way when their value text is not exactly one of them
+        Map<String, List<String>> valuesByFoldedValue = new HashMap<String, List<String>>();
+        for (String valueText : encounterIdsByValue.keySet()) {
+            String folded = fold(valueText);
+            if (!valuesByFoldedValue.containsKey(folded)) {
+                valuesByFoldedValue.put(folded, new ArrayList<String>());
+            }
+            valuesByFoldedValue.get(folded).add(valueText);
+        }
+
+        StringBuilder hql = new StringBuilder("select o.obsId, o.valueText, e.encounterId from Obs o join o.encounter e ");
+        hql.append("where o.valueText in (:valueTexts) and o.obsId > :lastObsId ");
+        if (!includeVoided) {
+            hql.append("and o.voided = false ");
+        }
+        if (obsConcept != null) {
+            hql.append("and o.concept = :concept ");
+        }
+        if (encounterType != null) {
+            hql.append("and e.encounterType = :encounterType ");
+        }
+        hql.append("order by o.obsId");
+
+        List<String> values = new ArrayList<String>(encounterIdsByValue.keySet());
+        Set<Integer> encounterIds = new LinkedHashSet<Integer>();
+        for (int from = 0; from < values.size(); from += MAX_IN_CLAUSE_SIZE) {
+            List<String> chunk = values.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, values.size()));
+            // pages through the obs by id rather than by offset, so that a value shared by many obs neither
+            // loads them all at once nor makes later pages rescan the earlier ones
+            int lastObsId = 0;
+            List<Object[]> rows;
+            do {
+                Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+                query.setParameterList("valueTexts", chunk);
+                query.setInteger("lastObsId", lastObsId);
+                if (obsConcept != null) {
+                    query.setParameter("concept", obsConcept);
+                }
+                if (encounterType != null) {
+                    query.setParameter("encounterType", encounterType);
+                }
+                query.setMaxResults(OBS_PAGE_SIZE);
+                rows = query.list();
+                for (Object[] row : rows) {
+                    lastObsId = (Integer) row[0];
+                    Integer encounterId = (Integer) row[2];
+                    Set<Integer> matched = encounterIdsByValue.get(row[1]);
+                    if (matched != null) {
+                        matched.add(encounterId);
+                    } else {
+                        List<String> foldedMatches = valuesByFoldedValue.get(fold((String) row[1]));
+                        if (foldedMatches == null) {
+                            continue;
+                        }
+                        for (String valueText : foldedMatches) {
+                            encounterIdsByValue.get(valueText).add(encounterId);
+                        }
+                    }
+                    encounterIds.add(encounterId);
+                }
+            } while (rows.size() == OBS_PAGE_SIZE);
+        }
+
+        Map<Integer, Encounter> encountersById = getEncountersById(encounterIds);
+        Map<String, List<Encounter>> encountersByValue = new LinkedHashMap<String, List<Encounter>>();
+        for (Map.Entry<String, Set<Integer>> entry : encounterIdsByValue.entrySet()) {
+            List<Encounter> encounters = new ArrayList<Encounter>();
+            for (Integer encounterId : entry.getValue()) {
+                encounters.add(encountersById.get(encounterId));
+            }
+            encountersByValue.put(entry.getKey(), encounters);
+        }
+        return encountersByValue;
+    }
+
+    @Override
+    public List<Encounter> getEncountersByVisitUuid(String visitUuid, Date fromDatetime, Date toDatetime, Integer start, Integer length) {
+        // fetches what EncounterTransactionMapper reads except the obs, orders and providers, since fetching
+        // several collections at once would multiply the rows
+        Query query = sessionFactory.getCurrentSession().createQuery("select e from Encounter e " +
+                "join fetch e.visit v join fetch v.visitType join fetch e.patient " +
+                "join fetch e.encounterType left join fetch e.location " +
+                "where v.uuid = :visitUuid " +
+                "and e.encounterDatetime >= :fromDatetime and e.encounterDatetime < :toDatetime " +
+                "order by e.encounterDatetime, e.encounterId");
+        query.setString("visitUuid", visitUuid);
+        query.setTimestamp("fromDatetime", fromDatetime);
+        query.setTimestamp("toDatetime", toDatetime);
+        if (start != null) {
+            query.setFirstResult(start);
+        }
+        if (length != null) {
+            query.setMaxResults(length);
+        }
+        return query.list();
+    }
+
+    private Map<Integer, Encounter> getEncountersById(Collection<Integer> encounterIds) {
+        Map<Integer, Encounter> encountersById = new HashMap<Integer, Encounter>();
+        List<Integer> ids = new ArrayList<Integer>(encounterIds);
+        for (int from = 0; from < ids.size(); from += MAX_IN_CLAUSE_SIZE) {
+            Query query = sessionFactory.getCurrentSession().createQuery("from Encounter e where e.encounterId in (:encounterIds)");
+            query.setParameterList("encounterIds", ids.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, ids.size())));
+            for (Encounter encounter : (List<Encounter>) query.list()) {
+                encountersById.put(encounter.getEncounterId(), encounter);
+            }
+        }
+        return encountersById;
+    }
+
+    private static String fold(String valueText) {
+        return StringUtils.stripEnd(valueText, " ").toLowerCase();
+    }
+
 }
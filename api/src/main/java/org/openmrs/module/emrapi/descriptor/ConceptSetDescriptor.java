@@ -12,8 +12,17 @@ import org.openmrs.module.emrapi.EmrApiConstants;
 import org.openmrs.module.emrapi.diagnosis.CodedOrFreeTextAnswer;
 import org.openmrs.util.OpenmrsUtil;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public abstract class ConceptSetDescriptor {
 
+    /**
+     * Property name -> id of the concept it was set up with
+     */
+    private final Map<String, Integer> conceptIds = new LinkedHashMap<String, Integer>();
+
     /**
      * @param conceptService
      * @param conceptSourceName
@@ -27,6 +36,7 @@ public abstract class ConceptSetDescriptor {
                 throw new IllegalStateException("Couldn't find primary concept for " + getClass().getSimpleName() + " which should be mapped as " + conceptSourceName + ":" + primaryConceptCode);
             }
             PropertyUtils.setProperty(this, fieldsAndConceptCodes[0], primaryConcept);
+            conceptIds.put(fieldsAndConceptCodes[0], primaryConcept.getConceptId());
             for (int i = 2; i < fieldsAndConceptCodes.length; i += 2) {
                 String propertyName = fieldsAndConceptCodes[i];
                 String mappingCode = fieldsAndConceptCodes[i + 1];
@@ -38,6 +48,7 @@ public abstract class ConceptSetDescriptor {
                     throw new IllegalStateException("Concept mapped as " + conceptSourceName + ":" + mappingCode + " needs to be a set member of concept " + primaryConcept.getConceptId() + " which is mapped as " + conceptSourceName + ":" + primaryConceptCode);
                 }
                 PropertyUtils.setProperty(this, propertyName, childConcept);
+                conceptIds.put(propertyName, childConcept.getConceptId());
             }
         } catch (Exception ex) {
             if (ex instanceof RuntimeException) {
@@ -48,6 +59,14 @@ public abstract class ConceptSetDescriptor {
         }
     }
 
+    /**
+     * @return property name -> id of the concept it was set up with, empty if it wasn't set up from a
+     *         concept service
+     */
+    Map<String, Integer> getConceptIds() {
+        return Collections.unmodifiableMap(new LinkedHashMap<String, Integer>(conceptIds));
+    }
+
     protected Obs findMember(Obs obsGroup, Concept concept) {
         for (Obs candidate : obsGroup.getGroupMembers(false)) {
             if (candidate.getConcept().equals(concept)) {
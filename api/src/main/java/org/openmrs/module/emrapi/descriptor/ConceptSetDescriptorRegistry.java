@@ -0,0 +1,251 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.descriptor;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Concept;
+import org.openmrs.ConceptSource;
+import org.openmrs.api.ConceptService;
+import org.openmrs.module.emrapi.EmrApiConstants;
+import org.openmrs.module.emrapi.diagnosis.Diagnosis;
+import org.openmrs.module.emrapi.diagnosis.DiagnosisMetadata;
+import org.openmrs.module.emrapi.disposition.DispositionDescriptor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers which concepts each {@link ConceptSetDescriptor} is made of, since working that out looks up
+ * all of its concepts by mapping and checks that they are members of the set.
+ * <p/>
+ * Only the concept ids, and the diagnosis lookup tables keyed by concept id, are shared. Each call returns
+ * a new descriptor with its concepts loaded by id in the caller's session (usually from the session or
+ * second level cache) and set directly, so callers never share a descriptor, or the concepts in it,
+ * across threads or sessions.
+ * <p/>
+ * The ids are worked out the first time a descriptor is needed, and again after {@link #invalidate()},
+ * which {@link ConceptSetDescriptorRegistryEventListener} calls whenever a concept, reference term or
+ * concept source changes.
+ */
+public class ConceptSetDescriptorRegistry {
+
+    protected final Log log = LogFactory.getLog(getClass());
+
+    private ConceptService conceptService;
+
+    private final Object lock = new Object();
+
+    private int version;
+
+    private final Entry<DiagnosisMetadata> diagnosisMetadata = new Entry<DiagnosisMetadata>() {
+
+        @Override
+        DiagnosisMetadata build() {
+            return new DiagnosisMetadata(conceptService,
+                    conceptService.getConceptSourceByName(EmrApiConstants.EMR_CONCEPT_SOURCE_NAME));
+        }
+
+        @Override
+        ConceptIds getConceptIds(DiagnosisMetadata built) {
+            ConceptSource source = built.getEmrConceptSource();
+            return new ConceptIds(built.getConceptIds(), source == null ? null : source.getConceptSourceId(),
+                    built.getOrdersByConceptId(), built.getCertaintiesByConceptId());
+        }
+
+        @Override
+        DiagnosisMetadata rebuild(ConceptIds ids) {
+            DiagnosisMetadata metadata = new DiagnosisMetadata();
+            metadata.setDiagnosisSetConcept(getConcept(ids, "diagnosisSetConcept"));
+            metadata.setCodedDiagnosisConcept(getConcept(ids, "codedDiagnosisConcept"));
+            metadata.setNonCodedDiagnosisConcept(getConcept(ids, "nonCodedDiagnosisConcept"));
+            metadata.setDiagnosisOrderConcept(getConcept(ids, "diagnosisOrderConcept"));
+            metadata.setDiagnosisCertaintyConcept(getConcept(ids, "diagnosisCertaintyConcept"));
+            if (ids.conceptSourceId != null) {
+                metadata.setEmrConceptSource(conceptService.getConceptSource(ids.conceptSourceId));
+            }
+            metadata.setLookupTables(ids.ordersByConceptId, ids.certaintiesByConceptId);
+            return metadata;
+        }
+    };
+
+    private final Entry<DispositionDescriptor> dispositionDescriptor = new Entry<DispositionDescriptor>() {
+
+        @Override
+        DispositionDescriptor build() {
+            return new DispositionDescriptor(conceptService);
+        }
+
+        @Override
+        DispositionDescriptor rebuild(ConceptIds ids) {
+            DispositionDescriptor descriptor = new DispositionDescriptor();
+            descriptor.setDispositionSetConcept(getConcept(ids, "dispositionSetConcept"));
+            descriptor.setDispositionConcept(getConcept(ids, "dispositionConcept"));
+            descriptor.setAdmissionLocationConcept(getConcept(ids, "admissionLocationConcept"));
+            descriptor.setInternalTransferLocationConcept(getConcept(ids, "internalTransferLocationConcept"));
+            descriptor.setDateOfDeathConcept(getConcept(ids, "dateOfDeathConcept"));
+            return descriptor;
+        }
+    };
+
+    public void setConceptService(ConceptService conceptService) {
+        this.conceptService = conceptService;
+    }
+
+    /**
+     * @return diagnosis metadata for the current session
+     * @throws IllegalStateException if the diagnosis concepts are not set up correctly
+     */
+    public DiagnosisMetadata getDiagnosisMetadata() {
+        return diagnosisMetadata.get();
+    }
+
+    /**
+     * @return a disposition descriptor for the current session
+     * @throws IllegalStateException if the disposition concepts are not set up correctly
+     */
+    public DispositionDescriptor getDispositionDescriptor() {
+        return dispositionDescriptor.get();
+    }
+
+    /**
+     * Forgets the concept ids, they are looked up by mapping again the next time they are needed
+     */
+    public void invalidate() {
+        synchronized (lock) {
+            version++;
+            for (Entry<?> entry : getEntries()) {
+                entry.conceptIds = null;
+            }
+        }
+    }
+
+    /**
+     * Builds every descriptor, and logs which ones are set up correctly and what is wrong with the others.
+     * Not every implementation uses every descriptor, so a problem is reported but not thrown.
+     *
+     * @return a description of each problem found, empty if all the descriptors could be built
+     */
+    public List<String> validate() {
+        List<String> problems = new ArrayList<String>();
+        StringBuilder report = new StringBuilder("Concept set descriptors:");
+        for (Entry<?> entry : getEntries()) {
+            long start = System.currentTimeMillis();
+            try {
+                ConceptSetDescriptor descriptor = entry.get();
+                report.append("\n  ").append(descriptor.getClass().getSimpleName()).append(": OK in ")
+                        .append(System.currentTimeMillis() - start).append("ms");
+            }
+            catch (RuntimeException e) {
+                problems.add(e.getMessage());
+                report.append("\n  ").append(e.getMessage());
+            }
+        }
+        if (problems.isEmpty()) {
+            log.info(report);
+        } else {
+            log.warn(report);
+        }
+        return problems;
+    }
+
+    /**
+     * Loads the concept a property was set up with by id, in the current session
+     */
+    private Concept getConcept(ConceptIds ids, String propertyName) {
+        Integer conceptId = ids.byProperty.get(propertyName);
+        Concept concept = conceptId == null ? null : conceptService.getConcept(conceptId);
+        if (concept == null) {
+            throw new IllegalStateException("Couldn't find " + propertyName + " concept with id " + conceptId);
+        }
+        return concept;
+    }
+
+    private List<Entry<?>> getEntries() {
+        return Arrays.<Entry<?>>asList(diagnosisMetadata, dispositionDescriptor);
+    }
+
+    /**
+     * The concept ids of one descriptor. Ids that were being worked out while the registry was
+     * invalidated are not kept.
+     */
+    private abstract class Entry<T extends ConceptSetDescriptor> {
+
+        private volatile ConceptIds conceptIds;
+
+        T get() {
+            ConceptIds current = conceptIds;
+            if (current != null) {
+                return rebuild(current);
+            }
+            int builtVersion;
+            synchronized (lock) {
+                builtVersion = version;
+            }
+            T built = build();
+            current = getConceptIds(built);
+            synchronized (lock) {
+                if (builtVersion == version) {
+                    conceptIds = current;
+                }
+            }
+            return built;
+        }
+
+        /**
+         * Builds the descriptor by looking its concepts up by mapping, throwing if they aren't set up correctly
+         */
+        abstract T build();
+
+        ConceptIds getConceptIds(T built) {
+            return new ConceptIds(built.getConceptIds(), null, null, null);
+        }
+
+        /**
+         * Builds the descriptor again in the current session from the ids of a descriptor built before
+         */
+        abstract T rebuild(ConceptIds ids);
+
+    }
+
+    /**
+     * What a descriptor is made of, immutable so it can be shared
+     */
+    private static class ConceptIds {
+
+        private final Map<String, Integer> byProperty;
+
+        private final Integer conceptSourceId;
+
+        /**
+         * The lookup tables of diagnosis metadata, null for other descriptors
+         */
+        private final Map<Integer, Diagnosis.Order> ordersByConceptId;
+
+        private final Map<Integer, Diagnosis.Certainty> certaintiesByConceptId;
+
+        ConceptIds(Map<String, Integer> byProperty, Integer conceptSourceId,
+                   Map<Integer, Diagnosis.Order> ordersByConceptId,
+                   Map<Integer, Diagnosis.Certainty> certaintiesByConceptId) {
+            this.byProperty = byProperty;
+            this.conceptSourceId = conceptSourceId;
+            this.ordersByConceptId = ordersByConceptId;
+            this.certaintiesByConceptId = certaintiesByConceptId;
+        }
+
+    }
+
+}
@@ -0,0 +1,65 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.descriptor;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptReferenceTerm;
+import org.openmrs.ConceptSource;
+import org.openmrs.event.Event;
+import org.openmrs.event.EventListener;
+
+import javax.jms.Message;
+
+/**
+ * Invalidates the {@link ConceptSetDescriptorRegistry} whenever a concept (including its set members and
+ * mappings), a reference term or a concept source changes
+ */
+public class ConceptSetDescriptorRegistryEventListener implements EventListener {
+
+    private static final Event.Action[] ACTIONS = { Event.Action.CREATED, Event.Action.UPDATED, Event.Action.RETIRED,
+            Event.Action.UNRETIRED, Event.Action.PURGED };
+
+    private static final Class<?>[] CLASSES = { Concept.class, ConceptReferenceTerm.class, ConceptSource.class };
+
+    private ConceptSetDescriptorRegistry registry;
+
+    public ConceptSetDescriptorRegistryEventListener(ConceptSetDescriptorRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void subscribe() {
+        for (Event.Action action : ACTIONS) {
+            for (Class<?> clazz : CLASSES) {
+                Event.subscribe(clazz, action.name(), this);
+            }
+        }
+    }
+
+    public void unsubscribe() {
+        for (Event.Action action : ACTIONS) {
+            for (Class<?> clazz : CLASSES) {
+                Event.unsubscribe(clazz, action, this);
+            }
+        }
+    }
+
+    /**
+     * @see EventListener#onMessage(javax.jms.Message)
+     */
+    @Override
+    public void onMessage(Message message) {
+        registry.invalidate();
+    }
+
+}
@@ -6,6 +6,7 @@ import org.codehaus.jackson.map.DeserializationContext;
 import org.codehaus.jackson.map.JsonDeserializer;
 import org.openmrs.Concept;
 import org.openmrs.ConceptClass;
+import org.openmrs.ConceptName;
 import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptSearchResult;
 import org.openmrs.ConceptSource;
@@ -43,6 +44,11 @@ public class ConceptCodeDeserializer extends JsonDeserializer<Concept> {
             public List<ConceptSearchResult> conceptSearch(String query, Locale locale, Collection<ConceptClass> classes, Collection<Concept> inSets, Collection<ConceptSource> sources, Integer limit) {
                 return null; // not needed here
             }
+
+            @Override
+            public List<ConceptName> getConceptNamesContainingWords(List<String> words, Locale locale, Collection<ConceptClass> classes, Collection<Concept> inSets, Integer limit) {
+                return null; // not needed here
+            }
         };
     }
 
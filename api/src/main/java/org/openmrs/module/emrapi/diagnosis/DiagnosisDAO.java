@@ -0,0 +1,53 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.diagnosis;
+
+import org.openmrs.Patient;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Database queries for diagnoses that are too expensive to answer by loading obs groups one by one
+ */
+public interface DiagnosisDAO {
+
+    /**
+     * Loads the diagnoses of a patient as lightweight rows, most recent first. Diagnosis groups whose
+     * coded answer is excluded, and groups without a diagnosis order, are left out.
+     *
+     * @param patient
+     * @param fromDate only include diagnoses recorded on or after this date, if specified
+     * @param diagnosisMetadata
+     * @param excludedConceptIds ids of the coded diagnoses to leave out
+     * @param uniqueAnswers if true only the most recent diagnosis of each answer is returned
+     * @return the diagnoses
+     */
+    List<DiagnosisSummary> getDiagnosisSummaries(Patient patient, Date fromDate, DiagnosisMetadata diagnosisMetadata,
+                                                 Collection<Integer> excludedConceptIds, boolean uniqueAnswers);
+
+    /**
+     * Loads the diagnoses recorded in non-voided encounters of many visits at once, as lightweight rows
+     *
+     * @param visitIds
+     * @param diagnosisMetadata
+     * @return visit id -> diagnoses of that visit, most recent first (visits without diagnoses are left out)
+     */
+    Map<Integer, List<DiagnosisSummary>> getDiagnosisSummariesByVisit(Collection<Integer> visitIds,
+                                                                      DiagnosisMetadata diagnosisMetadata);
+
+}
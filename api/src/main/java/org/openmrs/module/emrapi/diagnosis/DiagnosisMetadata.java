@@ -15,6 +15,7 @@
 package org.openmrs.module.emrapi.diagnosis;
 
 import org.openmrs.Concept;
+import org.openmrs.ConceptAnswer;
 import org.openmrs.ConceptMap;
 import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptSource;
@@ -23,6 +24,12 @@ import org.openmrs.api.ConceptService;
 import org.openmrs.module.emrapi.EmrApiConstants;
 import org.openmrs.module.emrapi.descriptor.ConceptSetDescriptor;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * Metadata describing how a diagnosis is represented as an Obs group.
  */
@@ -36,6 +43,17 @@ public class DiagnosisMetadata extends ConceptSetDescriptor {
 
     private ConceptSource emrConceptSource;
 
+    /**
+     * Concept id of each answer of the diagnosis order question -> the order it is mapped to, built once
+     * so reading a diagnosis doesn't need to go through the answer's concept mappings
+     */
+    private volatile Map<Integer, Diagnosis.Order> ordersByConceptId;
+
+    /**
+     * Concept id of each answer of the diagnosis certainty question -> the certainty it is mapped to
+     */
+    private volatile Map<Integer, Diagnosis.Certainty> certaintiesByConceptId;
+
     public DiagnosisMetadata(ConceptService conceptService, ConceptSource emrConceptSource) {
         setup(conceptService, EmrApiConstants.EMR_CONCEPT_SOURCE_NAME, "diagnosisSetConcept", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CONCEPT_SET,
                 "codedDiagnosisConcept", EmrApiConstants.CONCEPT_CODE_CODED_DIAGNOSIS,
@@ -43,6 +61,7 @@ public class DiagnosisMetadata extends ConceptSetDescriptor {
                 "diagnosisOrderConcept", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_ORDER,
                 "diagnosisCertaintyConcept", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CERTAINTY);
         this.emrConceptSource = emrConceptSource;
+        buildLookupTables();
     }
 
     /**
@@ -85,14 +104,21 @@ public class DiagnosisMetadata extends ConceptSetDescriptor {
 
     public void setDiagnosisOrderConcept(Concept diagnosisOrderConcept) {
         this.diagnosisOrderConcept = diagnosisOrderConcept;
+        clearLookupTables();
     }
 
     public void setDiagnosisCertaintyConcept(Concept diagnosisCertaintyConcept) {
         this.diagnosisCertaintyConcept = diagnosisCertaintyConcept;
+        clearLookupTables();
+    }
+
+    public ConceptSource getEmrConceptSource() {
+        return emrConceptSource;
     }
 
     public void setEmrConceptSource(ConceptSource emrConceptSource) {
         this.emrConceptSource = emrConceptSource;
+        clearLookupTables();
     }
 
     public Obs buildDiagnosisObsGroup(Diagnosis diagnosis) {
@@ -138,12 +164,25 @@ public class DiagnosisMetadata extends ConceptSetDescriptor {
             throw new IllegalArgumentException("Not an obs group for a diagnosis: " + obsGroup);
         }
 
-        Obs orderObs = findMember(obsGroup, diagnosisOrderConcept);
-        Obs certaintyObs = findMember(obsGroup, diagnosisCertaintyConcept);
-        Obs codedObs = findMember(obsGroup, codedDiagnosisConcept);
+        // classify the members in a single pass, keeping the first one of each kind like findMember does
+        Obs orderObs = null;
+        Obs certaintyObs = null;
+        Obs codedObs = null;
         Obs nonCodedObs = null;
-        if (codedObs == null) {
-            nonCodedObs = findMember(obsGroup, nonCodedDiagnosisConcept);
+        for (Obs member : obsGroup.getGroupMembers(false)) {
+            Concept concept = member.getConcept();
+            if (orderObs == null && concept.equals(diagnosisOrderConcept)) {
+                orderObs = member;
+            } else if (certaintyObs == null && concept.equals(diagnosisCertaintyConcept)) {
+                certaintyObs = member;
+            } else if (codedObs == null && concept.equals(codedDiagnosisConcept)) {
+                codedObs = member;
+            } else if (nonCodedObs == null && concept.equals(nonCodedDiagnosisConcept)) {
+                nonCodedObs = member;
+            }
+        }
+        if (codedObs != null) {
+            nonCodedObs = null;
         }
         if (codedObs == null && nonCodedObs == null) {
             throw new IllegalArgumentException("Obs group doesn't contain a coded or non-coded diagnosis: " + obsGroup);
@@ -169,9 +208,29 @@ public class DiagnosisMetadata extends ConceptSetDescriptor {
     }
 
     private Diagnosis.Order getDiagnosisOrderFrom(Obs obs) {
-        String mapping = findMapping(obs.getValueCoded());
-        return Diagnosis.Order.parseConceptReferenceCode(mapping);
+        return getDiagnosisOrder(obs.getValueCoded());
+    }
 
+    /**
+     * @param answer an answer of the diagnosis order question
+     * @return the diagnosis order the answer is mapped to, or null if it isn't mapped to one
+     */
+    public Diagnosis.Order getDiagnosisOrder(Concept answer) {
+        if (answer.getConceptId() != null) {
+            Diagnosis.Order order = getOrdersByConceptId().get(answer.getConceptId());
+            if (order != null) {
+                return order;
+            }
+        }
+        return Diagnosis.Order.parseConceptReferenceCode(findMapping(answer));
+    }
+
+    /**
+     * @param answerConceptId the concept id of an answer of the diagnosis order question
+     * @return the diagnosis order the answer is mapped to, or null if it isn't one of the mapped answers
+     */
+    public Diagnosis.Order getDiagnosisOrder(Integer answerConceptId) {
+        return getOrdersByConceptId().get(answerConceptId);
     }
 
     public Concept getConceptFor(Diagnosis.Certainty certainty) {
@@ -182,8 +241,103 @@ public class DiagnosisMetadata extends ConceptSetDescriptor {
     }
 
     private Diagnosis.Certainty getDiagnosisCertaintyFrom(Obs certaintyObs) {
-        String mapping = findMapping(certaintyObs.getValueCoded());
-        return Diagnosis.Certainty.parseConceptReferenceCode(mapping);
+        return getDiagnosisCertainty(certaintyObs.getValueCoded());
+    }
+
+    /**
+     * @param answer an answer of the diagnosis certainty question
+     * @return the diagnosis certainty the answer is mapped to, or null if it isn't mapped to one
+     */
+    public Diagnosis.Certainty getDiagnosisCertainty(Concept answer) {
+        if (answer.getConceptId() != null) {
+            Diagnosis.Certainty certainty = getCertaintiesByConceptId().get(answer.getConceptId());
+            if (certainty != null) {
+                return certainty;
+            }
+        }
+        return Diagnosis.Certainty.parseConceptReferenceCode(findMapping(answer));
+    }
+
+    /**
+     * @param answerConceptId the concept id of an answer of the diagnosis certainty question
+     * @return the diagnosis certainty the answer is mapped to, or null if it isn't one of the mapped answers
+     */
+    public Diagnosis.Certainty getDiagnosisCertainty(Integer answerConceptId) {
+        return getCertaintiesByConceptId().get(answerConceptId);
+    }
+
+    /**
+     * @return concept id of each mapped answer of the diagnosis order question -> its order, unmodifiable
+     */
+    public Map<Integer, Diagnosis.Order> getOrdersByConceptId() {
+        if (ordersByConceptId == null) {
+            buildLookupTables();
+        }
+        return ordersByConceptId;
+    }
+
+    /**
+     * @return concept id of each mapped answer of the diagnosis certainty question -> its certainty,
+     *         unmodifiable
+     */
+    public Map<Integer, Diagnosis.Certainty> getCertaintiesByConceptId() {
+        if (certaintiesByConceptId == null) {
+            buildLookupTables();
+        }
+        return certaintiesByConceptId;
+    }
+
+    /**
+     * Uses the lookup tables of another instance set up with the same concepts instead of building them
+     * from the answers of the questions. Setting a question or the concept source afterwards clears them.
+     *
+     * @param ordersByConceptId as returned by {@link #getOrdersByConceptId()}, which is used as it is
+     * @param certaintiesByConceptId as returned by {@link #getCertaintiesByConceptId()}, which is used as
+     *            it is
+     */
+    public void setLookupTables(Map<Integer, Diagnosis.Order> ordersByConceptId,
+                                Map<Integer, Diagnosis.Certainty> certaintiesByConceptId) {
+        this.ordersByConceptId = ordersByConceptId;
+        this.certaintiesByConceptId = certaintiesByConceptId;
+    }
+
+    private void buildLookupTables() {
+        Map<Integer, Diagnosis.Order> orders = new HashMap<Integer, Diagnosis.Order>();
+        Map<Integer, Diagnosis.Certainty> certainties = new HashMap<Integer, Diagnosis.Certainty>();
+        if (emrConceptSource != null) {
+            for (Concept answer : getAnswerConcepts(diagnosisOrderConcept)) {
+                Diagnosis.Order order = Diagnosis.Order.parseConceptReferenceCode(findMapping(answer));
+                if (order != null) {
+                    orders.put(answer.getConceptId(), order);
+                }
+            }
+            for (Concept answer : getAnswerConcepts(diagnosisCertaintyConcept)) {
+                Diagnosis.Certainty certainty = Diagnosis.Certainty.parseConceptReferenceCode(findMapping(answer));
+                if (certainty != null) {
+                    certainties.put(answer.getConceptId(), certainty);
+                }
+            }
+        }
+        ordersByConceptId = Collections.unmodifiableMap(orders);
+        certaintiesByConceptId = Collections.unmodifiableMap(certainties);
+    }
+
+    private List<Concept> getAnswerConcepts(Concept question) {
+        List<Concept> answers = new ArrayList<Concept>();
+        if (question != null && question.getAnswers() != null) {
+            for (ConceptAnswer conceptAnswer : question.getAnswers()) {
+                Concept answer = conceptAnswer.getAnswerConcept();
+                if (answer != null && answer.getConceptId() != null) {
+                    answers.add(answer);
+                }
+            }
+        }
+        return answers;
+    }
+
+    private void clearLookupTables() {
+        ordersByConceptId = null;
+        certaintiesByConceptId = null;
     }
 
     private String findMapping(Concept concept) {
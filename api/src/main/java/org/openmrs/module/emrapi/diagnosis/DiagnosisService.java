@@ -6,8 +6,10 @@ import org.openmrs.Patient;
 import org.openmrs.api.OpenmrsService;
 
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * <pre>
@@ -56,4 +58,32 @@ public interface DiagnosisService extends OpenmrsService {
 	 * @return the list of diagnoses
 	 */
 	List<Diagnosis> getUniqueDiagnoses(Patient patient, Date fromDate);
+
+	/**
+	 * Gets diagnoses since date as lightweight rows, most recent first, without loading the obs groups.
+	 * Suppressed diagnoses are left out.
+	 *
+	 * @param patient
+	 * @param fromDate
+	 * @return the list of diagnoses
+	 */
+	List<DiagnosisSummary> getDiagnosisSummaries(Patient patient, Date fromDate);
+
+	/**
+	 * Like {@link #getDiagnosisSummaries(Patient, Date)} but only returns the most recent diagnosis of each
+	 * answer
+	 *
+	 * @param patient
+	 * @param fromDate
+	 * @return the list of diagnoses
+	 */
+	List<DiagnosisSummary> getUniqueDiagnosisSummaries(Patient patient, Date fromDate);
+
+	/**
+	 * Gets the diagnoses of many visits at once, e.g. to list visits without loading their encounters
+	 *
+	 * @param visitIds
+	 * @return visit id -> diagnoses recorded during that visit, most recent first
+	 */
+	Map<Integer, List<DiagnosisSummary>> getDiagnosisSummariesByVisit(Collection<Integer> visitIds);
 }
@@ -15,22 +15,37 @@ import org.openmrs.module.emrapi.EmrApiProperties;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class DiagnosisServiceImpl extends BaseOpenmrsService implements DiagnosisService {
 
     private static final Log log = LogFactory.getLog(DiagnosisService.class);
 
+    /**
+     * How long the ids of the suppressed diagnosis concepts are reused before they are looked up again, so
+     * changes to the global properties or to the members of the non-diagnosis concept sets are picked up
+     */
+    private static final long SUPPRESSED_CONCEPTS_CACHE_MILLIS = 60 * 1000;
+
 	private EmrApiProperties emrApiProperties;
 
 	private ObsService obsService;
 
     private EncounterService encounterService;
 
+    private DiagnosisDAO dao;
+
+    private volatile Set<Integer> suppressedConceptIds;
+
+    private volatile long suppressedConceptIdsLoadedAt;
+
 	public void setEmrApiProperties(EmrApiProperties emrApiProperties) {
 		this.emrApiProperties = emrApiProperties;
 	}
@@ -43,6 +58,10 @@ public class DiagnosisServiceImpl extends BaseOpenmrsService implements Diagnosi
         this.encounterService = encounterService;
     }
 
+    public void setDao(DiagnosisDAO dao) {
+        this.dao = dao;
+    }
+
     @Override
     public List<Obs> codeNonCodedDiagnosis(Obs nonCodedObs, List<Diagnosis> diagnoses) {
 
@@ -146,6 +165,8 @@ public class DiagnosisServiceImpl extends BaseOpenmrsService implements Diagnosi
 				null, null, null, Arrays.asList("obsDatetime"),
 				null, null, fromDate, null, false);
 
+		Set<Integer> suppressed = getSuppressedConceptIds();
+
 		for (Obs obs : observations) {
 			Diagnosis diagnosis;
             try {
@@ -159,16 +180,8 @@ public class DiagnosisServiceImpl extends BaseOpenmrsService implements Diagnosi
                 continue;
             }
 
-			Collection<Concept> nonDiagnosisConcepts = emrApiProperties.getSuppressedDiagnosisConcepts();
-			Collection<Concept> nonDiagnosisConceptSets = emrApiProperties.getNonDiagnosisConceptSets();
-
-			Set<Concept> filter = new HashSet<Concept>();
-			filter.addAll(nonDiagnosisConcepts);
-			for (Concept conceptSet : nonDiagnosisConceptSets) {
-				filter.addAll(conceptSet.getSetMembers());
-			}
-
-			if (!filter.contains(diagnosis.getDiagnosis().getCodedAnswer())) {
+			Concept codedAnswer = diagnosis.getDiagnosis().getCodedAnswer();
+			if (codedAnswer == null || !suppressed.contains(codedAnswer.getConceptId())) {
 				diagnoses.add(diagnosis);
 			}
 		}
@@ -193,4 +206,45 @@ public class DiagnosisServiceImpl extends BaseOpenmrsService implements Diagnosi
 
 		return diagnoses;
 	}
+
+	@Override
+	public List<DiagnosisSummary> getDiagnosisSummaries(Patient patient, Date fromDate) {
+		return dao.getDiagnosisSummaries(patient, fromDate, emrApiProperties.getDiagnosisMetadata(), getSuppressedConceptIds(), false);
+	}
+
+	@Override
+	public List<DiagnosisSummary> getUniqueDiagnosisSummaries(Patient patient, Date fromDate) {
+		return dao.getDiagnosisSummaries(patient, fromDate, emrApiProperties.getDiagnosisMetadata(), getSuppressedConceptIds(), true);
+	}
+
+	@Override
+	public Map<Integer, List<DiagnosisSummary>> getDiagnosisSummariesByVisit(Collection<Integer> visitIds) {
+		if (visitIds.isEmpty()) {
+			return new HashMap<Integer, List<DiagnosisSummary>>();
+		}
+		return dao.getDiagnosisSummariesByVisit(visitIds, emrApiProperties.getDiagnosisMetadata());
+	}
+
+	/**
+	 * @return the ids of the suppressed diagnosis concepts and of the members of the non-diagnosis concept
+	 *         sets, computed at most once every {@link #SUPPRESSED_CONCEPTS_CACHE_MILLIS}
+	 */
+	private Set<Integer> getSuppressedConceptIds() {
+		Set<Integer> conceptIds = suppressedConceptIds;
+		if (conceptIds == null || System.currentTimeMillis() - suppressedConceptIdsLoadedAt > SUPPRESSED_CONCEPTS_CACHE_MILLIS) {
+			conceptIds = new HashSet<Integer>();
+			for (Concept concept : emrApiProperties.getSuppressedDiagnosisConcepts()) {
+				conceptIds.add(concept.getConceptId());
+			}
+			for (Concept conceptSet : emrApiProperties.getNonDiagnosisConceptSets()) {
+				for (Concept member : conceptSet.getSetMembers()) {
+					conceptIds.add(member.getConceptId());
+				}
+			}
+			conceptIds = Collections.unmodifiableSet(conceptIds);
+			suppressedConceptIds = conceptIds;
+			suppressedConceptIdsLoadedAt = System.currentTimeMillis();
+		}
+		return conceptIds;
+	}
 }
@@ -0,0 +1,104 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.diagnosis;
+
+import java.util.Date;
+
+/**
+ * A lightweight, read-only view of a recorded diagnosis, loaded through a projection query instead of
+ * hydrating the whole diagnosis obs group. Concepts are referred to by id.
+ */
+public class DiagnosisSummary {
+
+    private final Integer obsGroupId;
+
+    private final Integer encounterId;
+
+    private final Date obsDatetime;
+
+    private final Integer codedAnswerId;
+
+    private final Integer specificCodedAnswerId;
+
+    private final String nonCodedAnswer;
+
+    private final Diagnosis.Order order;
+
+    private final Diagnosis.Certainty certainty;
+
+    public DiagnosisSummary(Integer obsGroupId, Integer encounterId, Date obsDatetime, Integer codedAnswerId,
+                            Integer specificCodedAnswerId, String nonCodedAnswer, Diagnosis.Order order,
+                            Diagnosis.Certainty certainty) {
+        this.obsGroupId = obsGroupId;
+        this.encounterId = encounterId;
+        this.obsDatetime = obsDatetime;
+        this.codedAnswerId = codedAnswerId;
+        this.specificCodedAnswerId = specificCodedAnswerId;
+        this.nonCodedAnswer = nonCodedAnswer;
+        this.order = order;
+        this.certainty = certainty;
+    }
+
+    /**
+     * @return the id of the diagnosis obs group
+     */
+    public Integer getObsGroupId() {
+        return obsGroupId;
+    }
+
+    public Integer getEncounterId() {
+        return encounterId;
+    }
+
+    public Date getObsDatetime() {
+        return obsDatetime;
+    }
+
+    /**
+     * @return the concept id of a coded diagnosis, or null for a non-coded one
+     */
+    public Integer getCodedAnswerId() {
+        return codedAnswerId;
+    }
+
+    /**
+     * @return the concept name id of the specific name chosen for a coded diagnosis, if any
+     */
+    public Integer getSpecificCodedAnswerId() {
+        return specificCodedAnswerId;
+    }
+
+    public String getNonCodedAnswer() {
+        return nonCodedAnswer;
+    }
+
+    public boolean isCoded() {
+        return codedAnswerId != null;
+    }
+
+    public Diagnosis.Order getOrder() {
+        return order;
+    }
+
+    public Diagnosis.Certainty getCertainty() {
+        return certainty;
+    }
+
+    @Override
+    public String toString() {
+        return "DiagnosisSummary[" + obsGroupId + " " + (isCoded() ? "Concept:" + codedAnswerId : nonCodedAnswer) + " "
+                + order + " " + certainty + "]";
+    }
+}
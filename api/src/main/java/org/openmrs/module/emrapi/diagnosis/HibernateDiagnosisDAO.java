@@ -0,0 +1,232 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.diagnosis;
+
+import org.hibernate.Query;
+import org.hibernate.SessionFactory;
+import org.openmrs.Patient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class HibernateDiagnosisDAO implements DiagnosisDAO {
+
+    private static final int MAX_IN_CLAUSE_SIZE = 1000;
+
+    private SessionFactory sessionFactory;
+
+    public void setSessionFactory(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Loads the non-voided members of all the matching diagnosis groups in a single query, with the
+     * excluded diagnoses filtered out by the database, and folds the rows of each group into a summary.
+     *
+     * @see DiagnosisDAO#getDiagnosisSummaries(Patient, Date, DiagnosisMetadata, Collection, boolean)
+     */
+    @Override
+    public List<DiagnosisSummary> getDiagnosisSummaries(Patient patient, Date fromDate, DiagnosisMetadata diagnosisMetadata,
+                                                        Collection<Integer> excludedConceptIds, boolean uniqueAnswers) {
+        boolean excluding = excludedConceptIds != null && !excludedConceptIds.isEmpty();
+
+        StringBuilder hql = new StringBuilder();
+        hql.append("select g.obsId, g.obsDatetime, e.encounterId, m.concept.conceptId, vc.conceptId, vcn.conceptNameId, m.valueText ");
+        hql.append("from Obs m join m.obsGroup g left join g.encounter e left join m.valueCoded vc left join m.valueCodedName vcn ");
+        hql.append("where g.person.personId = :personId and g.concept = :diagnosisSet and g.voided = false ");
+        hql.append("and m.voided = false and m.concept in (:members) ");
+        if (fromDate != null) {
+            hql.append("and g.obsDatetime >= :fromDate ");
+        }
+        if (excluding) {
+            hql.append("and not exists (select x.obsId from Obs x where x.obsGroup = g and x.voided = false ");
+            hql.append("and x.concept = :codedDiagnosis and x.valueCoded.conceptId in (:excluded)) ");
+        }
+        hql.append("order by g.obsDatetime desc, g.obsId desc");
+
+        Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
+        query.setInteger("personId", patient.getPersonId());
+        query.setParameter("diagnosisSet", diagnosisMetadata.getDiagnosisSetConcept());
+        query.setParameterList("members", Arrays.asList(diagnosisMetadata.getCodedDiagnosisConcept(),
+                diagnosisMetadata.getNonCodedDiagnosisConcept(), diagnosisMetadata.getDiagnosisOrderConcept(),
+                diagnosisMetadata.getDiagnosisCertaintyConcept()));
+        if (fromDate != null) {
+            query.setTimestamp("fromDate", fromDate);
+        }
+        if (excluding) {
+            query.setParameter("codedDiagnosis", diagnosisMetadata.getCodedDiagnosisConcept());
+            query.setParameterList("excluded", excludedConceptIds);
+        }
+
+        GroupFolder folder = new GroupFolder(diagnosisMetadata, uniqueAnswers);
+        for (Object row : query.list()) {
+            folder.add((Object[]) row);
+        }
+        folder.flush();
+        return folder.summaries;
+    }
+
+    /**
+     * Same query as {@link #getDiagnosisSummaries}, for visits rather than a patient, in chunks so the
+     * in clause stays within what databases accept.
+     *
+     * @see DiagnosisDAO#getDiagnosisSummariesByVisit(Collection, DiagnosisMetadata)
+     */
+    @Override
+    public Map<Integer, List<DiagnosisSummary>> getDiagnosisSummariesByVisit(Collection<Integer> visitIds,
+                                                                             DiagnosisMetadata diagnosisMetadata) {
+        Map<Integer, List<DiagnosisSummary>> summaries = new HashMap<Integer, List<DiagnosisSummary>>();
+        List<Integer> ids = new ArrayList<Integer>(visitIds);
+        for (int from = 0; from < ids.size(); from += MAX_IN_CLAUSE_SIZE) {
+            Query query = sessionFactory.getCurrentSession().createQuery(
+                    "select g.obsId, g.obsDatetime, e.encounterId, m.concept.conceptId, vc.conceptId, vcn.conceptNameId, m.valueText, e.visit.visitId " +
+                    "from Obs m join m.obsGroup g join g.encounter e left join m.valueCoded vc left join m.valueCodedName vcn " +
+                    "where e.visit.visitId in (:visitIds) and e.voided = false and g.concept = :diagnosisSet and g.voided = false " +
+                    "and m.voided = false and m.concept in (:members) " +
+                    "order by e.visit.visitId, g.obsDatetime desc, g.obsId desc");
+            query.setParameterList("visitIds", ids.subList(from, Math.min(from + MAX_IN_CLAUSE_SIZE, ids.size())));
+            query.setParameter("diagnosisSet", diagnosisMetadata.getDiagnosisSetConcept());
+            query.setParameterList("members", Arrays.asList(diagnosisMetadata.getCodedDiagnosisConcept(),
+                    diagnosisMetadata.getNonCodedDiagnosisConcept(), diagnosisMetadata.getDiagnosisOrderConcept(),
+                    diagnosisMetadata.getDiagnosisCertaintyConcept()));
+
+            Integer visitId = null;
+            GroupFolder folder = null;
+            for (Object result : query.list()) {
+                Object[] row = (Object[]) result;
+                if (!row[7].equals(visitId)) {
+                    if (folder != null) {
+                        folder.flush();
+                        summaries.put(visitId, folder.summaries);
+                    }
+                    visitId = (Integer) row[7];
+                    folder = new GroupFolder(diagnosisMetadata, false);
+                }
+                folder.add(row);
+            }
+            if (folder != null) {
+                folder.flush();
+                summaries.put(visitId, folder.summaries);
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Accumulates the member rows of one diagnosis group at a time, rows of a group being contiguous
+     */
+    private static class GroupFolder {
+
+        private final Integer codedDiagnosisId;
+
+        private final Integer nonCodedDiagnosisId;
+
+        private final Integer orderId;
+
+        private final Integer certaintyId;
+
+        private final DiagnosisMetadata diagnosisMetadata;
+
+        private final boolean uniqueAnswers;
+
+        private final List<DiagnosisSummary> summaries = new ArrayList<DiagnosisSummary>();
+
+        /**
+         * [coded answer, specific coded answer, non-coded answer] of the summaries so far, compared like
+         * {@link CodedOrFreeTextAnswer#equals(Object)}
+         */
+        private final Set<List<Object>> answers = new HashSet<List<Object>>();
+
+        private Object[] groupRow;
+
+        private Object[] codedRow;
+
+        private Object[] nonCodedRow;
+
+        private boolean hasOrder;
+
+        private Diagnosis.Order order;
+
+        private Diagnosis.Certainty certainty;
+
+        GroupFolder(DiagnosisMetadata diagnosisMetadata, boolean uniqueAnswers) {
+            this.codedDiagnosisId = diagnosisMetadata.getCodedDiagnosisConcept().getConceptId();
+            this.nonCodedDiagnosisId = diagnosisMetadata.getNonCodedDiagnosisConcept().getConceptId();
+            this.orderId = diagnosisMetadata.getDiagnosisOrderConcept().getConceptId();
+            this.certaintyId = diagnosisMetadata.getDiagnosisCertaintyConcept().getConceptId();
+            this.uniqueAnswers = uniqueAnswers;
+            this.diagnosisMetadata = diagnosisMetadata;
+        }
+
+        void add(Object[] row) {
+            if (groupRow != null && !groupRow[0].equals(row[0])) {
+                flush();
+            }
+            if (groupRow == null) {
+                groupRow = row;
+            }
+            Integer question = (Integer) row[3];
+            if (codedDiagnosisId.equals(question)) {
+                codedRow = row;
+            } else if (nonCodedDiagnosisId.equals(question)) {
+                nonCodedRow = row;
+            } else if (orderId.equals(question)) {
+                hasOrder = true;
+                order = diagnosisMetadata.getDiagnosisOrder((Integer) row[4]);
+            } else if (certaintyId.equals(question)) {
+                certainty = diagnosisMetadata.getDiagnosisCertainty((Integer) row[4]);
+            }
+        }
+
+        void flush() {
+            if (groupRow == null) {
+                return;
+            }
+            // like DiagnosisMetadata#toDiagnosis, groups without an order or an answer are malformed
+            if (hasOrder && (codedRow != null || nonCodedRow != null)) {
+                DiagnosisSummary summary;
+                if (codedRow != null) {
+                    summary = new DiagnosisSummary((Integer) groupRow[0], (Integer) groupRow[2], (Date) groupRow[1],
+                            (Integer) codedRow[4], (Integer) codedRow[5], null, order, certaintyOrDefault());
+                } else {
+                    summary = new DiagnosisSummary((Integer) groupRow[0], (Integer) groupRow[2], (Date) groupRow[1],
+                            null, null, (String) nonCodedRow[6], order, certaintyOrDefault());
+                }
+                if (!uniqueAnswers || answers.add(Arrays.<Object>asList(summary.getCodedAnswerId(),
+                        summary.getSpecificCodedAnswerId(), summary.getNonCodedAnswer()))) {
+                    summaries.add(summary);
+                }
+            }
+            groupRow = null;
+            codedRow = null;
+            nonCodedRow = null;
+            hasOrder = false;
+            order = null;
+            certainty = null;
+        }
+
+        private Diagnosis.Certainty certaintyOrDefault() {
+            return certainty == null ? Diagnosis.Certainty.PRESUMED : certainty;
+        }
+    }
+
+}
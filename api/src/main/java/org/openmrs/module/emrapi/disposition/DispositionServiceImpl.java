@@ -6,6 +6,7 @@ import org.openmrs.Obs;
 import org.openmrs.api.ConceptService;
 import org.openmrs.api.impl.BaseOpenmrsService;
 import org.openmrs.module.emrapi.concept.EmrConceptService;
+import org.openmrs.module.emrapi.descriptor.ConceptSetDescriptorRegistry;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.transaction.annotation.Transactional;
@@ -25,6 +26,8 @@ public class DispositionServiceImpl extends BaseOpenmrsService implements Dispos
 
     private DispositionDescriptor dispositionDescriptor;
 
+    private ConceptSetDescriptorRegistry conceptSetDescriptorRegistry;
+
     // TODO inject this in some better way than using a setter to override?
     private String dispositionConfig = "dispositionConfig.json";
 
@@ -33,8 +36,19 @@ public class DispositionServiceImpl extends BaseOpenmrsService implements Dispos
         this.emrConceptService = emrConceptService;
     }
 
+    public void setConceptSetDescriptorRegistry(ConceptSetDescriptorRegistry conceptSetDescriptorRegistry) {
+        this.conceptSetDescriptorRegistry = conceptSetDescriptorRegistry;
+    }
+
+    /**
+     * Gets a descriptor for the current session from the registry, which looks the disposition concepts
+     * up again when they change, unless a descriptor was set explicitly
+     */
     @Override
     public DispositionDescriptor getDispositionDescriptor() {
+        if (dispositionDescriptor == null && conceptSetDescriptorRegistry != null) {
+            return conceptSetDescriptorRegistry.getDispositionDescriptor();
+        }
         if (dispositionDescriptor == null) {
             dispositionDescriptor = new DispositionDescriptor(conceptService);
         }
@@ -29,13 +29,16 @@ import org.openmrs.api.ProviderService;
 import org.openmrs.api.VisitService;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.impl.BaseOpenmrsService;
+import org.openmrs.module.emrapi.db.EmrEncounterDAO;
 import org.openmrs.module.emrapi.encounter.domain.EncounterTransaction;
 import org.openmrs.module.emrapi.encounter.exception.EncounterMatcherNotFoundException;
 import org.openmrs.module.emrapi.encounter.matcher.BaseEncounterMatcher;
 import org.openmrs.module.emrapi.encounter.matcher.DefaultEncounterMatcher;
 
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -60,6 +63,7 @@ public class EmrEncounterServiceImpl extends BaseOpenmrsService implements EmrEn
     private LocationService locationService;
     private ProviderService providerService;
     private AdministrationService administrationService;
+    private EmrEncounterDAO emrEncounterDAO;
 
     private Map<String, BaseEncounterMatcher> encounterMatcherMap = new HashMap<String, BaseEncounterMatcher>();
 
@@ -84,6 +88,10 @@ public class EmrEncounterServiceImpl extends BaseOpenmrsService implements EmrEn
         this.encounterProviderServiceHelper = encounterProviderServiceHelper;
     }
 
+    public void setEmrEncounterDAO(EmrEncounterDAO emrEncounterDAO) {
+        this.emrEncounterDAO = emrEncounterDAO;
+    }
+
     @Override
     public void onStartup() {
         try {
@@ -146,10 +154,21 @@ public class EmrEncounterServiceImpl extends BaseOpenmrsService implements EmrEn
 
     @Override
     public List<EncounterTransaction> find(EncounterSearchParameters encounterSearchParameters) {
+        Date from = DateUtils.truncate(encounterSearchParameters.getEncounterDateAsDate(), Calendar.DATE);
+        Date to = DateUtils.addDays(DateUtils.truncate(encounterSearchParameters.getEncounterDateToAsDate(), Calendar.DATE), 1);
+
+        if (emrEncounterDAO != null) {
+            return getEncounterTransactions(emrEncounterDAO.getEncountersByVisitUuid(encounterSearchParameters.getVisitUuid(),
+                    from, to, encounterSearchParameters.getStartIndex(), encounterSearchParameters.getLimit()));
+        }
+
         Visit visit = visitService.getVisitByUuid(encounterSearchParameters.getVisitUuid());
         if (visit == null) return new ArrayList<EncounterTransaction>();
 
-        return getEncounterTransactions(getEncountersForDate(encounterSearchParameters.getEncounterDateAsDate(), visit));
+        List<Encounter> encounters = getEncountersBetween(from, to, visit);
+        int start = encounterSearchParameters.getStartIndex() == null ? 0 : Math.min(encounterSearchParameters.getStartIndex(), encounters.size());
+        int end = encounterSearchParameters.getLimit() == null ? encounters.size() : Math.min(start + encounterSearchParameters.getLimit(), encounters.size());
+        return getEncounterTransactions(encounters.subList(start, end));
     }
 
     private List<EncounterTransaction> getEncounterTransactions(List<Encounter> encounters) {
@@ -160,13 +179,23 @@ public class EmrEncounterServiceImpl extends BaseOpenmrsService implements EmrEn
         return encounterTransactions;
     }
 
-    private ArrayList<Encounter> getEncountersForDate(Date encounterDate, Visit visit) {
-        ArrayList<Encounter> encounters = new ArrayList<Encounter>();
+    /**
+     * Like {@link EmrEncounterDAO#getEncountersByVisitUuid}, for when no DAO was set
+     */
+    private List<Encounter> getEncountersBetween(Date from, Date to, Visit visit) {
+        List<Encounter> encounters = new ArrayList<Encounter>();
         for (Encounter encounter : visit.getEncounters()) {
-            if (DateUtils.isSameDay(encounter.getEncounterDatetime(), encounterDate)) {
+            Date encounterDatetime = encounter.getEncounterDatetime();
+            if (!encounterDatetime.before(from) && encounterDatetime.before(to)) {
                 encounters.add(encounter);
             }
         }
+        Collections.sort(encounters, new Comparator<Encounter>() {
+            @Override
+            public int compare(Encounter left, Encounter right) {
+                return left.getEncounterDatetime().compareTo(right.getEncounterDatetime());
+            }
+        });
         return encounters;
     }
 
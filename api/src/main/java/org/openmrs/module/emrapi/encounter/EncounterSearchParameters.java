@@ -22,6 +22,9 @@ import java.util.Date;
 public class EncounterSearchParameters {
     private String visitUuid;
     private String encounterDate;
+    private String encounterDateTo;
+    private Integer startIndex;
+    private Integer limit;
 
     public String getVisitUuid() {
         return visitUuid;
@@ -39,9 +42,47 @@ public class EncounterSearchParameters {
         this.encounterDate = encounterDate;
     }
 
+    /**
+     * @return the last day to find encounters on, if they are searched over several days
+     */
+    public String getEncounterDateTo() {
+        return encounterDateTo;
+    }
+
+    public void setEncounterDateTo(String encounterDateTo) {
+        this.encounterDateTo = encounterDateTo;
+    }
+
+    public Integer getStartIndex() {
+        return startIndex;
+    }
+
+    public void setStartIndex(Integer startIndex) {
+        this.startIndex = startIndex;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
     public Date getEncounterDateAsDate() {
+        return parse(encounterDate);
+    }
+
+    /**
+     * @return the last day to find encounters on, which is the encounter date unless a later one is specified
+     */
+    public Date getEncounterDateToAsDate() {
+        return StringUtils.isBlank(encounterDateTo) ? getEncounterDateAsDate() : parse(encounterDateTo);
+    }
+
+    private Date parse(String date) {
         try {
-            return new SimpleDateFormat("yyyy-MM-dd").parse(encounterDate);
+            return new SimpleDateFormat("yyyy-MM-dd").parse(date);
         } catch (ParseException e) {
             // should never occur as web layer does the data checks.
             return null;
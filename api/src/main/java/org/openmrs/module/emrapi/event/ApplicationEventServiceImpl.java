@@ -22,6 +22,16 @@ import org.openmrs.module.emrapi.EmrApiConstants;
 
 public class ApplicationEventServiceImpl extends BaseOpenmrsService implements ApplicationEventService {
 	
+	private AsyncEventPublisher eventPublisher;
+	
+	/**
+	 * @param eventPublisher fires the events in the background, without it they are fired on the caller's
+	 *            thread
+	 */
+	public void setEventPublisher(AsyncEventPublisher eventPublisher) {
+		this.eventPublisher = eventPublisher;
+	}
+	
 	/**
 	 * @see ApplicationEventService#patientViewed(org.openmrs.Patient, org.openmrs.User)
 	 */
@@ -30,6 +40,10 @@ public class ApplicationEventServiceImpl extends BaseOpenmrsService implements A
 		EventMessage eventMessage = new EventMessage();
 		eventMessage.put(EmrApiConstants.EVENT_KEY_PATIENT_UUID, patient.getUuid());
 		eventMessage.put(EmrApiConstants.EVENT_KEY_USER_UUID, user.getUuid());
-		Event.fireEvent(EmrApiConstants.EVENT_TOPIC_NAME_PATIENT_VIEWED, eventMessage);
+		if (eventPublisher != null) {
+			eventPublisher.publish(EmrApiConstants.EVENT_TOPIC_NAME_PATIENT_VIEWED, eventMessage);
+		} else {
+			Event.fireEvent(EmrApiConstants.EVENT_TOPIC_NAME_PATIENT_VIEWED, eventMessage);
+		}
 	}
 }
@@ -0,0 +1,291 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.event;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.event.Event;
+import org.openmrs.event.EventMessage;
+import org.openmrs.module.emrapi.metrics.MetricsRegistry;
+import org.openmrs.module.emrapi.metrics.QueueMetrics;
+
+/**
+ * Fires events without making the caller wait for the message broker: {@link #publish} puts the event
+ * in a bounded in memory ring buffer and returns, and a daemon thread takes the queued events off in
+ * batches and fires them with {@link Event#fireEvent(String, EventMessage)}.
+ * <p/>
+ * When the buffer is full, the {@link OverflowPolicy} decides whether the oldest queued event is
+ * dropped or the caller waits for room. Events still queued when the publisher is stopped are fired
+ * before its thread ends, and events published while it is not running are fired on the caller's
+ * thread. The queue depth, drops and the time from publishing to firing are recorded in the
+ * {@link MetricsRegistry} under {@link #METRICS_NAME}.
+ */
+public class AsyncEventPublisher {
+	
+	public enum OverflowPolicy {
+		/**
+		 * Drop the oldest queued event to make room, the caller never waits
+		 */
+		DROP_OLDEST,
+		/**
+		 * Make the caller wait until the queued events have been taken off
+		 */
+		BLOCK
+	}
+	
+	public static final String METRICS_NAME = "AsyncEventPublisher";
+	
+	public static final int DEFAULT_CAPACITY = 1024;
+	
+	public static final int DEFAULT_BATCH_SIZE = 100;
+	
+	/**
+	 * How long {@link #stop()} waits for the queued events to be fired
+	 */
+	public static final long STOP_TIMEOUT_MILLIS = 5000;
+	
+	protected final Log log = LogFactory.getLog(getClass());
+	
+	private int capacity = DEFAULT_CAPACITY;
+	
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	
+	private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+	
+	private QueueMetrics metrics = new QueueMetrics(METRICS_NAME);
+	
+	private final ReentrantLock lock = new ReentrantLock();
+	
+	private final Condition notEmpty = lock.newCondition();
+	
+	private final Condition notFull = lock.newCondition();
+	
+	private PendingEvent[] buffer;
+	
+	/**
+	 * The index of the oldest queued event
+	 */
+	private int head;
+	
+	private int size;
+	
+	private boolean running;
+	
+	private Thread drainer;
+	
+	public void setCapacity(int capacity) {
+		checkNotRunning();
+		this.capacity = Math.max(capacity, 1);
+	}
+	
+	public void setBatchSize(int batchSize) {
+		checkNotRunning();
+		this.batchSize = Math.max(batchSize, 1);
+	}
+	
+	public void setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		checkNotRunning();
+		this.overflowPolicy = overflowPolicy;
+	}
+	
+	public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+		this.metrics = metricsRegistry.getQueue(METRICS_NAME);
+	}
+	
+	/**
+	 * Starts the thread that fires the queued events
+	 */
+	public void start() {
+		lock.lock();
+		try {
+			if (running) {
+				return;
+			}
+			buffer = new PendingEvent[capacity];
+			head = 0;
+			size = 0;
+			running = true;
+			drainer = new Thread(new Runnable() {
+				
+				@Override
+				public void run() {
+					drain();
+				}
+			}, "EMR API event publisher");
+			drainer.setDaemon(true);
+			drainer.start();
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Stops taking events, and waits for the thread to fire the ones that are still queued
+	 */
+	public void stop() {
+		Thread stopping;
+		lock.lock();
+		try {
+			if (!running) {
+				return;
+			}
+			running = false;
+			stopping = drainer;
+			drainer = null;
+			notEmpty.signalAll();
+			// callers waiting for room fire their events themselves
+			notFull.signalAll();
+		}
+		finally {
+			lock.unlock();
+		}
+		try {
+			stopping.join(STOP_TIMEOUT_MILLIS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (stopping.isAlive()) {
+			log.warn("Stopped waiting for the queued events to be fired after " + STOP_TIMEOUT_MILLIS + "ms");
+		}
+	}
+	
+	public boolean isRunning() {
+		lock.lock();
+		try {
+			return running;
+		}
+		finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Queues the event to be fired in the background
+	 * 
+	 * @should fire the event through the message broker
+	 * @should drop the oldest queued event if the buffer is full and the policy is drop oldest
+	 * @should wait for room if the buffer is full and the policy is block
+	 * @should fire the event right away if the publisher is not running
+	 */
+	public void publish(String topic, EventMessage message) {
+		PendingEvent event = new PendingEvent(topic, message, System.nanoTime());
+		boolean queued = false;
+		lock.lock();
+		try {
+			while (running && size == buffer.length && overflowPolicy == OverflowPolicy.BLOCK) {
+				notFull.awaitUninterruptibly();
+			}
+			if (running) {
+				if (size == buffer.length) {
+					buffer[head] = null;
+					head = (head + 1) % buffer.length;
+					size--;
+					metrics.recordDropped(1);
+				}
+				buffer[(head + size) % buffer.length] = event;
+				size++;
+				metrics.recordEnqueued();
+				notEmpty.signal();
+				queued = true;
+			}
+		}
+		finally {
+			lock.unlock();
+		}
+		if (!queued) {
+			fire(event.topic, event.message);
+		}
+	}
+	
+	/**
+	 * Fires the event, called by the publisher's thread for each queued event
+	 */
+	protected void fire(String topic, EventMessage message) {
+		Event.fireEvent(topic, message);
+	}
+	
+	/**
+	 * Takes up to a batch of queued events at a time and fires them, until the publisher is stopped and
+	 * nothing is left in the buffer
+	 */
+	private void drain() {
+		PendingEvent[] batch = new PendingEvent[batchSize];
+		while (true) {
+			int count;
+			lock.lock();
+			try {
+				while (size == 0 && running) {
+					notEmpty.awaitUninterruptibly();
+				}
+				if (size == 0) {
+					return;
+				}
+				count = Math.min(size, batch.length);
+				for (int i = 0; i < count; i++) {
+					batch[i] = buffer[head];
+					buffer[head] = null;
+					head = (head + 1) % buffer.length;
+				}
+				size -= count;
+				metrics.recordBatch(count);
+				notFull.signalAll();
+			}
+			finally {
+				lock.unlock();
+			}
+			for (int i = 0; i < count; i++) {
+				fireQueued(batch[i]);
+				batch[i] = null;
+			}
+		}
+	}
+	
+	private void fireQueued(PendingEvent event) {
+		boolean succeeded = false;
+		try {
+			fire(event.topic, event.message);
+			succeeded = true;
+		}
+		catch (Exception e) {
+			log.error("Failed to fire the " + event.topic + " event", e);
+		}
+		metrics.recordPublished(System.nanoTime() - event.queuedNanos, succeeded);
+	}
+	
+	private void checkNotRunning() {
+		if (isRunning()) {
+			throw new IllegalStateException("Cannot be changed while the publisher is running");
+		}
+	}
+	
+	private static class PendingEvent {
+		
+		private final String topic;
+		
+		private final EventMessage message;
+		
+		private final long queuedNanos;
+		
+		PendingEvent(String topic, EventMessage message, long queuedNanos) {
+			this.topic = topic;
+			this.message = message;
+			this.queuedNanos = queuedNanos;
+		}
+	}
+}
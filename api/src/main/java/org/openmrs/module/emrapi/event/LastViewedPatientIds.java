@@ -0,0 +1,148 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.event;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A bounded list of the ids of the patients last viewed by a user, held as primitive ints with the
+ * most recently viewed patient first. Adding a patient that is already in the list moves it to the
+ * front instead of adding a duplicate, and adding to a full list drops the least recently viewed one.
+ * <p/>
+ * Instances are not thread safe, callers are expected to synchronize on the instance.
+ */
+public class LastViewedPatientIds {
+
+	/**
+	 * The max length of a user property value
+	 */
+	public static final int MAX_PROPERTY_LENGTH = 255;
+
+	private final int[] ids;
+
+	private int size;
+
+	public LastViewedPatientIds(int limit) {
+		ids = new int[Math.max(limit, 0)];
+	}
+
+	/**
+	 * Creates an instance from the value of the last viewed patients user property, which lists the
+	 * patient ids from the least to the most recently viewed, keeping the most recent ones if there
+	 * are more than the limit.
+	 *
+	 * @should parse the ids with the most recent first
+	 * @should keep only the most recent ids if there are more than the limit
+	 * @should ignore blanks, whitespace and invalid ids
+	 * @should ignore duplicates
+	 */
+	public static LastViewedPatientIds fromPropertyValue(String propertyValue, int limit) {
+		LastViewedPatientIds lastViewed = new LastViewedPatientIds(limit);
+		if (StringUtils.isNotBlank(propertyValue)) {
+			String[] patientIds = StringUtils.deleteWhitespace(propertyValue).split(",");
+			for (int i = patientIds.length - 1; i >= 0 && !lastViewed.isFull(); i--) {
+				try {
+					int patientId = Integer.parseInt(patientIds[i]);
+					if (!lastViewed.contains(patientId)) {
+						lastViewed.ids[lastViewed.size++] = patientId;
+					}
+				}
+				catch (NumberFormatException e) {}
+			}
+		}
+		return lastViewed;
+	}
+
+	/**
+	 * Makes the specified patient the most recently viewed one
+	 *
+	 * @return true if the list changed
+	 * @should add the patient to the front
+	 * @should move an existing patient to the front without removing any other
+	 * @should drop the least recently viewed patient if the list is full
+	 * @should not change if the patient is already the most recent
+	 */
+	public boolean add(int patientId) {
+		if (ids.length == 0 || (size > 0 && ids[0] == patientId)) {
+			return false;
+		}
+		int index = indexOf(patientId);
+		if (index < 0) {
+			index = isFull() ? size - 1 : size++;
+		}
+		System.arraycopy(ids, 0, ids, 1, index);
+		ids[0] = patientId;
+		return true;
+	}
+
+	public boolean contains(int patientId) {
+		return indexOf(patientId) >= 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getLimit() {
+		return ids.length;
+	}
+
+	public boolean isFull() {
+		return size == ids.length;
+	}
+
+	/**
+	 * @return the patient ids, the most recently viewed first
+	 */
+	public int[] toArray() {
+		int[] copy = new int[size];
+		System.arraycopy(ids, 0, copy, 0, size);
+		return copy;
+	}
+
+	/**
+	 * Formats the ids as the last viewed patients user property value i.e. from the least to the
+	 * most recently viewed, trimmed to fit in a user property.
+	 *
+	 * @should list the ids from the least to the most recent
+	 * @should drop the least recent ids if the value is too long
+	 */
+	public String toPropertyValue() {
+		StringBuilder sb = new StringBuilder();
+		for (int i = size - 1; i >= 0; i--) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(ids[i]);
+		}
+		String property = sb.toString();
+		if (property.length() > MAX_PROPERTY_LENGTH) {
+			//exceeded the user property max size and hence needs trimming.
+			//find the last comma before index 255 and cut off from there
+			//RA-200 Wyclif says patients ids at the end of the string are the most recent
+			//so that is why we trim from begining instead of end.
+			property = property.substring(property.indexOf(',', property.length() - MAX_PROPERTY_LENGTH) + 1);
+		}
+		return property;
+	}
+
+	private int indexOf(int patientId) {
+		for (int i = 0; i < size; i++) {
+			if (ids[i] == patientId) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
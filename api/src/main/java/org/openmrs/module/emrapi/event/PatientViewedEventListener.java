@@ -13,13 +13,18 @@
  */
 package org.openmrs.module.emrapi.event;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.jms.JMSException;
 import javax.jms.MapMessage;
 import javax.jms.Message;
 
+import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -33,42 +38,124 @@ import org.openmrs.event.EventListener;
 import org.openmrs.module.DaemonToken;
 import org.openmrs.module.emrapi.EmrApiConstants;
 import org.openmrs.module.emrapi.EmrApiProperties;
-import org.openmrs.module.emrapi.utils.GeneralUtils;
 
 /**
  * Listens for patient viewed events, the patient found in the message payload gets added to the
- * last viewed patients user property of the specified user,
+ * last viewed patients user property of the specified user.
+ * <p/>
+ * The last viewed patients of up to {@link #MAX_CACHED_USERS} recently active users are kept in
+ * memory, incoming events are queued and applied by a single daemon thread which waits briefly so
+ * that a burst of views results in one update of the user property per user.
  */
 public class PatientViewedEventListener implements EventListener {
 	
+	/**
+	 * How long the daemon thread waits for more events before applying the queued ones
+	 */
+	public static final long DEFAULT_FLUSH_DELAY_MILLIS = 1000;
+	
+	/**
+	 * How many users' last viewed patients are kept in memory, the least recently active users are
+	 * dropped and read again from their user property the next time they view a patient
+	 */
+	public static final int MAX_CACHED_USERS = 1000;
+	
 	protected final Log log = LogFactory.getLog(getClass());
 	
 	private DaemonToken daemonToken;
 	
+	private long flushDelayMillis = DEFAULT_FLUSH_DELAY_MILLIS;
+	
+	private final Queue<PatientView> pendingViews = new ConcurrentLinkedQueue<PatientView>();
+	
+	private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+	
+	private final Map<Integer, UserLastViewed> lastViewedByUser = Collections
+	        .synchronizedMap(new LinkedHashMap<Integer, UserLastViewed>(16, 0.75f, true) {
+		        
+		        @Override
+		        protected boolean removeEldestEntry(Map.Entry<Integer, UserLastViewed> eldest) {
+			        return size() > MAX_CACHED_USERS;
+		        }
+	        });
+	
 	public PatientViewedEventListener(DaemonToken token) {
 		daemonToken = token;
 	}
 	
+	public void setFlushDelayMillis(long flushDelayMillis) {
+		this.flushDelayMillis = flushDelayMillis;
+	}
+	
 	/**
 	 * @see EventListener#onMessage(javax.jms.Message)
 	 * @param message
 	 */
 	@Override
 	public void onMessage(final Message message) {
+		try {
+			MapMessage mapMessage = (MapMessage) message;
+			pendingViews.add(new PatientView(mapMessage.getString(EmrApiConstants.EVENT_KEY_PATIENT_UUID), mapMessage
+			        .getString(EmrApiConstants.EVENT_KEY_USER_UUID)));
+		}
+		catch (JMSException e) {
+			log.error("Failed to read the patient viewed event", e);
+			return;
+		}
+		scheduleFlush();
+	}
+	
+	private void scheduleFlush() {
+		if (!flushScheduled.compareAndSet(false, true)) {
+			return;
+		}
 		Daemon.runInDaemonThread(new Runnable() {
 			
 			@Override
 			public void run() {
 				try {
-					processMessage(message);
+					Thread.sleep(flushDelayMillis);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				try {
+					flushPendingViews();
 				}
 				catch (Exception e) {
 					log.error("Failed to update the user's last viewed patients property", e);
 				}
+				finally {
+					flushScheduled.set(false);
+					//an event may have been queued after we stopped draining but before the flag was reset
+					if (!pendingViews.isEmpty()) {
+						scheduleFlush();
+					}
+				}
 			}
 		}, daemonToken);
 	}
 	
+	/**
+	 * Applies all the queued events, saving the last viewed patients user property once for each
+	 * affected user
+	 */
+	public void flushPendingViews() {
+		Map<User, UserLastViewed> changed = new LinkedHashMap<User, UserLastViewed>();
+		PatientView view;
+		while ((view = pendingViews.poll()) != null) {
+			try {
+				addLastViewedPatient(view.patientUuid, view.userUuid, changed);
+			}
+			catch (Exception e) {
+				log.error("Failed to update the user's last viewed patients property", e);
+			}
+		}
+		for (Map.Entry<User, UserLastViewed> entry : changed.entrySet()) {
+			saveLastViewedPatients(entry.getKey(), entry.getValue());
+		}
+	}
+	
 	/**
 	 * Processes the specified jms message
 	 * 
@@ -81,43 +168,110 @@ public class PatientViewedEventListener implements EventListener {
 		MapMessage mapMessage = (MapMessage) message;
 		String patientUuid = mapMessage.getString(EmrApiConstants.EVENT_KEY_PATIENT_UUID);
 		String userUuid = mapMessage.getString(EmrApiConstants.EVENT_KEY_USER_UUID);
+		Map<User, UserLastViewed> changed = new LinkedHashMap<User, UserLastViewed>();
+		addLastViewedPatient(patientUuid, userUuid, changed);
+		for (Map.Entry<User, UserLastViewed> entry : changed.entrySet()) {
+			saveLastViewedPatients(entry.getKey(), entry.getValue());
+		}
+	}
+	
+	/**
+	 * Adds the patient to the in memory last viewed patients of the user, and the user to the changed
+	 * ones if that changed them. The changed users keep what is to be saved even if the user is dropped
+	 * from memory in the meantime.
+	 */
+	private void addLastViewedPatient(String patientUuid, String userUuid, Map<User, UserLastViewed> changed) {
 		Patient patientToAdd = Context.getPatientService().getPatientByUuid(patientUuid);
 		if (patientToAdd == null || patientToAdd.getId() == null) {
 			throw new APIException("failed to find a patient with uuid:" + patientUuid + " or the patient is not yet saved");
 		}
 		
-		UserService userService = Context.getUserService();
-		User user = userService.getUserByUuid(userUuid);
-		if (user != null && patientToAdd != null) {
-			EmrApiProperties emrProperties = Context.getRegisteredComponents(EmrApiProperties.class).iterator().next();
-			Integer limit = emrProperties.getLastViewedPatientSizeLimit();
-			List<Integer> patientIds = new ArrayList<Integer>(limit);
-			if (limit > 0) {
-				List<Patient> lastViewedPatients = GeneralUtils.getLastViewedPatients(user);
-				patientIds.add(patientToAdd.getId());
-				for (Patient p : lastViewedPatients) {
-					if (patientIds.size() == limit)
-						break;
-					if (patientIds.contains(p.getId()))
-						continue;
-					
-					patientIds.add(p.getId());
+		User user = Context.getUserService().getUserByUuid(userUuid);
+		if (user == null) {
+			return;
+		}
+		
+		UserLastViewed lastViewed = getLastViewed(user);
+		boolean added;
+		synchronized (lastViewed) {
+			added = lastViewed.patientIds.add(patientToAdd.getId());
+		}
+		if (added) {
+			changed.put(user, lastViewed);
+		}
+	}
+	
+	/**
+	 * Gets the in memory last viewed patients of the user, (re)loading them from the user property if
+	 * they are not yet loaded, the limit has changed or the property was changed by someone else.
+	 */
+	private UserLastViewed getLastViewed(User user) {
+		EmrApiProperties emrProperties = Context.getRegisteredComponents(EmrApiProperties.class).iterator().next();
+		int limit = emrProperties.getLastViewedPatientSizeLimit();
+		String property = user.getUserProperty(EmrApiConstants.USER_PROPERTY_NAME_LAST_VIEWED_PATIENT_IDS);
+		
+		UserLastViewed lastViewed = lastViewedByUser.get(user.getId());
+		if (lastViewed != null) {
+			synchronized (lastViewed) {
+				if (lastViewed.patientIds.getLimit() == limit
+				        && ObjectUtils.equals(StringUtils.defaultString(property), lastViewed.savedPropertyValue)) {
+					return lastViewed;
 				}
-				
-				Collections.reverse(patientIds);
 			}
-			
-			String property = StringUtils.join(patientIds, ",");
-			if (StringUtils.isNotBlank(property) && property.length() > 255) {
-				//exceeded the user property max size and hence needs trimming.
-				//find the last comma before index 255 and cut off from there
-				//RA-200 Wyclif says patients ids at the end of the string are the most recent
-				//so that is why we trim from begining instead of end.
-				property = property.substring(property.indexOf(',', property.length() - 255) + 1);
+		}
+		
+		UserLastViewed reloaded = new UserLastViewed(LastViewedPatientIds.fromPropertyValue(property, limit),
+		        StringUtils.defaultString(property));
+		synchronized (lastViewedByUser) {
+			// keep what another thread put in the meantime
+			UserLastViewed current = lastViewedByUser.get(user.getId());
+			if (current != null && current != lastViewed) {
+				return current;
 			}
-			
-			userService.setUserProperty(user, EmrApiConstants.USER_PROPERTY_NAME_LAST_VIEWED_PATIENT_IDS,
-				property);
+			lastViewedByUser.put(user.getId(), reloaded);
+			return reloaded;
+		}
+	}
+	
+	private void saveLastViewedPatients(User user, UserLastViewed lastViewed) {
+		String property;
+		synchronized (lastViewed) {
+			property = lastViewed.patientIds.toPropertyValue();
+			if (property.equals(lastViewed.savedPropertyValue)) {
+				return;
+			}
+		}
+		UserService userService = Context.getUserService();
+		userService.setUserProperty(user, EmrApiConstants.USER_PROPERTY_NAME_LAST_VIEWED_PATIENT_IDS, property);
+		synchronized (lastViewed) {
+			lastViewed.savedPropertyValue = property;
+		}
+	}
+	
+	private static class PatientView {
+		
+		private final String patientUuid;
+		
+		private final String userUuid;
+		
+		PatientView(String patientUuid, String userUuid) {
+			this.patientUuid = patientUuid;
+			this.userUuid = userUuid;
+		}
+	}
+	
+	private static class UserLastViewed {
+		
+		private final LastViewedPatientIds patientIds;
+		
+		/**
+		 * The user property value as last read or written by this listener
+		 */
+		private String savedPropertyValue;
+		
+		UserLastViewed(LastViewedPatientIds patientIds, String savedPropertyValue) {
+			this.patientIds = patientIds;
+			this.savedPropertyValue = savedPropertyValue;
 		}
 	}
 }
@@ -0,0 +1,70 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.metrics;
+
+/**
+ * The live hit, miss and eviction counts of one cache
+ */
+public class CacheMetrics {
+
+	private final String name;
+
+	private final StripedCounter hits = new StripedCounter();
+
+	private final StripedCounter misses = new StripedCounter();
+
+	private final StripedCounter evictions = new StripedCounter();
+
+	private final StripedCounter invalidations = new StripedCounter();
+
+	public CacheMetrics(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void recordHit() {
+		hits.increment();
+	}
+
+	public void recordMiss() {
+		misses.increment();
+	}
+
+	/**
+	 * @param count the number of entries dropped to make room or because they expired
+	 */
+	public void recordEvictions(long count) {
+		if (count > 0) {
+			evictions.add(count);
+		}
+	}
+
+	public void recordInvalidation() {
+		invalidations.increment();
+	}
+
+	public CacheStats getStats() {
+		return new CacheStats(name, hits.sum(), misses.sum(), evictions.sum(), invalidations.sum());
+	}
+
+	public void reset() {
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+		invalidations.reset();
+	}
+}
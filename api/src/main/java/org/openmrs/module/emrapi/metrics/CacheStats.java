@@ -0,0 +1,81 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A read-only snapshot of the metrics of one cache
+ */
+public class CacheStats {
+
+	private final String name;
+
+	private final long hits;
+
+	private final long misses;
+
+	private final long evictions;
+
+	private final long invalidations;
+
+	@ConstructorProperties( { "name", "hits", "misses", "evictions", "invalidations" })
+	public CacheStats(String name, long hits, long misses, long evictions, long invalidations) {
+		this.name = name;
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.invalidations = invalidations;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the hits as a fraction of all lookups, 0 if there were none
+	 */
+	public double getHitRatio() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/**
+	 * @return the number of entries dropped to make room or because they expired
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the number of times the whole cache was emptied because what it caches changed
+	 */
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + hits + " hits, " + misses + " misses, hit ratio " + getHitRatio() + ", " + evictions
+		        + " evictions, " + invalidations + " invalidations";
+	}
+}
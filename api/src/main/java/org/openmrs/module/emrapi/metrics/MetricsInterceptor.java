@@ -0,0 +1,46 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.metrics;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Records the duration, number of database queries and failures of each call to the services it is
+ * added to as a pre-interceptor, see moduleApplicationContext.xml
+ */
+public class MetricsInterceptor implements MethodInterceptor {
+
+	private MetricsRegistry metricsRegistry;
+
+	public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+		this.metricsRegistry = metricsRegistry;
+	}
+
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		OperationMetrics operation = metricsRegistry.getOperation(invocation.getMethod());
+		long queriesBefore = QueryCountingInterceptor.getQueryCount();
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Object result = invocation.proceed();
+			failed = false;
+			return result;
+		}
+		finally {
+			operation.record(System.nanoTime() - start, QueryCountingInterceptor.getQueryCount() - queriesBefore, failed);
+		}
+	}
+}
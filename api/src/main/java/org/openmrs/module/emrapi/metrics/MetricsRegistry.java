@@ -0,0 +1,149 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.metrics;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds the per method metrics recorded by the {@link MetricsInterceptor} around the EMR API
+ * services, and the metrics of the module's caches and background queues. Exposed through JMX and the REST API.
+ */
+public class MetricsRegistry implements MetricsRegistryMXBean {
+
+	private final ConcurrentMap<String, OperationMetrics> operationsByName = new ConcurrentHashMap<String, OperationMetrics>();
+
+	/**
+	 * Saves building the operation name on every call
+	 */
+	private final ConcurrentMap<Method, OperationMetrics> operationsByMethod = new ConcurrentHashMap<Method, OperationMetrics>();
+
+	private final ConcurrentMap<String, CacheMetrics> cachesByName = new ConcurrentHashMap<String, CacheMetrics>();
+
+	private final ConcurrentMap<String, QueueMetrics> queuesByName = new ConcurrentHashMap<String, QueueMetrics>();
+
+	/**
+	 * @return the metrics of the method, overloads of a method share them
+	 */
+	public OperationMetrics getOperation(Method method) {
+		OperationMetrics operation = operationsByMethod.get(method);
+		if (operation == null) {
+			operation = getOperation(method.getDeclaringClass().getSimpleName() + "." + method.getName());
+			operationsByMethod.putIfAbsent(method, operation);
+		}
+		return operation;
+	}
+
+	public OperationMetrics getOperation(String name) {
+		OperationMetrics operation = operationsByName.get(name);
+		if (operation == null) {
+			operationsByName.putIfAbsent(name, new OperationMetrics(name));
+			operation = operationsByName.get(name);
+		}
+		return operation;
+	}
+
+	public CacheMetrics getCache(String name) {
+		CacheMetrics cache = cachesByName.get(name);
+		if (cache == null) {
+			cachesByName.putIfAbsent(name, new CacheMetrics(name));
+			cache = cachesByName.get(name);
+		}
+		return cache;
+	}
+
+	public QueueMetrics getQueue(String name) {
+		QueueMetrics queue = queuesByName.get(name);
+		if (queue == null) {
+			queuesByName.putIfAbsent(name, new QueueMetrics(name));
+			queue = queuesByName.get(name);
+		}
+		return queue;
+	}
+
+	/**
+	 * @return the stats of all the operations that were called, by name
+	 */
+	@Override
+	public List<OperationStats> getOperations() {
+		List<OperationStats> stats = new ArrayList<OperationStats>();
+		for (OperationMetrics operation : operationsByName.values()) {
+			stats.add(operation.getStats());
+		}
+		Collections.sort(stats, new Comparator<OperationStats>() {
+
+			@Override
+			public int compare(OperationStats left, OperationStats right) {
+				return left.getName().compareTo(right.getName());
+			}
+		});
+		return stats;
+	}
+
+	/**
+	 * @return the stats of all the caches, by name
+	 */
+	@Override
+	public List<CacheStats> getCaches() {
+		List<CacheStats> stats = new ArrayList<CacheStats>();
+		for (CacheMetrics cache : cachesByName.values()) {
+			stats.add(cache.getStats());
+		}
+		Collections.sort(stats, new Comparator<CacheStats>() {
+
+			@Override
+			public int compare(CacheStats left, CacheStats right) {
+				return left.getName().compareTo(right.getName());
+			}
+		});
+		return stats;
+	}
+
+	/**
+	 * @return the stats of all the queues, by name
+	 */
+	@Override
+	public List<QueueStats> getQueues() {
+		List<QueueStats> stats = new ArrayList<QueueStats>();
+		for (QueueMetrics queue : queuesByName.values()) {
+			stats.add(queue.getStats());
+		}
+		Collections.sort(stats, new Comparator<QueueStats>() {
+
+			@Override
+			public int compare(QueueStats left, QueueStats right) {
+				return left.getName().compareTo(right.getName());
+			}
+		});
+		return stats;
+	}
+
+	@Override
+	public void reset() {
+		for (OperationMetrics operation : operationsByName.values()) {
+			operation.reset();
+		}
+		for (CacheMetrics cache : cachesByName.values()) {
+			cache.reset();
+		}
+		for (QueueMetrics queue : queuesByName.values()) {
+			queue.reset();
+		}
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The live metrics of one service method
+ */
+public class OperationMetrics {
+
+	private final String name;
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	private final StripedCounter errors = new StripedCounter();
+
+	private final StripedCounter queries = new StripedCounter();
+
+	public OperationMetrics(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @param nanos how long the call took
+	 * @param queryCount the number of database statements the call prepared
+	 * @param failed whether the call threw an exception
+	 */
+	public void record(long nanos, long queryCount, boolean failed) {
+		latency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+		if (queryCount > 0) {
+			queries.add(queryCount);
+		}
+		if (failed) {
+			errors.increment();
+		}
+	}
+
+	public OperationStats getStats() {
+		return new OperationStats(name, latency.getCount(), errors.sum(), queries.sum(), toMillis(latency.getMean()),
+		        toMillis(latency.getValueAtPercentile(50)), toMillis(latency.getValueAtPercentile(90)),
+		        toMillis(latency.getValueAtPercentile(99)), toMillis(latency.getMax()));
+	}
+
+	public void reset() {
+		latency.reset();
+		errors.reset();
+		queries.reset();
+	}
+
+	private static double toMillis(double micros) {
+		return micros / 1000;
+	}
+}
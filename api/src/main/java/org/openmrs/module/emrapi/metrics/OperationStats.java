@@ -0,0 +1,106 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A read-only snapshot of the metrics of one service method, durations are in milliseconds
+ */
+public class OperationStats {
+
+	private final String name;
+
+	private final long calls;
+
+	private final long errors;
+
+	private final long queries;
+
+	private final double meanMillis;
+
+	private final double medianMillis;
+
+	private final double p90Millis;
+
+	private final double p99Millis;
+
+	private final double maxMillis;
+
+	@ConstructorProperties( { "name", "calls", "errors", "queries", "meanMillis", "medianMillis", "p90Millis", "p99Millis",
+	        "maxMillis" })
+	public OperationStats(String name, long calls, long errors, long queries, double meanMillis, double medianMillis,
+	    double p90Millis, double p99Millis, double maxMillis) {
+		this.name = name;
+		this.calls = calls;
+		this.errors = errors;
+		this.queries = queries;
+		this.meanMillis = meanMillis;
+		this.medianMillis = medianMillis;
+		this.p90Millis = p90Millis;
+		this.p99Millis = p99Millis;
+		this.maxMillis = maxMillis;
+	}
+
+	/**
+	 * @return the service interface and method, e.g. AdtService.checkInPatient
+	 */
+	public String getName() {
+		return name;
+	}
+
+	public long getCalls() {
+		return calls;
+	}
+
+	/**
+	 * @return the number of calls that threw an exception
+	 */
+	public long getErrors() {
+		return errors;
+	}
+
+	/**
+	 * @return the number of database statements prepared by all the calls
+	 */
+	public long getQueries() {
+		return queries;
+	}
+
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+
+	public double getMedianMillis() {
+		return medianMillis;
+	}
+
+	public double getP90Millis() {
+		return p90Millis;
+	}
+
+	public double getP99Millis() {
+		return p99Millis;
+	}
+
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": " + calls + " calls, " + errors + " errors, " + queries + " queries, median " + medianMillis
+		        + "ms, p99 " + p99Millis + "ms";
+	}
+}
@@ -0,0 +1,47 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.metrics;
+
+import org.hibernate.EmptyInterceptor;
+
+/**
+ * Counts the SQL statements Hibernate prepares on each thread, so the {@link MetricsInterceptor} can
+ * tell how many queries a service call ran. Registered as a bean so the core session factory adds it
+ * to its chain of interceptors.
+ */
+public class QueryCountingInterceptor extends EmptyInterceptor {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final ThreadLocal<long[]> QUERY_COUNT = new ThreadLocal<long[]>() {
+
+		@Override
+		protected long[] initialValue() {
+			return new long[1];
+		}
+	};
+
+	/**
+	 * @return the number of statements prepared so far on the current thread
+	 */
+	public static long getQueryCount() {
+		return QUERY_COUNT.get()[0];
+	}
+
+	@Override
+	public String onPrepareStatement(String sql) {
+		QUERY_COUNT.get()[0]++;
+		return sql;
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The live depth and counts of one in memory queue whose items are published in the background, and
+ * how long items waited between being queued and being published
+ */
+public class QueueMetrics {
+
+	private final String name;
+
+	private final AtomicInteger depth = new AtomicInteger();
+
+	private final StripedCounter enqueued = new StripedCounter();
+
+	private final StripedCounter published = new StripedCounter();
+
+	private final StripedCounter failed = new StripedCounter();
+
+	private final StripedCounter dropped = new StripedCounter();
+
+	private final StripedCounter batches = new StripedCounter();
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	public QueueMetrics(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void recordEnqueued() {
+		enqueued.increment();
+		depth.incrementAndGet();
+	}
+
+	/**
+	 * @param count the number of queued items thrown away because the queue was full
+	 */
+	public void recordDropped(int count) {
+		if (count > 0) {
+			dropped.add(count);
+			depth.addAndGet(-count);
+		}
+	}
+
+	/**
+	 * @param size the number of items taken off the queue to be published together
+	 */
+	public void recordBatch(int size) {
+		batches.increment();
+		depth.addAndGet(-size);
+	}
+
+	/**
+	 * @param nanos how long the item waited between being queued and being published
+	 * @param succeeded whether publishing it succeeded
+	 */
+	public void recordPublished(long nanos, boolean succeeded) {
+		if (succeeded) {
+			published.increment();
+			latency.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+		} else {
+			failed.increment();
+		}
+	}
+
+	public QueueStats getStats() {
+		return new QueueStats(name, depth.get(), enqueued.sum(), published.sum(), failed.sum(), dropped.sum(),
+		        batches.sum(), toMillis(latency.getMean()), toMillis(latency.getValueAtPercentile(50)),
+		        toMillis(latency.getValueAtPercentile(99)), toMillis(latency.getMax()));
+	}
+
+	/**
+	 * Resets the counts and latencies, but not the depth which is what is in the queue right now
+	 */
+	public void reset() {
+		enqueued.reset();
+		published.reset();
+		failed.reset();
+		dropped.reset();
+		batches.reset();
+		latency.reset();
+	}
+
+	private static double toMillis(double micros) {
+		return micros / 1000;
+	}
+}
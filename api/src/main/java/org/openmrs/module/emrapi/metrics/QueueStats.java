@@ -0,0 +1,124 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * A read-only snapshot of the metrics of one queue, durations are in milliseconds
+ */
+public class QueueStats {
+
+	private final String name;
+
+	private final int depth;
+
+	private final long enqueued;
+
+	private final long published;
+
+	private final long failed;
+
+	private final long dropped;
+
+	private final long batches;
+
+	private final double meanLatencyMillis;
+
+	private final double medianLatencyMillis;
+
+	private final double p99LatencyMillis;
+
+	private final double maxLatencyMillis;
+
+	@ConstructorProperties( { "name", "depth", "enqueued", "published", "failed", "dropped", "batches",
+	        "meanLatencyMillis", "medianLatencyMillis", "p99LatencyMillis", "maxLatencyMillis" })
+	public QueueStats(String name, int depth, long enqueued, long published, long failed, long dropped, long batches,
+	    double meanLatencyMillis, double medianLatencyMillis, double p99LatencyMillis, double maxLatencyMillis) {
+		this.name = name;
+		this.depth = depth;
+		this.enqueued = enqueued;
+		this.published = published;
+		this.failed = failed;
+		this.dropped = dropped;
+		this.batches = batches;
+		this.meanLatencyMillis = meanLatencyMillis;
+		this.medianLatencyMillis = medianLatencyMillis;
+		this.p99LatencyMillis = p99LatencyMillis;
+		this.maxLatencyMillis = maxLatencyMillis;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the number of items waiting in the queue
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	public long getEnqueued() {
+		return enqueued;
+	}
+
+	public long getPublished() {
+		return published;
+	}
+
+	/**
+	 * @return the number of items that could not be published, they are not retried
+	 */
+	public long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return the number of items thrown away because the queue was full
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	public long getBatches() {
+		return batches;
+	}
+
+	/**
+	 * @return the mean time between an item being queued and being published
+	 */
+	public double getMeanLatencyMillis() {
+		return meanLatencyMillis;
+	}
+
+	public double getMedianLatencyMillis() {
+		return medianLatencyMillis;
+	}
+
+	public double getP99LatencyMillis() {
+		return p99LatencyMillis;
+	}
+
+	public double getMaxLatencyMillis() {
+		return maxLatencyMillis;
+	}
+
+	@Override
+	public String toString() {
+		return name + ": depth " + depth + ", " + enqueued + " enqueued, " + published + " published, " + failed
+		        + " failed, " + dropped + " dropped, median latency " + medianLatencyMillis + "ms, p99 "
+		        + p99LatencyMillis + "ms";
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that can be incremented by many threads at once with little contention: each thread
+ * adds to one of several cells, picked by its id, which are summed on read. Cells are spread a cache
+ * line apart so threads updating different cells don't slow each other down.
+ */
+public class StripedCounter {
+
+	/**
+	 * Longs per 64 byte cache line
+	 */
+	private static final int PADDING = 8;
+
+	private static final int STRIPES = stripes();
+
+	private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+	public void increment() {
+		add(1);
+	}
+
+	public void add(long delta) {
+		cells.addAndGet(cellIndex(), delta);
+	}
+
+	public long sum() {
+		long sum = 0;
+		for (int i = 0; i < STRIPES; i++) {
+			sum += cells.get(i * PADDING);
+		}
+		return sum;
+	}
+
+	public void reset() {
+		for (int i = 0; i < STRIPES; i++) {
+			cells.set(i * PADDING, 0);
+		}
+	}
+
+	private static int cellIndex() {
+		return (int) (Thread.currentThread().getId() & (STRIPES - 1)) * PADDING;
+	}
+
+	/**
+	 * @return a power of two of at least twice the number of processors
+	 */
+	private static int stripes() {
+		int stripes = 1;
+		while (stripes < Runtime.getRuntime().availableProcessors() * 2) {
+			stripes <<= 1;
+		}
+		return stripes;
+	}
+}
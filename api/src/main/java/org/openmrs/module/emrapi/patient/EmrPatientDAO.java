@@ -17,8 +17,58 @@ import java.util.List;
 
 import org.openmrs.Location;
 import org.openmrs.Patient;
+import org.openmrs.PatientIdentifierType;
+import org.openmrs.PersonAttributeType;
 
 public interface EmrPatientDAO {
 	
 	List<Patient> findPatients(String query, Location checkedInAt, Integer start, Integer length);
+	
+	/**
+	 * Same search as {@link #findPatients(String, Location, Integer, Integer)} but only fetches the
+	 * ids of the matching patients, ordered by id, starting after the specified id. This lets pages
+	 * be fetched by seeking on the primary key instead of skipping over all the previous results.
+	 * 
+	 * @param query the name or identifier to search for, may be blank to match all patients
+	 * @param checkedInAt optionally limit to patients with an active visit at this location
+	 * @param afterPatientId only return ids greater than this, null to start from the first one
+	 * @param maxResults
+	 * @return the matching patient ids in ascending order
+	 */
+	List<Integer> findPatientIds(String query, Location checkedInAt, Integer afterPatientId, int maxResults);
+	
+	/**
+	 * Loads the patients with the specified ids in a single query
+	 * 
+	 * @param patientIds
+	 * @return the patients in the same order as the ids, skipping ids that don't match any patient
+	 */
+	List<Patient> getPatients(List<Integer> patientIds);
+	
+	/**
+	 * Loads summaries of the patients with the specified ids without loading the patients themselves
+	 * 
+	 * @param patientIds
+	 * @param primaryIdentifierType the type of the identifier to include in the summaries, if null no
+	 *            identifier is included
+	 * @return the summaries in the same order as the ids, skipping ids that don't match any patient
+	 */
+	List<PatientSummary> getPatientSummaries(List<Integer> patientIds, PatientIdentifierType primaryIdentifierType);
+	
+	/**
+	 * Gets all the non voided identifiers of the specified type that belong to non voided patients
+	 * 
+	 * @param identifierType
+	 * @return [identifier, patientId] rows
+	 */
+	List<Object[]> getActiveIdentifiers(PatientIdentifierType identifierType);
+	
+	/**
+	 * Gets the ids of the persons that have a non voided attribute of the specified type with the
+	 * value "true", i.e. the test patients when given the test patient attribute type
+	 * 
+	 * @param attributeType
+	 * @return the person ids
+	 */
+	List<Integer> getPersonIdsWithTrueAttribute(PersonAttributeType attributeType);
 }
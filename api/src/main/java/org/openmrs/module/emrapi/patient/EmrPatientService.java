@@ -25,5 +25,39 @@ public interface EmrPatientService {
 	
 	List<Patient> findPatients(String query, Location checkedInAt, Integer start, Integer length);
 	
+	/**
+	 * Searches for patients the same way as {@link #findPatients(String, Location, Integer, Integer)}
+	 * but returns summaries of the patients, ordered by id, one page at a time. To fetch the next
+	 * page pass the {@link PatientSearchResults#getNextCursor()} of the previous page as the cursor.
+	 * <p/>
+	 * Note that the patients come in a different order than from findPatients, which orders patients
+	 * found by name or identifier by name. Ordering by id is what lets each page start after the last
+	 * id of the previous one.
+	 * 
+	 * @param query the name or identifier to search for, may be blank to match all patients
+	 * @param checkedInAt optionally limit to patients with an active visit at this location
+	 * @param cursor null to fetch the first page, otherwise the next cursor of the previous page
+	 * @param pageSize
+	 * @return a page of results
+	 */
+	PatientSearchResults searchPatients(String query, Location checkedInAt, Integer cursor, int pageSize);
+	
 	Patient findPatientByPrimaryId(String primaryId);
+	
+	/**
+	 * Loads the patients with the specified ids in a single query
+	 * 
+	 * @param patientIds
+	 * @return the patients in the same order as the ids
+	 */
+	List<Patient> getPatients(List<Integer> patientIds);
+	
+	/**
+	 * Loads summaries (name, primary identifier and ids) of the patients with the specified ids,
+	 * without loading the patients themselves
+	 * 
+	 * @param patientIds
+	 * @return the summaries in the same order as the ids
+	 */
+	List<PatientSummary> getPatientSummaries(List<Integer> patientIds);
 }
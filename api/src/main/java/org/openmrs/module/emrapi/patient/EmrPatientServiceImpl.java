@@ -16,6 +16,7 @@ package org.openmrs.module.emrapi.patient;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.commons.lang.StringUtils;
 import org.openmrs.Location;
 import org.openmrs.Patient;
 import org.openmrs.PatientIdentifierType;
@@ -35,6 +36,8 @@ public class EmrPatientServiceImpl extends BaseOpenmrsService implements EmrPati
 	
 	private AdtService adtService;
 	
+	private PatientIdentifierIndex patientIdentifierIndex;
+	
 	public void setDao(EmrPatientDAO dao) {
 		this.dao = dao;
 	}
@@ -51,14 +54,62 @@ public class EmrPatientServiceImpl extends BaseOpenmrsService implements EmrPati
 		this.adtService = adtService;
 	}
 	
+	public void setPatientIdentifierIndex(PatientIdentifierIndex patientIdentifierIndex) {
+		this.patientIdentifierIndex = patientIdentifierIndex;
+	}
+	
 	@Override
 	public List<Patient> findPatients(String query, Location checkedInAt, Integer start, Integer length) {
 		if (checkedInAt != null) {
 			checkedInAt = adtService.getLocationThatSupportsVisits(checkedInAt);
+		} else {
+			List<Integer> patientIds = getIndexedPatientIds(query, emrApiProperties.getIdentifierTypesToSearch());
+			if (patientIds != null && !patientIds.isEmpty()) {
+				int from = Math.min(start == null ? 0 : start, patientIds.size());
+				int to = length == null ? patientIds.size() : Math.min(from + length, patientIds.size());
+				List<Patient> patients = getNonVoidedPatients(patientIds.subList(from, to));
+				if (!patients.isEmpty() || from == to) {
+					return patients;
+				}
+			}
 		}
 		return dao.findPatients(query, checkedInAt, start, length);
 	}
 	
+	@Override
+	public PatientSearchResults searchPatients(String query, Location checkedInAt, Integer cursor, int pageSize) {
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("page size should be greater than zero");
+		}
+		if (checkedInAt != null) {
+			checkedInAt = adtService.getLocationThatSupportsVisits(checkedInAt);
+		}
+		
+		List<Integer> patientIds = null;
+		if (checkedInAt == null) {
+			List<Integer> indexed = getIndexedPatientIds(query, emrApiProperties.getIdentifierTypesToSearch());
+			if (indexed != null && !indexed.isEmpty()) {
+				patientIds = new ArrayList<Integer>();
+				for (Integer patientId : indexed) {
+					if ((cursor == null || patientId > cursor) && patientIds.size() <= pageSize) {
+						patientIds.add(patientId);
+					}
+				}
+			}
+		}
+		if (patientIds == null) {
+			// fetch one more than requested to know if there's another page
+			patientIds = dao.findPatientIds(query, checkedInAt, cursor, pageSize + 1);
+		}
+		boolean hasMore = patientIds.size() > pageSize;
+		if (hasMore) {
+			patientIds = patientIds.subList(0, pageSize);
+		}
+		
+		List<PatientSummary> patients = dao.getPatientSummaries(patientIds, emrApiProperties.getPrimaryIdentifierType());
+		return new PatientSearchResults(patients, hasMore ? patientIds.get(patientIds.size() - 1) : null);
+	}
+	
 	@Override
 	public Patient findPatientByPrimaryId(String primaryId) {
 		if (primaryId == null) {
@@ -74,6 +125,14 @@ public class EmrPatientServiceImpl extends BaseOpenmrsService implements EmrPati
 		List<PatientIdentifierType> patientIdentifierTypes = new ArrayList<PatientIdentifierType>();
 		patientIdentifierTypes.add(primaryIdentifierType);
 		
+		List<Integer> patientIds = getIndexedPatientIds(primaryId, patientIdentifierTypes);
+		if (patientIds != null && !patientIds.isEmpty()) {
+			List<Patient> patients = getNonVoidedPatients(patientIds);
+			if (!patients.isEmpty()) {
+				return patients.get(0);
+			}
+		}
+		
 		List<Patient> patients = patientService.getPatients(null, primaryId, patientIdentifierTypes, true);
 		
 		if (patients.isEmpty()) {
@@ -82,4 +141,38 @@ public class EmrPatientServiceImpl extends BaseOpenmrsService implements EmrPati
 		
 		return patients.get(0);
 	}
+	
+	@Override
+	public List<Patient> getPatients(List<Integer> patientIds) {
+		return dao.getPatients(patientIds);
+	}
+	
+	@Override
+	public List<PatientSummary> getPatientSummaries(List<Integer> patientIds) {
+		return dao.getPatientSummaries(patientIds, emrApiProperties.getPrimaryIdentifierType());
+	}
+	
+	/**
+	 * Resolves an identifier query from the in memory index
+	 * 
+	 * @return the matching patient ids, or null if the query isn't an identifier or the index can't
+	 *         answer it
+	 */
+	private List<Integer> getIndexedPatientIds(String query, List<PatientIdentifierType> types) {
+		if (patientIdentifierIndex == null || !patientIdentifierIndex.isReady() || StringUtils.isBlank(query)
+		        || !query.matches(".*\\d.*")) {
+			return null;
+		}
+		return patientIdentifierIndex.getPatientIds(query, types);
+	}
+	
+	private List<Patient> getNonVoidedPatients(List<Integer> patientIds) {
+		List<Patient> patients = new ArrayList<Patient>();
+		for (Patient patient : dao.getPatients(patientIds)) {
+			if (!patient.isVoided()) {
+				patients.add(patient);
+			}
+		}
+		return patients;
+	}
 }
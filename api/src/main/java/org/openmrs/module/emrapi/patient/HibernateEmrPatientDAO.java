@@ -14,16 +14,23 @@
 package org.openmrs.module.emrapi.patient;
 
 import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.hibernate.Criteria;
+import org.hibernate.Query;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Property;
 import org.hibernate.criterion.Restrictions;
 import org.openmrs.Location;
 import org.openmrs.Patient;
 import org.openmrs.PatientIdentifierType;
+import org.openmrs.PersonAttributeType;
 import org.openmrs.Visit;
 import org.openmrs.api.db.hibernate.PatientSearchCriteria;
 import org.openmrs.module.emrapi.EmrApiProperties;
@@ -72,15 +79,155 @@ public class HibernateEmrPatientDAO implements EmrPatientDAO {
 		return (List<Patient>) criteria.list();
 	}
 	
+	@Override
+	public List<Integer> findPatientIds(String query, Location checkedInAt, Integer afterPatientId, int maxResults) {
+		
+		Criteria criteria;
+		Criteria patientCriteria;
+		if (checkedInAt != null) {
+			criteria = sessionFactory.getCurrentSession().createCriteria(Visit.class);
+			criteria.add(Restrictions.isNull("stopDatetime"));
+			criteria.add(Restrictions.eq("location", checkedInAt));
+			patientCriteria = criteria.createCriteria("patient", "patient");
+		} else {
+			criteria = sessionFactory.getCurrentSession().createCriteria(Patient.class, "patient");
+			patientCriteria = criteria;
+		}
+		
+		if (StringUtils.isNotBlank(query)) {
+			// don't order by names, the results are ordered by id so the last id of a page can be used to fetch the next one
+			patientCriteria = buildCriteria(query, patientCriteria, false);
+		}
+		// the search criteria sets a root entity transformer, which we don't want when fetching ids
+		criteria.setProjection(Projections.distinct(Projections.property("patient.patientId")));
+		
+		patientCriteria.add(Restrictions.eq("voided", false));
+		if (afterPatientId != null) {
+			patientCriteria.add(Restrictions.gt("patientId", afterPatientId));
+		}
+		patientCriteria.addOrder(Order.asc("patientId"));
+		criteria.setMaxResults(maxResults);
+		
+		return (List<Integer>) criteria.list();
+	}
+	
 	private Criteria buildCriteria(String query, Criteria criteria) {
+		return buildCriteria(query, criteria, true);
+	}
+	
+	private Criteria buildCriteria(String query, Criteria criteria, boolean orderByNames) {
 		if (query.matches(".*\\d.*")) {
 			// has at least one digit, so treat as an identifier
 			return new PatientSearchCriteria(sessionFactory, criteria).prepareCriteria(null, query,
-			    emrApiProperties.getIdentifierTypesToSearch(), true, true, true);
+			    emrApiProperties.getIdentifierTypesToSearch(), true, orderByNames, true);
 		} else {
 			// no digits, so treat as a name
 			return new PatientSearchCriteria(sessionFactory, criteria).prepareCriteria(query, null,
-			    new ArrayList<PatientIdentifierType>(), true, true, true);
+			    new ArrayList<PatientIdentifierType>(), true, orderByNames, true);
+		}
+	}
+	
+	@Override
+	public List<Patient> getPatients(List<Integer> patientIds) {
+		if (patientIds == null || patientIds.isEmpty()) {
+			return new ArrayList<Patient>();
+		}
+		
+		Query query = sessionFactory.getCurrentSession().createQuery("from Patient p where p.patientId in (:patientIds)");
+		query.setParameterList("patientIds", patientIds);
+		
+		Map<Integer, Patient> patientsById = new HashMap<Integer, Patient>();
+		for (Patient patient : (List<Patient>) query.list()) {
+			patientsById.put(patient.getPatientId(), patient);
 		}
+		
+		List<Patient> patients = new ArrayList<Patient>(patientsById.size());
+		for (Integer patientId : patientIds) {
+			Patient patient = patientsById.remove(patientId);
+			if (patient != null) {
+				patients.add(patient);
+			}
+		}
+		return patients;
+	}
+	
+	@Override
+	public List<PatientSummary> getPatientSummaries(List<Integer> patientIds, PatientIdentifierType primaryIdentifierType) {
+		if (patientIds == null || patientIds.isEmpty()) {
+			return new ArrayList<PatientSummary>();
+		}
+		
+		Query query = sessionFactory.getCurrentSession().createQuery(
+		    "select p.patientId, p.uuid, p.gender, p.birthdate from Patient p where p.patientId in (:patientIds)");
+		query.setParameterList("patientIds", patientIds);
+		Map<Integer, Object[]> patients = new HashMap<Integer, Object[]>();
+		for (Object[] row : (List<Object[]>) query.list()) {
+			patients.put((Integer) row[0], row);
+		}
+		if (patients.isEmpty()) {
+			return new ArrayList<PatientSummary>();
+		}
+		
+		// the preferred name wins, otherwise the first one entered
+		query = sessionFactory.getCurrentSession().createQuery(
+		    "select n.person.personId, n.givenName, n.middleName, n.familyName from PersonName n"
+		            + " where n.person.personId in (:patientIds) and n.voided = false"
+		            + " order by n.preferred desc, n.personNameId");
+		query.setParameterList("patientIds", patients.keySet());
+		Map<Integer, Object[]> names = new HashMap<Integer, Object[]>();
+		for (Object[] row : (List<Object[]>) query.list()) {
+			if (!names.containsKey(row[0])) {
+				names.put((Integer) row[0], row);
+			}
+		}
+		
+		Map<Integer, String> identifiers = new HashMap<Integer, String>();
+		if (primaryIdentifierType != null) {
+			// the preferred identifier wins, otherwise the first one entered
+			query = sessionFactory.getCurrentSession().createQuery(
+			    "select pi.patient.patientId, pi.identifier from PatientIdentifier pi"
+			            + " where pi.patient.patientId in (:patientIds) and pi.identifierType = :identifierType"
+			            + " and pi.voided = false order by pi.preferred desc, pi.patientIdentifierId");
+			query.setParameterList("patientIds", patients.keySet());
+			query.setParameter("identifierType", primaryIdentifierType);
+			for (Object[] row : (List<Object[]>) query.list()) {
+				if (!identifiers.containsKey(row[0])) {
+					identifiers.put((Integer) row[0], (String) row[1]);
+				}
+			}
+		}
+		
+		List<PatientSummary> summaries = new ArrayList<PatientSummary>(patients.size());
+		for (Integer patientId : patientIds) {
+			Object[] patient = patients.remove(patientId);
+			if (patient != null) {
+				Object[] name = names.get(patientId);
+				summaries.add(new PatientSummary(patientId, (String) patient[1], (String) patient[2], (Date) patient[3],
+				        name == null ? null : (String) name[1], name == null ? null : (String) name[2], name == null ? null
+				                : (String) name[3], identifiers.get(patientId)));
+			}
+		}
+		return summaries;
+	}
+	
+	@Override
+	public List<Object[]> getActiveIdentifiers(PatientIdentifierType identifierType) {
+		Query query = sessionFactory.getCurrentSession().createQuery(
+		    "select pi.identifier, pi.patient.patientId from PatientIdentifier pi"
+		            + " where pi.identifierType = :identifierType and pi.voided = false and pi.patient.voided = false");
+		query.setParameter("identifierType", identifierType);
+		return (List<Object[]>) query.list();
+	}
+	
+	/**
+	 * @see EmrPatientDAO#getPersonIdsWithTrueAttribute(PersonAttributeType)
+	 */
+	@Override
+	public List<Integer> getPersonIdsWithTrueAttribute(PersonAttributeType attributeType) {
+		Query query = sessionFactory.getCurrentSession().createQuery(
+		    "select distinct a.person.personId from PersonAttribute a"
+		            + " where a.attributeType = :attributeType and a.value = 'true' and a.voided = false");
+		query.setParameter("attributeType", attributeType);
+		return (List<Integer>) query.list();
 	}
 }
@@ -14,6 +14,7 @@
 
 package org.openmrs.module.emrapi.patient;
 
+import org.hibernate.Hibernate;
 import org.joda.time.DateTime;
 import org.joda.time.Days;
 import org.joda.time.Months;
@@ -69,6 +70,10 @@ public class PatientDomainWrapper {
 	@Autowired
 	protected DiagnosisService diagnosisService;
 
+	@Qualifier("testPatientIds")
+	@Autowired(required = false)
+	protected TestPatientIds testPatientIds;
+
 	public PatientDomainWrapper() {
 	}
 
@@ -90,6 +95,10 @@ public class PatientDomainWrapper {
 		return patient;
 	}
 
+	public void setTestPatientIds(TestPatientIds testPatientIds) {
+		this.testPatientIds = testPatientIds;
+	}
+
 	public Integer getId() {
 		return patient.getPatientId();
 	}
@@ -274,7 +283,15 @@ public class PatientDomainWrapper {
 		return null;
 	}
 
+	/**
+	 * Checks the patient's attributes if they are loaded, or else the ids in {@link TestPatientIds} once they
+	 * are, so that deciding about a patient of a list doesn't load its attributes
+	 */
 	public boolean isTestPatient() {
+		if (patient != null && patient.getPatientId() != null && !Hibernate.isInitialized(patient.getAttributes())
+		        && testPatientIds != null && testPatientIds.isReady()) {
+			return testPatientIds.contains(patient.getPatientId());
+		}
 		boolean testPatient = false;
 		PersonAttributeType testPatientPersonAttributeType = emrApiProperties.getTestPatientPersonAttributeType();
 		if (patient != null) {
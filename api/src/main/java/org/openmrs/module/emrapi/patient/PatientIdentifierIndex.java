@@ -0,0 +1,500 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.patient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PatientIdentifierType;
+import org.openmrs.module.emrapi.EmrApiProperties;
+
+/**
+ * An optional in memory index of the identifiers of the types we search on, used to resolve exact
+ * identifier matches (e.g. scanning a wristband or id card) without querying the database.
+ * <p/>
+ * For each identifier type the normalized identifiers are held in a sorted array alongside the ids of
+ * the patients that have them, which takes little more memory than the identifiers themselves, and
+ * the patients reindexed since in a small overlay map (see {@link TypeIndex}). Lookups never lock,
+ * updates are serialized.
+ * <p/>
+ * The index is empty (and lookups return null so callers fall back to the database) until
+ * {@link #rebuild()} has run, see {@link PatientIdentifierIndexEventListener} for how it is kept up
+ * to date. Patients reindexed while a rebuild is running are remembered and applied again once it
+ * has finished, as the rows it loaded may predate their changes.
+ */
+public class PatientIdentifierIndex {
+
+	private static final int[] NO_PATIENT_IDS = new int[0];
+
+	protected final Log log = LogFactory.getLog(getClass());
+
+	private EmrPatientDAO dao;
+
+	private EmrApiProperties emrApiProperties;
+
+	/**
+	 * Guards the updates of the index and {@link #changedDuringRebuild}
+	 */
+	private final Object lock = new Object();
+
+	/**
+	 * Only one rebuild runs at a time
+	 */
+	private final Object rebuildLock = new Object();
+
+	/**
+	 * Identifier type id -> index, null until the index is built
+	 */
+	private volatile Map<Integer, TypeIndex> indexesByType;
+
+	/**
+	 * Patient id -> identifiers by type id of the patients reindexed during the running rebuild, null
+	 * when no rebuild is running
+	 */
+	private Map<Integer, Map<Integer, Set<String>>> changedDuringRebuild;
+
+	public void setDao(EmrPatientDAO dao) {
+		this.dao = dao;
+	}
+
+	public void setEmrApiProperties(EmrApiProperties emrApiProperties) {
+		this.emrApiProperties = emrApiProperties;
+	}
+
+	public boolean isEnabled() {
+		return emrApiProperties.isPatientIdentifierIndexEnabled();
+	}
+
+	public boolean isReady() {
+		return indexesByType != null;
+	}
+
+	/**
+	 * (Re)loads the identifiers of all the types we search on from the database
+	 */
+	public void rebuild() {
+		synchronized (rebuildLock) {
+			long start = System.currentTimeMillis();
+			synchronized (lock) {
+				changedDuringRebuild = new LinkedHashMap<Integer, Map<Integer, Set<String>>>();
+			}
+			try {
+				Map<Integer, TypeIndex> indexes = new HashMap<Integer, TypeIndex>();
+				int entries = 0;
+				for (PatientIdentifierType type : emrApiProperties.getIdentifierTypesToSearch()) {
+					TypeIndex index = TypeIndex.build(dao.getActiveIdentifiers(type));
+					indexes.put(type.getId(), index);
+					entries += index.size();
+				}
+				synchronized (lock) {
+					for (Map.Entry<Integer, Map<Integer, Set<String>>> changed : changedDuringRebuild.entrySet()) {
+						setIdentifiers(indexes, changed.getKey(), changed.getValue());
+					}
+					indexesByType = indexes;
+				}
+				log.info("Built patient identifier index of " + entries + " identifiers in "
+				        + (System.currentTimeMillis() - start) + "ms");
+			}
+			finally {
+				synchronized (lock) {
+					changedDuringRebuild = null;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Drops the index, lookups fall back to the database until it is rebuilt
+	 */
+	public void clear() {
+		synchronized (lock) {
+			indexesByType = null;
+		}
+	}
+
+	/**
+	 * Replaces the entries of the specified patient with its current identifiers, or just removes
+	 * them if the patient is voided
+	 */
+	public void reindexPatient(Patient patient) {
+		if (patient == null || patient.getPatientId() == null) {
+			return;
+		}
+		Map<Integer, Set<String>> identifiersByType = new HashMap<Integer, Set<String>>();
+		if (!patient.isVoided()) {
+			for (PatientIdentifier identifier : patient.getActiveIdentifiers()) {
+				if (identifier.getIdentifierType() != null && identifier.getIdentifier() != null) {
+					Set<String> identifiers = identifiersByType.get(identifier.getIdentifierType().getId());
+					if (identifiers == null) {
+						identifiers = new HashSet<String>();
+						identifiersByType.put(identifier.getIdentifierType().getId(), identifiers);
+					}
+					identifiers.add(normalize(identifier.getIdentifier()));
+				}
+			}
+		}
+		update(patient.getPatientId(), identifiersByType);
+	}
+
+	/**
+	 * Removes all the entries of the specified patient, e.g. once it has been purged
+	 */
+	public void removePatient(Integer patientId) {
+		if (patientId != null) {
+			update(patientId, Collections.<Integer, Set<String>> emptyMap());
+		}
+	}
+
+	private void update(Integer patientId, Map<Integer, Set<String>> identifiersByType) {
+		synchronized (lock) {
+			if (changedDuringRebuild != null) {
+				changedDuringRebuild.remove(patientId);
+				changedDuringRebuild.put(patientId, identifiersByType);
+			}
+			if (indexesByType != null) {
+				setIdentifiers(indexesByType, patientId, identifiersByType);
+			}
+		}
+	}
+
+	private static void setIdentifiers(Map<Integer, TypeIndex> indexes, Integer patientId,
+	        Map<Integer, Set<String>> identifiersByType) {
+		for (Map.Entry<Integer, TypeIndex> entry : indexes.entrySet()) {
+			Set<String> identifiers = identifiersByType.get(entry.getKey());
+			entry.getValue().setIdentifiers(patientId,
+			    identifiers == null ? Collections.<String> emptySet() : identifiers);
+		}
+	}
+
+	/**
+	 * Finds the patients that have exactly the specified identifier, ignoring case and surrounding
+	 * whitespace, of any of the specified types
+	 *
+	 * @return the ids of the matching patients in ascending order, or null if the index can't answer
+	 *         because it is not built or one of the types is not indexed
+	 * @should find patients by exact identifier ignoring case and whitespace
+	 * @should return an empty list if no identifier matches
+	 * @should return null if a type is not indexed
+	 */
+	public List<Integer> getPatientIds(String identifier, Collection<PatientIdentifierType> types) {
+		Map<Integer, TypeIndex> indexes = indexesByType;
+		if (indexes == null || StringUtils.isBlank(identifier)) {
+			return null;
+		}
+		String key = normalize(identifier);
+		TreeSet<Integer> patientIds = new TreeSet<Integer>();
+		for (PatientIdentifierType type : types) {
+			TypeIndex index = indexes.get(type.getId());
+			if (index == null) {
+				return null;
+			}
+			for (int patientId : index.getPatientIds(key)) {
+				patientIds.add(patientId);
+			}
+		}
+		return new ArrayList<Integer>(patientIds);
+	}
+
+	static String normalize(String identifier) {
+		return identifier.trim().toUpperCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * The identifiers of one type, as a snapshot of the identifiers in the database in sorted arrays plus
+	 * an overlay of the patients reindexed since. The overlay is merged into a new snapshot once it has
+	 * grown past an eighth of it, and dropped when the index is rebuilt.
+	 */
+	static class TypeIndex {
+
+		private static final int MIN_OVERLAY_TO_MERGE = 1024;
+
+		private volatile Snapshot snapshot;
+
+		private TypeIndex(Snapshot snapshot) {
+			this.snapshot = snapshot;
+		}
+
+		/**
+		 * @param rows [identifier, patientId] rows
+		 */
+		static TypeIndex build(List<Object[]> rows) {
+			List<Entry> entries = new ArrayList<Entry>(rows.size());
+			for (Object[] row : rows) {
+				if (row[0] != null && row[1] != null) {
+					entries.add(new Entry(normalize((String) row[0]), (Integer) row[1]));
+				}
+			}
+			return new TypeIndex(Snapshot.build(entries));
+		}
+
+		int size() {
+			Snapshot current = snapshot;
+			int size = 0;
+			for (int i = 0; i < current.identifiers.length; i++) {
+				if (!current.changedPatients.containsKey(current.patientIds[i])) {
+					size++;
+				}
+			}
+			for (String[] identifiers : current.changedPatients.values()) {
+				size += identifiers.length;
+			}
+			return size;
+		}
+
+		/**
+		 * Replaces the identifiers of the patient in the overlay. A patient is added to the overlay entries
+		 * of its identifiers before the overlay hides its snapshot entries, and only then removed from the
+		 * ones it no longer has, so lookups of the identifiers it keeps never miss it. Callers must
+		 * serialize updates.
+		 */
+		void setIdentifiers(Integer patientId, Set<String> identifiers) {
+			Snapshot current = snapshot;
+			Set<String> removed = new HashSet<String>(Arrays.asList(current.getIdentifiers(patientId)));
+			if (removed.equals(identifiers)) {
+				return;
+			}
+			for (String identifier : identifiers) {
+				removed.remove(identifier);
+				int[] patientIds = current.addedPatientIds.get(identifier);
+				if (patientIds == null) {
+					current.addedPatientIds.put(identifier, new int[] { patientId });
+				} else if (Arrays.binarySearch(patientIds, patientId) < 0) {
+					int[] updated = Arrays.copyOf(patientIds, patientIds.length + 1);
+					updated[patientIds.length] = patientId;
+					Arrays.sort(updated);
+					current.addedPatientIds.put(identifier, updated);
+				}
+			}
+			current.changedPatients.put(patientId, identifiers.toArray(new String[identifiers.size()]));
+			for (String identifier : removed) {
+				int[] patientIds = current.addedPatientIds.get(identifier);
+				if (patientIds != null && Arrays.binarySearch(patientIds, patientId) >= 0) {
+					if (patientIds.length == 1) {
+						current.addedPatientIds.remove(identifier);
+					} else {
+						int[] updated = new int[patientIds.length - 1];
+						int i = 0;
+						for (int id : patientIds) {
+							if (id != patientId) {
+								updated[i++] = id;
+							}
+						}
+						current.addedPatientIds.put(identifier, updated);
+					}
+				}
+			}
+			if (current.changedPatients.size() > Math.max(MIN_OVERLAY_TO_MERGE, current.identifiers.length / 8)) {
+				snapshot = current.merge();
+			}
+		}
+
+		/**
+		 * @return the ids of the patients that have the identifier, in ascending order
+		 */
+		int[] getPatientIds(String identifier) {
+			Snapshot current = snapshot;
+			int[] added = current.addedPatientIds.get(identifier);
+			int from = current.firstIndexOf(identifier);
+			if (from < 0 && added == null) {
+				return NO_PATIENT_IDS;
+			}
+			TreeSet<Integer> patientIds = new TreeSet<Integer>();
+			if (from >= 0) {
+				for (int i = from; i < current.identifiers.length && current.identifiers[i].equals(identifier); i++) {
+					if (!current.changedPatients.containsKey(current.patientIds[i])) {
+						patientIds.add(current.patientIds[i]);
+					}
+				}
+			}
+			if (added != null) {
+				for (int patientId : added) {
+					patientIds.add(patientId);
+				}
+			}
+			int[] result = new int[patientIds.size()];
+			int i = 0;
+			for (Integer patientId : patientIds) {
+				result[i++] = patientId;
+			}
+			return result;
+		}
+	}
+
+	/**
+	 * The identifiers of a type sorted along with the ids of their patients, an identifier appearing once
+	 * per patient that has it, and the overlay of the patients reindexed since. The arrays are never
+	 * modified, only the overlay maps are, and their values are replaced rather than modified.
+	 */
+	private static class Snapshot {
+
+		private final String[] identifiers;
+
+		private final int[] patientIds;
+
+		/**
+		 * The indexes of the entries ordered by patient id
+		 */
+		private final int[] entriesByPatient;
+
+		/**
+		 * Patient id -> current identifiers of the patients reindexed since the snapshot was built, which
+		 * replace their entries in the arrays
+		 */
+		private final ConcurrentMap<Integer, String[]> changedPatients = new ConcurrentHashMap<Integer, String[]>();
+
+		/**
+		 * Identifier -> the ids of the reindexed patients that have it, in ascending order
+		 */
+		private final ConcurrentMap<String, int[]> addedPatientIds = new ConcurrentHashMap<String, int[]>();
+
+		private Snapshot(String[] identifiers, int[] patientIds, int[] entriesByPatient) {
+			this.identifiers = identifiers;
+			this.patientIds = patientIds;
+			this.entriesByPatient = entriesByPatient;
+		}
+
+		static Snapshot build(List<Entry> entries) {
+			Collections.sort(entries, new Comparator<Entry>() {
+
+				@Override
+				public int compare(Entry a, Entry b) {
+					int result = a.identifier.compareTo(b.identifier);
+					return result != 0 ? result : compareInts(a.patientId, b.patientId);
+				}
+			});
+			List<Entry> distinct = new ArrayList<Entry>(entries.size());
+			for (Entry entry : entries) {
+				Entry last = distinct.isEmpty() ? null : distinct.get(distinct.size() - 1);
+				if (last == null || !last.identifier.equals(entry.identifier) || last.patientId != entry.patientId) {
+					distinct.add(entry);
+				}
+			}
+			final String[] identifiers = new String[distinct.size()];
+			final int[] patientIds = new int[distinct.size()];
+			Integer[] byPatient = new Integer[distinct.size()];
+			for (int i = 0; i < identifiers.length; i++) {
+				identifiers[i] = distinct.get(i).identifier;
+				patientIds[i] = distinct.get(i).patientId;
+				byPatient[i] = i;
+			}
+			Arrays.sort(byPatient, new Comparator<Integer>() {
+
+				@Override
+				public int compare(Integer a, Integer b) {
+					int result = compareInts(patientIds[a], patientIds[b]);
+					return result != 0 ? result : compareInts(a, b);
+				}
+			});
+			int[] entriesByPatient = new int[byPatient.length];
+			for (int i = 0; i < byPatient.length; i++) {
+				entriesByPatient[i] = byPatient[i];
+			}
+			return new Snapshot(identifiers, patientIds, entriesByPatient);
+		}
+
+		/**
+		 * @return the index of the first entry of the identifier, or -1 if there is none
+		 */
+		int firstIndexOf(String identifier) {
+			int low = 0;
+			int high = identifiers.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (identifiers[middle].compareTo(identifier) < 0) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			return low < identifiers.length && identifiers[low].equals(identifier) ? low : -1;
+		}
+
+		/**
+		 * @return the current identifiers of the patient
+		 */
+		String[] getIdentifiers(int patientId) {
+			String[] changed = changedPatients.get(patientId);
+			if (changed != null) {
+				return changed;
+			}
+			int low = 0;
+			int high = entriesByPatient.length;
+			while (low < high) {
+				int middle = (low + high) >>> 1;
+				if (patientIds[entriesByPatient[middle]] < patientId) {
+					low = middle + 1;
+				} else {
+					high = middle;
+				}
+			}
+			List<String> result = new ArrayList<String>(2);
+			for (int i = low; i < entriesByPatient.length && patientIds[entriesByPatient[i]] == patientId; i++) {
+				result.add(identifiers[entriesByPatient[i]]);
+			}
+			return result.toArray(new String[result.size()]);
+		}
+
+		/**
+		 * @return a snapshot of the current identifiers, with an empty overlay
+		 */
+		Snapshot merge() {
+			List<Entry> entries = new ArrayList<Entry>(identifiers.length);
+			for (int i = 0; i < identifiers.length; i++) {
+				if (!changedPatients.containsKey(patientIds[i])) {
+					entries.add(new Entry(identifiers[i], patientIds[i]));
+				}
+			}
+			for (Map.Entry<Integer, String[]> changed : changedPatients.entrySet()) {
+				for (String identifier : changed.getValue()) {
+					entries.add(new Entry(identifier, changed.getKey()));
+				}
+			}
+			return build(entries);
+		}
+
+		private static int compareInts(int a, int b) {
+			return a < b ? -1 : (a == b ? 0 : 1);
+		}
+	}
+
+	private static class Entry {
+
+		private final String identifier;
+
+		private final int patientId;
+
+		Entry(String identifier, int patientId) {
+			this.identifier = identifier;
+			this.patientId = patientId;
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.patient;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.event.Event;
+import org.openmrs.event.EventListener;
+import org.openmrs.module.DaemonToken;
+
+/**
+ * Keeps the {@link PatientIdentifierIndex} up to date by reindexing a patient whenever it or one of
+ * its identifiers is saved, voided or unvoided. Events that arrive while the index is being built are
+ * passed on too, the index replays them once the build has finished.
+ * <p/>
+ * Purge events only carry the uuid of an object that no longer exists, so there is no way to tell
+ * which patient they were about; they trigger a rebuild of the whole index instead, which is fine as
+ * purging patients or identifiers is a rare administrative operation.
+ */
+public class PatientIdentifierIndexEventListener implements EventListener {
+
+	private static final Event.Action[] ACTIONS = { Event.Action.CREATED, Event.Action.UPDATED, Event.Action.VOIDED,
+	        Event.Action.UNVOIDED, Event.Action.PURGED };
+
+	protected final Log log = LogFactory.getLog(getClass());
+
+	private PatientIdentifierIndex index;
+
+	private DaemonToken daemonToken;
+
+	private final AtomicBoolean rebuildPending = new AtomicBoolean(false);
+
+	public PatientIdentifierIndexEventListener(PatientIdentifierIndex index, DaemonToken daemonToken) {
+		this.index = index;
+		this.daemonToken = daemonToken;
+	}
+
+	public void subscribe() {
+		for (Event.Action action : ACTIONS) {
+			Event.subscribe(Patient.class, action.name(), this);
+			Event.subscribe(PatientIdentifier.class, action.name(), this);
+		}
+	}
+
+	public void unsubscribe() {
+		for (Event.Action action : ACTIONS) {
+			Event.unsubscribe(Patient.class, action, this);
+			Event.unsubscribe(PatientIdentifier.class, action, this);
+		}
+	}
+
+	/**
+	 * @see EventListener#onMessage(javax.jms.Message)
+	 */
+	@Override
+	public void onMessage(Message message) {
+		final String classname;
+		final String uuid;
+		final String action;
+		try {
+			MapMessage mapMessage = (MapMessage) message;
+			classname = mapMessage.getString("classname");
+			uuid = mapMessage.getString("uuid");
+			action = mapMessage.getString("action");
+		}
+		catch (JMSException e) {
+			log.error("Failed to read the patient event", e);
+			return;
+		}
+
+		if (Event.Action.PURGED.name().equals(action)) {
+			requestRebuild();
+			return;
+		}
+		Daemon.runInDaemonThread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					index.reindexPatient(getPatient(classname, uuid));
+				}
+				catch (Exception e) {
+					log.error("Failed to update the patient identifier index", e);
+				}
+			}
+		}, daemonToken);
+	}
+
+	/**
+	 * Rebuilds the index in the background, purges that arrive before a requested rebuild has started
+	 * are handled by that same rebuild
+	 */
+	private void requestRebuild() {
+		if (!index.isEnabled() || !rebuildPending.compareAndSet(false, true)) {
+			return;
+		}
+		Daemon.runInDaemonThread(new Runnable() {
+
+			@Override
+			public void run() {
+				rebuildPending.set(false);
+				try {
+					index.rebuild();
+				}
+				catch (Exception e) {
+					log.error("Failed to rebuild the patient identifier index", e);
+				}
+			}
+		}, daemonToken);
+	}
+
+	private Patient getPatient(String classname, String uuid) {
+		if (PatientIdentifier.class.getName().equals(classname)) {
+			PatientIdentifier identifier = Context.getPatientService().getPatientIdentifierByUuid(uuid);
+			return identifier == null ? null : identifier.getPatient();
+		}
+		return Context.getPatientService().getPatientByUuid(uuid);
+	}
+}
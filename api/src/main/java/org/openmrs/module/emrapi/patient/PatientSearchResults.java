@@ -0,0 +1,47 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.patient;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A page of results of {@link EmrPatientService#searchPatients(String, org.openmrs.Location, Integer, int)}
+ */
+public class PatientSearchResults {
+	
+	private final List<PatientSummary> patients;
+	
+	private final Integer nextCursor;
+	
+	public PatientSearchResults(List<PatientSummary> patients, Integer nextCursor) {
+		this.patients = Collections.unmodifiableList(patients);
+		this.nextCursor = nextCursor;
+	}
+	
+	public List<PatientSummary> getPatients() {
+		return patients;
+	}
+	
+	/**
+	 * @return the cursor to pass to fetch the next page, or null if this is the last page
+	 */
+	public Integer getNextCursor() {
+		return nextCursor;
+	}
+	
+	public boolean hasMore() {
+		return nextCursor != null;
+	}
+}
@@ -0,0 +1,110 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.patient;
+
+import java.util.Date;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * A lightweight, read-only view of a patient with just what is needed to list it (name, primary
+ * identifier, gender, birthdate and ids), loaded through a projection query instead of hydrating a {@link org.openmrs.Patient}
+ */
+public class PatientSummary {
+
+	private final Integer patientId;
+
+	private final String uuid;
+
+	private final String givenName;
+
+	private final String middleName;
+
+	private final String familyName;
+
+	private final String primaryIdentifier;
+
+	private final String gender;
+
+	private final Date birthdate;
+
+	public PatientSummary(Integer patientId, String uuid, String gender, Date birthdate, String givenName,
+	    String middleName, String familyName, String primaryIdentifier) {
+		this.patientId = patientId;
+		this.uuid = uuid;
+		this.gender = gender;
+		this.birthdate = birthdate;
+		this.givenName = givenName;
+		this.middleName = middleName;
+		this.familyName = familyName;
+		this.primaryIdentifier = primaryIdentifier;
+	}
+
+	public Integer getPatientId() {
+		return patientId;
+	}
+
+	public String getUuid() {
+		return uuid;
+	}
+
+	public String getGender() {
+		return gender;
+	}
+
+	public Date getBirthdate() {
+		return birthdate;
+	}
+
+	public String getGivenName() {
+		return givenName;
+	}
+
+	public String getMiddleName() {
+		return middleName;
+	}
+
+	public String getFamilyName() {
+		return familyName;
+	}
+
+	/**
+	 * @return the preferred identifier of the configured primary identifier type, or null if the
+	 *         patient doesn't have one
+	 */
+	public String getPrimaryIdentifier() {
+		return primaryIdentifier;
+	}
+
+	/**
+	 * @return the given, middle and family names separated by spaces, skipping the blank ones
+	 */
+	public String getFullName() {
+		StringBuilder sb = new StringBuilder();
+		for (String name : new String[] { givenName, middleName, familyName }) {
+			if (StringUtils.isNotBlank(name)) {
+				if (sb.length() > 0) {
+					sb.append(" ");
+				}
+				sb.append(name);
+			}
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return "PatientSummary[" + patientId + " " + primaryIdentifier + " " + getFullName() + "]";
+	}
+}
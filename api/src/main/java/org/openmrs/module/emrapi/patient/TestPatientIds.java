@@ -0,0 +1,193 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.patient;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Person;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonAttributeType;
+import org.openmrs.module.emrapi.EmrApiProperties;
+import org.openmrs.module.emrapi.utils.CompressedIntSet;
+
+/**
+ * The ids of all the test patients, held in memory so that lists of visits or patients that are
+ * already loaded can leave test patients out without loading each patient's attributes (see
+ * {@link PatientDomainWrapper#isTestPatient()}). Queries should rather exclude them in the database.
+ * <p/>
+ * The set is empty and {@link #isReady()} is false until {@link #rebuild()} has run, see
+ * {@link TestPatientIdsEventListener} for how it is kept up to date. Persons updated while a rebuild
+ * is running are remembered and applied again once it has finished, as the ids it loaded may predate
+ * their changes.
+ */
+public class TestPatientIds {
+
+	protected final Log log = LogFactory.getLog(getClass());
+
+	private EmrPatientDAO dao;
+
+	private EmrApiProperties emrApiProperties;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private CompressedIntSet patientIds;
+
+	/**
+	 * Person id -> whether it is a test patient, for the persons updated during the running rebuild, null
+	 * when no rebuild is running
+	 */
+	private Map<Integer, Boolean> changedDuringRebuild;
+
+	/**
+	 * Only one rebuild runs at a time
+	 */
+	private final Object rebuildLock = new Object();
+
+	public void setDao(EmrPatientDAO dao) {
+		this.dao = dao;
+	}
+
+	public void setEmrApiProperties(EmrApiProperties emrApiProperties) {
+		this.emrApiProperties = emrApiProperties;
+	}
+
+	public boolean isReady() {
+		lock.readLock().lock();
+		try {
+			return patientIds != null;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * (Re)loads the ids of the test patients from the database
+	 */
+	public void rebuild() {
+		synchronized (rebuildLock) {
+			long start = System.currentTimeMillis();
+			lock.writeLock().lock();
+			try {
+				changedDuringRebuild = new LinkedHashMap<Integer, Boolean>();
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+			try {
+				CompressedIntSet ids = new CompressedIntSet();
+				for (Integer personId : dao.getPersonIdsWithTrueAttribute(emrApiProperties
+				        .getTestPatientPersonAttributeType())) {
+					ids.add(personId);
+				}
+				lock.writeLock().lock();
+				try {
+					for (Map.Entry<Integer, Boolean> changed : changedDuringRebuild.entrySet()) {
+						set(ids, changed.getKey(), changed.getValue());
+					}
+					patientIds = ids;
+				}
+				finally {
+					lock.writeLock().unlock();
+				}
+				log.info("Loaded " + ids.size() + " test patient ids in " + (System.currentTimeMillis() - start) + "ms");
+			}
+			finally {
+				lock.writeLock().lock();
+				try {
+					changedDuringRebuild = null;
+				}
+				finally {
+					lock.writeLock().unlock();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Forgets all the ids, {@link #isReady()} is false until the next {@link #rebuild()}
+	 */
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			patientIds = null;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds or removes the person depending on its current test patient attribute
+	 */
+	public void update(Person person) {
+		if (person == null || person.getPersonId() == null) {
+			return;
+		}
+		boolean testPatient = false;
+		if (!person.isVoided()) {
+			PersonAttribute attribute = person.getAttribute(emrApiProperties.getTestPatientPersonAttributeType());
+			testPatient = attribute != null && "true".equals(attribute.getValue());
+		}
+		lock.writeLock().lock();
+		try {
+			if (changedDuringRebuild != null) {
+				changedDuringRebuild.remove(person.getPersonId());
+				changedDuringRebuild.put(person.getPersonId(), testPatient);
+			}
+			if (patientIds != null) {
+				set(patientIds, person.getPersonId(), testPatient);
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static void set(CompressedIntSet ids, Integer personId, boolean testPatient) {
+		if (testPatient) {
+			ids.add(personId);
+		} else {
+			ids.remove(personId);
+		}
+	}
+
+	/**
+	 * @return true if the patient is a test patient, false if it isn't or if the set is not ready
+	 */
+	public boolean contains(Integer patientId) {
+		if (patientId == null) {
+			return false;
+		}
+		lock.readLock().lock();
+		try {
+			return patientIds != null && patientIds.contains(patientId);
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return whether attributes of this type decide who is a test patient
+	 */
+	public boolean isTestPatientAttributeType(PersonAttributeType attributeType) {
+		return attributeType != null && attributeType.equals(emrApiProperties.getTestPatientPersonAttributeType());
+	}
+}
@@ -0,0 +1,114 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.patient;
+
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.Patient;
+import org.openmrs.Person;
+import org.openmrs.PersonAttribute;
+import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.event.Event;
+import org.openmrs.event.EventListener;
+import org.openmrs.module.DaemonToken;
+
+/**
+ * Keeps {@link TestPatientIds} up to date by checking a person again whenever one of its attributes,
+ * or the person itself, is saved, voided or unvoided. Events that arrive while the ids are being
+ * loaded are passed on too, {@link TestPatientIds} applies them again once loading has finished.
+ */
+public class TestPatientIdsEventListener implements EventListener {
+
+	private static final Event.Action[] ACTIONS = { Event.Action.CREATED, Event.Action.UPDATED, Event.Action.VOIDED,
+	        Event.Action.UNVOIDED };
+
+	private static final Class<?>[] CLASSES = { PersonAttribute.class, Person.class, Patient.class };
+
+	protected final Log log = LogFactory.getLog(getClass());
+
+	private TestPatientIds testPatientIds;
+
+	private DaemonToken daemonToken;
+
+	public TestPatientIdsEventListener(TestPatientIds testPatientIds, DaemonToken daemonToken) {
+		this.testPatientIds = testPatientIds;
+		this.daemonToken = daemonToken;
+	}
+
+	public void subscribe() {
+		for (Event.Action action : ACTIONS) {
+			for (Class<?> clazz : CLASSES) {
+				Event.subscribe(clazz, action.name(), this);
+			}
+		}
+	}
+
+	public void unsubscribe() {
+		for (Event.Action action : ACTIONS) {
+			for (Class<?> clazz : CLASSES) {
+				Event.unsubscribe(clazz, action, this);
+			}
+		}
+	}
+
+	/**
+	 * @see EventListener#onMessage(javax.jms.Message)
+	 */
+	@Override
+	public void onMessage(Message message) {
+		final String classname;
+		final String uuid;
+		try {
+			MapMessage mapMessage = (MapMessage) message;
+			classname = mapMessage.getString("classname");
+			uuid = mapMessage.getString("uuid");
+		}
+		catch (JMSException e) {
+			log.error("Failed to read the person event", e);
+			return;
+		}
+
+		Daemon.runInDaemonThread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					Person person = getPerson(classname, uuid);
+					if (person != null) {
+						testPatientIds.update(person);
+					}
+				}
+				catch (Exception e) {
+					log.error("Failed to update the test patient ids", e);
+				}
+			}
+		}, daemonToken);
+	}
+
+	private Person getPerson(String classname, String uuid) {
+		if (PersonAttribute.class.getName().equals(classname)) {
+			PersonAttribute attribute = Context.getPersonService().getPersonAttributeByUuid(uuid);
+			if (attribute == null || !testPatientIds.isTestPatientAttributeType(attribute.getAttributeType())) {
+				return null;
+			}
+			return attribute.getPerson();
+		}
+		return Context.getPersonService().getPersonByUuid(uuid);
+	}
+}
@@ -19,12 +19,12 @@ import org.apache.commons.logging.LogFactory;
 import org.openmrs.Person;
 import org.openmrs.api.APIException;
 import org.openmrs.api.impl.BaseOpenmrsService;
-import org.openmrs.module.emrapi.EmrApiProperties;
 
 import javax.imageio.ImageIO;
 import javax.xml.bind.DatatypeConverter;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 
 public class EmrPersonImageServiceImpl extends BaseOpenmrsService implements EmrPersonImageService {
@@ -33,7 +33,7 @@ public class EmrPersonImageServiceImpl extends BaseOpenmrsService implements Emr
 
     private static final String imageFormat = "jpeg";
 
-    private EmrApiProperties emrApiProperties;
+    private PersonImageStore personImageStore;
 
     @Override
     public PersonImage savePersonImage(PersonImage personImage) {
@@ -43,13 +43,15 @@ public class EmrPersonImageServiceImpl extends BaseOpenmrsService implements Emr
         if (base64EncodedImage == null || base64EncodedImage.isEmpty()) return personImage;
 
         try {
-            File imageFile = new File(String.format("%s/%s.%s", emrApiProperties.getPersonImageDirectory().getAbsolutePath(), person.getUuid(), imageFormat));
-
             byte[] decodedBytes = DatatypeConverter.parseBase64Binary(base64EncodedImage);
             BufferedImage bufferedImage = ImageIO.read(new ByteArrayInputStream(decodedBytes));
-            ImageIO.write(bufferedImage, imageFormat, imageFile);
+            ByteArrayOutputStream encodedImage = new ByteArrayOutputStream();
+            ImageIO.write(bufferedImage, imageFormat, encodedImage);
             bufferedImage.flush();
 
+            personImageStore.save(person.getUuid(), encodedImage.toByteArray());
+            File imageFile = personImageStore.getImageFile(person.getUuid());
+
             personImage.setSavedImage(imageFile);
             log.info("Successfully created patient image at " + imageFile);
 
@@ -62,12 +64,11 @@ public class EmrPersonImageServiceImpl extends BaseOpenmrsService implements Emr
 
     @Override
     public PersonImage getCurrentPersonImage(Person person) {
-        File file = new File(String.format("%s/%s.%s", emrApiProperties.getPersonImageDirectory().getAbsolutePath(), person.getUuid(), imageFormat));
-        return new PersonImage(person, file);
+        return new PersonImage(person, personImageStore.getImageFile(person.getUuid()));
     }
 
-    public void setEmrApiProperties(EmrApiProperties emrApiProperties) {
-        this.emrApiProperties = emrApiProperties;
+    public void setPersonImageStore(PersonImageStore personImageStore) {
+        this.personImageStore = personImageStore;
     }
 
 }
@@ -0,0 +1,151 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.person.image;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+
+/**
+ * Moves person images from the old, flat layout (<code>&lt;uuid&gt;.jpeg</code> directly in one
+ * directory) into a {@link PersonImageStore}.
+ * <p/>
+ * Each image is stored and then deleted from the old directory, so a migration that is stopped or
+ * interrupted picks up where it left off the next time it runs. An image the person already has in the
+ * store is newer than the old one, which is then just deleted. To avoid competing with the server for the
+ * disk, images are moved in batches of {@link #setBatchSize(int) batchSize} with a
+ * {@link #setPauseBetweenBatches(long) pause} in between.
+ */
+public class PersonImageMigrator {
+
+    protected final Log log = LogFactory.getLog(getClass());
+
+    private final File legacyDirectory;
+
+    private final PersonImageStore store;
+
+    private int batchSize = 100;
+
+    private long pauseBetweenBatches = 1000;
+
+    private volatile boolean stopped;
+
+    public PersonImageMigrator(File legacyDirectory, PersonImageStore store) {
+        this.legacyDirectory = legacyDirectory;
+        this.store = store;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param pauseBetweenBatches in milliseconds
+     */
+    public void setPauseBetweenBatches(long pauseBetweenBatches) {
+        this.pauseBetweenBatches = pauseBetweenBatches;
+    }
+
+    /**
+     * Makes {@link #migrate()} return after the image it is moving
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return whether there are images left in the old layout
+     */
+    public boolean hasImagesToMigrate() {
+        String[] names = listLegacyImages();
+        return names != null && names.length > 0;
+    }
+
+    /**
+     * Moves the images until there are none left in the old layout, or until {@link #stop()} is called.
+     * Images that cannot be moved are logged and left where they are.
+     *
+     * @return the number of images moved
+     */
+    public int migrate() {
+        String[] names = listLegacyImages();
+        if (names == null || names.length == 0) {
+            return 0;
+        }
+        log.info("Moving " + names.length + " person images from " + legacyDirectory + " to " + store);
+
+        int moved = 0;
+        int failed = 0;
+        for (int i = 0; i < names.length && !stopped; i++) {
+            if (i > 0 && i % batchSize == 0 && !pause()) {
+                break;
+            }
+            if (move(names[i])) {
+                moved++;
+            } else {
+                failed++;
+            }
+        }
+
+        log.info("Moved " + moved + " person images, " + failed + " could not be moved"
+                + (stopped ? ", stopped before the end" : ""));
+        return moved;
+    }
+
+    private boolean move(String name) {
+        File legacyFile = new File(legacyDirectory, name);
+        String personUuid = name.substring(0, name.length() - ShardedPersonImageStore.IMAGE_EXTENSION.length());
+        try {
+            if (!legacyFile.exists()) {
+                // deleted since it was listed
+                return true;
+            }
+            store.saveIfAbsent(personUuid, FileUtils.readFileToByteArray(legacyFile));
+            if (!legacyFile.delete()) {
+                throw new IOException("Could not delete " + legacyFile);
+            }
+            return true;
+        }
+        catch (IOException e) {
+            log.warn("Could not move person image " + legacyFile, e);
+            return false;
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(pauseBetweenBatches);
+            return true;
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private String[] listLegacyImages() {
+        return legacyDirectory.list(new FilenameFilter() {
+
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.endsWith(ShardedPersonImageStore.IMAGE_EXTENSION);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,56 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.person.image;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Where person images are kept, see {@link ShardedPersonImageStore} for the default one. Images are
+ * identified by the uuid of their person.
+ */
+public interface PersonImageStore {
+
+    /**
+     * Stores the image, replacing any image the person had. Readers see either the old image or the whole
+     * new one, never a partly written one.
+     *
+     * @param personUuid
+     * @param image the encoded image
+     * @throws IOException if it could not be stored, in which case the old image is kept
+     */
+    void save(String personUuid, byte[] image) throws IOException;
+
+    /**
+     * Stores the image unless the person already has one
+     *
+     * @return whether the image was stored
+     * @throws IOException if it could not be stored
+     */
+    boolean saveIfAbsent(String personUuid, byte[] image) throws IOException;
+
+    /**
+     * @param personUuid
+     * @return a file on the local disk with the person's image, which does not exist if the person has no
+     *         image. Stores that keep images elsewhere should return a local copy.
+     */
+    File getImageFile(String personUuid);
+
+    /**
+     * @param personUuid
+     * @return whether the person had an image
+     */
+    boolean delete(String personUuid);
+
+}
@@ -0,0 +1,214 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.person.image;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.module.emrapi.EmrApiProperties;
+
+import javax.xml.bind.DatatypeConverter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Keeps each image in the person image directory as <code>ab/cd/&lt;uuid&gt;.jpeg</code>, where
+ * <code>abcd</code> are the first hex digits of the SHA-1 of the person's uuid. Spreading the images over
+ * 65536 directories keeps each directory small, which a single directory with an image per patient is
+ * not (lookups and backups get slow on ext4 and NFS).
+ * <p/>
+ * An image is written to a temporary file in its directory, synced to disk and then renamed over the
+ * old image, so that a crash or a failed write never leaves a truncated image. If
+ * {@link #setStoreContentHash(boolean) storeContentHash} is set, the SHA-256 of each image is kept next
+ * to it in <code>&lt;uuid&gt;.sha256</code>: saving the same image again does not rewrite it, and
+ * {@link #verify(String)} can check that an image is still intact.
+ * <p/>
+ * Images that are still in the old layout (<code>&lt;uuid&gt;.jpeg</code> directly in the person image
+ * directory) are found until {@link PersonImageMigrator} has moved them.
+ */
+public class ShardedPersonImageStore implements PersonImageStore {
+
+    public static final String IMAGE_EXTENSION = ".jpeg";
+
+    public static final String HASH_EXTENSION = ".sha256";
+
+    private static final int LOCK_STRIPES = 64;
+
+    protected final Log log = LogFactory.getLog(getClass());
+
+    private EmrApiProperties emrApiProperties;
+
+    private boolean storeContentHash;
+
+    // so that saving an image and the migrator moving an old one for the same person don't interleave
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public ShardedPersonImageStore() {
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public void setEmrApiProperties(EmrApiProperties emrApiProperties) {
+        this.emrApiProperties = emrApiProperties;
+    }
+
+    public void setStoreContentHash(boolean storeContentHash) {
+        this.storeContentHash = storeContentHash;
+    }
+
+    @Override
+    public void save(String personUuid, byte[] image) throws IOException {
+        synchronized (lockFor(personUuid)) {
+            write(personUuid, image);
+        }
+    }
+
+    @Override
+    public boolean saveIfAbsent(String personUuid, byte[] image) throws IOException {
+        synchronized (lockFor(personUuid)) {
+            if (getShardedFile(personUuid, IMAGE_EXTENSION).exists()) {
+                return false;
+            }
+            write(personUuid, image);
+            return true;
+        }
+    }
+
+    @Override
+    public File getImageFile(String personUuid) {
+        File file = getShardedFile(personUuid, IMAGE_EXTENSION);
+        if (!file.exists()) {
+            File legacyFile = getLegacyFile(personUuid);
+            if (legacyFile.exists()) {
+                return legacyFile;
+            }
+        }
+        return file;
+    }
+
+    @Override
+    public boolean delete(String personUuid) {
+        synchronized (lockFor(personUuid)) {
+            getShardedFile(personUuid, HASH_EXTENSION).delete();
+            boolean deleted = getShardedFile(personUuid, IMAGE_EXTENSION).delete();
+            return getLegacyFile(personUuid).delete() || deleted;
+        }
+    }
+
+    /**
+     * @param personUuid
+     * @return false if the image does not match the content hash stored with it, true otherwise (including
+     *         when there is no image or no content hash)
+     * @throws IOException if the image could not be read
+     */
+    public boolean verify(String personUuid) throws IOException {
+        File file = getShardedFile(personUuid, IMAGE_EXTENSION);
+        String storedHash = readHash(personUuid);
+        if (!file.exists() || storedHash == null) {
+            return true;
+        }
+        return storedHash.equals(hash("SHA-256", FileUtils.readFileToByteArray(file)));
+    }
+
+    /**
+     * @param personUuid
+     * @return where the image of the person is kept in the old, flat layout
+     */
+    public File getLegacyFile(String personUuid) {
+        return new File(emrApiProperties.getPersonImageDirectory(), personUuid + IMAGE_EXTENSION);
+    }
+
+    @Override
+    public String toString() {
+        return "sharded directories in " + emrApiProperties.getPersonImageDirectory();
+    }
+
+    File getShardedFile(String personUuid, String extension) {
+        String prefix = hash("SHA-1", personUuid.getBytes());
+        File directory = new File(new File(emrApiProperties.getPersonImageDirectory(), prefix.substring(0, 2)),
+                prefix.substring(2, 4));
+        return new File(directory, personUuid + extension);
+    }
+
+    private void write(String personUuid, byte[] image) throws IOException {
+        File file = getShardedFile(personUuid, IMAGE_EXTENSION);
+        String contentHash = null;
+        if (storeContentHash) {
+            contentHash = hash("SHA-256", image);
+            if (file.exists() && contentHash.equals(readHash(personUuid))) {
+                log.debug("Person image " + file + " is unchanged");
+                return;
+            }
+            // an image without its hash is not checked, an image with an old hash would fail the check
+            getShardedFile(personUuid, HASH_EXTENSION).delete();
+        }
+        writeAtomically(file, image);
+        if (contentHash != null) {
+            writeAtomically(getShardedFile(personUuid, HASH_EXTENSION), contentHash.getBytes("UTF-8"));
+        }
+    }
+
+    private String readHash(String personUuid) throws IOException {
+        File hashFile = getShardedFile(personUuid, HASH_EXTENSION);
+        return hashFile.exists() ? FileUtils.readFileToString(hashFile, "UTF-8").trim() : null;
+    }
+
+    private void writeAtomically(File file, byte[] content) throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Could not create " + directory);
+        }
+        // in the same directory, so that the rename below cannot cross file systems
+        File temporaryFile = File.createTempFile(file.getName(), ".tmp", directory);
+        try {
+            FileOutputStream out = new FileOutputStream(temporaryFile);
+            try {
+                out.write(content);
+                out.getFD().sync();
+            }
+            finally {
+                out.close();
+            }
+            if (!temporaryFile.renameTo(file)) {
+                // some platforms (Windows) don't rename over an existing file
+                file.delete();
+                if (!temporaryFile.renameTo(file)) {
+                    throw new IOException("Could not rename " + temporaryFile + " to " + file);
+                }
+            }
+        }
+        finally {
+            temporaryFile.delete();
+        }
+    }
+
+    private Object lockFor(String personUuid) {
+        return locks[(personUuid.hashCode() & Integer.MAX_VALUE) % locks.length];
+    }
+
+    private static String hash(String algorithm, byte[] content) {
+        try {
+            return DatatypeConverter.printHexBinary(MessageDigest.getInstance(algorithm).digest(content)).toLowerCase();
+        }
+        catch (NoSuchAlgorithmException e) {
+            // every Java platform has SHA-1 and SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
@@ -0,0 +1,203 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.utils;
+
+import java.util.Arrays;
+
+/**
+ * A compact set of non-negative ints, such as database ids, in the style of a roaring bitmap. Values
+ * are partitioned by their upper 16 bits, and each partition is stored either as a sorted array of its
+ * lower 16 bits (2 bytes per value) or, once it holds more than {@link #MAX_ARRAY_SIZE} values, as a
+ * 65536 bit bitmap (8kB whatever the number of values). Lookups are a binary search over the
+ * partitions followed by a binary search or a bit test.
+ * <p/>
+ * Not thread safe.
+ */
+public class CompressedIntSet {
+
+    static final int MAX_ARRAY_SIZE = 4096;
+
+    private int[] keys = new int[0];
+
+    private Container[] containers = new Container[0];
+
+    private int size;
+
+    public boolean contains(int value) {
+        int index = Arrays.binarySearch(keys, value >>> 16);
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * @return true if the value was not in the set
+     */
+    public boolean add(int value) {
+        int key = value >>> 16;
+        int index = Arrays.binarySearch(keys, key);
+        if (index < 0) {
+            index = -index - 1;
+            keys = insert(keys, index, key);
+            Container[] grown = new Container[containers.length + 1];
+            System.arraycopy(containers, 0, grown, 0, index);
+            System.arraycopy(containers, index, grown, index + 1, containers.length - index);
+            grown[index] = new Container();
+            containers = grown;
+        }
+        boolean added = containers[index].add((char) value);
+        if (added) {
+            size++;
+        }
+        return added;
+    }
+
+    /**
+     * @return true if the value was in the set
+     */
+    public boolean remove(int value) {
+        int index = Arrays.binarySearch(keys, value >>> 16);
+        if (index < 0 || !containers[index].remove((char) value)) {
+            return false;
+        }
+        size--;
+        if (containers[index].cardinality == 0) {
+            int[] shrunkKeys = new int[keys.length - 1];
+            System.arraycopy(keys, 0, shrunkKeys, 0, index);
+            System.arraycopy(keys, index + 1, shrunkKeys, index, keys.length - index - 1);
+            keys = shrunkKeys;
+            Container[] shrunk = new Container[containers.length - 1];
+            System.arraycopy(containers, 0, shrunk, 0, index);
+            System.arraycopy(containers, index + 1, shrunk, index, containers.length - index - 1);
+            containers = shrunk;
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the approximate number of bytes used by the values
+     */
+    public long getSizeInBytes() {
+        long bytes = keys.length * 4L;
+        for (Container container : containers) {
+            bytes += container.bits != null ? container.bits.length * 8L : container.values.length * 2L;
+        }
+        return bytes;
+    }
+
+    private static int[] insert(int[] array, int index, int value) {
+        int[] grown = new int[array.length + 1];
+        System.arraycopy(array, 0, grown, 0, index);
+        System.arraycopy(array, index, grown, index + 1, array.length - index);
+        grown[index] = value;
+        return grown;
+    }
+
+    /**
+     * The lower 16 bits of the values of one partition, in values[0, cardinality) while there are few of
+     * them, and in bits once there are many
+     */
+    private static class Container {
+
+        private char[] values = new char[4];
+
+        private long[] bits;
+
+        private int cardinality;
+
+        boolean contains(char value) {
+            if (bits != null) {
+                return (bits[value >>> 6] & (1L << value)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        boolean add(char value) {
+            if (bits != null) {
+                long before = bits[value >>> 6];
+                bits[value >>> 6] = before | (1L << value);
+                if (before == bits[value >>> 6]) {
+                    return false;
+                }
+                cardinality++;
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index >= 0) {
+                return false;
+            }
+            if (cardinality == MAX_ARRAY_SIZE) {
+                toBitmap();
+                return add(value);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(values.length * 2, MAX_ARRAY_SIZE));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = value;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char value) {
+            if (bits != null) {
+                long before = bits[value >>> 6];
+                bits[value >>> 6] = before & ~(1L << value);
+                if (before == bits[value >>> 6]) {
+                    return false;
+                }
+                cardinality--;
+                if (cardinality == MAX_ARRAY_SIZE) {
+                    toArray();
+                }
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, value);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        private void toBitmap() {
+            bits = new long[1024];
+            for (int i = 0; i < cardinality; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void toArray() {
+            values = new char[cardinality];
+            int n = 0;
+            for (int word = 0; word < bits.length; word++) {
+                long w = bits[word];
+                while (w != 0) {
+                    values[n++] = (char) (word * 64 + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            bits = null;
+        }
+    }
+}
@@ -26,13 +26,15 @@ import org.openmrs.api.APIException;
 import org.openmrs.api.PatientService;
 import org.openmrs.api.context.Context;
 import org.openmrs.module.emrapi.EmrApiConstants;
+import org.openmrs.module.emrapi.event.LastViewedPatientIds;
+import org.openmrs.module.emrapi.patient.EmrPatientService;
+import org.openmrs.module.emrapi.patient.PatientSummary;
 import org.openmrs.util.LocaleUtility;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
@@ -242,36 +244,65 @@ public class GeneralUtils {
      * EmrApiConstants.USER_PROPERTY_NAME_LAST_VIEWED_PATIENT_IDS for the user as a list of patients
      * in reverse order impying the patient that was first added comes last while the last added one
      * comes first
+     * <p/>
+     * This loads the patients one at a time, see {@link #getLastViewedPatientSummaries(User)} or
+     * {@link EmrPatientService#getPatients(List)} to load them in a single query
      *
      * @param user
      * @should return a list of the patients last viewed by the specified user
      */
     public static List<Patient> getLastViewedPatients(User user) {
         List<Patient> lastViewed = new ArrayList<Patient>();
+        PatientService ps = Context.getPatientService();
+        for (Integer patientId : getLastViewedPatientIds(user)) {
+            Patient p = ps.getPatient(patientId);
+            if (p != null) {
+                lastViewed.add(p);
+            }
+        }
+
+        return lastViewed;
+    }
+
+    /**
+     * Gets the ids in the value of the user property
+     * EmrApiConstants.USER_PROPERTY_NAME_LAST_VIEWED_PATIENT_IDS for the user, the last added one
+     * comes first
+     *
+     * @param user
+     * @should return the ids of the patients last viewed by the specified user
+     */
+    public static List<Integer> getLastViewedPatientIds(User user) {
+        List<Integer> lastViewed = new ArrayList<Integer>();
         if (user != null) {
             //The user object cached in the user's context needs to be up to date
             user = Context.getUserService().getUser(user.getId());
             String lastViewedPatientIdsString = user
                     .getUserProperty(EmrApiConstants.USER_PROPERTY_NAME_LAST_VIEWED_PATIENT_IDS);
             if (StringUtils.isNotBlank(lastViewedPatientIdsString)) {
-                PatientService ps = Context.getPatientService();
-                lastViewedPatientIdsString = lastViewedPatientIdsString.replaceAll("\\s", "");
-                String[] patientIds = lastViewedPatientIdsString.split(",");
-                for (String pId : patientIds) {
-                    try {
-                        Patient p = ps.getPatient(Integer.valueOf(pId));
-                        if (p != null) {
-                            lastViewed.add(p);
-                        }
-                    }
-                    catch (NumberFormatException e) {}
+                // each id takes up at least 2 characters including the separator, so this limit keeps them all
+                int limit = (lastViewedPatientIdsString.length() + 1) / 2;
+                for (int patientId : LastViewedPatientIds.fromPropertyValue(lastViewedPatientIdsString, limit).toArray()) {
+                    lastViewed.add(patientId);
                 }
             }
         }
 
-        Collections.reverse(lastViewed);
-
         return lastViewed;
     }
 
+    /**
+     * Same as {@link #getLastViewedPatients(User)} but returns summaries of the patients, loaded
+     * with a fixed number of queries regardless of how many patients were viewed
+     *
+     * @param user
+     */
+    public static List<PatientSummary> getLastViewedPatientSummaries(User user) {
+        List<Integer> patientIds = getLastViewedPatientIds(user);
+        if (patientIds.isEmpty()) {
+            return new ArrayList<PatientSummary>();
+        }
+        return Context.getService(EmrPatientService.class).getPatientSummaries(patientIds);
+    }
+
 }
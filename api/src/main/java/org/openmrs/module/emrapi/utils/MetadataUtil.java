@@ -19,6 +19,8 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.openmrs.Auditable;
 import org.openmrs.api.context.Context;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
 import org.openmrs.module.emrapi.metadata.MetadataPackageConfig;
 import org.openmrs.module.emrapi.metadata.MetadataPackagesConfig;
 import org.openmrs.module.metadatasharing.ImportConfig;
@@ -30,6 +32,7 @@ import org.openmrs.module.metadatasharing.wrapper.PackageImporter;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
@@ -40,7 +43,10 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.regex.Matcher;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.regex.Pattern;
 
 public class MetadataUtil {
@@ -48,6 +54,42 @@ public class MetadataUtil {
 	protected static final Log log = LogFactory.getLog(MetadataUtil.class);
 	
 	public static final String PACKAGES_FILENAME = "packages.xml";
+
+    private static final Pattern FILENAME_PATTERN = Pattern.compile("(?:.+/)?\\w+-(\\d+).zip");
+
+    /**
+     * How many packages may be parsed ahead of the one being imported, which bounds both the threads used
+     * and the parsed packages held in memory
+     */
+    private static final int MAX_PACKAGES_IN_FLIGHT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static volatile DaemonToken daemonToken;
+
+    /**
+     * Starts parsing a package in the background, as the daemon user so that the parser has an
+     * authenticated session. Tests replace it.
+     */
+    static BackgroundRunner backgroundRunner = new BackgroundRunner() {
+
+        @Override
+        public void run(Runnable runnable) {
+            DaemonToken token = daemonToken;
+            if (token == null) {
+                throw new IllegalStateException("No daemon token has been set");
+            }
+            Daemon.runInDaemonThread(runnable, token);
+        }
+    };
+
+    /**
+     * Lets packages be parsed in the background, as the daemon user. Until it is called (the module
+     * activator calls it) packages are parsed one at a time.
+     *
+     * @param token the token the module was given
+     */
+    public static void setDaemonToken(DaemonToken token) {
+        daemonToken = token;
+    }
 	
 	/**
 	 * Setup the standard metadata packages
@@ -82,16 +124,68 @@ public class MetadataUtil {
         return loadPackages(config, loader);
     }
 
+    /**
+     * Installs the packages that are not installed yet, or only in an older version, in the order they are
+     * configured in (later packages may refer to metadata from earlier ones). Which packages are installed
+     * is read with one query, and while each package is imported the next few are parsed in the background
+     * (at most {@link #MAX_PACKAGES_IN_FLIGHT} packages are parsed or held in memory at a time). If they
+     * cannot be parsed in the background, they are parsed one at a time. A report of the time spent on each
+     * package is logged at the end.
+     */
     private synchronized static boolean loadPackages(MetadataPackagesConfig config, ClassLoader loader) throws IOException {
-        boolean anyChanges = false;
+        long start = System.currentTimeMillis();
+        Map<String, Integer> installedVersions = getInstalledVersionsByGroupUuid();
 
+        List<PackageLoad> toInstall = new ArrayList<PackageLoad>();
+        StringBuilder report = new StringBuilder();
         for (MetadataPackageConfig pkg : config.getPackages()) {
-            anyChanges |= installMetadataPackageIfNecessary(pkg, loader);
+            Integer installed = installedVersions.get(pkg.getGroupUuid());
+            if (installed != null && installed >= pkg.getVersion()) {
+                report.append("\n  ").append(pkg.getFilenameBase()).append(": already installed with version ").append(installed);
+            } else {
+                toInstall.add(new PackageLoad(pkg, loader));
+            }
+        }
+
+        boolean anyChanges = false;
+        boolean inBackground = toInstall.size() > 1;
+        int started = 0;
+        for (int i = 0; i < toInstall.size(); i++) {
+            while (inBackground && started < toInstall.size() && started < i + MAX_PACKAGES_IN_FLIGHT) {
+                try {
+                    toInstall.get(started).parseInBackground(backgroundRunner);
+                    started++;
+                }
+                catch (Exception ex) {
+                    log.warn("Cannot parse metadata packages in the background, parsing the remaining "
+                            + (toInstall.size() - started) + " one at a time", ex);
+                    inBackground = false;
+                }
+            }
+            PackageLoad load = toInstall.get(i);
+            anyChanges |= load.install();
+            report.append("\n  ").append(load.getReport());
         }
 
+        log.info("Checked " + config.getPackages().size() + " metadata packages in " + (System.currentTimeMillis() - start)
+                + "ms:" + report);
         return anyChanges;
     }
 
+    /**
+     * @return the version of each installed package, by group uuid
+     */
+    private static Map<String, Integer> getInstalledVersionsByGroupUuid() {
+        Map<String, Integer> versions = new HashMap<String, Integer>();
+        for (ImportedPackage installed : Context.getService(MetadataSharingService.class).getAllImportedPackages()) {
+            Integer existing = versions.get(installed.getGroupUuid());
+            if (installed.getVersion() != null && (existing == null || existing < installed.getVersion())) {
+                versions.put(installed.getGroupUuid(), installed.getVersion());
+            }
+        }
+        return versions;
+    }
+
     public static MetadataPackagesConfig getMetadataPackagesForModule(ClassLoader loader) {
 		return getMetadataPackagesForModule(loader, PACKAGES_FILENAME);
 	}
@@ -109,53 +203,121 @@ public class MetadataUtil {
 		}
 	}
 	
-	/**
-	 * Checks whether the given version of the MDS package has been installed yet, and if not,
-	 * install it
-	 * 
-	 * @param config the metadata package configuration object
-	 * @param loader the class loader to use for loading the packages
-	 * @return whether any changes were made to the db
-	 * @throws IOException
-	 */
-	private static boolean installMetadataPackageIfNecessary(MetadataPackageConfig config, ClassLoader loader)
-	    throws IOException {
-        String filename = config.getFilenameBase() + "-" + config.getVersion().toString() + ".zip";
-        try {
-
-			Matcher matcher = Pattern.compile("(?:.+/)?\\w+-(\\d+).zip").matcher(filename);
-			if (!matcher.matches())
-				throw new RuntimeException("Filename must match PackageNameWithNoSpaces-X.zip");
-			Integer version = Integer.valueOf(matcher.group(1));
-			
-			ImportedPackage installed = Context.getService(MetadataSharingService.class).getImportedPackageByGroup(
-			    config.getGroupUuid());
-			if (installed != null && installed.getVersion() >= version) {
-				log.info("Metadata package " + config.getFilenameBase() + " is already installed with version "
-				        + installed.getVersion());
-				return false;
-			}
-			
-			if (loader.getResource(filename) == null) {
-				throw new RuntimeException("Cannot find " + filename + " for group " + config.getGroupUuid());
-			}
-
-            log.info("About to import MDS package: " + filename);
-            long timer = System.currentTimeMillis();
-			PackageImporter metadataImporter = MetadataSharing.getInstance().newPackageImporter();
-			metadataImporter.setImportConfig(ImportConfig.valueOf(config.getImportMode()));
+    /**
+     * Starts background work
+     */
+    interface BackgroundRunner {
+
+        void run(Runnable runnable) throws Exception;
+
+    }
+
+    /**
+     * Installs one package that is not installed yet: parses it, in the background if
+     * {@link #parseInBackground} was called, and imports it when {@link #install()} is called
+     */
+    private static class PackageLoad {
+
+        private final MetadataPackageConfig config;
+
+        private final ClassLoader loader;
+
+        private final String filename;
+
+        private Future<PackageImporter> parsed;
+
+        private long parseTime;
+
+        private long importTime;
+
+        private String outcome;
+
+        PackageLoad(MetadataPackageConfig config, ClassLoader loader) {
+            this.config = config;
+            this.loader = loader;
+            this.filename = config.getFilenameBase() + "-" + config.getVersion().toString() + ".zip";
+        }
+
+        /**
+         * @throws Exception if the runner cannot start the background work, in which case the package is
+         *             parsed when it is installed
+         */
+        void parseInBackground(BackgroundRunner runner) throws Exception {
+            FutureTask<PackageImporter> task = new FutureTask<PackageImporter>(new Callable<PackageImporter>() {
+
+                @Override
+                public PackageImporter call() throws Exception {
+                    return parse();
+                }
+            });
+            runner.run(task);
+            parsed = task;
+        }
+
+        /**
+         * @return whether any changes were made to the db
+         */
+        boolean install() {
+            try {
+                if (!FILENAME_PATTERN.matcher(filename).matches()) {
+                    throw new RuntimeException("Filename must match PackageNameWithNoSpaces-X.zip");
+                }
+                if (loader.getResource(filename) == null) {
+                    throw new RuntimeException("Cannot find " + filename + " for group " + config.getGroupUuid());
+                }
+
+                PackageImporter metadataImporter = null;
+                if (parsed != null) {
+                    try {
+                        metadataImporter = parsed.get();
+                    }
+                    catch (ExecutionException ex) {
+                        log.warn("Failed to load " + filename + " in the background, loading it again", ex.getCause());
+                    }
+                    finally {
+                        // so that the parsed package can be collected once it is imported
+                        parsed = null;
+                    }
+                }
+                if (metadataImporter == null) {
+                    metadataImporter = parse();
+                }
+
+                log.info("...importing package: " + filename);
+                long timer = System.currentTimeMillis();
+                metadataImporter.importPackage();
+                importTime = System.currentTimeMillis() - timer;
+                outcome = "imported";
+                return true;
+            }
+            catch (Exception ex) {
+                log.error("Failed to install metadata package " + filename, ex);
+                outcome = "failed (" + ex.getMessage() + ")";
+                return false;
+            }
+        }
+
+        String getReport() {
+            return filename + ": " + outcome + ", loaded in " + parseTime + "ms, imported in " + importTime + "ms";
+        }
+
+        private PackageImporter parse() throws IOException {
             log.info("...loading package: " + filename);
-            metadataImporter.loadSerializedPackageStream(loader.getResourceAsStream(filename));
-            log.info("...importing package: " + filename);
-            metadataImporter.importPackage();
-            log.info("Imported " + filename + " in " + (System.currentTimeMillis() - timer) + "ms");
-			return true;
-		}
-		catch (Exception ex) {
-			log.error("Failed to install metadata package " + filename, ex);
-			return false;
-		}
-	}
+            long timer = System.currentTimeMillis();
+            PackageImporter metadataImporter = MetadataSharing.getInstance().newPackageImporter();
+            metadataImporter.setImportConfig(ImportConfig.valueOf(config.getImportMode()));
+            InputStream stream = loader.getResourceAsStream(filename);
+            try {
+                metadataImporter.loadSerializedPackageStream(stream);
+            }
+            finally {
+                IOUtils.closeQuietly(stream);
+            }
+            parseTime = System.currentTimeMillis() - timer;
+            return metadataImporter;
+        }
+
+    }
 
     /**
      * If multiple MDS packages contain different versions of the same item, then loading them is order-dependent, which
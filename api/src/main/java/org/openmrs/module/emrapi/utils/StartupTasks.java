@@ -0,0 +1,132 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.utils;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openmrs.api.context.Daemon;
+import org.openmrs.module.DaemonToken;
+
+/**
+ * Runs the steps of a module's startup, timing each one, and logs what each step did and how long it took
+ * in one report. Steps that only build caches or check things can run in the background instead of
+ * holding up the startup, see {@link #runInBackground(String, Task, DaemonToken)}.
+ */
+public class StartupTasks {
+
+    /**
+     * One startup step. Steps should be cheap to repeat on every startup: check whether their work is
+     * already done before doing it.
+     */
+    public interface Task {
+
+        /**
+         * @return false if there was nothing to do
+         * @throws StepFailedException if the step could not do its work but the startup can go on
+         */
+        boolean run();
+
+    }
+
+    /**
+     * Thrown by a step that failed in a way that should be reported but should not fail the startup, e.g.
+     * a check that found problems. Its message says what went wrong and is logged without a stack trace.
+     */
+    public static class StepFailedException extends RuntimeException {
+
+        public StepFailedException(String message) {
+            super(message);
+        }
+
+    }
+
+    protected final Log log = LogFactory.getLog(getClass());
+
+    private final String name;
+
+    private final long start = System.currentTimeMillis();
+
+    private final StringBuilder report = new StringBuilder();
+
+    public StartupTasks(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Runs the step now. If it fails, the report so far is logged and the exception is passed on, so that
+     * the startup fails like it would without this class, unless the step throws a
+     * {@link StepFailedException}, which is only reported.
+     */
+    public void run(String stepName, Task task) {
+        long stepStart = System.currentTimeMillis();
+        try {
+            boolean changed = task.run();
+            append(stepName, changed ? "done" : "nothing to do", System.currentTimeMillis() - stepStart);
+        }
+        catch (StepFailedException e) {
+            append(stepName, "failed: " + e.getMessage(), System.currentTimeMillis() - stepStart);
+        }
+        catch (RuntimeException e) {
+            append(stepName, "failed", System.currentTimeMillis() - stepStart);
+            logReport();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the step in a daemon thread, and logs how it went when it is done. A failure is logged but does
+     * not fail the startup.
+     */
+    public void runInBackground(final String stepName, final Task task, DaemonToken daemonToken) {
+        append(stepName, "started in the background", 0);
+        Daemon.runInDaemonThread(new Runnable() {
+
+            @Override
+            public void run() {
+                long stepStart = System.currentTimeMillis();
+                try {
+                    boolean changed = task.run();
+                    log.info(name + ": " + stepName + " " + (changed ? "done" : "nothing to do") + " in the background in "
+                            + (System.currentTimeMillis() - stepStart) + "ms");
+                }
+                catch (StepFailedException e) {
+                    log.warn(name + ": " + stepName + " failed in the background in "
+                            + (System.currentTimeMillis() - stepStart) + "ms: " + e.getMessage());
+                }
+                catch (Exception e) {
+                    log.error(name + ": " + stepName + " failed in the background", e);
+                }
+            }
+        }, daemonToken);
+    }
+
+    /**
+     * Logs how long each step run so far took
+     */
+    public void logReport() {
+        log.info(name + " took " + (System.currentTimeMillis() - start) + "ms:" + report);
+    }
+
+    String getReport() {
+        return report.toString();
+    }
+
+    private void append(String stepName, String outcome, long time) {
+        report.append("\n  ").append(stepName).append(": ").append(outcome);
+        if (time > 0) {
+            report.append(" in ").append(time).append("ms");
+        }
+    }
+
+}
@@ -0,0 +1,199 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.visit;
+
+import org.openmrs.Encounter;
+import org.openmrs.EncounterType;
+import org.openmrs.Location;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The admission, transfer and discharge history of a visit, as the ordered transitions between
+ * inpatient states. Transition i happens at times[i], after which the patient is (or is not)
+ * admitted[i] at locations[i]. Point in time queries are binary searches, so asking for the state
+ * on every day of a long stay doesn't rescan the encounters.
+ * <p/>
+ * Instances are immutable, see {@link VisitDomainWrapper#getAdtTimeline()}.
+ */
+public class AdtTimeline {
+
+    private final long[] times;
+
+    private final boolean[] admitted;
+
+    private final Location[] locations;
+
+    private AdtTimeline(long[] times, boolean[] admitted, Location[] locations) {
+        this.times = times;
+        this.admitted = admitted;
+        this.locations = locations;
+    }
+
+    /**
+     * @param sortedEncounters the non-voided encounters of a visit, most recent first
+     * @param admissionEncounterType
+     * @param transferEncounterType may be null
+     * @param exitEncounterType may be null
+     */
+    public static AdtTimeline build(List<Encounter> sortedEncounters, EncounterType admissionEncounterType,
+                                    EncounterType transferEncounterType, EncounterType exitEncounterType) {
+        List<Encounter> adtEncounters = new ArrayList<Encounter>();
+        // oldest first, so for encounters at the same time the one that comes first in sortedEncounters wins
+        for (int i = sortedEncounters.size() - 1; i >= 0; i--) {
+            Encounter encounter = sortedEncounters.get(i);
+            if (encounter.getEncounterDatetime() != null && (isOfType(encounter, admissionEncounterType)
+                    || isOfType(encounter, transferEncounterType) || isOfType(encounter, exitEncounterType))) {
+                adtEncounters.add(encounter);
+            }
+        }
+
+        long[] times = new long[adtEncounters.size()];
+        boolean[] admitted = new boolean[adtEncounters.size()];
+        Location[] locations = new Location[adtEncounters.size()];
+        boolean currentlyAdmitted = false;
+        Location currentLocation = null;
+        for (int i = 0; i < adtEncounters.size(); i++) {
+            Encounter encounter = adtEncounters.get(i);
+            if (isOfType(encounter, admissionEncounterType)) {
+                currentlyAdmitted = true;
+                currentLocation = encounter.getLocation();
+            }
+            else if (isOfType(encounter, exitEncounterType)) {
+                currentlyAdmitted = false;
+            }
+            else {
+                currentLocation = encounter.getLocation();
+            }
+            times[i] = encounter.getEncounterDatetime().getTime();
+            admitted[i] = currentlyAdmitted;
+            locations[i] = currentLocation;
+        }
+        return new AdtTimeline(times, admitted, locations);
+    }
+
+    private static boolean isOfType(Encounter encounter, EncounterType type) {
+        return type != null && type.equals(encounter.getEncounterType());
+    }
+
+    /**
+     * @return the number of admission, transfer and exit encounters
+     */
+    public int getTransitionCount() {
+        return times.length;
+    }
+
+    public Date getTransitionDatetime(int index) {
+        return new Date(times[index]);
+    }
+
+    /**
+     * @return whether the patient is admitted after the specified transition
+     */
+    public boolean isAdmittedAfter(int index) {
+        return admitted[index];
+    }
+
+    /**
+     * @return the inpatient location after the specified transition, or null if not admitted then
+     */
+    public Location getInpatientLocationAfter(int index) {
+        return admitted[index] ? locations[index] : null;
+    }
+
+    /**
+     * @return true if the latest transition leaves the patient admitted
+     */
+    public boolean isAdmitted() {
+        return times.length > 0 && admitted[times.length - 1];
+    }
+
+    /**
+     * @return true if the latest transition at or before the date leaves the patient admitted
+     */
+    public boolean isAdmitted(Date onDate) {
+        int index = indexOf(onDate);
+        return index >= 0 && admitted[index];
+    }
+
+    /**
+     * @return the location of the latest admission or transfer at or before the date, or null if the
+     *         patient is not admitted on that date
+     */
+    public Location getInpatientLocation(Date onDate) {
+        int index = indexOf(onDate);
+        return index >= 0 ? getInpatientLocationAfter(index) : null;
+    }
+
+    /**
+     * @return whether the patient is admitted on each of the dates, in the same order
+     */
+    public boolean[] isAdmitted(List<Date> onDates) {
+        boolean[] result = new boolean[onDates.size()];
+        int index = -1;
+        long previous = Long.MIN_VALUE;
+        for (int i = 0; i < onDates.size(); i++) {
+            index = indexOf(onDates.get(i).getTime(), index, previous);
+            previous = onDates.get(i).getTime();
+            result[i] = index >= 0 && admitted[index];
+        }
+        return result;
+    }
+
+    /**
+     * @return the inpatient location on each of the dates (null where the patient isn't admitted), in
+     *         the same order
+     */
+    public List<Location> getInpatientLocations(List<Date> onDates) {
+        List<Location> result = new ArrayList<Location>(onDates.size());
+        int index = -1;
+        long previous = Long.MIN_VALUE;
+        for (Date onDate : onDates) {
+            index = indexOf(onDate.getTime(), index, previous);
+            previous = onDate.getTime();
+            result.add(index >= 0 ? getInpatientLocationAfter(index) : null);
+        }
+        return result;
+    }
+
+    /**
+     * @return the index of the latest transition at or before the date, or -1 if there is none
+     */
+    private int indexOf(Date onDate) {
+        return indexOf(onDate.getTime(), -1, Long.MIN_VALUE);
+    }
+
+    /**
+     * Dates are usually asked for in ascending order, in which case the answer for the previous date
+     * is a lower bound for the search
+     */
+    private int indexOf(long time, int previousIndex, long previousTime) {
+        int low = time >= previousTime ? previousIndex + 1 : 0;
+        int high = times.length;
+        // find the first transition after the time
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] <= time) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+}
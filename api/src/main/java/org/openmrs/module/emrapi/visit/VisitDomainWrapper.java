@@ -34,12 +34,15 @@ import org.openmrs.util.OpenmrsUtil;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 import static java.util.Collections.EMPTY_LIST;
 import static java.util.Collections.reverseOrder;
 import static java.util.Collections.sort;
+import static java.util.Collections.unmodifiableList;
 import static org.apache.commons.collections.CollectionUtils.find;
 import static org.apache.commons.collections.CollectionUtils.select;
 
@@ -53,6 +56,8 @@ public class VisitDomainWrapper {
 
     private DispositionService dispositionService;
 
+    private Snapshot snapshot;
+
     private Visit visit;
 
     @Deprecated
@@ -86,20 +91,33 @@ public class VisitDomainWrapper {
 
     public void setEmrApiProperties(EmrApiProperties emrApiProperties) {
         this.emrApiProperties = emrApiProperties;
+        snapshot = null;
     }
 
     public Encounter getAdmissionEncounter() {
-        return (Encounter) find(getSortedEncounters(), new EncounterTypePredicate(emrApiProperties.getAdmissionEncounterType()));
+        Snapshot snapshot = getSnapshot();
+        if (!snapshot.admissionEncounterFound) {
+            snapshot.admissionEncounter = (Encounter) find(snapshot.sortedEncounters, new EncounterTypePredicate(emrApiProperties.getAdmissionEncounterType()));
+            snapshot.admissionEncounterFound = true;
+        }
+        return snapshot.admissionEncounter;
     }
 
     // TODO: refactor this to use EncounterTypePredicate
     public Encounter getLatestAdtEncounter(){
-        for (Encounter e : getSortedEncounters()) {
-            if (emrApiProperties.getAdmissionEncounterType().equals(e.getEncounterType()) ||
-                    emrApiProperties.getTransferWithinHospitalEncounterType().equals(e.getEncounterType()) )
-                return e;
+        Snapshot snapshot = getSnapshot();
+        if (!snapshot.latestAdtEncounterFound) {
+            snapshot.latestAdtEncounter = null;
+            for (Encounter e : snapshot.sortedEncounters) {
+                if (emrApiProperties.getAdmissionEncounterType().equals(e.getEncounterType()) ||
+                        emrApiProperties.getTransferWithinHospitalEncounterType().equals(e.getEncounterType()) ) {
+                    snapshot.latestAdtEncounter = e;
+                    break;
+                }
+            }
+            snapshot.latestAdtEncounterFound = true;
         }
-        return null;
+        return snapshot.latestAdtEncounter;
     }
 
     public boolean isActive() {
@@ -112,7 +130,12 @@ public class VisitDomainWrapper {
     }
 
     public Encounter getCheckInEncounter() {
-        return (Encounter) find(getSortedEncounters(), new EncounterTypePredicate(emrApiProperties.getCheckInEncounterType()));
+        Snapshot snapshot = getSnapshot();
+        if (!snapshot.checkInEncounterFound) {
+            snapshot.checkInEncounter = (Encounter) find(snapshot.sortedEncounters, new EncounterTypePredicate(emrApiProperties.getCheckInEncounterType()));
+            snapshot.checkInEncounterFound = true;
+        }
+        return snapshot.checkInEncounter;
     }
 
     public Encounter getMostRecentEncounter() {
@@ -134,14 +157,12 @@ public class VisitDomainWrapper {
         return null;
     }
 
-    // note that this returns the most recent encounter first
+    /**
+     * Note that this returns the most recent encounter first. The list is computed once and shared
+     * between calls, so it can't be modified.
+     */
     public List<Encounter> getSortedEncounters() {
-        if (visit.getEncounters() != null) {
-            List<Encounter> nonVoidedEncounters = (List<Encounter>) select(visit.getEncounters(), EncounterDomainWrapper.NON_VOIDED_PREDICATE);
-            sort(nonVoidedEncounters, reverseOrder(EncounterDomainWrapper.DATETIME_COMPARATOR));
-            return nonVoidedEncounters;
-        }
-        return EMPTY_LIST;
+        return getSnapshot().sortedEncounters;
     }
 
     public int getDifferenceInDaysBetweenCurrentDateAndStartDate() {
@@ -158,10 +179,19 @@ public class VisitDomainWrapper {
     // (seemed like this made sense to do for performance reasons)
     // also, if encounter has multiple disposition (is this possible?) it just returns the first one it finds
     public Disposition getMostRecentDisposition() {
+        Snapshot snapshot = getSnapshot();
+        if (!snapshot.mostRecentDispositionFound) {
+            snapshot.mostRecentDisposition = findMostRecentDisposition(snapshot.sortedEncounters);
+            snapshot.mostRecentDispositionFound = true;
+        }
+        return snapshot.mostRecentDisposition;
+    }
+
+    private Disposition findMostRecentDisposition(List<Encounter> sortedEncounters) {
 
         DispositionDescriptor dispositionDescriptor = dispositionService.getDispositionDescriptor();
 
-        for (Encounter encounter : getSortedEncounters()) {
+        for (Encounter encounter : sortedEncounters) {
             for (Obs obs : encounter.getObsAtTopLevel(false)) {
                 if (dispositionDescriptor.isDisposition(obs)) {
                     return dispositionService.getDispositionFromObsGroup(obs);
@@ -173,6 +203,14 @@ public class VisitDomainWrapper {
     }
 
     public List<Diagnosis> getPrimaryDiagnoses() {
+        Snapshot snapshot = getSnapshot();
+        if (snapshot.primaryDiagnoses == null) {
+            snapshot.primaryDiagnoses = findPrimaryDiagnoses();
+        }
+        return new ArrayList<Diagnosis>(snapshot.primaryDiagnoses);
+    }
+
+    private List<Diagnosis> findPrimaryDiagnoses() {
         List<Diagnosis> diagnoses = new ArrayList<Diagnosis>();
         DiagnosisMetadata diagnosisMetadata = emrApiProperties.getDiagnosisMetadata();
         for (Encounter encounter : visit.getEncounters()) {
@@ -205,11 +243,7 @@ public class VisitDomainWrapper {
     }
 
     public boolean hasEncounters(){
-        List<Encounter> encounters = getSortedEncounters();
-        if (encounters != null && encounters.size() > 0){
-            return true;
-        }
-        return false;
+        return getSortedEncounters().size() > 0;
     }
 
     public boolean hasEncounterWithoutSubsequentEncounter(EncounterType lookForEncounterType, EncounterType withoutSubsequentEncounterType) {
@@ -240,49 +274,61 @@ public class VisitDomainWrapper {
      * @return true if the visit includes an admission encounter with no discharge encounter after it
      */
     public boolean isAdmitted() {
-        EncounterType admissionEncounterType = emrApiProperties.getAdmissionEncounterType();
-        EncounterType dischargeEncounterType = emrApiProperties.getExitFromInpatientEncounterType();
-        if (admissionEncounterType == null) {
+        if (emrApiProperties.getAdmissionEncounterType() == null) {
             return false;
         }
-        return hasEncounterWithoutSubsequentEncounter(admissionEncounterType, dischargeEncounterType);
+        return getAdtTimeline().isAdmitted();
     }
 
     public boolean isAdmitted(Date onDate) {
-
-        if (visit.getStartDatetime().after(onDate) || (visit.getStopDatetime() != null && visit.getStopDatetime().before(onDate))) {
-            throw new IllegalArgumentException("date does not fall within visit");
-        }
-
-        EncounterType admissionEncounterType = emrApiProperties.getAdmissionEncounterType();
-        EncounterType dischargeEncounterType = emrApiProperties.getExitFromInpatientEncounterType();
-        if (admissionEncounterType == null) {
+        errorIfNotWithinVisit(onDate);
+        if (emrApiProperties.getAdmissionEncounterType() == null) {
             return false;
         }
-
-        return hasEncounterWithoutSubsequentEncounter(admissionEncounterType, dischargeEncounterType, onDate);
+        return getAdtTimeline().isAdmitted(onDate);
     }
 
     public Location getInpatientLocation(Date onDate) {
-
-        if (!isAdmitted(onDate)) {
+        errorIfNotWithinVisit(onDate);
+        if (emrApiProperties.getAdmissionEncounterType() == null) {
             return null;
         }
+        return getAdtTimeline().getInpatientLocation(onDate);
+    }
 
-        EncounterType admissionEncounterType = emrApiProperties.getAdmissionEncounterType();
-        EncounterType transferEncounterType = emrApiProperties.getTransferWithinHospitalEncounterType();
+    /**
+     * Batch version of {@link #getInpatientLocation(Date)}, which is much cheaper than asking for each
+     * date separately when the dates are in ascending order (e.g. every day of a stay)
+     *
+     * @return the inpatient location on each of the dates, null where the patient is not admitted
+     */
+    public List<Location> getInpatientLocations(List<Date> onDates) {
+        for (Date onDate : onDates) {
+            errorIfNotWithinVisit(onDate);
+        }
+        if (emrApiProperties.getAdmissionEncounterType() == null) {
+            return new ArrayList<Location>(Collections.<Location>nCopies(onDates.size(), null));
+        }
+        return getAdtTimeline().getInpatientLocations(onDates);
+    }
 
-        for (Encounter encounter : getSortedEncounters()) {
-            if (onDate == null || encounter.getEncounterDatetime().before(onDate) || encounter.getEncounterDatetime().equals(onDate)) {
-                if (encounter.getEncounterType().equals(admissionEncounterType) ||
-                        encounter.getEncounterType().equals(transferEncounterType)) {
-                    return encounter.getLocation();
-                }
-            }
+    /**
+     * @return the admission, transfer and exit from inpatient history of this visit, computed once
+     *         for the current encounters
+     */
+    public AdtTimeline getAdtTimeline() {
+        Snapshot snapshot = getSnapshot();
+        if (snapshot.adtTimeline == null) {
+            snapshot.adtTimeline = AdtTimeline.build(snapshot.sortedEncounters, emrApiProperties.getAdmissionEncounterType(),
+                    emrApiProperties.getTransferWithinHospitalEncounterType(), emrApiProperties.getExitFromInpatientEncounterType());
         }
+        return snapshot.adtTimeline;
+    }
 
-        // should never get here if isAdmitted == true
-        return null;
+    private void errorIfNotWithinVisit(Date onDate) {
+        if (visit.getStartDatetime().after(onDate) || (visit.getStopDatetime() != null && visit.getStopDatetime().before(onDate))) {
+            throw new IllegalArgumentException("date does not fall within visit");
+        }
     }
 
     public Date getStartDatetime() {
@@ -299,6 +345,7 @@ public class VisitDomainWrapper {
      */
     public VisitDomainWrapper addEncounter(Encounter encounter) {
         visit.addEncounter(encounter);
+        snapshot = null;
         return this;
     }
 
@@ -311,6 +358,7 @@ public class VisitDomainWrapper {
         }
 
         visit.setStopDatetime(mostRecentEncounter.getEncounterDatetime());
+        snapshot = null;
     }
 
     /**
@@ -335,6 +383,92 @@ public class VisitDomainWrapper {
         return visit.getCreator().equals(currentUser);
     }
 
+    /**
+     * @return the snapshot of the visit's encounters, computing it again if the encounters changed since
+     */
+    private Snapshot getSnapshot() {
+        Set<Encounter> encounters = visit.getEncounters();
+        long fingerprint = fingerprint(encounters);
+        if (snapshot == null || snapshot.encounters != encounters || snapshot.fingerprint != fingerprint) {
+            List<Encounter> sortedEncounters = EMPTY_LIST;
+            if (encounters != null) {
+                List<Encounter> nonVoidedEncounters = (List<Encounter>) select(encounters, EncounterDomainWrapper.NON_VOIDED_PREDICATE);
+                sort(nonVoidedEncounters, reverseOrder(EncounterDomainWrapper.DATETIME_COMPARATOR));
+                sortedEncounters = unmodifiableList(nonVoidedEncounters);
+            }
+            snapshot = new Snapshot(encounters, fingerprint, sortedEncounters);
+        }
+        return snapshot;
+    }
+
+    /**
+     * The visit and its encounters can also be changed directly rather than through this wrapper, so
+     * the snapshot is checked against this cheap summary of the encounters. It only reads fields of
+     * the encounters themselves, never their obs, so checking it doesn't load anything: what is derived
+     * from obs (the disposition and diagnoses) is kept until an encounter changes, e.g. when it is saved,
+     * and callers that change obs directly should wrap the visit again.
+     */
+    private long fingerprint(Set<Encounter> encounters) {
+        if (encounters == null) {
+            return 0;
+        }
+        long fingerprint = encounters.size();
+        for (Encounter encounter : encounters) {
+            fingerprint = 31 * fingerprint + System.identityHashCode(encounter);
+            fingerprint = 31 * fingerprint + (encounter.getEncounterId() == null ? 0 : encounter.getEncounterId());
+            fingerprint = 31 * fingerprint + (encounter.isVoided() ? 1 : 0);
+            fingerprint = 31 * fingerprint + time(encounter.getDateVoided());
+            fingerprint = 31 * fingerprint + time(encounter.getDateChanged());
+            fingerprint = 31 * fingerprint + time(encounter.getEncounterDatetime());
+            fingerprint = 31 * fingerprint + System.identityHashCode(encounter.getEncounterType());
+            fingerprint = 31 * fingerprint + System.identityHashCode(encounter.getLocation());
+        }
+        return fingerprint;
+    }
+
+    private static long time(Date date) {
+        return date == null ? 0 : date.getTime();
+    }
+
+    /**
+     * What is derived from the encounters of the visit, computed on first use and reused until the
+     * encounters change
+     */
+    private static class Snapshot {
+
+        private final Set<Encounter> encounters;
+
+        private final long fingerprint;
+
+        private final List<Encounter> sortedEncounters;
+
+        private Encounter admissionEncounter;
+
+        private boolean admissionEncounterFound;
+
+        private Encounter checkInEncounter;
+
+        private boolean checkInEncounterFound;
+
+        private Encounter latestAdtEncounter;
+
+        private boolean latestAdtEncounterFound;
+
+        private AdtTimeline adtTimeline;
+
+        private Disposition mostRecentDisposition;
+
+        private boolean mostRecentDispositionFound;
+
+        private List<Diagnosis> primaryDiagnoses;
+
+        Snapshot(Set<Encounter> encounters, long fingerprint, List<Encounter> sortedEncounters) {
+            this.encounters = encounters;
+            this.fingerprint = fingerprint;
+            this.sortedEncounters = sortedEncounters;
+        }
+    }
+
     private class EncounterTypePredicate implements Predicate {
         private EncounterType type;
 
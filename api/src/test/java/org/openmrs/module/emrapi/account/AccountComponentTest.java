@@ -177,6 +177,41 @@ public class AccountComponentTest extends BaseModuleContextSensitiveTest {
 
     }
 
+    @Test
+    public void shouldGetSummariesOfTheAccountsMatchingTheQuery() {
+
+        List<AccountSummary> summaries = accountService.getAccountSummaries("bruno", null, true, null, null);
+
+        Assert.assertEquals(1, summaries.size());
+        AccountSummary summary = summaries.get(0);
+        Assert.assertEquals(Integer.valueOf(501), summary.getPersonId());
+        Assert.assertEquals("Bruno", summary.getGivenName());
+        Assert.assertEquals("Otterbourg", summary.getFamilyName());
+        Assert.assertEquals("bruno", summary.getUsername());
+        Assert.assertFalse(summary.getUserEnabled());
+        Assert.assertEquals("123", summary.getProviderIdentifier());
+        Assert.assertEquals(1, accountService.getCountOfAccounts("bruno"));
+    }
+
+    @Test
+    public void shouldPageThroughTheSameAccountsAsGetAllAccounts() {
+
+        Set<Integer> expected = new HashSet<Integer>();
+        for (AccountDomainWrapper account : accountService.getAllAccounts()) {
+            expected.add(account.getPerson().getPersonId());
+        }
+
+        Set<Integer> actual = new HashSet<Integer>();
+        for (int start = 0; start < expected.size(); start += 2) {
+            for (AccountSummary summary : accountService.getAccountSummaries(null, AccountSummary.SortBy.FAMILY_NAME, true, start, 2)) {
+                actual.add(summary.getPersonId());
+            }
+        }
+
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(expected.size(), accountService.getCountOfAccounts(null));
+    }
+
     @Test
     public void shouldRetireExistingUser() {
 
@@ -20,14 +20,18 @@ import org.openmrs.util.OpenmrsConstants;
 
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class AccountServiceTest {
@@ -44,6 +48,10 @@ public class AccountServiceTest {
 
     private EmrApiProperties emrApiProperties;
 
+    private RoleRegistry roleRegistry;
+
+    private AccountDAO accountDAO;
+
     @Before
     public void setup() {
         userService = mock(UserService.class);
@@ -58,6 +66,12 @@ public class AccountServiceTest {
         accountService.setProviderService(providerService);
         accountService.setProviderManagementService(providerManagementService);
         accountService.setEmrApiProperties(emrApiProperties);
+        accountDAO = mock(AccountDAO.class);
+        accountService.setDao(accountDAO);
+
+        roleRegistry = new RoleRegistry();
+        roleRegistry.setUserService(userService);
+        accountService.setRoleRegistry(roleRegistry);
     }
 
     /**
@@ -66,25 +80,13 @@ public class AccountServiceTest {
      */
     @Test
     public void getAllAccounts_shouldGetAllUniqueAccounts() throws Exception {
-        Person person1 = new Person();
-        User user1 = new User();
-        user1.setPerson(person1);
-        User user2 = new User();
-        Person person2 = new Person();
-        user2.setPerson(person2);
-        User daemonUser = new User();
-        daemonUser.setUuid(EmrApiConstants.DAEMON_USER_UUID);
-        Person daemonPerson = new Person();
-        daemonUser.setPerson(daemonPerson);
-
-        Provider provider1 = new Provider();
-        provider1.setPerson(person1);//duplicate
-        Provider provider2 = new Provider();
-        Person person3 = new Person();
-        provider2.setPerson(person3);
-
-        when(userService.getAllUsers()).thenReturn(Arrays.asList(user1, user2, daemonUser));
-        when(providerService.getAllProviders()).thenReturn(Arrays.asList(provider1, provider2));
+        Person person1 = new Person(1);
+        Person person2 = new Person(2);
+        Person person3 = new Person(3);
+        when(personService.getPerson(1)).thenReturn(person1);
+        when(personService.getPerson(2)).thenReturn(person2);
+        when(personService.getPerson(3)).thenReturn(person3);
+        when(accountDAO.getAccountPersonIds(null)).thenReturn(Arrays.asList(1, 2, 3));
 
         List<AccountDomainWrapper> accounts = accountService.getAllAccounts();
         Assert.assertEquals(3, accounts.size());
@@ -95,15 +97,38 @@ public class AccountServiceTest {
     @Test
     public void getAccount_shouldNotReturnUnknownProvider() throws Exception {
         Provider unknownProvider = new Provider();
-        Person unknownProviderPerson = new Person();
-        unknownProvider.setPerson(unknownProviderPerson);
         when(emrApiProperties.getUnknownProvider()).thenReturn(unknownProvider);
-        when(providerService.getAllProviders()).thenReturn(Collections.singletonList(unknownProvider));
+        when(accountDAO.getAccountPersonIds(unknownProvider)).thenReturn(Collections.<Integer>emptyList());
 
         List<AccountDomainWrapper> accounts = accountService.getAllAccounts();
         Assert.assertEquals(0, accounts.size());
     }
 
+    @Test
+    public void getAllAccounts_shouldReturnAListThatCanBeSortedAndChanged() throws Exception {
+        Person person1 = new Person(1);
+        Person person2 = new Person(2);
+        when(personService.getPerson(1)).thenReturn(person1);
+        when(personService.getPerson(2)).thenReturn(person2);
+        when(accountDAO.getAccountPersonIds(null)).thenReturn(Arrays.asList(1, 2));
+
+        List<AccountDomainWrapper> accounts = accountService.getAllAccounts();
+        Collections.sort(accounts, new Comparator<AccountDomainWrapper>() {
+            @Override
+            public int compare(AccountDomainWrapper a, AccountDomainWrapper b) {
+                return b.getPerson().getPersonId().compareTo(a.getPerson().getPersonId());
+            }
+        });
+        assertThat(accounts.get(0).getPerson(), sameInstance(person2));
+        assertThat(accounts.get(1).getPerson(), sameInstance(person1));
+
+        accounts.remove(0);
+        accounts.add(accountService.getAccountByPerson(person2));
+        Assert.assertEquals(2, accounts.size());
+        assertThat(accounts.get(0).getPerson(), sameInstance(person1));
+        assertThat(accounts.get(1).getPerson(), sameInstance(person2));
+    }
+
     /**
      * @verifies return the account for the person with the specified personId
      * @see AccountService#getAccount(Integer)
@@ -183,7 +208,7 @@ public class AccountServiceTest {
         Role role3 = new Role("role2");
         Role role2 = new Role(EmrApiConstants.ROLE_PREFIX_CAPABILITY + "role3");
 
-        when(userService.getAllRoles()).thenReturn(Arrays.asList(role1, role2, role3));
+        mockRoles(role1, role2, role3);
         List<Role> capabilities = accountService.getAllCapabilities();
         Assert.assertEquals(2, capabilities.size());
         assertThat(capabilities, TestUtils.isCollectionOfExactlyElementsWithProperties("role",
@@ -200,13 +225,30 @@ public class AccountServiceTest {
         Role role3 = new Role("role2");
         Role role2 = new Role(EmrApiConstants.ROLE_PREFIX_PRIVILEGE_LEVEL + "role3");
 
-        when(userService.getAllRoles()).thenReturn(Arrays.asList(role1, role2, role3));
+        mockRoles(role1, role2, role3);
         List<Role> privilegeLevels = accountService.getAllPrivilegeLevels();
         Assert.assertEquals(2, privilegeLevels.size());
         assertThat(privilegeLevels, TestUtils.isCollectionOfExactlyElementsWithProperties("role",
                 EmrApiConstants.ROLE_PREFIX_PRIVILEGE_LEVEL + "role1", EmrApiConstants.ROLE_PREFIX_PRIVILEGE_LEVEL + "role3"));
     }
 
+    @Test
+    public void getAllCapabilities_shouldNotLoadRolesAgainUntilTheRegistryIsInvalidated() throws Exception {
+        Role role1 = new Role(EmrApiConstants.ROLE_PREFIX_CAPABILITY + "role1");
+        Role role2 = new Role(EmrApiConstants.ROLE_PREFIX_CAPABILITY + "role2");
+
+        mockRoles(role1);
+        assertThat(accountService.getAllCapabilities().size(), is(1));
+
+        mockRoles(role1, role2);
+        assertThat(accountService.getAllCapabilities().size(), is(1));
+        assertThat(accountService.getAllPrivilegeLevels().size(), is(0));
+        verify(userService, times(1)).getAllRoles();
+
+        roleRegistry.invalidate();
+        assertThat(accountService.getAllCapabilities(), containsInAnyOrder(role1, role2));
+    }
+
     @Test
     public void getApiPrivileges_shouldExcludeApplicationPrivileges() throws Exception {
         Privilege getPatients = new Privilege("Get Patients");
@@ -214,7 +256,7 @@ public class AccountServiceTest {
         Privilege vitalsApp = new Privilege(EmrApiConstants.PRIVILEGE_PREFIX_APP + " emr.vitals");
         Privilege orderEntryTask = new Privilege(EmrApiConstants.PRIVILEGE_PREFIX_TASK + " emr.orderEntry");
 
-        when(userService.getAllPrivileges()).thenReturn(Arrays.asList(getPatients, deletePatients, vitalsApp, orderEntryTask));
+        mockPrivileges(getPatients, deletePatients, vitalsApp, orderEntryTask);
 
         List<Privilege> apiPrivileges = accountService.getApiPrivileges();
         assertThat(apiPrivileges.size(), is(2));
@@ -228,11 +270,37 @@ public class AccountServiceTest {
         Privilege vitalsApp = new Privilege(EmrApiConstants.PRIVILEGE_PREFIX_APP + " emr.vitals");
         Privilege orderEntryTask = new Privilege(EmrApiConstants.PRIVILEGE_PREFIX_TASK + " emr.orderEntry");
 
-        when(userService.getAllPrivileges()).thenReturn(Arrays.asList(getPatients, deletePatients, vitalsApp, orderEntryTask));
+        mockPrivileges(getPatients, deletePatients, vitalsApp, orderEntryTask);
 
         List<Privilege> applicationPrivileges = accountService.getApplicationPrivileges();
         assertThat(applicationPrivileges.size(), is(2));
         assertThat(applicationPrivileges, containsInAnyOrder(vitalsApp, orderEntryTask));
     }
 
+    @Test
+    public void getAllCapabilities_shouldLoadTheRolesInTheCurrentSession() throws Exception {
+        Role cached = new Role(EmrApiConstants.ROLE_PREFIX_CAPABILITY + "role1");
+        mockRoles(cached);
+        accountService.getAllCapabilities();
+
+        Role current = new Role(EmrApiConstants.ROLE_PREFIX_CAPABILITY + "role1");
+        when(userService.getRole(current.getRole())).thenReturn(current);
+        assertThat(accountService.getAllCapabilities().get(0), sameInstance(current));
+        verify(userService, times(1)).getAllRoles();
+    }
+
+    private void mockRoles(Role... roles) {
+        when(userService.getAllRoles()).thenReturn(Arrays.asList(roles));
+        for (Role role : roles) {
+            when(userService.getRole(role.getRole())).thenReturn(role);
+        }
+    }
+
+    private void mockPrivileges(Privilege... privileges) {
+        when(userService.getAllPrivileges()).thenReturn(Arrays.asList(privileges));
+        for (Privilege privilege : privileges) {
+            when(userService.getPrivilege(privilege.getPrivilege())).thenReturn(privilege);
+        }
+    }
+
 }
@@ -0,0 +1,210 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Encounter;
+import org.openmrs.Location;
+import org.openmrs.Patient;
+import org.openmrs.GlobalProperty;
+import org.openmrs.Visit;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.module.emrapi.EmrApiConstants;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.Date;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AdtChangeLogTest {
+
+    private AdtChangeLog log;
+
+    private InMemoryAdtChangeDAO dao;
+
+    private AdministrationService administrationService;
+
+    private Visit visit;
+
+    private Location ward;
+
+    @Before
+    public void setUp() throws Exception {
+        dao = new InMemoryAdtChangeDAO();
+        administrationService = mock(AdministrationService.class);
+        when(administrationService.getGlobalProperty(EmrApiConstants.GP_ADT_CHANGE_LOG_ID)).thenReturn("the-log");
+        log = new AdtChangeLog();
+        log.setAdtChangeDAO(dao);
+        log.setAdministrationService(administrationService);
+        log.setTransactionManager(mock(PlatformTransactionManager.class));
+        visit = new Visit();
+        visit.setPatient(new Patient());
+        ward = new Location();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void record_shouldSaveTheChangeRightAwayIfThereIsNoTransaction() throws Exception {
+        Encounter admission = new Encounter();
+        Date admitted = new Date();
+        log.record(AdtChange.Type.ADMISSION, visit, ward, admission, null, admitted);
+
+        AdtChanges changes = log.getChangesSince(null, 0, 10);
+        assertThat(changes.getChanges().size(), is(1));
+        AdtChange change = changes.getChanges().get(0);
+        assertThat(change.getSequence(), is(1L));
+        assertThat(change.getType(), is(AdtChange.Type.ADMISSION));
+        assertThat(change.getPatientUuid(), is(visit.getPatient().getUuid()));
+        assertThat(change.getVisitUuid(), is(visit.getUuid()));
+        assertThat(change.getLocationUuid(), is(ward.getUuid()));
+        assertThat(change.getEncounterUuid(), is(admission.getUuid()));
+        assertThat(change.getMergedVisitUuid(), is(nullValue()));
+        assertThat(change.getActionDatetime(), is(admitted));
+    }
+
+    @Test
+    public void record_shouldSaveTheChangeWhenTheTransactionCommits() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        log.record(AdtChange.Type.CHECK_IN, visit, ward, new Encounter(), null, new Date());
+
+        assertThat(log.getLastSequence(), is(0L));
+
+        TransactionSynchronizationUtils.invokeAfterCommit(TransactionSynchronizationManager.getSynchronizations());
+        assertThat(log.getLastSequence(), is(1L));
+    }
+
+    @Test
+    public void record_shouldNotSaveTheChangeIfTheTransactionRollsBack() throws Exception {
+        TransactionSynchronizationManager.initSynchronization();
+        log.record(AdtChange.Type.CHECK_IN, visit, ward, new Encounter(), null, new Date());
+
+        TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+        assertThat(log.getLastSequence(), is(0L));
+    }
+
+    @Test
+    public void getChangesSince_shouldReturnTheChangesAfterTheSequenceInOrder() throws Exception {
+        recordTransfers(5);
+
+        AdtChanges changes = log.getChangesSince(log.getLogId(), 2, 10);
+
+        assertThat(changes.isReset(), is(false));
+        assertThat(changes.getChanges().size(), is(3));
+        assertThat(changes.getChanges().get(0).getSequence(), is(3L));
+        assertThat(changes.getChanges().get(2).getSequence(), is(5L));
+        assertThat(changes.getLastSequence(), is(5L));
+        assertThat(changes.isMore(), is(false));
+    }
+
+    @Test
+    public void getChangesSince_shouldReturnABatchAtATime() throws Exception {
+        recordTransfers(5);
+
+        AdtChanges first = log.getChangesSince(null, 0, 2);
+        assertThat(first.getChanges().size(), is(2));
+        assertThat(first.getLastSequence(), is(2L));
+        assertThat(first.isMore(), is(true));
+
+        AdtChanges last = log.getChangesSince(first.getLogId(), 4, 2);
+        assertThat(last.getChanges().size(), is(1));
+        assertThat(last.isMore(), is(false));
+
+        AdtChanges none = log.getChangesSince(first.getLogId(), 5, 2);
+        assertThat(none.getChanges().size(), is(0));
+        assertThat(none.getLastSequence(), is(5L));
+        assertThat(none.isReset(), is(false));
+    }
+
+    @Test
+    public void getChangesSince_shouldResetAConsumerOfAnotherLog() throws Exception {
+        recordTransfers(3);
+
+        AdtChanges changes = log.getChangesSince("another-log", 2, 10);
+
+        assertThat(changes.isReset(), is(true));
+        assertThat(changes.getLogId(), is("the-log"));
+        assertThat(changes.getChanges().size(), is(3));
+    }
+
+    @Test
+    public void getChangesSince_shouldResetAConsumerThatAsksForChangesThatWereDeleted() throws Exception {
+        recordTransfers(5);
+        dao.deleteChangesUpTo(2);
+
+        AdtChanges changes = log.getChangesSince(log.getLogId(), 1, 10);
+
+        assertThat(changes.isReset(), is(true));
+        assertThat(changes.getChanges().size(), is(3));
+        assertThat(changes.getChanges().get(0).getSequence(), is(3L));
+        assertThat(log.getChangesSince(log.getLogId(), 2, 10).isReset(), is(false));
+    }
+
+    @Test
+    public void getChangesSince_shouldWaitForAMissingSequenceUntilTheSettleTimeHasPassed() throws Exception {
+        recordTransfers(1);
+        // e.g. a change that another server is still saving
+        dao.skipSequence();
+        recordTransfers(1);
+
+        AdtChanges changes = log.getChangesSince(log.getLogId(), 0, 10);
+        assertThat(changes.getChanges().size(), is(1));
+        assertThat(changes.getLastSequence(), is(1L));
+        assertThat(changes.isPending(), is(true));
+        assertThat(changes.isMore(), is(false));
+
+        log.setSettleTime(0);
+        Thread.sleep(5);
+        changes = log.getChangesSince(log.getLogId(), 1, 10);
+        assertThat(changes.getChanges().size(), is(1));
+        assertThat(changes.getChanges().get(0).getSequence(), is(3L));
+        assertThat(changes.isPending(), is(false));
+        assertThat(changes.isReset(), is(false));
+    }
+
+    @Test
+    public void createLogId_shouldCreateTheLogIdOnce() throws Exception {
+        assertThat(log.createLogId(), is(false));
+        verify(administrationService, never()).saveGlobalProperty(any(GlobalProperty.class));
+
+        when(administrationService.getGlobalProperty(EmrApiConstants.GP_ADT_CHANGE_LOG_ID)).thenReturn(null);
+        assertThat(log.createLogId(), is(true));
+        verify(administrationService).saveGlobalProperty(any(GlobalProperty.class));
+    }
+
+    private void recordTransfers(int count) {
+        for (int i = 0; i < count; i++) {
+            log.record(AdtChange.Type.TRANSFER, visit, ward, new Encounter(), null, new Date());
+        }
+    }
+
+}
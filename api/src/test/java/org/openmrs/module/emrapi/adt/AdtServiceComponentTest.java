@@ -30,6 +30,8 @@ import org.openmrs.Location;
 import org.openmrs.LocationTag;
 import org.openmrs.Obs;
 import org.openmrs.Patient;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonAttributeType;
 import org.openmrs.Provider;
 import org.openmrs.Visit;
 import org.openmrs.api.ConceptService;
@@ -52,6 +54,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -62,6 +65,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -437,6 +441,101 @@ public class AdtServiceComponentTest extends BaseModuleContextSensitiveTest {
     }
 
 
+    @Test
+    public void testGetActiveVisitSummariesAgreesWithGetActiveVisits() throws Exception {
+        Patient patient = patientService.getPatient(7);
+        Location location = locationService.getLocation(1);
+
+        Visit visit = new Visit();
+        visit.setStartDatetime(DateUtils.addHours(new Date(), -2));
+        visit.setPatient(patient);
+        visit.setLocation(location);
+        visit.setVisitType(emrApiProperties.getAtFacilityVisitType());
+        visitService.saveVisit(visit);
+
+        Encounter checkIn = new Encounter();
+        checkIn.setPatient(patient);
+        checkIn.setEncounterType(emrApiProperties.getCheckInEncounterType());
+        checkIn.setEncounterDatetime(DateUtils.addHours(new Date(), -1));
+        checkIn.setVisit(visit);
+        encounterService.saveEncounter(checkIn);
+
+        List<VisitDomainWrapper> expected = service.getActiveVisits(location);
+        List<VisitSummary> actual = service.getActiveVisitSummaries(location);
+
+        assertThat(actual.size(), is(expected.size()));
+        Map<Integer, VisitDomainWrapper> expectedById = new HashMap<Integer, VisitDomainWrapper>();
+        for (VisitDomainWrapper wrapper : expected) {
+            expectedById.put(wrapper.getVisit().getVisitId(), wrapper);
+        }
+        for (VisitSummary summary : actual) {
+            VisitDomainWrapper wrapper = expectedById.get(summary.getVisitId());
+            assertNotNull(wrapper);
+            assertThat(summary.getPatient().getPatientId(), is(wrapper.getVisit().getPatient().getPatientId()));
+            assertThat(summary.getCheckInEncounterId(), is(wrapper.getCheckInEncounter() == null ? null : wrapper.getCheckInEncounter().getEncounterId()));
+            assertThat(summary.getMostRecentEncounterId(), is(wrapper.getMostRecentEncounter() == null ? null : wrapper.getMostRecentEncounter().getEncounterId()));
+            assertThat(summary.isAdmitted(), is(wrapper.isAdmitted()));
+        }
+        assertThat(expectedById.get(visit.getVisitId()), notNullValue());
+    }
+
+    @Test
+    public void testGetActiveVisitsLeavesOutTestPatients() throws Exception {
+        PersonAttributeType testPatient = new PersonAttributeType();
+        testPatient.setName("Test Patient");
+        testPatient.setFormat("java.lang.Boolean");
+        testPatient.setUuid(EmrApiConstants.TEST_PATIENT_ATTRIBUTE_UUID);
+        Context.getPersonService().savePersonAttributeType(testPatient);
+
+        Patient patient = patientService.getPatient(7);
+        patient.addAttribute(new PersonAttribute(testPatient, "true"));
+        patientService.savePatient(patient);
+        Location location = locationService.getLocation(1);
+
+        Visit visit = new Visit();
+        visit.setStartDatetime(DateUtils.addHours(new Date(), -2));
+        visit.setPatient(patient);
+        visit.setLocation(location);
+        visit.setVisitType(emrApiProperties.getAtFacilityVisitType());
+        visitService.saveVisit(visit);
+
+        for (VisitDomainWrapper active : service.getActiveVisits(location)) {
+            assertThat(active.getVisit().getPatient().getPatientId(), not(patient.getPatientId()));
+        }
+        for (VisitSummary summary : service.getActiveVisitSummaries(location)) {
+            assertThat(summary.getPatient().getPatientId(), not(patient.getPatientId()));
+        }
+    }
+
+    @Test
+    public void testGetActiveVisitsAndSummariesBothLeaveOutVoidedPatients() throws Exception {
+        Patient patient = patientService.getPatient(7);
+        Location location = locationService.getLocation(1);
+
+        Visit visit = new Visit();
+        visit.setStartDatetime(DateUtils.addHours(new Date(), -2));
+        visit.setPatient(patient);
+        visit.setLocation(location);
+        visit.setVisitType(emrApiProperties.getAtFacilityVisitType());
+        visitService.saveVisit(visit);
+
+        patient.setVoided(true);
+        patient.setVoidReason("testing");
+        patientService.savePatient(patient);
+
+        Set<Integer> visitIds = new HashSet<Integer>();
+        for (VisitDomainWrapper active : service.getActiveVisits(location)) {
+            visitIds.add(active.getVisit().getVisitId());
+        }
+        Set<Integer> summaryVisitIds = new HashSet<Integer>();
+        for (VisitSummary summary : service.getActiveVisitSummaries(location)) {
+            summaryVisitIds.add(summary.getVisitId());
+        }
+
+        assertThat(visitIds.contains(visit.getVisitId()), is(false));
+        assertThat(summaryVisitIds, is(visitIds));
+    }
+
     /**
      * I'm sure there's a standard matcher for this, but sometimes we run into bugs comparing a Date to a java.sql.Timestamp
      * @param expected
@@ -38,6 +38,7 @@ import org.openmrs.Provider;
 import org.openmrs.User;
 import org.openmrs.Visit;
 import org.openmrs.VisitType;
+import org.openmrs.api.AdministrationService;
 import org.openmrs.api.EncounterService;
 import org.openmrs.api.PatientService;
 import org.openmrs.api.ProviderService;
@@ -52,6 +53,7 @@ import org.openmrs.module.emrapi.visit.VisitDomainWrapper;
 import org.openmrs.serialization.SerializationException;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -124,6 +126,9 @@ public class AdtServiceTest {
     private Location radiologyDepartment;
     private PersonAttributeType unknownPatientPersonAttributeType;
     private PatientIdentifierType paperRecordIdentifierType;
+    private AdtChangeLog adtChangeLog;
+    private CensusService censusService;
+    private AdtDAO adtDAO;
 
     @Before
     public void setup() {
@@ -198,6 +203,15 @@ public class AdtServiceTest {
         service.setProviderService(mockProviderService);
         service.setEmrApiProperties(emrApiProperties);
         service.setDispositionService(mockDispositionService);
+        adtChangeLog = new AdtChangeLog();
+        adtChangeLog.setAdtChangeDAO(new InMemoryAdtChangeDAO());
+        adtChangeLog.setAdministrationService(mock(AdministrationService.class));
+        adtChangeLog.setTransactionManager(mock(PlatformTransactionManager.class));
+        service.setAdtChangeLog(adtChangeLog);
+        censusService = mock(CensusService.class);
+        service.setCensusService(censusService);
+        adtDAO = mock(AdtDAO.class);
+        service.setDao(adtDAO);
         this.service = service;
     }
 
@@ -495,10 +509,7 @@ public class AdtServiceTest {
         expectedLocations.add(outpatientDepartment);
         expectedLocations.add(inpatientDepartment);
 
-        when(
-                mockVisitService.getVisits(any(Collection.class), any(Collection.class), eq(expectedLocations),
-                        any(Collection.class), any(Date.class), any(Date.class), any(Date.class), any(Date.class), any(Map.class),
-                        eq(false), eq(false))).thenReturn(Arrays.asList(visit1, visit2));
+        when(adtDAO.getActiveVisits(eq(expectedLocations), any(PersonAttributeType.class))).thenReturn(Arrays.asList(visit1, visit2));
 
         List<VisitDomainWrapper> activeVisitSummaries = service.getActiveVisits(mirebalaisHospital);
 
@@ -835,6 +846,37 @@ public class AdtServiceTest {
         }));
     }
 
+    @Test
+    public void test_admitPatient_recordsTheAdmissionInTheChangeLog() throws Exception {
+        Patient patient = new Patient();
+        Visit visit = buildVisit(patient, atFacilityVisitType, mirebalaisHospital, new Date(), null);
+        when(mockVisitService.getVisitsByPatient(patient)).thenReturn(Arrays.asList(visit));
+
+        Encounter encounter = service.createAdtEncounterFor(new AdtAction(visit, inpatientDepartment, buildProviderMap(), ADMISSION));
+
+        List<AdtChange> changes = adtChangeLog.getChangesSince(null, 0, 10).getChanges();
+        assertThat(changes.size(), is(1));
+        assertThat(changes.get(0).getType(), is(AdtChange.Type.ADMISSION));
+        assertThat(changes.get(0).getVisitUuid(), is(visit.getUuid()));
+        assertThat(changes.get(0).getLocationUuid(), is(inpatientDepartment.getUuid()));
+        assertThat(changes.get(0).getEncounterUuid(), is(encounter.getUuid()));
+    }
+
+    @Test
+    public void test_admitPatient_evictsTheCensusFromTheAdmissionOn() throws Exception {
+        Patient patient = new Patient();
+        Date visitStart = DateUtils.addDays(new Date(), -3);
+        Date admissionDatetime = DateUtils.addDays(new Date(), -2);
+        Visit visit = buildVisit(patient, atFacilityVisitType, mirebalaisHospital, visitStart, null);
+        when(mockVisitService.getVisitsByPatient(patient)).thenReturn(Arrays.asList(visit));
+
+        AdtAction admission = new AdtAction(visit, inpatientDepartment, buildProviderMap(), ADMISSION);
+        admission.setActionDatetime(admissionDatetime);
+        service.createAdtEncounterFor(admission);
+
+        verify(censusService).evictCache(admissionDatetime);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void test_dischargePatient_failsIfPatientIsNotAdmitted() throws Exception {
         Patient patient = new Patient();
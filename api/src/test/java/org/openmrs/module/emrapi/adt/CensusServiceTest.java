@@ -0,0 +1,156 @@
+package org.openmrs.module.emrapi.adt;
+
+import org.apache.commons.lang.time.DateUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.EncounterType;
+import org.openmrs.PersonAttributeType;
+import org.openmrs.module.emrapi.EmrApiProperties;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CensusServiceTest {
+
+    private static final int ADMISSION = 1;
+
+    private static final int TRANSFER = 2;
+
+    private static final int EXIT = 3;
+
+    private static final int WARD_A = 10;
+
+    private static final int WARD_B = 20;
+
+    private CensusServiceImpl service;
+
+    private Date start;
+
+    private List<Object[]> rows = new ArrayList<Object[]>();
+
+    private int queries = 0;
+
+    private EmrApiProperties emrApiProperties;
+
+    private PersonAttributeType queriedTestPatientAttributeType;
+
+    @Before
+    public void setUp() throws Exception {
+        emrApiProperties = mock(EmrApiProperties.class);
+        when(emrApiProperties.getAdmissionEncounterType()).thenReturn(new EncounterType(ADMISSION));
+        when(emrApiProperties.getTransferWithinHospitalEncounterType()).thenReturn(new EncounterType(TRANSFER));
+        when(emrApiProperties.getExitFromInpatientEncounterType()).thenReturn(new EncounterType(EXIT));
+
+        service = new CensusServiceImpl();
+        service.setEmrApiProperties(emrApiProperties);
+        service.setDao(new CensusDAO() {
+            @Override
+            public void streamAdtEncounters(Date fromDate, Date toDate, Collection<EncounterType> encounterTypes,
+                                            PersonAttributeType testPatientAttributeType, RowCallback callback) {
+                queries++;
+                queriedTestPatientAttributeType = testPatientAttributeType;
+                for (Object[] row : rows) {
+                    if (((Date) row[3]).before(toDate)) {
+                        callback.handle(row);
+                    }
+                }
+            }
+        });
+
+        start = DateUtils.addDays(DateUtils.truncate(new Date(), Calendar.DATE), -10);
+
+        // visit 1 is admitted to A the day before the range, and transferred to B on day 1
+        row(1, null, ADMISSION, day(-1, 10), WARD_A);
+        row(1, null, TRANSFER, day(1, 9), WARD_B);
+        // visit 2 is admitted to A on day 0, and discharged on day 2
+        row(2, null, ADMISSION, day(0, 12), WARD_A);
+        row(2, null, EXIT, day(2, 8), null);
+        // visit 3 is admitted to B on day 1, and its visit is closed without a discharge on day 3
+        row(3, day(3, 15), ADMISSION, day(1, 16), WARD_B);
+    }
+
+    @Test
+    public void shouldComputeTheMidnightCensusAndActivityOfEachWard() throws Exception {
+        List<WardCensus> census = service.getDailyCensus(day(0, 0), day(3, 0));
+
+        assertThat(census.size(), is(6));
+        assertCensus(census.get(0), day(0, 0), WARD_A, 2, 1, 0, 0, 0);
+        assertCensus(census.get(1), day(1, 0), WARD_A, 1, 0, 0, 0, 1);
+        assertCensus(census.get(2), day(1, 0), WARD_B, 2, 1, 0, 1, 0);
+        assertCensus(census.get(3), day(2, 0), WARD_A, 0, 0, 1, 0, 0);
+        assertCensus(census.get(4), day(2, 0), WARD_B, 2, 0, 0, 0, 0);
+        assertCensus(census.get(5), day(3, 0), WARD_B, 1, 0, 1, 0, 0);
+    }
+
+    @Test
+    public void shouldSumBedDaysPerWard() throws Exception {
+        Map<Integer, Integer> bedDays = service.getBedDays(day(0, 0), day(3, 0));
+
+        assertThat(bedDays.get(WARD_A), is(3));
+        assertThat(bedDays.get(WARD_B), is(5));
+    }
+
+    @Test
+    public void shouldOnlyComputeDaysThatAreNotCached() throws Exception {
+        service.getDailyCensus(day(0, 0), day(3, 0));
+        List<WardCensus> census = service.getDailyCensus(day(1, 0), day(2, 0));
+
+        assertThat(queries, is(1));
+        assertThat(census.size(), is(4));
+
+        service.evictCache(day(2, 0));
+        service.getDailyCensus(day(1, 0), day(2, 0));
+        assertThat(queries, is(2));
+    }
+
+    @Test
+    public void shouldLeaveOutTestPatientsIfTheirAttributeTypeIsConfigured() throws Exception {
+        PersonAttributeType testPatient = new PersonAttributeType(30);
+        when(emrApiProperties.getTestPatientPersonAttributeType()).thenReturn(testPatient);
+
+        service.getDailyCensus(day(0, 0), day(3, 0));
+
+        assertThat(queriedTestPatientAttributeType, is(testPatient));
+    }
+
+    @Test
+    public void shouldComputeTheCensusIfTheTestPatientAttributeTypeIsNotConfigured() throws Exception {
+        when(emrApiProperties.getTestPatientPersonAttributeType()).thenThrow(
+                new IllegalStateException("Configuration required: Test Patient Attribute UUID"));
+
+        List<WardCensus> census = service.getDailyCensus(day(0, 0), day(3, 0));
+
+        assertThat(queries, is(1));
+        assertThat(queriedTestPatientAttributeType, nullValue());
+        assertThat(census.size(), is(6));
+    }
+
+    private void assertCensus(WardCensus census, Date day, Integer locationId, int midnightCensus, int admissions,
+                              int discharges, int transfersIn, int transfersOut) {
+        assertThat(census.getDay(), is(day));
+        assertThat(census.getLocationId(), is(locationId));
+        assertThat(census.getMidnightCensus(), is(midnightCensus));
+        assertThat(census.getAdmissions(), is(admissions));
+        assertThat(census.getDischarges(), is(discharges));
+        assertThat(census.getTransfersIn(), is(transfersIn));
+        assertThat(census.getTransfersOut(), is(transfersOut));
+    }
+
+    private Date day(int day, int hour) {
+        return DateUtils.addHours(DateUtils.addDays(start, day), hour);
+    }
+
+    private void row(Integer visitId, Date visitStop, Integer typeId, Date datetime, Integer locationId) {
+        rows.add(new Object[] { visitId, visitStop, typeId, datetime, locationId });
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.adt;
+
+import org.hibernate.SessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class HibernateAdtChangeDAOComponentTest extends BaseModuleContextSensitiveTest {
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    private HibernateAdtChangeDAO dao;
+
+    @Before
+    public void setUp() throws Exception {
+        dao = new HibernateAdtChangeDAO();
+        dao.setSessionFactory(sessionFactory);
+    }
+
+    @Test
+    public void shouldGiveEachSavedChangeTheNextSequence() throws Exception {
+        AdtChange admission = change(AdtChange.Type.ADMISSION);
+        AdtChange transfer = change(AdtChange.Type.TRANSFER);
+        dao.saveChange(admission);
+        dao.saveChange(transfer);
+
+        assertThat(transfer.getSequence(), is(admission.getSequence() + 1));
+        assertThat(dao.getFirstSequence(), is(admission.getSequence()));
+        assertThat(dao.getLastSequence(), is(transfer.getSequence()));
+    }
+
+    @Test
+    public void shouldReadTheChangesAfterASequenceInOrder() throws Exception {
+        AdtChange checkIn = change(AdtChange.Type.CHECK_IN);
+        AdtChange admission = change(AdtChange.Type.ADMISSION);
+        AdtChange discharge = change(AdtChange.Type.DISCHARGE);
+        dao.saveChange(checkIn);
+        dao.saveChange(admission);
+        dao.saveChange(discharge);
+        sessionFactory.getCurrentSession().flush();
+        sessionFactory.getCurrentSession().clear();
+
+        List<AdtChange> changes = dao.getChangesAfter(checkIn.getSequence(), 10);
+
+        assertThat(changes.size(), is(2));
+        assertThat(changes.get(0).getSequence(), is(admission.getSequence()));
+        assertThat(changes.get(0).getType(), is(AdtChange.Type.ADMISSION));
+        assertThat(changes.get(0).getVisitUuid(), is(admission.getVisitUuid()));
+        assertThat(changes.get(1).getType(), is(AdtChange.Type.DISCHARGE));
+        assertThat(dao.getChangesAfter(checkIn.getSequence(), 1).size(), is(1));
+    }
+
+    private AdtChange change(AdtChange.Type type) {
+        return new AdtChange(type, new Date(), new Date(), "patient-uuid", "visit-uuid-" + type, "location-uuid",
+                "encounter-uuid", null);
+    }
+
+}
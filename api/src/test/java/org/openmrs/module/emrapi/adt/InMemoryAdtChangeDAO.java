@@ -0,0 +1,72 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.adt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Keeps the changes in a map, for tests that don't have a database
+ */
+public class InMemoryAdtChangeDAO implements AdtChangeDAO {
+
+    private final TreeMap<Long, AdtChange> changes = new TreeMap<Long, AdtChange>();
+
+    private long lastSequence;
+
+    @Override
+    public void saveChange(AdtChange change) {
+        change.setSequence(++lastSequence);
+        changes.put(change.getSequence(), change);
+    }
+
+    @Override
+    public List<AdtChange> getChangesAfter(long sequence, int maxResults) {
+        List<AdtChange> after = new ArrayList<AdtChange>();
+        for (Map.Entry<Long, AdtChange> entry : changes.tailMap(sequence + 1).entrySet()) {
+            if (after.size() == maxResults) {
+                break;
+            }
+            after.add(entry.getValue());
+        }
+        return after;
+    }
+
+    @Override
+    public long getFirstSequence() {
+        return changes.isEmpty() ? 0 : changes.firstKey();
+    }
+
+    @Override
+    public long getLastSequence() {
+        return changes.isEmpty() ? 0 : changes.lastKey();
+    }
+
+    /**
+     * Takes the next sequence without saving a change, like a save that is still in progress
+     */
+    public void skipSequence() {
+        lastSequence++;
+    }
+
+    /**
+     * @param sequence the last sequence to delete
+     */
+    public void deleteChangesUpTo(long sequence) {
+        changes.headMap(sequence + 1).clear();
+    }
+
+}
@@ -27,11 +27,18 @@ import org.openmrs.ConceptName;
 import org.openmrs.ConceptReferenceTerm;
 import org.openmrs.ConceptSearchResult;
 import org.openmrs.ConceptSource;
+import org.openmrs.GlobalProperty;
+import org.openmrs.api.AdministrationService;
 import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.emrapi.EmrApiConstants;
+import org.openmrs.module.emrapi.EmrApiProperties;
+import org.openmrs.module.emrapi.metrics.CacheStats;
+import org.openmrs.module.emrapi.metrics.MetricsRegistry;
 import org.openmrs.module.emrapi.test.builder.ConceptBuilder;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 
 import java.util.Collections;
 import java.util.HashMap;
@@ -54,9 +61,24 @@ public class EmrConceptServiceComponentTest extends BaseModuleContextSensitiveTe
     @Autowired
     private EmrConceptService emrConceptService;
 
+    @Autowired
+    private AdministrationService administrationService;
+
+    @Autowired
+    private EmrApiProperties emrApiProperties;
+
+    @Autowired
+    private ConceptReferenceCache conceptReferenceCache;
+
+    @Autowired
+    @Qualifier("emrApiMetrics")
+    private MetricsRegistry emrApiMetrics;
+
     @Before
     public void setUp() throws Exception {
         executeDataSet("conceptMapTypes.xml");
+        // concept events are only sent once the transaction commits, which tests never do
+        conceptReferenceCache.invalidate();
     }
 
     @Test
@@ -87,6 +109,22 @@ public class EmrConceptServiceComponentTest extends BaseModuleContextSensitiveTe
         assertThat(actual, IsIterableContainingInAnyOrder.containsInAnyOrder(foodAssistance, foodAssistanceForEntireFamily));
     }
 
+    @Test
+    public void testGetConceptRemembersWhatEachReferenceResolvedTo() throws Exception {
+        Map<String, Concept> concepts = setupConcepts();
+        CacheStats before = emrApiMetrics.getCache(ConceptReferenceCache.METRICS_NAME).getStats();
+
+        assertThat(emrConceptService.getConcept("ICD-10:E11.9"), is(concepts.get("diabetes")));
+        assertThat(emrConceptService.getConcept("ICD-10:E11.9"), is(concepts.get("diabetes")));
+        assertThat(emrConceptService.getConcept("ICD-10:nonexistent"), nullValue());
+        assertThat(emrConceptService.getConcept("ICD-10:nonexistent"), nullValue());
+
+        CacheStats after = emrApiMetrics.getCache(ConceptReferenceCache.METRICS_NAME).getStats();
+        // the first lookup also misses the concepts mapped to the E11.9 reference term
+        assertThat(after.getMisses() - before.getMisses(), is(3L));
+        assertThat(after.getHits() - before.getHits(), is(2L));
+    }
+
     @Test
     public void testConceptSearchByName() throws Exception {
         Map<String, Concept> concepts = setupConcepts();
@@ -149,6 +187,75 @@ public class EmrConceptServiceComponentTest extends BaseModuleContextSensitiveTe
         assertThat(firstResult.getConcept(), is(concepts.get("diabetes")));
     }
 
+    @Test
+    public void testDiagnosisSearchIsAnsweredFromTheCompleteSearchForAPrefix() throws Exception {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        ConceptSearchCache cache = setupDiagnosisSearchCache(metricsRegistry);
+
+        List<ConceptNameMatch> results = cache.searchDiagnoses("mal", Locale.ENGLISH, 10);
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getMatchedName(), is("Malaria"));
+
+        results = cache.searchDiagnoses("Clinical  Mal", Locale.ENGLISH, 10);
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getMatchedName(), is("Clinical Malaria"));
+        assertThat(results.get(0).getConceptName(), is("Malaria"));
+
+        results = cache.searchDiagnoses("clinical malaria", Locale.ENGLISH, 10);
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getMatchedName(), is("Clinical Malaria"));
+
+        CacheStats stats = metricsRegistry.getCaches().get(0);
+        assertThat(stats.getMisses(), is(2L));
+        assertThat(stats.getHits(), is(1L));
+    }
+
+    @Test
+    public void testDiagnosisSearchIsNotAnsweredFromASearchThatReachedItsLimit() throws Exception {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        ConceptSearchCache cache = setupDiagnosisSearchCache(metricsRegistry);
+
+        assertThat(cache.searchDiagnoses("mal", Locale.ENGLISH, 1).size(), is(1));
+        assertThat(cache.searchDiagnoses("mala", Locale.ENGLISH, 1).size(), is(1));
+
+        assertThat(metricsRegistry.getCaches().get(0).getMisses(), is(2L));
+    }
+
+    @Test
+    public void testDiagnosisSearchNamesTheConceptsInTheLocaleOfEachUser() throws Exception {
+        ConceptSearchCache cache = setupDiagnosisSearchCache(new MetricsRegistry());
+        Locale userLocale = Context.getLocale();
+        try {
+            Context.setLocale(Locale.FRENCH);
+            List<ConceptNameMatch> results = cache.searchDiagnoses("mal", Locale.ENGLISH, 10);
+            assertThat(results.get(0).getMatchedName(), is("Malaria"));
+            assertThat(results.get(0).getConceptName(), is("Paludisme"));
+
+            Context.setLocale(Locale.ENGLISH);
+            results = cache.searchDiagnoses("mal", Locale.ENGLISH, 10);
+            assertThat(results.get(0).getMatchedName(), is("Malaria"));
+            assertThat(results.get(0).getConceptName(), is("Malaria"));
+        }
+        finally {
+            Context.setLocale(userLocale);
+        }
+    }
+
+    private ConceptSearchCache setupDiagnosisSearchCache(MetricsRegistry metricsRegistry) {
+        Map<String, Concept> concepts = setupConcepts();
+        Concept setOfSets = conceptService.saveConcept(new ConceptBuilder(conceptService,
+                conceptService.getConceptDatatypeByName("N/A"), conceptService.getConceptClassByName("ConvSet"))
+                .add(new ConceptName("Diagnosis Sets", Locale.ENGLISH))
+                .addSetMember(concepts.get("allowedDiagnoses")).get());
+        administrationService.saveGlobalProperty(new GlobalProperty(EmrApiConstants.GP_DIAGNOSIS_SET_OF_SETS, setOfSets.getUuid()));
+
+        ConceptSearchCache cache = new ConceptSearchCache();
+        cache.setEmrConceptService(emrConceptService);
+        cache.setEmrApiProperties(emrApiProperties);
+        cache.setMetricsRegistry(metricsRegistry);
+        return cache;
+    }
+
     private Map<String, Concept> setupConcepts() {
         Map<String, Concept> concepts = new HashMap<String, Concept>();
 
@@ -8,16 +8,23 @@ import org.openmrs.EncounterType;
 import org.openmrs.api.ConceptService;
 import org.openmrs.api.EncounterService;
 import org.openmrs.api.ObsService;
+import org.openmrs.api.context.Context;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import static org.junit.Assert.assertThat;
 import static org.hamcrest.CoreMatchers.is;
 
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 public class EmrEncounterDAOComponentTest extends BaseModuleContextSensitiveTest {
 
+    private static final String VISIT_UUID = "3c5e8a1b-5b0e-4a8e-9c57-0f3b2d6e7a10";
+
     @Autowired
     private EmrEncounterDAO emrEncounterDAO;
 
@@ -92,4 +99,73 @@ public class EmrEncounterDAOComponentTest extends BaseModuleContextSensitiveTest
         assertThat(encounters.get(0).getId(),is(1000));
     }
 
+    @Test
+    public void getEncountersByObsValueTexts_shouldReturnTheEncountersOfEachValue() {
+        Concept concept = conceptService.getConcept(19);
+        Map<String, List<Encounter>> encounters = emrEncounterDAO.getEncountersByObsValueTexts(concept,
+                Arrays.asList("duplicate", "some test value", "some bogus value"), null, false);
+        assertThat(encounters.size(), is(3));
+        assertThat(encounters.keySet().iterator().next(), is("duplicate"));
+        assertThat(encounters.get("duplicate").size(), is(1));
+        assertThat(encounters.get("duplicate").get(0).getId(), is(1000));
+        assertThat(encounters.get("some test value").size(), is(1));
+        assertThat(encounters.get("some test value").get(0).getId(), is(1000));
+        assertThat(encounters.get("some bogus value").size(), is(0));
+    }
+
+    @Test
+    public void getEncountersByObsValueTexts_shouldIncludeVoidedObsIfIncludeVoidedTrue() {
+        Map<String, List<Encounter>> encounters = emrEncounterDAO.getEncountersByObsValueTexts(null,
+                Arrays.asList("some test value", "duplicate"), null, true);
+        assertThat(encounters.get("some test value").size(), is(2));
+        assertThat(encounters.get("duplicate").size(), is(1));
+    }
+
+    @Test
+    public void getEncountersByObsValueTexts_shouldExcludeEncountersIfNotOfProperType() {
+        EncounterType encounterType = encounterService.getEncounterType(1);
+        Map<String, List<Encounter>> encounters = emrEncounterDAO.getEncountersByObsValueTexts(null,
+                Arrays.asList("some test value", "duplicate"), encounterType, false);
+        assertThat(encounters.get("some test value").size(), is(0));
+        assertThat(encounters.get("duplicate").size(), is(0));
+    }
+
+    @Test
+    public void getEncountersByVisitUuid_shouldReturnTheEncountersInTheWindowEarliestFirst() throws Exception {
+        List<Encounter> encounters = emrEncounterDAO.getEncountersByVisitUuid(VISIT_UUID, date("2008-08-01 00:00"), date("2008-08-03 00:00"), null, null);
+        assertThat(encounters.size(), is(4));
+        assertThat(encounters.get(0).getId(), is(1002));
+        assertThat(encounters.get(1).getId(), is(1003));
+        assertThat(encounters.get(2).getId(), is(1004));
+        assertThat(encounters.get(3).getId(), is(1005));
+    }
+
+    @Test
+    public void getEncountersByVisitUuid_shouldReturnVoidedEncountersLikeTheVisitDoes() throws Exception {
+        List<Encounter> encounters = emrEncounterDAO.getEncountersByVisitUuid(VISIT_UUID, date("2008-08-02 11:00"), date("2008-08-02 12:00"), null, null);
+        assertThat(encounters.size(), is(1));
+        assertThat(encounters.get(0).getId(), is(1005));
+        assertThat(encounters.get(0).isVoided(), is(true));
+        assertThat(Context.getVisitService().getVisitByUuid(VISIT_UUID).getEncounters().contains(encounters.get(0)), is(true));
+    }
+
+    @Test
+    public void getEncountersByVisitUuid_shouldExcludeEncountersAtTheEndOfTheWindow() throws Exception {
+        List<Encounter> encounters = emrEncounterDAO.getEncountersByVisitUuid(VISIT_UUID, date("2008-08-01 09:00"), date("2008-08-02 10:00"), null, null);
+        assertThat(encounters.size(), is(2));
+        assertThat(encounters.get(0).getId(), is(1002));
+        assertThat(encounters.get(1).getId(), is(1003));
+    }
+
+    @Test
+    public void getEncountersByVisitUuid_shouldReturnTheRequestedPage() throws Exception {
+        List<Encounter> encounters = emrEncounterDAO.getEncountersByVisitUuid(VISIT_UUID, date("2008-08-01 00:00"), date("2008-08-03 00:00"), 1, 1);
+        assertThat(encounters.size(), is(1));
+        assertThat(encounters.get(0).getId(), is(1003));
+    }
+
+    private Date date(String date) throws Exception {
+        return new SimpleDateFormat("yyyy-MM-dd HH:mm").parse(date);
+    }
+
 }
@@ -0,0 +1,101 @@
+package org.openmrs.module.emrapi.descriptor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.api.ConceptService;
+import org.openmrs.module.emrapi.EmrApiConstants;
+import org.openmrs.module.emrapi.diagnosis.DiagnosisMetadata;
+
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConceptSetDescriptorRegistryTest {
+
+    private ConceptService conceptService;
+
+    private ConceptSetDescriptorRegistry registry;
+
+    @Before
+    public void setUp() throws Exception {
+        conceptService = mock(ConceptService.class);
+
+        Concept diagnosisSet = new Concept(1);
+        when(conceptService.getConcept(1)).thenReturn(diagnosisSet);
+        diagnosisSet.addSetMember(mapped(2, EmrApiConstants.CONCEPT_CODE_CODED_DIAGNOSIS));
+        diagnosisSet.addSetMember(mapped(3, EmrApiConstants.CONCEPT_CODE_NON_CODED_DIAGNOSIS));
+        diagnosisSet.addSetMember(mapped(4, EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_ORDER));
+        diagnosisSet.addSetMember(mapped(5, EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CERTAINTY));
+        when(conceptService.getConceptByMapping(EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CONCEPT_SET,
+                EmrApiConstants.EMR_CONCEPT_SOURCE_NAME)).thenReturn(diagnosisSet);
+
+        registry = new ConceptSetDescriptorRegistry();
+        registry.setConceptService(conceptService);
+    }
+
+    @Test
+    public void shouldLookTheConceptsUpByMappingOnceUntilInvalidated() throws Exception {
+        registry.getDiagnosisMetadata();
+        DiagnosisMetadata diagnosisMetadata = registry.getDiagnosisMetadata();
+
+        assertThat(diagnosisMetadata.getDiagnosisSetConcept().getConceptId(), is(1));
+        assertThat(diagnosisMetadata.getCodedDiagnosisConcept().getConceptId(), is(2));
+        assertThat(diagnosisMetadata.getDiagnosisCertaintyConcept().getConceptId(), is(5));
+        verify(conceptService, times(1)).getConceptByMapping(EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CONCEPT_SET,
+                EmrApiConstants.EMR_CONCEPT_SOURCE_NAME);
+        verify(conceptService, times(1)).getConcept(2);
+
+        registry.invalidate();
+        registry.getDiagnosisMetadata();
+
+        verify(conceptService, times(2)).getConceptByMapping(EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CONCEPT_SET,
+                EmrApiConstants.EMR_CONCEPT_SOURCE_NAME);
+    }
+
+    @Test
+    public void shouldNotShareADescriptorBetweenCallers() throws Exception {
+        DiagnosisMetadata first = registry.getDiagnosisMetadata();
+        DiagnosisMetadata second = registry.getDiagnosisMetadata();
+        DiagnosisMetadata third = registry.getDiagnosisMetadata();
+
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(third, is(not(sameInstance(second))));
+        assertThat(third.getCodedDiagnosisConcept().getConceptId(), is(2));
+    }
+
+    @Test
+    public void shouldShareTheDiagnosisLookupTablesBetweenCallers() throws Exception {
+        DiagnosisMetadata first = registry.getDiagnosisMetadata();
+        DiagnosisMetadata second = registry.getDiagnosisMetadata();
+        DiagnosisMetadata third = registry.getDiagnosisMetadata();
+
+        assertThat(second.getOrdersByConceptId(), sameInstance(first.getOrdersByConceptId()));
+        assertThat(third.getCertaintiesByConceptId(), sameInstance(first.getCertaintiesByConceptId()));
+        assertThat(third.getDiagnosisOrderConcept().getConceptId(), is(4));
+    }
+
+    @Test
+    public void validate_shouldReportTheDescriptorsThatCannotBeBuilt() throws Exception {
+        List<String> problems = registry.validate();
+
+        assertThat(problems.size(), is(1));
+        assertThat(problems.get(0), containsString("DispositionDescriptor"));
+    }
+
+    private Concept mapped(Integer conceptId, String code) {
+        Concept concept = new Concept(conceptId);
+        when(conceptService.getConcept(conceptId)).thenReturn(concept);
+        when(conceptService.getConceptByMapping(code, EmrApiConstants.EMR_CONCEPT_SOURCE_NAME)).thenReturn(concept);
+        return concept;
+    }
+
+}
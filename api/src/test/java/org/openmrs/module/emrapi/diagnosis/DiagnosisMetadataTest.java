@@ -35,6 +35,7 @@ import org.openmrs.module.emrapi.test.MockMetadataTestUtil;
 import java.util.Locale;
 
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -81,6 +82,30 @@ public class DiagnosisMetadataTest {
         assertThat(diagnosisMetadata.getDiagnosisCertaintyConcept(), is(diagnosisCertainty));
     }
 
+    @Test
+    public void testConstructorBuildsAnswerLookupTables() throws Exception {
+        Concept primary = setupConcept(conceptService, "Primary", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_ORDER_PRIMARY);
+        primary.setConceptId(4);
+        Concept secondary = setupConcept(conceptService, "Secondary", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_ORDER_SECONDARY);
+        secondary.setConceptId(5);
+        Concept confirmed = setupConcept(conceptService, "Confirmed", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CERTAINTY_CONFIRMED);
+        confirmed.setConceptId(11);
+        Concept diagnosisOrder = setupConcept(conceptService, "Diagnosis Order", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_ORDER);
+        diagnosisOrder.addAnswer(new ConceptAnswer(primary));
+        diagnosisOrder.addAnswer(new ConceptAnswer(secondary));
+        Concept diagnosisCertainty = setupConcept(conceptService, "Diagnosis Certainty", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CERTAINTY);
+        diagnosisCertainty.addAnswer(new ConceptAnswer(confirmed));
+        setupConcept(conceptService, "Coded Diagnosis", EmrApiConstants.CONCEPT_CODE_CODED_DIAGNOSIS);
+        setupConcept(conceptService, "Non-Coded Diagnosis", EmrApiConstants.CONCEPT_CODE_NON_CODED_DIAGNOSIS);
+        setupConcept(conceptService, "Diagnosis Set", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CONCEPT_SET);
+
+        DiagnosisMetadata diagnosisMetadata = new DiagnosisMetadata(conceptService, emrConceptSource);
+        assertThat(diagnosisMetadata.getDiagnosisOrder(4), is(Diagnosis.Order.PRIMARY));
+        assertThat(diagnosisMetadata.getDiagnosisOrder(secondary), is(Diagnosis.Order.SECONDARY));
+        assertThat(diagnosisMetadata.getDiagnosisCertainty(11), is(Diagnosis.Certainty.CONFIRMED));
+        assertThat(diagnosisMetadata.getDiagnosisOrder(11), nullValue());
+    }
+
     private Concept setupConcept(ConceptService mockConceptService, String name, String mappingCode) {
         Concept concept = new Concept();
         concept.addName(new ConceptName(name, Locale.ENGLISH));
@@ -156,6 +156,35 @@ public class DiagnosisServiceComponentTest extends BaseModuleContextSensitiveTes
 	}
 
 
+	@Test
+	public void getDiagnosisSummariesShouldReturnDiagnosesMostRecentFirst() {
+		Patient patient = patientService.getPatient(2);
+		Concept malaria = conceptService.getConcept(11);
+		Obs older = buildDiagnosis(patient, "2013-08-10", Diagnosis.Order.SECONDARY, Diagnosis.Certainty.CONFIRMED, malaria).save().get();
+		Obs newer = buildDiagnosis(patient, "2013-09-10", Diagnosis.Order.PRIMARY, Diagnosis.Certainty.PRESUMED, "non-coded pain").save().get();
+
+		List<DiagnosisSummary> diagnoses = diagnosisService.getDiagnosisSummaries(patient, DateUtil.parseDate("2013-01-01", "yyyy-MM-dd"));
+		assertThat(diagnoses.size(), is(2));
+		assertThat(diagnoses.get(0).getObsGroupId(), is(newer.getObsId()));
+		assertThat(diagnoses.get(0).getNonCodedAnswer(), is("non-coded pain"));
+		assertThat(diagnoses.get(0).getOrder(), is(Diagnosis.Order.PRIMARY));
+		assertThat(diagnoses.get(1).getObsGroupId(), is(older.getObsId()));
+		assertThat(diagnoses.get(1).getCodedAnswerId(), is(malaria.getConceptId()));
+		assertThat(diagnoses.get(1).getCertainty(), is(Diagnosis.Certainty.CONFIRMED));
+	}
+
+	@Test
+	public void getUniqueDiagnosisSummariesShouldReturnNoCodedDuplicates() {
+		Patient patient = patientService.getPatient(2);
+		Concept malaria = conceptService.getConcept(11);
+		Obs obs1 = buildDiagnosis(patient, "2013-09-10", Diagnosis.Order.PRIMARY, Diagnosis.Certainty.PRESUMED, malaria).save().get();
+		buildDiagnosis(patient, "2013-08-10", Diagnosis.Order.PRIMARY, Diagnosis.Certainty.PRESUMED, malaria).save().get();
+
+		List<DiagnosisSummary> diagnoses = diagnosisService.getUniqueDiagnosisSummaries(patient, DateUtil.parseDate("2013-01-01", "yyyy-MM-dd"));
+		assertThat(diagnoses.size(), is(1));
+		assertThat(diagnoses.get(0).getObsGroupId(), is(obs1.getObsId()));
+	}
+
 	public static Matcher<Diagnosis> hasObs(final Obs obs) {
 		return new FeatureMatcher<Diagnosis, Obs>(is(obs), "obs", "obs") {
 			@Override
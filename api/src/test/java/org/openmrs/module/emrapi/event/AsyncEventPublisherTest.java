@@ -0,0 +1,203 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.event;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.MapMessage;
+import javax.jms.Message;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openmrs.event.Event;
+import org.openmrs.event.EventListener;
+import org.openmrs.event.EventMessage;
+import org.openmrs.module.emrapi.metrics.MetricsRegistry;
+import org.openmrs.module.emrapi.metrics.QueueStats;
+
+public class AsyncEventPublisherTest {
+	
+	private static final String TOPIC = "org.openmrs.module.emrapi.test.async";
+	
+	private MetricsRegistry metricsRegistry = new MetricsRegistry();
+	
+	private AsyncEventPublisher publisher;
+	
+	@After
+	public void tearDown() {
+		if (publisher != null) {
+			publisher.stop();
+		}
+	}
+	
+	/**
+	 * @verifies fire the event through the message broker
+	 * @see AsyncEventPublisher#publish(String, EventMessage)
+	 */
+	@Test
+	public void publish_shouldFireTheEventThroughTheMessageBroker() throws Exception {
+		final CountDownLatch received = new CountDownLatch(1);
+		final List<String> values = Collections.synchronizedList(new ArrayList<String>());
+		EventListener listener = new EventListener() {
+			
+			@Override
+			public void onMessage(Message message) {
+				try {
+					values.add(((MapMessage) message).getString("value"));
+				}
+				catch (Exception e) {}
+				received.countDown();
+			}
+		};
+		Event.subscribe(TOPIC, listener);
+		try {
+			publisher = new AsyncEventPublisher();
+			publisher.setMetricsRegistry(metricsRegistry);
+			publisher.start();
+			publisher.publish(TOPIC, message("1"));
+			
+			assertTrue(received.await(2, TimeUnit.SECONDS));
+			assertEquals("1", values.get(0));
+		}
+		finally {
+			Event.unsubscribe(TOPIC, listener);
+		}
+	}
+	
+	/**
+	 * @verifies drop the oldest queued event if the buffer is full and the policy is drop oldest
+	 * @see AsyncEventPublisher#publish(String, EventMessage)
+	 */
+	@Test
+	public void publish_shouldDropTheOldestQueuedEventIfTheBufferIsFullAndThePolicyIsDropOldest() throws Exception {
+		RecordingPublisher recording = new RecordingPublisher();
+		publisher = recording;
+		publisher.setCapacity(2);
+		publisher.setBatchSize(1);
+		publisher.setOverflowPolicy(AsyncEventPublisher.OverflowPolicy.DROP_OLDEST);
+		publisher.setMetricsRegistry(metricsRegistry);
+		publisher.start();
+		
+		publisher.publish(TOPIC, message("1"));
+		// the publisher's thread is now stuck firing the first event
+		assertTrue(recording.firing.await(2, TimeUnit.SECONDS));
+		publisher.publish(TOPIC, message("2"));
+		publisher.publish(TOPIC, message("3"));
+		publisher.publish(TOPIC, message("4"));
+		recording.release.countDown();
+		publisher.stop();
+		
+		assertEquals(3, recording.fired.size());
+		assertEquals("1", recording.fired.get(0));
+		assertEquals("3", recording.fired.get(1));
+		assertEquals("4", recording.fired.get(2));
+		QueueStats stats = metricsRegistry.getQueue(AsyncEventPublisher.METRICS_NAME).getStats();
+		assertEquals(4, stats.getEnqueued());
+		assertEquals(3, stats.getPublished());
+		assertEquals(1, stats.getDropped());
+		assertEquals(0, stats.getDepth());
+	}
+	
+	/**
+	 * @verifies wait for room if the buffer is full and the policy is block
+	 * @see AsyncEventPublisher#publish(String, EventMessage)
+	 */
+	@Test
+	public void publish_shouldWaitForRoomIfTheBufferIsFullAndThePolicyIsBlock() throws Exception {
+		RecordingPublisher recording = new RecordingPublisher();
+		publisher = recording;
+		publisher.setCapacity(1);
+		publisher.setBatchSize(1);
+		publisher.setOverflowPolicy(AsyncEventPublisher.OverflowPolicy.BLOCK);
+		publisher.setMetricsRegistry(metricsRegistry);
+		publisher.start();
+		
+		publisher.publish(TOPIC, message("1"));
+		assertTrue(recording.firing.await(2, TimeUnit.SECONDS));
+		publisher.publish(TOPIC, message("2"));
+		final CountDownLatch published = new CountDownLatch(1);
+		Thread caller = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				publisher.publish(TOPIC, message("3"));
+				published.countDown();
+			}
+		});
+		caller.start();
+		
+		assertFalse(published.await(200, TimeUnit.MILLISECONDS));
+		recording.release.countDown();
+		assertTrue(published.await(2, TimeUnit.SECONDS));
+		publisher.stop();
+		
+		assertEquals(3, recording.fired.size());
+		assertEquals("3", recording.fired.get(2));
+		assertEquals(0, metricsRegistry.getQueue(AsyncEventPublisher.METRICS_NAME).getStats().getDropped());
+	}
+	
+	/**
+	 * @verifies fire the event right away if the publisher is not running
+	 * @see AsyncEventPublisher#publish(String, EventMessage)
+	 */
+	@Test
+	public void publish_shouldFireTheEventRightAwayIfThePublisherIsNotRunning() throws Exception {
+		RecordingPublisher recording = new RecordingPublisher();
+		recording.release.countDown();
+		publisher = recording;
+		
+		publisher.publish(TOPIC, message("1"));
+		
+		assertEquals(1, recording.fired.size());
+		assertEquals(0, metricsRegistry.getQueue(AsyncEventPublisher.METRICS_NAME).getStats().getEnqueued());
+	}
+	
+	private EventMessage message(String value) {
+		EventMessage message = new EventMessage();
+		message.put("value", value);
+		return message;
+	}
+	
+	/**
+	 * Records the events instead of sending them, the first one is held until released
+	 */
+	private static class RecordingPublisher extends AsyncEventPublisher {
+		
+		private final CountDownLatch firing = new CountDownLatch(1);
+		
+		private final CountDownLatch release = new CountDownLatch(1);
+		
+		private final List<String> fired = Collections.synchronizedList(new ArrayList<String>());
+		
+		@Override
+		protected void fire(String topic, EventMessage message) {
+			firing.countDown();
+			try {
+				release.await(2, TimeUnit.SECONDS);
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			fired.add((String) message.get("value"));
+		}
+	}
+}
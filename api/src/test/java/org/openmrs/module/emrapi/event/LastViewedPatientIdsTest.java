@@ -0,0 +1,140 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.event;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LastViewedPatientIdsTest {
+
+	/**
+	 * @verifies parse the ids with the most recent first
+	 * @see LastViewedPatientIds#fromPropertyValue(String, int)
+	 */
+	@Test
+	public void fromPropertyValue_shouldParseTheIdsWithTheMostRecentFirst() throws Exception {
+		LastViewedPatientIds lastViewed = LastViewedPatientIds.fromPropertyValue("2,6,7", 10);
+		assertArrayEquals(new int[] { 7, 6, 2 }, lastViewed.toArray());
+	}
+
+	/**
+	 * @verifies keep only the most recent ids if there are more than the limit
+	 * @see LastViewedPatientIds#fromPropertyValue(String, int)
+	 */
+	@Test
+	public void fromPropertyValue_shouldKeepOnlyTheMostRecentIdsIfThereAreMoreThanTheLimit() throws Exception {
+		LastViewedPatientIds lastViewed = LastViewedPatientIds.fromPropertyValue("2,6,7,8", 3);
+		assertArrayEquals(new int[] { 8, 7, 6 }, lastViewed.toArray());
+		assertTrue(lastViewed.isFull());
+	}
+
+	/**
+	 * @verifies ignore blanks, whitespace and invalid ids
+	 * @see LastViewedPatientIds#fromPropertyValue(String, int)
+	 */
+	@Test
+	public void fromPropertyValue_shouldIgnoreBlanksWhitespaceAndInvalidIds() throws Exception {
+		assertEquals(0, LastViewedPatientIds.fromPropertyValue(null, 3).size());
+		assertEquals(0, LastViewedPatientIds.fromPropertyValue("", 3).size());
+		LastViewedPatientIds lastViewed = LastViewedPatientIds.fromPropertyValue(" 2, x,,6 ", 3);
+		assertArrayEquals(new int[] { 6, 2 }, lastViewed.toArray());
+	}
+
+	/**
+	 * @verifies ignore duplicates
+	 * @see LastViewedPatientIds#fromPropertyValue(String, int)
+	 */
+	@Test
+	public void fromPropertyValue_shouldIgnoreDuplicates() throws Exception {
+		LastViewedPatientIds lastViewed = LastViewedPatientIds.fromPropertyValue("2,6,2,7", 10);
+		assertArrayEquals(new int[] { 7, 2, 6 }, lastViewed.toArray());
+	}
+
+	/**
+	 * @verifies add the patient to the front
+	 * @see LastViewedPatientIds#add(int)
+	 */
+	@Test
+	public void add_shouldAddThePatientToTheFront() throws Exception {
+		LastViewedPatientIds lastViewed = LastViewedPatientIds.fromPropertyValue("2,6", 10);
+		assertTrue(lastViewed.add(9));
+		assertArrayEquals(new int[] { 9, 6, 2 }, lastViewed.toArray());
+	}
+
+	/**
+	 * @verifies move an existing patient to the front without removing any other
+	 * @see LastViewedPatientIds#add(int)
+	 */
+	@Test
+	public void add_shouldMoveAnExistingPatientToTheFrontWithoutRemovingAnyOther() throws Exception {
+		LastViewedPatientIds lastViewed = LastViewedPatientIds.fromPropertyValue("6,2,7,8", 4);
+		assertTrue(lastViewed.add(2));
+		assertArrayEquals(new int[] { 2, 8, 7, 6 }, lastViewed.toArray());
+	}
+
+	/**
+	 * @verifies drop the least recently viewed patient if the list is full
+	 * @see LastViewedPatientIds#add(int)
+	 */
+	@Test
+	public void add_shouldDropTheLeastRecentlyViewedPatientIfTheListIsFull() throws Exception {
+		LastViewedPatientIds lastViewed = LastViewedPatientIds.fromPropertyValue("2,6,7,8", 4);
+		assertTrue(lastViewed.add(999));
+		assertArrayEquals(new int[] { 999, 8, 7, 6 }, lastViewed.toArray());
+	}
+
+	/**
+	 * @verifies not change if the patient is already the most recent
+	 * @see LastViewedPatientIds#add(int)
+	 */
+	@Test
+	public void add_shouldNotChangeIfThePatientIsAlreadyTheMostRecent() throws Exception {
+		LastViewedPatientIds lastViewed = LastViewedPatientIds.fromPropertyValue("2,6", 10);
+		assertFalse(lastViewed.add(6));
+		assertArrayEquals(new int[] { 6, 2 }, lastViewed.toArray());
+	}
+
+	/**
+	 * @verifies list the ids from the least to the most recent
+	 * @see LastViewedPatientIds#toPropertyValue()
+	 */
+	@Test
+	public void toPropertyValue_shouldListTheIdsFromTheLeastToTheMostRecent() throws Exception {
+		LastViewedPatientIds lastViewed = new LastViewedPatientIds(5);
+		lastViewed.add(2);
+		lastViewed.add(6);
+		lastViewed.add(2);
+		assertEquals("6,2", lastViewed.toPropertyValue());
+	}
+
+	/**
+	 * @verifies drop the least recent ids if the value is too long
+	 * @see LastViewedPatientIds#toPropertyValue()
+	 */
+	@Test
+	public void toPropertyValue_shouldDropTheLeastRecentIdsIfTheValueIsTooLong() throws Exception {
+		LastViewedPatientIds lastViewed = new LastViewedPatientIds(100);
+		for (int i = 10000; i < 10100; i++) {
+			lastViewed.add(i);
+		}
+		String property = lastViewed.toPropertyValue();
+		assertTrue(property.length() <= LastViewedPatientIds.MAX_PROPERTY_LENGTH);
+		assertTrue(property.endsWith(",10099"));
+		assertFalse(property.startsWith(","));
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.metrics;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldReturnZeroIfNothingWasRecorded() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getValueAtPercentile(99), is(0L));
+    }
+
+    @Test
+    public void shouldKeepSmallValuesExact() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+
+        assertThat(histogram.getValueAtPercentile(50), is(5L));
+        assertThat(histogram.getValueAtPercentile(100), is(10L));
+        assertThat(histogram.getMax(), is(10L));
+        assertThat(histogram.getMean(), is(5.5));
+    }
+
+    @Test
+    public void shouldApproximatePercentilesWithinTheBucketPrecision() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertWithin(histogram.getValueAtPercentile(50), 500000L);
+        assertWithin(histogram.getValueAtPercentile(90), 900000L);
+        assertThat(histogram.getValueAtPercentile(100), is(1000000L));
+        assertThat(histogram.getCount(), is(1000L));
+    }
+
+    @Test
+    public void shouldMapEveryValueToABucketThatContainsIt() throws Exception {
+        long[] values = { 0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE / 2 };
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index < LatencyHistogram.BUCKETS);
+            assertTrue(LatencyHistogram.bucketHighestValue(index) >= value);
+            assertTrue(index == 0 || LatencyHistogram.bucketHighestValue(index - 1) < value);
+        }
+    }
+
+    @Test
+    public void shouldForgetEverythingOnReset() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(100);
+        histogram.reset();
+
+        assertThat(histogram.getCount(), is(0L));
+        assertThat(histogram.getMax(), is(0L));
+        assertThat(histogram.getValueAtPercentile(50), is(0L));
+    }
+
+    private void assertWithin(long actual, long expected) {
+        assertTrue("expected about " + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 16);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.metrics;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openmrs.Location;
+import org.openmrs.module.emrapi.adt.AdtService;
+
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MetricsInterceptorTest {
+
+    private MetricsRegistry metricsRegistry;
+
+    private MetricsInterceptor interceptor;
+
+    @Before
+    public void setUp() throws Exception {
+        metricsRegistry = new MetricsRegistry();
+        interceptor = new MetricsInterceptor();
+        interceptor.setMetricsRegistry(metricsRegistry);
+    }
+
+    @Test
+    public void shouldCountCallsAndErrorsPerMethod() throws Exception {
+        MethodInvocation success = mock(MethodInvocation.class);
+        when(success.getMethod()).thenReturn(AdtService.class.getMethod("getActiveVisits", Location.class));
+        when(success.proceed()).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                new QueryCountingInterceptor().onPrepareStatement("select 1");
+                return "result";
+            }
+        });
+        MethodInvocation failure = mock(MethodInvocation.class);
+        when(failure.getMethod()).thenReturn(AdtService.class.getMethod("getActiveVisits", Location.class));
+        when(failure.proceed()).thenThrow(new IllegalStateException());
+
+        assertThat((String) interceptor.invoke(success), is("result"));
+        assertThat((String) interceptor.invoke(success), is("result"));
+        try {
+            interceptor.invoke(failure);
+            fail();
+        }
+        catch (IllegalStateException e) {
+            // expected
+        }
+
+        List<OperationStats> operations = metricsRegistry.getOperations();
+        assertThat(operations.size(), is(1));
+        assertThat(operations.get(0).getName(), is("AdtService.getActiveVisits"));
+        assertThat(operations.get(0).getCalls(), is(3L));
+        assertThat(operations.get(0).getErrors(), is(1L));
+        assertThat(operations.get(0).getQueries(), is(2L));
+    }
+
+}
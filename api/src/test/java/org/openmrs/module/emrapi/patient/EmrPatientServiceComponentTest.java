@@ -0,0 +1,153 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.patient;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Location;
+import org.openmrs.Patient;
+import org.openmrs.api.LocationService;
+import org.openmrs.api.PatientService;
+import org.openmrs.test.BaseModuleContextSensitiveTest;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class EmrPatientServiceComponentTest extends BaseModuleContextSensitiveTest {
+
+    @Autowired
+    private EmrPatientService emrPatientService;
+
+    @Autowired
+    private PatientService patientService;
+
+    @Autowired
+    private LocationService locationService;
+
+    @Before
+    public void setUp() throws Exception {
+        executeDataSet("baseTestDataset.xml");
+        executeDataSet("emrPatientServiceComponentTestDataset.xml");
+    }
+
+    @Test
+    public void testGetPatientsKeepsTheOrderOfTheIds() throws Exception {
+        List<Patient> patients = emrPatientService.getPatients(Arrays.asList(7, 2, 123456));
+
+        assertThat(patients.size(), is(2));
+        assertThat(patients.get(0).getPatientId(), is(7));
+        assertThat(patients.get(1).getPatientId(), is(2));
+    }
+
+    @Test
+    public void testGetPatientSummariesKeepsTheOrderOfTheIds() throws Exception {
+        List<PatientSummary> summaries = emrPatientService.getPatientSummaries(Arrays.asList(7, 2, 123456));
+
+        assertThat(summaries.size(), is(2));
+        assertThat(summaries.get(0).getPatientId(), is(7));
+        assertThat(summaries.get(1).getPatientId(), is(2));
+        Patient patient = patientService.getPatient(2);
+        assertThat(summaries.get(1).getUuid(), is(patient.getUuid()));
+        assertThat(summaries.get(1).getGivenName(), is(patient.getGivenName()));
+        assertThat(summaries.get(1).getFamilyName(), is(patient.getFamilyName()));
+    }
+
+    @Test
+    public void testSearchPatientsPagesThroughAllMatchesInIdOrder() throws Exception {
+        List<Integer> expected = new ArrayList<Integer>();
+        for (Patient patient : patientService.getAllPatients(false)) {
+            expected.add(patient.getPatientId());
+        }
+        Collections.sort(expected);
+
+        List<Integer> actual = new ArrayList<Integer>();
+        Integer cursor = null;
+        do {
+            PatientSearchResults page = emrPatientService.searchPatients(null, null, cursor, 2);
+            assertThat(page.getPatients().size() <= 2, is(true));
+            for (PatientSummary summary : page.getPatients()) {
+                actual.add(summary.getPatientId());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertThat(actual, is(expected));
+    }
+
+    @Test
+    public void testSearchPatientsPagesThroughThePatientsWithAnIdentifier() throws Exception {
+        List<Integer> actual = searchAllPages("PAGED-1", null, 2);
+
+        assertThat(actual, is(Arrays.asList(1001, 1002, 1003, 1005)));
+        assertThat(actual, is(sortedIds(emrPatientService.findPatients("PAGED-1", null, null, null))));
+    }
+
+    @Test
+    public void testSearchPatientsPagesThroughThePatientsWithAName() throws Exception {
+        List<Integer> actual = searchAllPages("Pagedsearch", null, 2);
+
+        assertThat(actual, is(Arrays.asList(1001, 1002, 1003, 1005)));
+        assertThat(actual, is(sortedIds(emrPatientService.findPatients("Pagedsearch", null, null, null))));
+    }
+
+    @Test
+    public void testSearchPatientsPagesThroughThePatientsCheckedInAtALocation() throws Exception {
+        Location location = locationService.getLocation(2);
+
+        List<Integer> actual = searchAllPages("Pagedsearch", location, 2);
+
+        assertThat(actual, is(Arrays.asList(1001, 1003, 1005)));
+        assertThat(actual, is(sortedIds(emrPatientService.findPatients("Pagedsearch", location, null, null))));
+    }
+
+    @Test
+    public void testSearchPatientsReturnsNoCursorOnTheLastPage() throws Exception {
+        PatientSearchResults page = emrPatientService.searchPatients(null, null, null, 1000);
+
+        assertThat(page.getNextCursor(), nullValue());
+        assertThat(page.hasMore(), is(false));
+    }
+
+    private List<Integer> searchAllPages(String query, Location checkedInAt, int pageSize) {
+        List<Integer> patientIds = new ArrayList<Integer>();
+        Integer cursor = null;
+        do {
+            PatientSearchResults page = emrPatientService.searchPatients(query, checkedInAt, cursor, pageSize);
+            assertThat(page.getPatients().size() <= pageSize, is(true));
+            for (PatientSummary summary : page.getPatients()) {
+                patientIds.add(summary.getPatientId());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return patientIds;
+    }
+
+    private List<Integer> sortedIds(List<Patient> patients) {
+        List<Integer> patientIds = new ArrayList<Integer>();
+        for (Patient patient : patients) {
+            patientIds.add(patient.getPatientId());
+        }
+        Collections.sort(patientIds);
+        return patientIds;
+    }
+
+}
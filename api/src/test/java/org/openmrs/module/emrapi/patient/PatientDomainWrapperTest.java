@@ -1,5 +1,6 @@
 package org.openmrs.module.emrapi.patient;
 
+import org.hibernate.collection.PersistentSet;
 import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.Patient;
@@ -83,6 +84,35 @@ public class PatientDomainWrapperTest {
 
     }
 
+    @Test
+    public void shouldCheckTestPatientIdsWhenAttributesAreNotLoaded() {
+        TestPatientIds testPatientIds = mock(TestPatientIds.class);
+        when(testPatientIds.isReady()).thenReturn(true);
+        when(testPatientIds.contains(7)).thenReturn(true);
+        patientDomainWrapper.setTestPatientIds(testPatientIds);
+
+        patient.setPatientId(7);
+        patient.setAttributes(new PersistentSet());
+
+        assertTrue(patientDomainWrapper.isTestPatient());
+    }
+
+    @Test
+    public void shouldCheckLoadedAttributesEvenIfTestPatientIdsAreReady() {
+        PersonAttributeType personAttributeType = new PersonAttributeType();
+        personAttributeType.setPersonAttributeTypeId(11);
+        patient.setPatientId(7);
+        patient.addAttribute(new PersonAttribute(personAttributeType, "true"));
+        when(emrApiProperties.getTestPatientPersonAttributeType()).thenReturn(personAttributeType);
+
+        TestPatientIds testPatientIds = mock(TestPatientIds.class);
+        when(testPatientIds.isReady()).thenReturn(true);
+        when(testPatientIds.contains(7)).thenReturn(false);
+        patientDomainWrapper.setTestPatientIds(testPatientIds);
+
+        assertTrue(patientDomainWrapper.isTestPatient());
+    }
+
     @Test
     public void shouldVerifyIfPatientIsNotATest() {
 
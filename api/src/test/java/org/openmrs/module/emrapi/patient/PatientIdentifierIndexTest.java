@@ -0,0 +1,182 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.patient;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Patient;
+import org.openmrs.PatientIdentifier;
+import org.openmrs.PatientIdentifierType;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openmrs.module.emrapi.EmrApiProperties;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PatientIdentifierIndexTest {
+
+    private PatientIdentifierIndex index;
+
+    private EmrPatientDAO dao;
+
+    private List<Object[]> rows;
+
+    private PatientIdentifierType primaryIdentifierType;
+
+    private PatientIdentifierType otherIdentifierType;
+
+    @Before
+    public void setUp() throws Exception {
+        primaryIdentifierType = new PatientIdentifierType(1);
+        otherIdentifierType = new PatientIdentifierType(2);
+
+        EmrApiProperties emrApiProperties = mock(EmrApiProperties.class);
+        when(emrApiProperties.getIdentifierTypesToSearch()).thenReturn(Arrays.asList(primaryIdentifierType));
+
+        dao = mock(EmrPatientDAO.class);
+        rows = new ArrayList<Object[]>();
+        rows.add(new Object[] { "ABC123", 5 });
+        rows.add(new Object[] { "abc1234", 6 });
+        rows.add(new Object[] { "XYZ9", 7 });
+        rows.add(new Object[] { "abc123", 3 });
+        when(dao.getActiveIdentifiers(primaryIdentifierType)).thenReturn(rows);
+
+        index = new PatientIdentifierIndex();
+        index.setDao(dao);
+        index.setEmrApiProperties(emrApiProperties);
+    }
+
+    @Test
+    public void shouldNotAnswerUntilBuilt() throws Exception {
+        assertThat(index.isReady(), is(false));
+        assertThat(index.getPatientIds("ABC123", Arrays.asList(primaryIdentifierType)), nullValue());
+    }
+
+    /**
+     * @verifies find patients by exact identifier ignoring case and whitespace
+     * @see PatientIdentifierIndex#getPatientIds(String, java.util.Collection)
+     */
+    @Test
+    public void getPatientIds_shouldFindPatientsByExactIdentifierIgnoringCaseAndWhitespace() throws Exception {
+        index.rebuild();
+
+        assertThat(index.getPatientIds(" abc123 ", Arrays.asList(primaryIdentifierType)), is(Arrays.asList(3, 5)));
+        assertThat(index.getPatientIds("ABC1234", Arrays.asList(primaryIdentifierType)), is(Arrays.asList(6)));
+    }
+
+    /**
+     * @verifies return an empty list if no identifier matches
+     * @see PatientIdentifierIndex#getPatientIds(String, java.util.Collection)
+     */
+    @Test
+    public void getPatientIds_shouldReturnAnEmptyListIfNoIdentifierMatches() throws Exception {
+        index.rebuild();
+
+        assertThat(index.getPatientIds("ABC12", Arrays.asList(primaryIdentifierType)), is(Collections.<Integer>emptyList()));
+    }
+
+    /**
+     * @verifies return null if a type is not indexed
+     * @see PatientIdentifierIndex#getPatientIds(String, java.util.Collection)
+     */
+    @Test
+    public void getPatientIds_shouldReturnNullIfATypeIsNotIndexed() throws Exception {
+        index.rebuild();
+
+        assertThat(index.getPatientIds("ABC123", Arrays.asList(primaryIdentifierType, otherIdentifierType)), nullValue());
+    }
+
+    @Test
+    public void shouldReplaceTheIdentifiersOfAReindexedPatient() throws Exception {
+        index.rebuild();
+
+        Patient patient = new Patient(5);
+        patient.addIdentifier(new PatientIdentifier("NEW42", primaryIdentifierType, null));
+        patient.addIdentifier(new PatientIdentifier("OTHER42", otherIdentifierType, null));
+        index.reindexPatient(patient);
+
+        assertThat(index.getPatientIds("ABC123", Arrays.asList(primaryIdentifierType)), is(Arrays.asList(3)));
+        assertThat(index.getPatientIds("new42", Arrays.asList(primaryIdentifierType)), is(Arrays.asList(5)));
+        assertThat(index.getPatientIds("OTHER42", Arrays.asList(primaryIdentifierType)), is(Collections.<Integer>emptyList()));
+    }
+
+    @Test
+    public void shouldRemoveTheIdentifiersOfAVoidedPatient() throws Exception {
+        index.rebuild();
+
+        Patient patient = new Patient(7);
+        patient.addIdentifier(new PatientIdentifier("XYZ9", primaryIdentifierType, null));
+        patient.setVoided(true);
+        index.reindexPatient(patient);
+
+        assertThat(index.getPatientIds("XYZ9", Arrays.asList(primaryIdentifierType)), is(Collections.<Integer>emptyList()));
+    }
+
+    @Test
+    public void shouldRemoveTheIdentifiersOfARemovedPatient() throws Exception {
+        index.rebuild();
+
+        index.removePatient(5);
+
+        assertThat(index.getPatientIds("ABC123", Arrays.asList(primaryIdentifierType)), is(Arrays.asList(3)));
+    }
+
+    @Test
+    public void shouldKeepTheIdentifiersOfReindexedPatientsOnceTheyAreMergedIntoTheSnapshot() throws Exception {
+        index.rebuild();
+
+        for (int patientId = 100; patientId < 2100; patientId++) {
+            Patient patient = new Patient(patientId);
+            patient.addIdentifier(new PatientIdentifier("ID" + patientId, primaryIdentifierType, null));
+            index.reindexPatient(patient);
+        }
+        index.removePatient(6);
+
+        assertThat(index.getPatientIds("ABC123", Arrays.asList(primaryIdentifierType)), is(Arrays.asList(3, 5)));
+        assertThat(index.getPatientIds("ABC1234", Arrays.asList(primaryIdentifierType)), is(Collections.<Integer>emptyList()));
+        assertThat(index.getPatientIds("id100", Arrays.asList(primaryIdentifierType)), is(Arrays.asList(100)));
+        assertThat(index.getPatientIds("ID2099", Arrays.asList(primaryIdentifierType)), is(Arrays.asList(2099)));
+    }
+
+    @Test
+    public void shouldApplyPatientsReindexedDuringARebuildOnceItHasFinished() throws Exception {
+        when(dao.getActiveIdentifiers(any(PatientIdentifierType.class))).thenAnswer(new Answer<List<Object[]>>() {
+            @Override
+            public List<Object[]> answer(InvocationOnMock invocation) throws Throwable {
+                // the patient changes after its identifiers were loaded but before the index is published
+                Patient patient = new Patient(7);
+                patient.addIdentifier(new PatientIdentifier("XYZ10", primaryIdentifierType, null));
+                index.reindexPatient(patient);
+                return rows;
+            }
+        });
+
+        index.rebuild();
+
+        assertThat(index.getPatientIds("XYZ9", Arrays.asList(primaryIdentifierType)), is(Collections.<Integer>emptyList()));
+        assertThat(index.getPatientIds("XYZ10", Arrays.asList(primaryIdentifierType)), is(Arrays.asList(7)));
+    }
+
+}
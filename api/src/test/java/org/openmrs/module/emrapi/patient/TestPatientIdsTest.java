@@ -0,0 +1,95 @@
+/*
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.patient;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openmrs.Person;
+import org.openmrs.PersonAttribute;
+import org.openmrs.PersonAttributeType;
+import org.openmrs.module.emrapi.EmrApiProperties;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TestPatientIdsTest {
+
+    private TestPatientIds testPatientIds;
+
+    private EmrPatientDAO dao;
+
+    private PersonAttributeType testPatientAttributeType;
+
+    @Before
+    public void setUp() throws Exception {
+        testPatientAttributeType = new PersonAttributeType(1);
+
+        EmrApiProperties emrApiProperties = mock(EmrApiProperties.class);
+        when(emrApiProperties.getTestPatientPersonAttributeType()).thenReturn(testPatientAttributeType);
+
+        dao = mock(EmrPatientDAO.class);
+        when(dao.getPersonIdsWithTrueAttribute(testPatientAttributeType)).thenReturn(Arrays.asList(3, 5));
+
+        testPatientIds = new TestPatientIds();
+        testPatientIds.setDao(dao);
+        testPatientIds.setEmrApiProperties(emrApiProperties);
+    }
+
+    @Test
+    public void shouldUpdateAPersonAfterTheIdsAreLoaded() throws Exception {
+        testPatientIds.rebuild();
+
+        testPatientIds.update(person(5, "false"));
+        testPatientIds.update(person(7, "true"));
+
+        assertThat(testPatientIds.contains(3), is(true));
+        assertThat(testPatientIds.contains(5), is(false));
+        assertThat(testPatientIds.contains(7), is(true));
+    }
+
+    @Test
+    public void shouldApplyPersonsUpdatedWhileTheIdsAreLoadedOnceTheyAre() throws Exception {
+        when(dao.getPersonIdsWithTrueAttribute(testPatientAttributeType)).thenAnswer(new Answer<List<Integer>>() {
+            @Override
+            public List<Integer> answer(InvocationOnMock invocation) throws Throwable {
+                // these persons change after the ids were read but before they are published
+                testPatientIds.update(person(5, "false"));
+                testPatientIds.update(person(7, "true"));
+                return Arrays.asList(3, 5);
+            }
+        });
+
+        testPatientIds.rebuild();
+
+        assertThat(testPatientIds.isReady(), is(true));
+        assertThat(testPatientIds.contains(3), is(true));
+        assertThat(testPatientIds.contains(5), is(false));
+        assertThat(testPatientIds.contains(7), is(true));
+    }
+
+    private Person person(Integer personId, String testPatient) {
+        Person person = new Person(personId);
+        person.addAttribute(new PersonAttribute(testPatientAttributeType, testPatient));
+        return person;
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.openmrs.module.emrapi.person.image;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmrs.module.emrapi.EmrApiProperties;
+
+import java.io.File;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ShardedPersonImageStoreTest {
+
+    private static final String PERSON_UUID = "ba1b19c2-3ed6-4cb7-8ea6-d1f9af8ef4d8";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+
+    private ShardedPersonImageStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = folder.newFolder("person_images");
+        EmrApiProperties emrApiProperties = mock(EmrApiProperties.class);
+        when(emrApiProperties.getPersonImageDirectory()).thenReturn(directory);
+
+        store = new ShardedPersonImageStore();
+        store.setEmrApiProperties(emrApiProperties);
+        store.setStoreContentHash(true);
+    }
+
+    @Test
+    public void save_shouldWriteTheImageInADirectoryNamedAfterTheHashOfTheUuid() throws Exception {
+        store.save(PERSON_UUID, "image".getBytes());
+
+        File imageFile = store.getImageFile(PERSON_UUID);
+        assertThat(imageFile.getParentFile().getParentFile().getParentFile(), is(directory));
+        assertThat(imageFile.getParentFile().getName().length(), is(2));
+        assertThat(FileUtils.readFileToString(imageFile), is("image"));
+        assertThat(imageFile.getParentFile().list().length, is(2));
+        assertThat(store.verify(PERSON_UUID), is(true));
+    }
+
+    @Test
+    public void verify_shouldDetectAnImageThatNoLongerMatchesItsHash() throws Exception {
+        store.save(PERSON_UUID, "image".getBytes());
+        FileUtils.writeStringToFile(store.getImageFile(PERSON_UUID), "imag");
+
+        assertThat(store.verify(PERSON_UUID), is(false));
+    }
+
+    @Test
+    public void getImageFile_shouldFindImagesThatAreStillInTheFlatLayout() throws Exception {
+        File legacyFile = new File(directory, PERSON_UUID + ".jpeg");
+        FileUtils.writeStringToFile(legacyFile, "old image");
+
+        assertThat(store.getImageFile(PERSON_UUID), is(legacyFile));
+
+        store.save(PERSON_UUID, "new image".getBytes());
+
+        assertThat(store.getImageFile(PERSON_UUID), is(not(legacyFile)));
+    }
+
+    @Test
+    public void migrate_shouldMoveFlatImagesWithoutReplacingNewerOnes() throws Exception {
+        FileUtils.writeStringToFile(new File(directory, PERSON_UUID + ".jpeg"), "old image");
+        FileUtils.writeStringToFile(new File(directory, "other-uuid.jpeg"), "other image");
+        store.save(PERSON_UUID, "new image".getBytes());
+
+        PersonImageMigrator migrator = new PersonImageMigrator(directory, store);
+        migrator.setBatchSize(1);
+        migrator.setPauseBetweenBatches(0);
+
+        assertThat(migrator.migrate(), is(2));
+        assertThat(migrator.hasImagesToMigrate(), is(false));
+        assertThat(FileUtils.readFileToString(store.getImageFile(PERSON_UUID)), is("new image"));
+        assertThat(FileUtils.readFileToString(store.getImageFile("other-uuid")), is("other image"));
+    }
+
+}
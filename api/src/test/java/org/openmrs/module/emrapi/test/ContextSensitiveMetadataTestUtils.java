@@ -6,9 +6,12 @@ import org.openmrs.ConceptDatatype;
 import org.openmrs.ConceptMapType;
 import org.openmrs.ConceptSource;
 import org.openmrs.api.ConceptService;
+import org.openmrs.api.context.Context;
 import org.openmrs.module.emrapi.EmrApiActivator;
 import org.openmrs.module.emrapi.EmrApiConstants;
 import org.openmrs.module.emrapi.EmrApiProperties;
+import org.openmrs.module.emrapi.concept.ConceptReferenceCache;
+import org.openmrs.module.emrapi.descriptor.ConceptSetDescriptorRegistry;
 import org.openmrs.module.emrapi.diagnosis.DiagnosisMetadata;
 import org.openmrs.module.emrapi.disposition.DispositionDescriptor;
 import org.openmrs.module.emrapi.disposition.DispositionService;
@@ -86,6 +89,8 @@ public class ContextSensitiveMetadataTestUtils {
                 .addSetMembers(disposition, transferTo, admissionLocation, internalTransferLocation, dateOfDeath)
                 .addMapping(sameAs, emrSource, EmrApiConstants.CONCEPT_CODE_DISPOSITION_CONCEPT_SET).saveAndGet();
 
+        // concept events are only sent once the transaction commits, which tests never do
+        invalidateConceptCaches();
         return dispositionService.getDispositionDescriptor();
     }
 
@@ -142,7 +147,13 @@ public class ContextSensitiveMetadataTestUtils {
                 .addSetMembers(order, certainty, codedDiagnosis, nonCodedDiagnosis)
                 .addMapping(sameAs, emrSource, EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CONCEPT_SET).saveAndGet();
 
+        invalidateConceptCaches();
         return emrApiProperties.getDiagnosisMetadata();
     }
 
+    private static void invalidateConceptCaches() {
+        Context.getRegisteredComponents(ConceptSetDescriptorRegistry.class).get(0).invalidate();
+        Context.getRegisteredComponents(ConceptReferenceCache.class).get(0).invalidate();
+    }
+
 }
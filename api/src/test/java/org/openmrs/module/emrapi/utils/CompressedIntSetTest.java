@@ -0,0 +1,75 @@
+package org.openmrs.module.emrapi.utils;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class CompressedIntSetTest {
+
+    @Test
+    public void shouldAddContainAndRemoveValues() {
+        CompressedIntSet set = new CompressedIntSet();
+        assertThat(set.isEmpty(), is(true));
+
+        assertThat(set.add(7), is(true));
+        assertThat(set.add(7), is(false));
+        assertThat(set.add(70000), is(true));
+        assertThat(set.add(Integer.MAX_VALUE), is(true));
+
+        assertThat(set.size(), is(3));
+        assertThat(set.contains(7), is(true));
+        assertThat(set.contains(70000), is(true));
+        assertThat(set.contains(Integer.MAX_VALUE), is(true));
+        assertThat(set.contains(8), is(false));
+        assertThat(set.contains(7 + 65536), is(false));
+
+        assertThat(set.remove(70000), is(true));
+        assertThat(set.remove(70000), is(false));
+        assertThat(set.contains(70000), is(false));
+        assertThat(set.size(), is(2));
+    }
+
+    @Test
+    public void shouldSwitchBetweenArrayAndBitmapWithoutLosingValues() {
+        CompressedIntSet set = new CompressedIntSet();
+        for (int i = 0; i < CompressedIntSet.MAX_ARRAY_SIZE + 10; i++) {
+            set.add(i * 2);
+        }
+        assertThat(set.getSizeInBytes(), is(4L + 8 * 1024));
+        for (int i = 0; i < 20; i++) {
+            set.remove(i * 2);
+        }
+
+        assertThat(set.size(), is(CompressedIntSet.MAX_ARRAY_SIZE - 10));
+        assertThat(set.contains(38), is(false));
+        assertThat(set.contains(40), is(true));
+        assertThat(set.contains(41), is(false));
+        assertThat(set.contains((CompressedIntSet.MAX_ARRAY_SIZE + 9) * 2), is(true));
+    }
+
+    @Test
+    public void shouldAgreeWithHashSet() {
+        Random random = new Random(42);
+        CompressedIntSet set = new CompressedIntSet();
+        Set<Integer> expected = new HashSet<Integer>();
+        for (int i = 0; i < 100000; i++) {
+            int value = random.nextInt(300000);
+            if (random.nextInt(3) == 0) {
+                assertThat(set.remove(value), is(expected.remove(value)));
+            } else {
+                assertThat(set.add(value), is(expected.add(value)));
+            }
+        }
+
+        assertThat(set.size(), is(expected.size()));
+        for (int value = 0; value < 300000; value++) {
+            assertThat(set.contains(value), is(expected.contains(value)));
+        }
+    }
+
+}
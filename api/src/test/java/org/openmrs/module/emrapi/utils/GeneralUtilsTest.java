@@ -16,6 +16,7 @@ import org.powermock.api.mockito.PowerMockito;
 import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
@@ -84,4 +85,21 @@ public class GeneralUtilsTest {
         Assert.assertEquals(2, lastViewed.get(2).getId().intValue());
     }
 
+    /**
+     * @verifies return the ids of the patients last viewed by the specified user
+     * @see GeneralUtils#getLastViewedPatientIds(org.openmrs.User)
+     */
+    @Test
+    public void getLastViewedPatientIds_shouldReturnTheIdsOfThePatientsLastViewedByTheSpecifiedUser() throws Exception {
+        User user = new User(1);
+        user.setUserProperty(EmrApiConstants.USER_PROPERTY_NAME_LAST_VIEWED_PATIENT_IDS, "2, 6,7");
+        PowerMockito.mockStatic(Context.class);
+        UserService us = mock(UserService.class);
+        when(Context.getUserService()).thenReturn(us);
+        when(us.getUser(eq(user.getId()))).thenReturn(user);
+
+        List<Integer> lastViewed = GeneralUtils.getLastViewedPatientIds(user);
+        Assert.assertEquals(Arrays.asList(7, 6, 2), lastViewed);
+    }
+
 }
@@ -13,16 +13,33 @@
  */
 package org.openmrs.module.emrapi.utils;
 
+import org.junit.After;
+import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.api.context.Context;
 import org.openmrs.test.BaseModuleContextSensitiveTest;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 public class MetadataUtilTest extends BaseModuleContextSensitiveTest {
+
+    private MetadataUtil.BackgroundRunner backgroundRunner;
+
+    @Before
+    public void setUp() throws Exception {
+        backgroundRunner = MetadataUtil.backgroundRunner;
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        MetadataUtil.backgroundRunner = backgroundRunner;
+    }
 	
 	@Test
 	public void testSetupStandardMetadata() throws Exception {
@@ -33,4 +50,41 @@ public class MetadataUtilTest extends BaseModuleContextSensitiveTest {
         assertTrue(anyChanges);
         assertThat(Context.getVisitService().getVisitTypeByUuid("86b3d7bc-d91f-4ce2-991c-f71bba0b31e4").getName(), is("Clinic or Hospital Visit"));
 	}
+
+    @Test
+    public void testSetupStandardMetadataParsesThePackagesInTheBackground() throws Exception {
+        final List<Runnable> started = new ArrayList<Runnable>();
+        // runs the work in this thread, so that it sees the test's session
+        MetadataUtil.backgroundRunner = new MetadataUtil.BackgroundRunner() {
+
+            @Override
+            public void run(Runnable runnable) {
+                started.add(runnable);
+                runnable.run();
+            }
+        };
+
+        boolean anyChanges = MetadataUtil.setupStandardMetadata(getClass().getClassLoader(), "twoPackages.xml");
+
+        assertTrue(anyChanges);
+        assertThat(started.size(), is(2));
+        assertThat(Context.getVisitService().getVisitTypeByUuid("86b3d7bc-d91f-4ce2-991c-f71bba0b31e4").getName(), is("Clinic or Hospital Visit"));
+    }
+
+    @Test
+    public void testSetupStandardMetadataParsesThePackagesOneAtATimeIfTheyCannotBeParsedInTheBackground() throws Exception {
+        MetadataUtil.backgroundRunner = new MetadataUtil.BackgroundRunner() {
+
+            @Override
+            public void run(Runnable runnable) {
+                throw new IllegalStateException("No daemon token has been set");
+            }
+        };
+
+        boolean anyChanges = MetadataUtil.setupStandardMetadata(getClass().getClassLoader(), "twoPackages.xml");
+
+        assertTrue(anyChanges);
+        assertThat(Context.getVisitService().getVisitTypeByUuid("86b3d7bc-d91f-4ce2-991c-f71bba0b31e4").getName(), is("Clinic or Hospital Visit"));
+    }
+
 }
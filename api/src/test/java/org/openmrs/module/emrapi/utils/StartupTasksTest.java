@@ -0,0 +1,55 @@
+package org.openmrs.module.emrapi.utils;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.assertThat;
+
+public class StartupTasksTest {
+
+    @Test
+    public void run_shouldReportTheOutcomeOfEachStep() throws Exception {
+        StartupTasks tasks = new StartupTasks("test");
+
+        tasks.run("changed", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                return true;
+            }
+        });
+        tasks.run("unchanged", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                return false;
+            }
+        });
+
+        assertThat(tasks.getReport(), containsString("changed: done"));
+        assertThat(tasks.getReport(), containsString("unchanged: nothing to do"));
+    }
+
+    @Test
+    public void run_shouldReportAStepThatFailedWithoutFailingTheStartup() throws Exception {
+        StartupTasks tasks = new StartupTasks("test");
+
+        tasks.run("check", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                throw new StartupTasks.StepFailedException("2 problems");
+            }
+        });
+
+        assertThat(tasks.getReport(), containsString("check: failed: 2 problems"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void run_shouldPassOnOtherExceptions() throws Exception {
+        new StartupTasks("test").run("broken", new StartupTasks.Task() {
+            @Override
+            public boolean run() {
+                throw new IllegalStateException("broken");
+            }
+        });
+    }
+
+}
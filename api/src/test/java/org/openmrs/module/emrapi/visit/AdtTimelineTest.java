@@ -0,0 +1,106 @@
+package org.openmrs.module.emrapi.visit;
+
+import org.apache.commons.lang.time.DateUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Encounter;
+import org.openmrs.EncounterType;
+import org.openmrs.Location;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class AdtTimelineTest {
+
+    private EncounterType admission = new EncounterType();
+
+    private EncounterType transfer = new EncounterType();
+
+    private EncounterType exit = new EncounterType();
+
+    private Location ward = new Location();
+
+    private Location icu = new Location();
+
+    private Date start;
+
+    private AdtTimeline timeline;
+
+    @Before
+    public void setUp() throws Exception {
+        start = DateUtils.truncate(new Date(), java.util.Calendar.DATE);
+
+        // most recent first, as VisitDomainWrapper#getSortedEncounters returns them
+        List<Encounter> encounters = Arrays.asList(
+                encounter(admission, ward, 10),
+                encounter(exit, null, 8),
+                encounter(transfer, icu, 4),
+                encounter(new EncounterType(), null, 3),
+                encounter(admission, ward, 2));
+
+        timeline = AdtTimeline.build(encounters, admission, transfer, exit);
+    }
+
+    @Test
+    public void shouldOnlyKeepAdtEncountersAsTransitions() throws Exception {
+        assertThat(timeline.getTransitionCount(), is(4));
+        assertThat(timeline.getTransitionDatetime(0), is(hours(2)));
+        assertThat(timeline.isAdmitted(), is(true));
+    }
+
+    @Test
+    public void shouldAnswerPointInTimeQueries() throws Exception {
+        assertThat(timeline.isAdmitted(hours(1)), is(false));
+        assertThat(timeline.getInpatientLocation(hours(1)), nullValue());
+
+        assertThat(timeline.isAdmitted(hours(2)), is(true));
+        assertThat(timeline.getInpatientLocation(hours(3)), is(ward));
+        assertThat(timeline.getInpatientLocation(hours(4)), is(icu));
+
+        assertThat(timeline.isAdmitted(hours(9)), is(false));
+        assertThat(timeline.getInpatientLocation(hours(9)), nullValue());
+
+        assertThat(timeline.getInpatientLocation(hours(11)), is(ward));
+    }
+
+    @Test
+    public void shouldAnswerForManyDatesAtOnceInAnyOrder() throws Exception {
+        List<Date> dates = Arrays.asList(hours(1), hours(3), hours(5), hours(9), hours(11), hours(4), hours(0));
+
+        assertThat(timeline.getInpatientLocations(dates), is(Arrays.asList(null, ward, icu, null, ward, icu, null)));
+
+        boolean[] admitted = timeline.isAdmitted(dates);
+        assertThat(admitted.length, is(7));
+        assertThat(admitted[0], is(false));
+        assertThat(admitted[2], is(true));
+        assertThat(admitted[3], is(false));
+        assertThat(admitted[5], is(true));
+        assertThat(admitted[6], is(false));
+    }
+
+    @Test
+    public void shouldNeverBeAdmittedWithoutEncounters() throws Exception {
+        AdtTimeline empty = AdtTimeline.build(Arrays.<Encounter>asList(), admission, transfer, exit);
+
+        assertThat(empty.getTransitionCount(), is(0));
+        assertThat(empty.isAdmitted(), is(false));
+        assertThat(empty.getInpatientLocation(hours(1)), nullValue());
+    }
+
+    private Date hours(int hours) {
+        return DateUtils.addHours(start, hours);
+    }
+
+    private Encounter encounter(EncounterType type, Location location, int hours) {
+        Encounter encounter = new Encounter();
+        encounter.setEncounterType(type);
+        encounter.setLocation(location);
+        encounter.setEncounterDatetime(hours(hours));
+        return encounter;
+    }
+}
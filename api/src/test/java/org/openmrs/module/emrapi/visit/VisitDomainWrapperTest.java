@@ -37,7 +37,10 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 import static org.mockito.Mockito.verify;
 import static uk.co.it.modular.hamcrest.date.DateMatchers.within;
@@ -93,6 +96,65 @@ public class VisitDomainWrapperTest {
         assertThat(wrapper.getMostRecentEncounter(), is(consult));
     }
 
+    @Test
+    public void shouldSortAgainAfterAnEncounterIsAdded() throws Exception {
+        Encounter first = new Encounter();
+        first.setEncounterDatetime(DateUtils.addHours(new Date(), -2));
+        Encounter second = new Encounter();
+        second.setEncounterDatetime(DateUtils.addHours(new Date(), -1));
+
+        Visit visit = new Visit();
+        visit.addEncounter(first);
+
+        VisitDomainWrapper wrapper = new VisitDomainWrapper(visit, emrApiProperties, dispositionService);
+        assertThat(wrapper.getMostRecentEncounter(), is(first));
+
+        wrapper.addEncounter(second);
+        assertThat(wrapper.getMostRecentEncounter(), is(second));
+        assertThat(wrapper.getSortedEncounters().size(), is(2));
+    }
+
+    @Test
+    public void shouldNoticeEncountersChangedOutsideOfTheWrapper() throws Exception {
+        Encounter first = new Encounter();
+        first.setEncounterDatetime(DateUtils.addHours(new Date(), -2));
+        Encounter second = new Encounter();
+        second.setEncounterDatetime(DateUtils.addHours(new Date(), -1));
+
+        Visit visit = new Visit();
+        visit.addEncounter(first);
+        visit.addEncounter(second);
+
+        VisitDomainWrapper wrapper = new VisitDomainWrapper(visit, emrApiProperties, dispositionService);
+        assertThat(wrapper.getMostRecentEncounter(), is(second));
+
+        second.setVoided(true);
+        assertThat(wrapper.getMostRecentEncounter(), is(first));
+
+        first.setEncounterDatetime(new Date());
+        second.setVoided(false);
+        assertThat(wrapper.getMostRecentEncounter(), is(first));
+    }
+
+    @Test
+    public void shouldNoticeAnEncounterChangedOutsideOfTheWrapperWithoutLoadingItsObs() throws Exception {
+        Encounter encounter = spy(new Encounter(1));
+        encounter.setEncounterDatetime(DateUtils.addHours(new Date(), -1));
+
+        Visit visit = new Visit();
+        visit.addEncounter(encounter);
+
+        VisitDomainWrapper wrapper = new VisitDomainWrapper(visit, emrApiProperties, dispositionService);
+        assertThat(wrapper.getMostRecentEncounter(), is(encounter));
+
+        encounter.setVoided(true);
+        encounter.setDateVoided(new Date());
+        assertThat(wrapper.getMostRecentEncounter(), nullValue());
+
+        verify(encounter, never()).getAllObs(anyBoolean());
+        verify(encounter, never()).getAllObs();
+    }
+
     @Test
     public void shouldReturnDifferenceInDaysBetweenCurrentDateAndStartDate(){
         Calendar startDate = Calendar.getInstance();
@@ -0,0 +1,209 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.openmrs.Concept;
+import org.openmrs.ConceptClass;
+import org.openmrs.ConceptDatatype;
+import org.openmrs.ConceptMapType;
+import org.openmrs.ConceptSource;
+import org.openmrs.Encounter;
+import org.openmrs.EncounterType;
+import org.openmrs.Location;
+import org.openmrs.Obs;
+import org.openmrs.Patient;
+import org.openmrs.Person;
+import org.openmrs.Visit;
+import org.openmrs.VisitType;
+import org.openmrs.module.emrapi.EmrApiConstants;
+import org.openmrs.module.emrapi.diagnosis.Diagnosis;
+import org.openmrs.module.emrapi.diagnosis.DiagnosisMetadata;
+import org.openmrs.module.emrapi.test.builder.ConceptBuilder;
+import org.openmrs.module.emrapi.test.builder.ObsBuilder;
+
+/**
+ * Builds synthetic, in memory visits, encounters and obs for the benchmarks. Everything is derived
+ * from a seed so runs are comparable.
+ */
+public class BenchmarkData {
+
+	private final Random random;
+
+	private final ConceptSource emrConceptSource = new ConceptSource();
+
+	private final ConceptMapType sameAs = new ConceptMapType();
+
+	private final ConceptDatatype naDatatype = datatype("N/A", ConceptDatatype.N_A, ConceptDatatype.N_A_UUID);
+
+	private final ConceptDatatype codedDatatype = datatype("Coded", ConceptDatatype.CODED, ConceptDatatype.CODED_UUID);
+
+	private final ConceptDatatype textDatatype = datatype("Text", ConceptDatatype.TEXT, ConceptDatatype.TEXT_UUID);
+
+	private final ConceptDatatype numericDatatype = datatype("Numeric", ConceptDatatype.NUMERIC,
+	    ConceptDatatype.NUMERIC_UUID);
+
+	private final ConceptClass misc = new ConceptClass();
+
+	private final DiagnosisMetadata diagnosisMetadata;
+
+	private final List<Concept> diagnoses = new ArrayList<Concept>();
+
+	private final List<Concept> questions = new ArrayList<Concept>();
+
+	private final EncounterType encounterType = new EncounterType("Consultation", null);
+
+	private final VisitType visitType = new VisitType("Clinic", null);
+
+	private final Location location = new Location();
+
+	private int nextConceptId = 1;
+
+	private int nextObsId = 1;
+
+	public BenchmarkData(long seed) {
+		random = new Random(seed);
+		emrConceptSource.setName(EmrApiConstants.EMR_CONCEPT_SOURCE_NAME);
+		location.setName("Ward");
+
+		Concept primary = concept(naDatatype, "Primary", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_ORDER_PRIMARY).get();
+		Concept secondary = concept(naDatatype, "Secondary", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_ORDER_SECONDARY).get();
+		Concept confirmed = concept(naDatatype, "Confirmed", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CERTAINTY_CONFIRMED)
+		        .get();
+		Concept presumed = concept(naDatatype, "Presumed", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CERTAINTY_PRESUMED).get();
+		Concept order = concept(codedDatatype, "Diagnosis order", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_ORDER)
+		        .addAnswers(primary, secondary).get();
+		Concept certainty = concept(codedDatatype, "Diagnosis certainty", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CERTAINTY)
+		        .addAnswers(confirmed, presumed).get();
+		Concept coded = concept(codedDatatype, "Coded diagnosis", EmrApiConstants.CONCEPT_CODE_CODED_DIAGNOSIS).get();
+		Concept nonCoded = concept(textDatatype, "Non-coded diagnosis", EmrApiConstants.CONCEPT_CODE_NON_CODED_DIAGNOSIS)
+		        .get();
+		Concept set = concept(naDatatype, "Visit diagnoses", EmrApiConstants.CONCEPT_CODE_DIAGNOSIS_CONCEPT_SET)
+		        .addSetMembers(order, certainty, coded, nonCoded).get();
+
+		diagnosisMetadata = new DiagnosisMetadata();
+		diagnosisMetadata.setEmrConceptSource(emrConceptSource);
+		diagnosisMetadata.setDiagnosisSetConcept(set);
+		diagnosisMetadata.setCodedDiagnosisConcept(coded);
+		diagnosisMetadata.setNonCodedDiagnosisConcept(nonCoded);
+		diagnosisMetadata.setDiagnosisOrderConcept(order);
+		diagnosisMetadata.setDiagnosisCertaintyConcept(certainty);
+
+		for (int i = 0; i < 50; i++) {
+			diagnoses.add(concept(naDatatype, "Diagnosis " + i, null).get());
+		}
+		for (int i = 0; i < 20; i++) {
+			questions.add(concept(numericDatatype, "Question " + i, null).get());
+		}
+	}
+
+	public DiagnosisMetadata getDiagnosisMetadata() {
+		return diagnosisMetadata;
+	}
+
+	/**
+	 * @return a diagnosis obs group, coded three times out of four
+	 */
+	public Obs buildDiagnosisObsGroup(Person person, Date obsDatetime) {
+		Diagnosis.Order order = random.nextBoolean() ? Diagnosis.Order.PRIMARY : Diagnosis.Order.SECONDARY;
+		Diagnosis.Certainty certainty = random.nextBoolean() ? Diagnosis.Certainty.CONFIRMED : Diagnosis.Certainty.PRESUMED;
+		ObsBuilder builder = new ObsBuilder().setPerson(person).setObsDatetime(obsDatetime)
+		        .setConcept(diagnosisMetadata.getDiagnosisSetConcept())
+		        .addMember(diagnosisMetadata.getDiagnosisOrderConcept(), diagnosisMetadata.getConceptFor(order))
+		        .addMember(diagnosisMetadata.getDiagnosisCertaintyConcept(), diagnosisMetadata.getConceptFor(certainty));
+		if (random.nextInt(4) > 0) {
+			builder.addMember(diagnosisMetadata.getCodedDiagnosisConcept(), diagnoses.get(random.nextInt(diagnoses.size())));
+		} else {
+			builder.addMember(diagnosisMetadata.getNonCodedDiagnosisConcept(), "Free text " + random.nextInt(100));
+		}
+		return withIds(builder.get());
+	}
+
+	public Obs buildNumericObs(Person person, Date obsDatetime) {
+		Obs obs = new ObsBuilder().setPerson(person).setObsDatetime(obsDatetime)
+		        .setConcept(questions.get(random.nextInt(questions.size()))).setValue(random.nextDouble() * 100).get();
+		return withIds(obs);
+	}
+
+	/**
+	 * @return an encounter with the specified number of top level obs, about a fifth of them diagnoses
+	 */
+	public Encounter buildEncounter(Patient patient, Date encounterDatetime, int obsCount) {
+		Encounter encounter = new Encounter();
+		encounter.setPatient(patient);
+		encounter.setEncounterType(encounterType);
+		encounter.setLocation(location);
+		encounter.setEncounterDatetime(encounterDatetime);
+		for (int i = 0; i < obsCount; i++) {
+			Obs obs = random.nextInt(5) == 0 ? buildDiagnosisObsGroup(patient, encounterDatetime) : buildNumericObs(patient,
+			    encounterDatetime);
+			encounter.addObs(obs);
+		}
+		return encounter;
+	}
+
+	/**
+	 * @return a visit over the last days with encounters at random times, one in ten of them voided
+	 */
+	public Visit buildVisit(int encounterCount, int obsPerEncounter) {
+		Patient patient = new Patient();
+		patient.setPatientId(random.nextInt(100000));
+		Calendar calendar = Calendar.getInstance();
+		calendar.add(Calendar.DAY_OF_MONTH, -7);
+		Date start = calendar.getTime();
+
+		Visit visit = new Visit(patient, visitType, start);
+		visit.setLocation(location);
+		for (int i = 0; i < encounterCount; i++) {
+			Date encounterDatetime = new Date(start.getTime() + (long) random.nextInt(7 * 24 * 60) * 60 * 1000);
+			Encounter encounter = buildEncounter(patient, encounterDatetime, obsPerEncounter);
+			encounter.setVoided(random.nextInt(10) == 0);
+			visit.addEncounter(encounter);
+		}
+		return visit;
+	}
+
+	private Obs withIds(Obs obs) {
+		obs.setObsId(nextObsId++);
+		obs.setDateCreated(new Date(obs.getObsDatetime().getTime() + obs.getObsId()));
+		if (obs.getGroupMembers() != null) {
+			for (Obs member : obs.getGroupMembers()) {
+				withIds(member);
+			}
+		}
+		return obs;
+	}
+
+	private ConceptBuilder concept(ConceptDatatype datatype, String name, String emrCode) {
+		ConceptBuilder builder = new ConceptBuilder(null, datatype, misc).addName(name);
+		if (emrCode != null) {
+			builder.addMapping(sameAs, emrConceptSource, emrCode);
+		}
+		builder.get().setConceptId(nextConceptId++);
+		return builder;
+	}
+
+	private static ConceptDatatype datatype(String name, String hl7Abbreviation, String uuid) {
+		ConceptDatatype datatype = new ConceptDatatype();
+		datatype.setName(name);
+		datatype.setHl7Abbreviation(hl7Abbreviation);
+		datatype.setUuid(uuid);
+		return datatype;
+	}
+}
@@ -0,0 +1,44 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results as JSON so runs of different releases can be
+ * compared, see README.md.
+ * <p/>
+ * Arguments are regular expressions selecting the benchmarks to run (all of them by default). The
+ * result file defaults to jmh-result.json and can be set with -Dbenchmark.result=...
+ */
+public class BenchmarkRunner {
+
+	public static final String RESULT_FILE_PROPERTY = "benchmark.result";
+
+	public static void main(String[] args) throws RunnerException {
+		ChainedOptionsBuilder options = new OptionsBuilder().resultFormat(ResultFormatType.JSON).result(
+		    System.getProperty(RESULT_FILE_PROPERTY, "jmh-result.json"));
+		if (args.length == 0) {
+			options.include(BenchmarkRunner.class.getPackage().getName() + "\\..*Benchmark");
+		}
+		for (String include : args) {
+			options.include(include);
+		}
+		new Runner(options.build()).run();
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.benchmarks;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.ConceptSearchResult;
+import org.openmrs.module.emrapi.concept.HibernateEmrConceptDAO;
+
+/**
+ * The diagnosis autocomplete query against an in memory H2 database. Absolute numbers say little
+ * about MySQL, compare runs with each other. Each invocation runs in its own transaction like a
+ * request would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConceptSearchBenchmark {
+
+	@Param( { "5000" })
+	public int concepts;
+
+	@Param( { "mal", "chronic fever" })
+	public String query;
+
+	private H2Database database;
+
+	private HibernateEmrConceptDAO dao;
+
+	@Setup
+	public void setUp() {
+		database = new H2Database("emrapi-benchmarks");
+		database.addConcepts(concepts);
+		dao = new HibernateEmrConceptDAO();
+		dao.setSessionFactory(database.getSessionFactory());
+	}
+
+	@TearDown
+	public void tearDown() {
+		database.close();
+	}
+
+	@Benchmark
+	public List<ConceptSearchResult> conceptSearch() {
+		Transaction transaction = database.begin();
+		try {
+			return dao.conceptSearch(query, Locale.ENGLISH, null, null, null, 20);
+		}
+		finally {
+			transaction.rollback();
+		}
+	}
+}
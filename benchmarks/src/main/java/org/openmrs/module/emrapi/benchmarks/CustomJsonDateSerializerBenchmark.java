@@ -0,0 +1,65 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.module.emrapi.utils.CustomJsonDateSerializer;
+
+/**
+ * Serializing a date, done for every date of every encounter transaction returned to the client
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CustomJsonDateSerializerBenchmark {
+
+	private final CustomJsonDateSerializer serializer = new CustomJsonDateSerializer();
+
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	private Date date;
+
+	@Setup
+	public void setUp() {
+		date = new Date();
+	}
+
+	@Benchmark
+	public String serialize() throws IOException {
+		StringWriter writer = new StringWriter();
+		JsonGenerator generator = jsonFactory.createJsonGenerator(writer);
+		serializer.serialize(date, generator, null);
+		generator.flush();
+		return writer.toString();
+	}
+}
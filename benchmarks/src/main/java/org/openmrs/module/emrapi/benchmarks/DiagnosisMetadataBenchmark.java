@@ -0,0 +1,69 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.benchmarks;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.Obs;
+import org.openmrs.Patient;
+import org.openmrs.module.emrapi.diagnosis.Diagnosis;
+import org.openmrs.module.emrapi.diagnosis.DiagnosisMetadata;
+
+/**
+ * Reading a diagnosis obs group, done for every diagnosis of the history and visit summary screens
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DiagnosisMetadataBenchmark {
+
+	private static final int GROUPS = 1024;
+
+	private DiagnosisMetadata diagnosisMetadata;
+
+	private Obs[] groups;
+
+	private int next;
+
+	@Setup
+	public void setUp() {
+		BenchmarkData data = new BenchmarkData(42);
+		diagnosisMetadata = data.getDiagnosisMetadata();
+		Patient patient = new Patient(1);
+		groups = new Obs[GROUPS];
+		for (int i = 0; i < GROUPS; i++) {
+			groups[i] = data.buildDiagnosisObsGroup(patient, new Date());
+		}
+	}
+
+	@Benchmark
+	public Diagnosis toDiagnosis() {
+		next = (next + 1) & (GROUPS - 1);
+		return diagnosisMetadata.toDiagnosis(groups[next]);
+	}
+}
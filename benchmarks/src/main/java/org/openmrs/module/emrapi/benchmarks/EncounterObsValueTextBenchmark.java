@@ -0,0 +1,111 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.Encounter;
+import org.openmrs.module.emrapi.db.HibernateEmrEncounterDAO;
+
+/**
+ * Looking up the encounters of a list of obs value texts (like lab accession numbers being reconciled) one
+ * value at a time with getEncountersByObsValueText, and all at once with getEncountersByObsValueTexts,
+ * against an in memory H2 database. A tenth of the values have no obs. Each invocation runs in its own
+ * transaction like a request would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncounterObsValueTextBenchmark {
+
+	private static final String VALUE_PREFIX = "ACC-";
+
+	@Param( { "10000" })
+	public int encounters;
+
+	@Param( { "100", "1000" })
+	public int values;
+
+	private H2Database database;
+
+	private HibernateEmrEncounterDAO dao;
+
+	private List<String> valueTexts;
+
+	@Setup
+	public void setUp() {
+		database = new H2Database("emrapi-benchmarks-obs");
+		database.addEncountersWithTextObs(encounters, VALUE_PREFIX);
+		dao = new HibernateEmrEncounterDAO();
+		dao.setSessionFactory(database.getSessionFactory());
+
+		Random random = new Random(42);
+		valueTexts = new ArrayList<String>();
+		for (int i = 0; i < values; i++) {
+			int number = random.nextInt(encounters);
+			valueTexts.add(i % 10 == 0 ? "MISSING-" + number : VALUE_PREFIX + number);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		database.close();
+	}
+
+	@Benchmark
+	public int oneQueryPerValue() {
+		Transaction transaction = database.begin();
+		try {
+			int found = 0;
+			for (String valueText : valueTexts) {
+				found += dao.getEncountersByObsValueText(null, valueText, null, false).size();
+			}
+			return found;
+		}
+		finally {
+			transaction.rollback();
+		}
+	}
+
+	@Benchmark
+	public Map<String, List<Encounter>> allValuesAtOnce() {
+		Transaction transaction = database.begin();
+		try {
+			return dao.getEncountersByObsValueTexts(null, valueTexts, null, false);
+		}
+		finally {
+			transaction.rollback();
+		}
+	}
+}
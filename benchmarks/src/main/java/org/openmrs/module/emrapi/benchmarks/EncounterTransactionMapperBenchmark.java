@@ -0,0 +1,92 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.Encounter;
+import org.openmrs.Obs;
+import org.openmrs.module.emrapi.EmrApiProperties;
+import org.openmrs.module.emrapi.diagnosis.DiagnosisMetadata;
+import org.openmrs.module.emrapi.encounter.DiagnosisMapper;
+import org.openmrs.module.emrapi.encounter.DispositionMapper;
+import org.openmrs.module.emrapi.encounter.EncounterObservationsMapper;
+import org.openmrs.module.emrapi.encounter.EncounterOrdersMapper;
+import org.openmrs.module.emrapi.encounter.EncounterProviderMapper;
+import org.openmrs.module.emrapi.encounter.EncounterTransactionMapper;
+import org.openmrs.module.emrapi.encounter.ObservationMapper;
+import org.openmrs.module.emrapi.encounter.domain.EncounterTransaction;
+
+/**
+ * Mapping an encounter with its obs and diagnoses to an EncounterTransaction. Orders, providers and
+ * dispositions are left out as they need the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EncounterTransactionMapperBenchmark {
+
+	@Param( { "10", "100" })
+	public int observations;
+
+	private EncounterTransactionMapper mapper;
+
+	private Encounter encounter;
+
+	@Setup
+	public void setUp() {
+		BenchmarkData data = new BenchmarkData(42);
+		encounter = data.buildVisit(1, observations).getEncounters().iterator().next();
+		encounter.setVoided(false);
+
+		final DiagnosisMetadata diagnosisMetadata = data.getDiagnosisMetadata();
+		EmrApiProperties emrApiProperties = new EmrApiProperties() {
+
+			@Override
+			public DiagnosisMetadata getDiagnosisMetadata() {
+				return diagnosisMetadata;
+			}
+		};
+		DispositionMapper dispositionMapper = new DispositionMapper(null) {
+
+			@Override
+			public boolean isDispositionGroup(Obs obs) {
+				return false;
+			}
+		};
+		mapper = new EncounterTransactionMapper(new EncounterObservationsMapper(new ObservationMapper(),
+		        new DiagnosisMapper(), dispositionMapper, emrApiProperties),
+		        new EncounterOrdersMapper.EmptyEncounterOrdersMapper(null, null),
+		        new EncounterProviderMapper.EmptyEncounterProviderMapper());
+	}
+
+	@Benchmark
+	public EncounterTransaction map() {
+		return mapper.map(encounter, false);
+	}
+}
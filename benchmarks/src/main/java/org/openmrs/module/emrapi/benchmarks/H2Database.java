@@ -0,0 +1,211 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.benchmarks;
+
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Date;
+
+import org.dbunit.database.DatabaseConfig;
+import org.dbunit.database.DatabaseConnection;
+import org.dbunit.database.IDatabaseConnection;
+import org.dbunit.dataset.ReplacementDataSet;
+import org.dbunit.dataset.xml.FlatXmlDataSet;
+import org.dbunit.ext.h2.H2DataTypeFactory;
+import org.dbunit.operation.DatabaseOperation;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.jdbc.Work;
+import org.openmrs.Concept;
+import org.openmrs.ConceptClass;
+import org.openmrs.ConceptDatatype;
+import org.openmrs.ConceptName;
+import org.openmrs.Encounter;
+import org.openmrs.EncounterType;
+import org.openmrs.Location;
+import org.openmrs.Obs;
+import org.openmrs.Patient;
+import org.openmrs.User;
+import org.openmrs.module.emrapi.test.builder.ConceptBuilder;
+
+/**
+ * An in memory H2 database with the OpenMRS schema and the core test datasets, the same setup as
+ * BaseModuleContextSensitiveTest but without Spring, for the DAO level benchmarks.
+ */
+public class H2Database {
+
+	private static final String[] DATASETS = { "org/openmrs/include/initialInMemoryTestDataSet.xml",
+	        "org/openmrs/include/standardTestDataset.xml" };
+
+	private static final String[] WORDS = { "acute", "chronic", "fever", "malaria", "pain", "infection", "cough",
+	        "fracture", "diabetes", "hypertension", "asthma", "anemia", "ulcer", "hepatitis", "pneumonia", "tuberculosis" };
+
+	private final SessionFactory sessionFactory;
+
+	public H2Database(String name) {
+		Configuration configuration = new Configuration().configure();
+		configuration.setProperty("hibernate.connection.driver_class", "org.h2.Driver");
+		configuration.setProperty("hibernate.connection.url", "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+		configuration.setProperty("hibernate.connection.username", "sa");
+		configuration.setProperty("hibernate.connection.password", "");
+		configuration.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+		configuration.setProperty("hibernate.hbm2ddl.auto", "create-drop");
+		configuration.setProperty("hibernate.current_session_context_class", "thread");
+		configuration.setProperty("hibernate.cache.use_second_level_cache", "false");
+		configuration.setProperty("hibernate.cache.use_query_cache", "false");
+		sessionFactory = configuration.buildSessionFactory();
+		loadDatasets();
+	}
+
+	public SessionFactory getSessionFactory() {
+		return sessionFactory;
+	}
+
+	/**
+	 * Opens a session bound to the current thread and starts a transaction
+	 */
+	public Transaction begin() {
+		return sessionFactory.getCurrentSession().beginTransaction();
+	}
+
+	/**
+	 * Adds concepts named from combinations of common diagnosis words, each with a preferred name and
+	 * a synonym
+	 */
+	public void addConcepts(int count) {
+		Transaction transaction = begin();
+		try {
+			Session session = sessionFactory.getCurrentSession();
+			User creator = (User) session.get(User.class, 1);
+			ConceptDatatype datatype = (ConceptDatatype) session.createCriteria(ConceptDatatype.class)
+			        .add(Restrictions.eq("hl7Abbreviation", ConceptDatatype.N_A)).setMaxResults(1).uniqueResult();
+			ConceptClass conceptClass = (ConceptClass) session.createCriteria(ConceptClass.class).setMaxResults(1)
+			        .uniqueResult();
+			Date now = new Date();
+			for (int i = 0; i < count; i++) {
+				String name = WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+				Concept concept = new ConceptBuilder(null, datatype, conceptClass).addName(name).addName("syn " + name)
+				        .get();
+				concept.setCreator(creator);
+				concept.setDateCreated(now);
+				for (ConceptName conceptName : concept.getNames()) {
+					conceptName.setCreator(creator);
+					conceptName.setDateCreated(now);
+				}
+				session.save(concept);
+				if (i % 500 == 0) {
+					session.flush();
+					session.clear();
+					creator = (User) session.get(User.class, 1);
+					datatype = (ConceptDatatype) session.merge(datatype);
+					conceptClass = (ConceptClass) session.merge(conceptClass);
+				}
+			}
+			transaction.commit();
+		}
+		catch (RuntimeException e) {
+			transaction.rollback();
+			throw e;
+		}
+	}
+
+	/**
+	 * Adds encounters of one patient from the core test dataset, each with one text obs whose value is
+	 * the prefix followed by the number of the encounter, like lab accession numbers
+	 */
+	public void addEncountersWithTextObs(int count, String valuePrefix) {
+		Transaction transaction = begin();
+		try {
+			Session session = sessionFactory.getCurrentSession();
+			Date now = new Date();
+			for (int i = 0; i < count; i++) {
+				User creator = (User) session.load(User.class, 1);
+				Patient patient = (Patient) session.load(Patient.class, 7);
+				Location location = (Location) session.load(Location.class, 1);
+
+				Encounter encounter = new Encounter();
+				encounter.setPatient(patient);
+				encounter.setEncounterType((EncounterType) session.load(EncounterType.class, 1));
+				encounter.setLocation(location);
+				encounter.setEncounterDatetime(now);
+				encounter.setCreator(creator);
+				encounter.setDateCreated(now);
+				session.save(encounter);
+
+				Obs obs = new Obs();
+				obs.setPerson(patient);
+				obs.setConcept((Concept) session.load(Concept.class, 19));
+				obs.setObsDatetime(now);
+				obs.setLocation(location);
+				obs.setEncounter(encounter);
+				obs.setValueText(valuePrefix + i);
+				obs.setCreator(creator);
+				obs.setDateCreated(now);
+				session.save(obs);
+
+				if (i % 500 == 0) {
+					session.flush();
+					session.clear();
+				}
+			}
+			transaction.commit();
+		}
+		catch (RuntimeException e) {
+			transaction.rollback();
+			throw e;
+		}
+	}
+
+	public void close() {
+		sessionFactory.close();
+	}
+
+	private void loadDatasets() {
+		Transaction transaction = begin();
+		sessionFactory.getCurrentSession().doWork(new Work() {
+
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				Statement statement = connection.createStatement();
+				statement.execute("SET REFERENTIAL_INTEGRITY FALSE");
+				try {
+					IDatabaseConnection dbUnitConnection = new DatabaseConnection(connection);
+					dbUnitConnection.getConfig().setProperty(DatabaseConfig.PROPERTY_DATATYPE_FACTORY,
+					    new H2DataTypeFactory());
+					for (String dataset : DATASETS) {
+						InputStream in = getClass().getClassLoader().getResourceAsStream(dataset);
+						ReplacementDataSet replacementDataSet = new ReplacementDataSet(new FlatXmlDataSet(in, false, true,
+						        false));
+						replacementDataSet.addReplacementObject("[NULL]", null);
+						DatabaseOperation.REFRESH.execute(dbUnitConnection, replacementDataSet);
+						in.close();
+					}
+				}
+				catch (Exception e) {
+					throw new IllegalStateException("Failed to load the test datasets", e);
+				}
+				finally {
+					statement.execute("SET REFERENTIAL_INTEGRITY TRUE");
+					statement.close();
+				}
+			}
+		});
+		transaction.commit();
+	}
+}
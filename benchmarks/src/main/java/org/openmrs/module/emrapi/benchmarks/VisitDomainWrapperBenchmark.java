@@ -0,0 +1,63 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+package org.openmrs.module.emrapi.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openmrs.Encounter;
+import org.openmrs.module.emrapi.visit.VisitDomainWrapper;
+
+/**
+ * Sorting the encounters of a visit, which most VisitDomainWrapper accessors start with
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class VisitDomainWrapperBenchmark {
+
+	@Param( { "10", "100", "1000" })
+	public int encounters;
+
+	private VisitDomainWrapper visit;
+
+	@Setup
+	public void setUp() {
+		visit = new VisitDomainWrapper(new BenchmarkData(42).buildVisit(encounters, 2));
+	}
+
+	@Benchmark
+	public List<Encounter> getSortedEncounters() {
+		return visit.getSortedEncounters();
+	}
+
+	@Benchmark
+	public Encounter getMostRecentEncounter() {
+		return visit.getMostRecentEncounter();
+	}
+}
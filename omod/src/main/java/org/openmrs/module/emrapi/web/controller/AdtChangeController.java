@@ -0,0 +1,64 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.web.controller;
+
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.emrapi.adt.AdtChangeLog;
+import org.openmrs.module.emrapi.adt.AdtChanges;
+import org.openmrs.module.emrapi.web.exception.InvalidInputException;
+import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
+import org.openmrs.util.PrivilegeConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * The ADT changes since a sequence, for systems that follow admissions and visits without re-reading
+ * them all. Pass the logId and lastSequence of the previous response to get the next changes.
+ * <p/>
+ * The log is stored in the database, so every server of a cluster answers the same, and a consumer keeps
+ * its place across restarts. A change made on another server (or still being saved on this one) can take
+ * a moment to show up: until it does, the response stops before it and says pending=true, so ask again
+ * shortly rather than waiting for the next poll. If reset=true, re-read the current state before applying
+ * the changes.
+ */
+@Controller
+@RequestMapping(value = "/rest/emrapi/adt/changes")
+public class AdtChangeController extends BaseRestController {
+
+    @Autowired
+    private AdtChangeLog adtChangeLog;
+
+    @RequestMapping(method = RequestMethod.GET)
+    @ResponseBody
+    public AdtChanges getChanges(@RequestParam(value = "since", required = false, defaultValue = "0") long since,
+                                 @RequestParam(value = "logId", required = false) String logId,
+                                 @RequestParam(value = "limit", required = false, defaultValue = "100") int limit) {
+        if (!Context.hasPrivilege(PrivilegeConstants.VIEW_VISITS)) {
+            throw new APIAuthenticationException("Privilege required: " + PrivilegeConstants.VIEW_VISITS);
+        }
+        if (limit <= 0) {
+            throw new InvalidInputException("Limit needs to be positive.");
+        }
+        if (since < 0) {
+            throw new InvalidInputException("Since cannot be negative.");
+        }
+        return adtChangeLog.getChangesSince(logId, since, limit);
+    }
+}
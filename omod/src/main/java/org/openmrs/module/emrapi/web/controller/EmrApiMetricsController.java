@@ -0,0 +1,79 @@
+/**
+ * The contents of this file are subject to the OpenMRS Public License
+ * Version 1.0 (the "License"); you may not use this file except in
+ * compliance with the License. You may obtain a copy of the License at
+ * http://license.openmrs.org
+ *
+ * Software distributed under the License is distributed on an "AS IS"
+ * basis, WITHOUT WARRANTY OF ANY KIND, either express or implied. See the
+ * License for the specific language governing rights and limitations
+ * under the License.
+ *
+ * Copyright (C) OpenMRS, LLC.  All Rights Reserved.
+ */
+
+package org.openmrs.module.emrapi.web.controller;
+
+import org.openmrs.api.APIAuthenticationException;
+import org.openmrs.api.context.Context;
+import org.openmrs.module.emrapi.metrics.CacheStats;
+import org.openmrs.module.emrapi.metrics.MetricsRegistry;
+import org.openmrs.module.emrapi.metrics.OperationStats;
+import org.openmrs.module.emrapi.metrics.QueueStats;
+import org.openmrs.module.webservices.rest.web.v1_0.controller.BaseRestController;
+import org.openmrs.util.PrivilegeConstants;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.List;
+
+@Controller
+@RequestMapping(value = "/rest/emrapi/metrics")
+public class EmrApiMetricsController extends BaseRestController {
+
+    @Autowired
+    private MetricsRegistry metricsRegistry;
+
+    @RequestMapping(method = RequestMethod.GET)
+    @ResponseBody
+    public List<OperationStats> getMetrics() {
+        checkPrivilege();
+        return metricsRegistry.getOperations();
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/caches")
+    @ResponseBody
+    public List<CacheStats> getCacheMetrics() {
+        checkPrivilege();
+        return metricsRegistry.getCaches();
+    }
+
+    @RequestMapping(method = RequestMethod.GET, value = "/queues")
+    @ResponseBody
+    public List<QueueStats> getQueueMetrics() {
+        checkPrivilege();
+        return metricsRegistry.getQueues();
+    }
+
+    @RequestMapping(method = RequestMethod.POST, value = "/reset")
+    @ResponseBody
+    public List<OperationStats> reset() {
+        // resetting throws away everyone's numbers, so it takes more than being able to look at them
+        checkPrivilege(PrivilegeConstants.MANAGE_GLOBAL_PROPERTIES);
+        metricsRegistry.reset();
+        return metricsRegistry.getOperations();
+    }
+
+    private void checkPrivilege() {
+        checkPrivilege(PrivilegeConstants.VIEW_ADMIN_FUNCTIONS);
+    }
+
+    private void checkPrivilege(String privilege) {
+        if (!Context.hasPrivilege(privilege)) {
+            throw new APIAuthenticationException("Privilege required: " + privilege);
+        }
+    }
+}
@@ -66,10 +66,28 @@ public class EmrEncounterController extends BaseRestController {
         String encounterDate = encounterSearchParameters.getEncounterDate();
         if (StringUtils.isBlank(encounterDate))
             throw new InvalidInputException("Encounter Date cannot be empty.");
+        checkDateFormat(encounterDate);
+
+        String encounterDateTo = encounterSearchParameters.getEncounterDateTo();
+        if (StringUtils.isNotBlank(encounterDateTo)) {
+            checkDateFormat(encounterDateTo);
+            if (encounterSearchParameters.getEncounterDateToAsDate().before(encounterSearchParameters.getEncounterDateAsDate()))
+                throw new InvalidInputException("Encounter Date To cannot be before Encounter Date.");
+        }
+
+        Integer startIndex = encounterSearchParameters.getStartIndex();
+        if (startIndex != null && startIndex < 0)
+            throw new InvalidInputException("Start Index cannot be negative.");
+        Integer limit = encounterSearchParameters.getLimit();
+        if (limit != null && limit <= 0)
+            throw new InvalidInputException("Limit needs to be positive.");
+    }
+
+    private void checkDateFormat(String date) {
         try {
-            new SimpleDateFormat("yyyy-MM-dd").parse(encounterDate);
+            new SimpleDateFormat("yyyy-MM-dd").parse(date);
         } catch (ParseException e) {
-            throw new InvalidInputException("Date format needs to be 'yyyy-MM-dd'. Incorrect Date:" + encounterDate + ".", e);
+            throw new InvalidInputException("Date format needs to be 'yyyy-MM-dd'. Incorrect Date:" + date + ".", e);
         }
     }
 }